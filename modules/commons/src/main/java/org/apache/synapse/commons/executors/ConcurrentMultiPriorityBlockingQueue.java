@@ -0,0 +1,593 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.commons.executors;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A MultiPriorityBlockingQueue which does not serialize the producers and consumers on a
+ * single lock. </p>
+ *
+ * <p> Each priority is backed by a lock free queue. The next queue is picked from a weighted
+ * schedule computed from the priorities: with priorities 7, 5 and 2 a cycle of 14 slots serves
+ * the first queue 7 times, the second 5 times and the third 2 times, interleaved. The slot is
+ * taken from a shared atomic ticket, or with work stealing enabled, from a cursor owned by the
+ * worker thread so that the workers do not contend on the ticket either. If the queue of the
+ * slot is empty the element is taken from the next non empty queue in priority order. </p>
+ *
+ * <p> The lock of this queue is only used to park consumers when all the queues are empty and
+ * producers when the queue of their priority is full. </p>
+ *
+ * <p> The internal queues given to this queue only describe the priorities and capacities, the
+ * elements are not stored in them and the NextQueueAlgorithm is not used. </p>
+ *
+ * @param <E> E should implement the Importance interface.
+ */
+public class ConcurrentMultiPriorityBlockingQueue<E> extends MultiPriorityBlockingQueue<E> {
+
+    /** Queues ordered by priority, highest first */
+    private final PriorityLane<E>[] lanes;
+
+    /** Weighted schedule of lane indexes */
+    private final int[] schedule;
+
+    /** Shared position in the schedule */
+    private final AtomicInteger ticket = new AtomicInteger();
+
+    /** Whether each worker walks the schedule with its own cursor */
+    private final boolean workStealing;
+
+    private final ThreadLocal<int[]> cursor = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            // start the workers at different positions of the schedule
+            return new int[] {ticket.getAndIncrement()};
+        }
+    };
+
+    /** Number of items in the queue */
+    private final AtomicInteger count = new AtomicInteger();
+
+    private final long capacity;
+
+    /** Lock used only for parking consumers and producers */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    private final Condition notFull = lock.newCondition();
+
+    private final AtomicInteger takeWaiters = new AtomicInteger();
+
+    private final AtomicInteger putWaiters = new AtomicInteger();
+
+    /**
+     * Create a queue with the given queues.
+     *
+     * @param queues list of InternalQueue describing the priorities and capacities
+     * @param isFixedQueues weather fixed size queues are used
+     * @param workStealing whether the workers use their own position in the schedule
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentMultiPriorityBlockingQueue(List<InternalQueue<E>> queues,
+                                                boolean isFixedQueues, boolean workStealing) {
+        super(queues, isFixedQueues, null);
+        this.workStealing = workStealing;
+
+        // the super class sorts the queues according to the priority
+        List<InternalQueue<E>> sorted = getQueues();
+        lanes = new PriorityLane[sorted.size()];
+        long totalCapacity = 0;
+        int maxWeight = 0;
+        int scheduleLength = 0;
+        for (int i = 0; i < lanes.length; i++) {
+            InternalQueue<E> queue = sorted.get(i);
+            int laneCapacity = isFixedQueues ? queue.getCapacity() : Integer.MAX_VALUE;
+            lanes[i] = new PriorityLane<E>(queue.getPriority(), laneCapacity);
+            totalCapacity += laneCapacity;
+            int weight = Math.max(1, queue.getPriority());
+            maxWeight = Math.max(maxWeight, weight);
+            scheduleLength += weight;
+        }
+        capacity = totalCapacity;
+
+        schedule = new int[Math.max(1, scheduleLength)];
+        int slot = 0;
+        for (int round = 0; round < maxWeight; round++) {
+            for (int i = 0; i < lanes.length; i++) {
+                if (round < Math.max(1, lanes[i].priority)) {
+                    schedule[slot++] = i;
+                }
+            }
+        }
+    }
+
+    public void put(E e) throws InterruptedException {
+        PriorityLane<E> lane = getLaneForPriority(((Importance) e).getPriority());
+        if (enqueue(lane, e)) {
+            return;
+        }
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        putWaiters.incrementAndGet();
+        try {
+            while (!enqueue(lane, e)) {
+                notFull.await();
+            }
+        } finally {
+            putWaiters.decrementAndGet();
+            lock.unlock();
+        }
+    }
+
+    public boolean offer(E e) {
+        return enqueue(getLaneForPriority(((Importance) e).getPriority()), e);
+    }
+
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        PriorityLane<E> lane = getLaneForPriority(((Importance) e).getPriority());
+        if (enqueue(lane, e)) {
+            return true;
+        }
+        long nanos = unit.toNanos(timeout);
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        putWaiters.incrementAndGet();
+        try {
+            for (;;) {
+                if (enqueue(lane, e)) {
+                    return true;
+                }
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+        } finally {
+            putWaiters.decrementAndGet();
+            lock.unlock();
+        }
+    }
+
+    public E take() throws InterruptedException {
+        E e = dequeue();
+        if (e != null) {
+            return e;
+        }
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        takeWaiters.incrementAndGet();
+        try {
+            while ((e = dequeue()) == null) {
+                notEmpty.await();
+            }
+            return e;
+        } finally {
+            takeWaiters.decrementAndGet();
+            lock.unlock();
+        }
+    }
+
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        E e = dequeue();
+        if (e != null) {
+            return e;
+        }
+        long nanos = unit.toNanos(timeout);
+        final ReentrantLock lock = this.lock;
+        lock.lockInterruptibly();
+        takeWaiters.incrementAndGet();
+        try {
+            for (;;) {
+                e = dequeue();
+                if (e != null) {
+                    return e;
+                }
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+        } finally {
+            takeWaiters.decrementAndGet();
+            lock.unlock();
+        }
+    }
+
+    public E poll() {
+        return dequeue();
+    }
+
+    public E peek() {
+        for (PriorityLane<E> lane : lanes) {
+            Node<E> node = lane.elements.peek();
+            if (node != null) {
+                return node.element;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Drains the highest priority items first.
+     *
+     * @param c collection to drain the items
+     * @return number of elements copied
+     */
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Drains the highest priority items first.
+     *
+     * @param c collection to drain the items
+     * @param maxElements maximum elements to copy
+     * @return number of elements copied
+     */
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        int elementsCopied = 0;
+        for (PriorityLane<E> lane : lanes) {
+            while (elementsCopied < maxElements) {
+                Node<E> node = lane.poll();
+                if (node == null) {
+                    break;
+                }
+                count.decrementAndGet();
+                c.add(node.element);
+                elementsCopied++;
+            }
+        }
+        if (elementsCopied > 0) {
+            signalNotFull();
+        }
+        return elementsCopied;
+    }
+
+    public int remainingCapacity() {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(0, capacity - count.get()));
+    }
+
+    public int size() {
+        return count.get();
+    }
+
+    public boolean isEmpty() {
+        return count.get() == 0;
+    }
+
+    public boolean remove(Object o) {
+        if (o == null) {
+            return false;
+        }
+        for (PriorityLane<E> lane : lanes) {
+            for (Node<E> node : lane.elements) {
+                if (o.equals(node.element) && lane.remove(node)) {
+                    count.decrementAndGet();
+                    signalNotFull();
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public boolean contains(Object o) {
+        if (o == null) {
+            return false;
+        }
+        for (PriorityLane<E> lane : lanes) {
+            for (Node<E> node : lane.elements) {
+                if (o.equals(node.element)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public void clear() {
+        for (PriorityLane<E> lane : lanes) {
+            while (lane.poll() != null) {
+                count.decrementAndGet();
+            }
+        }
+        signalNotFull();
+    }
+
+    public Iterator<E> iterator() {
+        return new QueueIterator(toArray());
+    }
+
+    public Object[] toArray() {
+        return snapshot().toArray();
+    }
+
+    @SuppressWarnings({"SuspiciousToArrayCall"})
+    public <T> T[] toArray(T[] a) {
+        return snapshot().toArray(a);
+    }
+
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        for (PriorityLane<E> lane : lanes) {
+            List<E> elements = new ArrayList<E>();
+            for (Node<E> node : lane.elements) {
+                elements.add(node.element);
+            }
+            s.append(elements.toString()).append(lane.priority);
+        }
+        return s.toString();
+    }
+
+    /**
+     * Get the number of items waiting in the queue of the given priority
+     *
+     * @param priority priority of the queue
+     * @return number of waiting items
+     */
+    public int getQueueDepth(int priority) {
+        return getLaneForPriority(priority).size.get();
+    }
+
+    /**
+     * Get the number of items taken from the queue of the given priority
+     *
+     * @param priority priority of the queue
+     * @return number of items taken
+     */
+    public long getDequeuedCount(int priority) {
+        return getLaneForPriority(priority).dequeued.get();
+    }
+
+    /**
+     * Get the average time the items of the given priority waited in the queue
+     *
+     * @param priority priority of the queue
+     * @return average waiting time in milliseconds
+     */
+    public double getAverageWaitTime(int priority) {
+        PriorityLane<E> lane = getLaneForPriority(priority);
+        long dequeued = lane.dequeued.get();
+        return dequeued == 0 ? 0 : lane.totalWaitNanos.get() / (dequeued * 1000000.0);
+    }
+
+    /**
+     * Get the longest time an item of the given priority waited in the queue
+     *
+     * @param priority priority of the queue
+     * @return maximum waiting time in milliseconds
+     */
+    public double getMaxWaitTime(int priority) {
+        return getLaneForPriority(priority).maxWaitNanos.get() / 1000000.0;
+    }
+
+    public boolean isWorkStealing() {
+        return workStealing;
+    }
+
+    private boolean enqueue(PriorityLane<E> lane, E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        if (!lane.reserve()) {
+            return false;
+        }
+        // count before publishing, so that the count never goes below the number of elements
+        count.incrementAndGet();
+        lane.add(e);
+        if (takeWaiters.get() > 0) {
+            signal(notEmpty);
+        }
+        return true;
+    }
+
+    private E dequeue() {
+        if (count.get() == 0) {
+            return null;
+        }
+        int start = schedule[nextSlot()];
+        Node<E> node = lanes[start].poll();
+        if (node == null) {
+            // steal from the other queues, highest priority first
+            for (int i = 0; i < lanes.length && node == null; i++) {
+                if (i != start) {
+                    node = lanes[i].poll();
+                }
+            }
+        }
+        if (node == null) {
+            return null;
+        }
+        count.decrementAndGet();
+        signalNotFull();
+        return node.element;
+    }
+
+    private int nextSlot() {
+        int position;
+        if (workStealing) {
+            int[] local = cursor.get();
+            position = local[0]++;
+        } else {
+            position = ticket.getAndIncrement();
+        }
+        return (position & Integer.MAX_VALUE) % schedule.length;
+    }
+
+    private void signalNotFull() {
+        if (putWaiters.get() > 0) {
+            final ReentrantLock lock = this.lock;
+            lock.lock();
+            try {
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void signal(Condition condition) {
+        final ReentrantLock lock = this.lock;
+        lock.lock();
+        try {
+            condition.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<E> snapshot() {
+        List<E> list = new ArrayList<E>();
+        for (PriorityLane<E> lane : lanes) {
+            for (Node<E> node : lane.elements) {
+                list.add(node.element);
+            }
+        }
+        return list;
+    }
+
+    private PriorityLane<E> getLaneForPriority(int priority) {
+        for (PriorityLane<E> lane : lanes) {
+            if (lane.priority == priority) {
+                return lane;
+            }
+        }
+        throw new IllegalArgumentException();
+    }
+
+    private class QueueIterator implements Iterator<E> {
+        final Object[] array;
+        int cursor;
+        int lastRet;
+
+        QueueIterator(Object[] array) {
+            lastRet = -1;
+            this.array = array;
+        }
+
+        public boolean hasNext() {
+            return cursor < array.length;
+        }
+
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (cursor >= array.length)
+                throw new NoSuchElementException();
+            lastRet = cursor;
+            return (E) array[cursor++];
+        }
+
+        public void remove() {
+            if (lastRet < 0)
+                throw new IllegalStateException();
+            Object x = array[lastRet];
+            lastRet = -1;
+            for (PriorityLane<E> lane : lanes) {
+                for (Node<E> node : lane.elements) {
+                    if (node.element == x && lane.remove(node)) {
+                        count.decrementAndGet();
+                        signalNotFull();
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Element with the time it was put in to the queue
+     */
+    private static final class Node<E> {
+        private final E element;
+        private final long enqueueTime = System.nanoTime();
+
+        private Node(E element) {
+            this.element = element;
+        }
+    }
+
+    /**
+     * Lock free queue of a single priority with its statistics
+     */
+    private static final class PriorityLane<E> {
+        private final int priority;
+        private final int capacity;
+        private final ConcurrentLinkedQueue<Node<E>> elements = new ConcurrentLinkedQueue<Node<E>>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicLong dequeued = new AtomicLong();
+        private final AtomicLong totalWaitNanos = new AtomicLong();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+
+        private PriorityLane(int priority, int capacity) {
+            this.priority = priority;
+            this.capacity = capacity;
+        }
+
+        /** reserve a place before adding, so that the capacity is never exceeded */
+        private boolean reserve() {
+            for (;;) {
+                int current = size.get();
+                if (current >= capacity) {
+                    return false;
+                }
+                if (size.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        private void add(E e) {
+            elements.offer(new Node<E>(e));
+        }
+
+        private Node<E> poll() {
+            Node<E> node = elements.poll();
+            if (node != null) {
+                size.decrementAndGet();
+                long waited = System.nanoTime() - node.enqueueTime;
+                dequeued.incrementAndGet();
+                totalWaitNanos.addAndGet(waited);
+                long max = maxWaitNanos.get();
+                while (waited > max && !maxWaitNanos.compareAndSet(max, waited)) {
+                    max = maxWaitNanos.get();
+                }
+            }
+            return node;
+        }
+
+        private boolean remove(Node<E> node) {
+            if (elements.remove(node)) {
+                size.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+}
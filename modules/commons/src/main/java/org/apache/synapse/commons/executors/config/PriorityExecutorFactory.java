@@ -48,6 +48,8 @@ public class PriorityExecutorFactory {
             new QName(ExecutorConstants.BEFORE_EXECUTE_HANDLER);
 
     public static final QName NEXT_QUEUE_ATT = new QName(ExecutorConstants.NEXT_QUEUE);
+    public static final QName LOCK_FREE_ATT = new QName(ExecutorConstants.LOCK_FREE);
+    public static final QName WORK_STEALING_ATT = new QName(ExecutorConstants.WORK_STEALING);
 
     public static final QName MAX_ATT = new QName(ExecutorConstants.MAX);
     public static final QName CORE_ATT = new QName(ExecutorConstants.CORE);
@@ -101,8 +103,28 @@ public class PriorityExecutorFactory {
             List<InternalQueue<Runnable>> intQueues
                     = createQueues(queueQName, queuesEle, isFixedSize);
 
-            MultiPriorityBlockingQueue<Runnable> queue =
-                    new MultiPriorityBlockingQueue<Runnable>(intQueues, isFixedSize, nqa);
+            boolean lockFree = false;
+            OMAttribute lockFreeAtt = queuesEle.getAttribute(LOCK_FREE_ATT);
+            if (lockFreeAtt != null) {
+                lockFree = Boolean.parseBoolean(lockFreeAtt.getAttributeValue());
+            }
+
+            MultiPriorityBlockingQueue<Runnable> queue;
+            if (lockFree) {
+                if (nqa != null) {
+                    log.warn(ExecutorConstants.NEXT_QUEUE + " is ignored by the " +
+                            ExecutorConstants.LOCK_FREE + " queues");
+                }
+                boolean workStealing = false;
+                OMAttribute workStealingAtt = queuesEle.getAttribute(WORK_STEALING_ATT);
+                if (workStealingAtt != null) {
+                    workStealing = Boolean.parseBoolean(workStealingAtt.getAttributeValue());
+                }
+                queue = new ConcurrentMultiPriorityBlockingQueue<Runnable>(
+                        intQueues, isFixedSize, workStealing);
+            } else {
+                queue = new MultiPriorityBlockingQueue<Runnable>(intQueues, isFixedSize, nqa);
+            }
 
             executor.setQueue(queue);
         } else {
@@ -52,7 +52,14 @@ public class PriorityExecutorSerializer {
         NextQueueAlgorithm algo = queue.getNextQueueAlgorithm();
         OMElement queuesEle = createElement(ExecutorConstants.QUEUES, namespace);
 
-        if (!(algo instanceof PRRNextQueueAlgorithm)) {
+        if (queue instanceof ConcurrentMultiPriorityBlockingQueue) {
+            queuesEle.addAttribute(fac.createOMAttribute(ExecutorConstants.LOCK_FREE, nullNS,
+                    Boolean.toString(true)));
+            if (((ConcurrentMultiPriorityBlockingQueue) queue).isWorkStealing()) {
+                queuesEle.addAttribute(fac.createOMAttribute(ExecutorConstants.WORK_STEALING,
+                        nullNS, Boolean.toString(true)));
+            }
+        } else if (!(algo instanceof PRRNextQueueAlgorithm)) {
             queuesEle.addAttribute(fac.createOMAttribute(ExecutorConstants.NEXT_QUEUE, nullNS,
                     algo.getClass().getName()));
         }
@@ -0,0 +1,149 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.commons.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * The bytes of a JSON payload, which are never modified once the payload is built.<br/>
+ * Any number of readers, including the clones of a message, share the same bytes through streams returned by
+ * {@link #newStream()}, each with its own position. The bytes are only copied when a caller asks for an array
+ * of its own. A new payload is built when the payload of a message is replaced.
+ */
+final class JsonPayloadBuffer {
+
+    private final byte[] bytes;
+
+    private final int length;
+
+    /**
+     * @param bytes  Array holding the payload. It must not be modified afterwards.
+     * @param length Number of bytes of the payload, starting at the beginning of the array.
+     */
+    JsonPayloadBuffer(byte[] bytes, int length) {
+        this.bytes = bytes;
+        this.length = length;
+    }
+
+    /**
+     * Returns a new read only stream over this payload.
+     *
+     * @return {@link SharedStream} positioned at the beginning of the payload.
+     */
+    SharedStream newStream() {
+        return new SharedStream(this);
+    }
+
+    int getLength() {
+        return length;
+    }
+
+    /**
+     * Writes this payload to the given output stream without copying it.
+     *
+     * @param out Output stream
+     * @throws IOException if the payload cannot be written
+     */
+    void writeTo(OutputStream out) throws IOException {
+        out.write(bytes, 0, length);
+    }
+
+    /**
+     * @return a copy of this payload, which the caller may modify
+     */
+    byte[] toByteArray() {
+        return Arrays.copyOf(bytes, length);
+    }
+
+    String toString(Charset charset) {
+        return new String(bytes, 0, length, charset);
+    }
+
+    /**
+     * An Un-closable, Read-Only, Reusable stream over a shared JSON payload.<br/>
+     * Like the stream of a payload read from the wire, it cannot be marked or skipped, and closing it resets it to
+     * the beginning of the payload.
+     */
+    static final class SharedStream extends InputStream {
+
+        private final JsonPayloadBuffer payload;
+
+        private int pos;
+
+        private SharedStream(JsonPayloadBuffer payload) {
+            this.payload = payload;
+        }
+
+        JsonPayloadBuffer getPayload() {
+            return payload;
+        }
+
+        @Override
+        public synchronized int read() {
+            return pos < payload.length ? (payload.bytes[pos++] & 0xff) : -1;
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            if (off < 0 || len < 0 || len > b.length - off) {
+                throw new IndexOutOfBoundsException();
+            }
+            if (pos >= payload.length) {
+                return -1;
+            }
+            int n = Math.min(len, payload.length - pos);
+            System.arraycopy(payload.bytes, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public synchronized int available() {
+            return payload.length - pos;
+        }
+
+        @Override
+        public long skip(long n) {
+            return 0;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true; //but we don't mark.
+        }
+
+        @Override
+        public void mark(int readlimit) {
+        }
+
+        @Override
+        public synchronized void reset() {
+            pos = 0;
+        }
+
+        @Override
+        public void close() {
+            reset();
+        }
+    }
+}
@@ -46,9 +46,9 @@ import org.apache.axiom.soap.SOAPEnvelope;
 import org.apache.axis2.AxisFault;
 import org.apache.axis2.context.MessageContext;
 import org.apache.commons.io.IOUtils;
-import org.apache.commons.io.output.ByteArrayOutputStream;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.commons.util.CharsetTranscodingOutputStream;
 import org.apache.synapse.commons.util.MiscellaneousUtil;
 
 import javax.xml.namespace.QName;
@@ -64,6 +64,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.Reader;
+import java.io.SequenceInputStream;
 import java.util.Iterator;
 import java.util.Properties;
 
@@ -77,6 +78,10 @@ public final class JsonUtil {
     private static final QName JSON_ARRAY = new QName("jsonArray");
 
     private static final QName JSON_VALUE = new QName("jsonValue");
+
+    private static final byte[] JAVASCRIPT_SOURCE_START = {'('};
+
+    private static final byte[] JAVASCRIPT_SOURCE_END = {')'};
     /**
      * If this property is set to <tt>true</tt> the input stream of the JSON payload will be reset
      * after writing to the output stream within the #writeAsJson method.
@@ -950,7 +955,13 @@ public final class JsonUtil {
      * @return a readonly InputStream
      */
     public static InputStream setJsonStream(MessageContext messageContext, InputStream inputStream) {
-        InputStream json = toReadOnlyStream(inputStream);
+        InputStream json;
+        if (inputStream instanceof JsonPayloadBuffer.SharedStream) {
+            // share the bytes of the payload, with a position of its own
+            json = ((JsonPayloadBuffer.SharedStream) inputStream).getPayload().newStream();
+        } else {
+            json = toReadOnlyStream(inputStream);
+        }
         messageContext.setProperty(Constants.ORG_APACHE_SYNAPSE_COMMONS_JSON_JSON_INPUT_STREAM, json);
         return json;
     }
@@ -1149,17 +1160,13 @@ public final class JsonUtil {
             logger.error("#copyOfJsonPayload. Cannot copy JSON stream from message context. [null].");
             return null;
         }
-        InputStream jsonStream = jsonStream(messageContext, true);
-        if (jsonStream == null) {
-            logger.error("#copyOfJsonPayload. Cannot copy JSON stream from message context. [null] stream.");
-            return null;
-        }
-        org.apache.commons.io.output.ByteArrayOutputStream out = new org.apache.commons.io.output.ByteArrayOutputStream();
         try {
-            IOUtils.copy(jsonStream, out);
-            out.flush();
-            return closable ? new ByteArrayInputStream(out.toByteArray())
-                    : toReadOnlyStream(new ByteArrayInputStream(out.toByteArray()));
+            JsonPayloadBuffer payload = sharedJsonPayload(messageContext);
+            if (payload == null) {
+                logger.error("#copyOfJsonPayload. Cannot copy JSON stream from message context. [null] stream.");
+                return null;
+            }
+            return closable ? new ByteArrayInputStream(payload.toByteArray()) : payload.newStream();
         } catch (IOException e) {
             logger.error("#copyOfJsonPayload. Could not copy the JSON stream from message context. Error>>> " + e.getLocalizedMessage());
         }
@@ -1181,17 +1188,25 @@ public final class JsonUtil {
                     && outboundCharsetEncoding.equalsIgnoreCase(Charset.defaultCharset().toString()))) {
                 IOUtils.copy(json, out); // Write the JSON stream
             } else {
-                byte[] inboundBuffer = IOUtils.toByteArray(json);
-                byte[] outboundBuffer;
+                // Convert the JSON stream while it is written, instead of reading it into memory as a whole
+                Charset defaultCharset = Charset.defaultCharset();
+                Charset outboundCharset = CharsetTranscodingOutputStream.toCharset(outboundCharsetEncoding);
                 if (inboundCharsetEncoding == null
-                        || inboundCharsetEncoding.equalsIgnoreCase(Charset.defaultCharset().toString())) {
-                    outboundBuffer = new String(inboundBuffer).getBytes(outboundCharsetEncoding);
+                        || inboundCharsetEncoding.equalsIgnoreCase(defaultCharset.toString())) {
+                    CharsetTranscodingOutputStream transcoder =
+                            new CharsetTranscodingOutputStream(out, defaultCharset, outboundCharset);
+                    IOUtils.copy(json, transcoder);
+                    transcoder.finish();
                 } else {
-                    outboundBuffer =
-                            new String(new String(inboundBuffer).getBytes(inboundCharsetEncoding),
-                                    outboundCharsetEncoding).getBytes();
+                    // encode in the inbound charset, then read the result back in the outbound charset
+                    CharsetTranscodingOutputStream readBack =
+                            new CharsetTranscodingOutputStream(out, outboundCharset, defaultCharset);
+                    CharsetTranscodingOutputStream transcoder = new CharsetTranscodingOutputStream(readBack,
+                            defaultCharset, CharsetTranscodingOutputStream.toCharset(inboundCharsetEncoding));
+                    IOUtils.copy(json, transcoder);
+                    transcoder.finish();
+                    readBack.finish();
                 }
-                out.write(outboundBuffer);
             }
 
             if (messageContext.getProperty(PRESERVE_JSON_STREAM) != null) {
@@ -1208,7 +1223,8 @@ public final class JsonUtil {
     }
 
     /**
-     * Returns a reusable cached copy of the JSON stream contained in the provided Message Context.
+     * Returns a reusable copy of the JSON stream contained in the provided Message Context.<br/>
+     * The copy shares the bytes of the payload, so that no copy is made on each call.
      *
      * @param messageContext Axis2 Message context that contains a JSON payload.
      * @return {@link java.io.InputStream}
@@ -1218,41 +1234,43 @@ public final class JsonUtil {
             logger.error("#cachedCopyOfJsonPayload. Cannot copy JSON stream from message context. [null].");
             return null;
         }
-        InputStream jsonStream = jsonStream(messageContext, true);
-        if (jsonStream == null) {
-            logger.error("#cachedCopyOfJsonPayload. Cannot copy JSON stream from message context. [null] stream.");
-            return null;
-        }
-        String inputStreamCache = Long.toString(jsonStream.hashCode());
-        Object o = messageContext.getProperty(inputStreamCache);
-        if (o instanceof InputStream) {
-            InputStream inputStream = (InputStream) o;
-            try {
-                inputStream.reset();
-                if (logger.isDebugEnabled()) {
-                    logger.debug("#cachedCopyOfJsonPayload. Cache HIT");
-                }
-                return inputStream;
-            } catch (IOException e) {
-                logger.warn("#cachedCopyOfJsonPayload. Could not reuse the cached input stream. Error>>> " + e.getLocalizedMessage());
-            }
-        }
-        org.apache.commons.io.output.ByteArrayOutputStream out = new org.apache.commons.io.output.ByteArrayOutputStream();
         try {
-            IOUtils.copy(jsonStream, out);
-            out.flush();
-            InputStream inputStream = toReadOnlyStream(new ByteArrayInputStream(out.toByteArray()));
-            messageContext.setProperty(inputStreamCache, inputStream);
-            if (logger.isDebugEnabled()) {
-                logger.debug("#cachedCopyOfJsonPayload. Cache MISS");
+            JsonPayloadBuffer payload = sharedJsonPayload(messageContext);
+            if (payload == null) {
+                logger.error("#cachedCopyOfJsonPayload. Cannot copy JSON stream from message context. [null] stream.");
+                return null;
             }
-            return inputStream;
+            return payload.newStream();
         } catch (IOException e) {
             logger.error("#cachedCopyOfJsonPayload. Could not copy the JSON stream from message context. Error>>> " + e.getLocalizedMessage());
         }
         return null;
     }
 
+    /**
+     * Returns the JSON payload contained in the provided message context as a payload which can be shared.<br/>
+     * A payload read from the wire is read to the end once, into the buffer of its stream. The buffer is then shared
+     * as it is. Later calls return the same payload until the payload of the message context is replaced.
+     *
+     * @param messageContext Axis2 Message context
+     * @return the payload, or null if the message context has no JSON stream
+     * @throws IOException if the JSON stream cannot be read
+     */
+    private static JsonPayloadBuffer sharedJsonPayload(MessageContext messageContext) throws IOException {
+        InputStream json = jsonStream(messageContext, true);
+        if (json == null) {
+            return null;
+        }
+        if (json instanceof JsonPayloadBuffer.SharedStream) {
+            return ((JsonPayloadBuffer.SharedStream) json).getPayload();
+        }
+        if (json instanceof ReadOnlyBIS) {
+            return ((ReadOnlyBIS) json).toPayload();
+        }
+        byte[] bytes = IOUtils.toByteArray(json);
+        return new JsonPayloadBuffer(bytes, bytes.length);
+    }
+
     /**
      * Returns a new instance of a reader that can read from the JSON payload contained in the provided message context.
      *
@@ -1280,12 +1298,9 @@ public final class JsonUtil {
         if (messageContext == null) {
             return new byte[0];
         }
-        InputStream is = jsonStream(messageContext, true);
-        if (is == null) {
-            return new byte[0];
-        }
         try {
-            return IOUtils.toByteArray(is); // IOUtils.toByteArray() doesn't close the input stream.
+            JsonPayloadBuffer payload = sharedJsonPayload(messageContext);
+            return payload == null ? new byte[0] : payload.toByteArray();
         } catch (IOException e) {
             logger.warn("#jsonPayloadToByteArray. Could not convert JSON stream to byte array.");
             return new byte[0];
@@ -1302,12 +1317,9 @@ public final class JsonUtil {
         if (messageContext == null) {
             return "{}";
         }
-        InputStream is = jsonStream(messageContext, true);
-        if (is == null) {
-            return "{}";
-        }
         try {
-            return IOUtils.toString(is); // IOUtils.toByteArray() doesn't close the input stream.
+            JsonPayloadBuffer payload = sharedJsonPayload(messageContext);
+            return payload == null ? "{}" : payload.toString(Charset.defaultCharset());
         } catch (IOException e) {
             logger.warn("#jsonPayloadToString. Could not convert JSON stream to String.");
             return "{}";
@@ -1362,10 +1374,13 @@ public final class JsonUtil {
         if (!hasAJsonPayload(sourceMc)) {
             return false;
         }
-        InputStream json = jsonStream(sourceMc, true);
         try {
-            byte[] stream = IOUtils.toByteArray(json);
-            getNewJsonPayload(targetMc, new ByteArrayInputStream(stream), true, true);
+            JsonPayloadBuffer payload = sharedJsonPayload(sourceMc);
+            if (payload == null) {
+                return false;
+            }
+            // the payload is never modified, so the clone reads the same bytes
+            getNewJsonPayload(targetMc, payload.newStream(), true, true);
         } catch (IOException e) {
             logger.error("#cloneJsonPayload. Could not clone JSON stream. Error>>> " + e.getLocalizedMessage());
             return false;
@@ -1430,22 +1445,20 @@ public final class JsonUtil {
      * @return {@link java.io.InputStreamReader}
      */
     public static Reader newJavaScriptSourceReader(MessageContext messageContext) {
-        InputStream jsonStream = jsonStream(messageContext, true);
-        if (jsonStream == null) {
-            logger.error("#newJavaScriptSourceReader. Could not create a JavaScript source. Error>>> No JSON stream found.");
-            return null;
-        }
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonPayloadBuffer payload;
         try {
-            out.write('(');
-            IOUtils.copy(jsonStream, out);
-            out.write(')');
-            out.flush();
+            payload = sharedJsonPayload(messageContext);
         } catch (IOException e) {
             logger.error("#newJavaScriptSourceReader. Could not create a JavaScript source. Error>>> " + e.getLocalizedMessage());
             return null;
         }
-        return new InputStreamReader(new ByteArrayInputStream(out.toByteArray()));
+        if (payload == null) {
+            logger.error("#newJavaScriptSourceReader. Could not create a JavaScript source. Error>>> No JSON stream found.");
+            return null;
+        }
+        return new InputStreamReader(new SequenceInputStream(
+                new SequenceInputStream(new ByteArrayInputStream(JAVASCRIPT_SOURCE_START), payload.newStream()),
+                new ByteArrayInputStream(JAVASCRIPT_SOURCE_END)));
     }
 
     /**
@@ -1482,6 +1495,8 @@ public final class JsonUtil {
         private static final String LOG_STREAM = "org.apache.synapse.commons.json.JsonReadOnlyStream";
         private static final Log logger = LogFactory.getLog(LOG_STREAM);
 
+        private JsonPayloadBuffer payload;
+
         public ReadOnlyBIS(InputStream inputStream) {
             super(inputStream);
             super.mark(Integer.MAX_VALUE);
@@ -1518,6 +1533,26 @@ public final class JsonUtil {
             }
             return 0;
         }
+
+        /**
+         * Reads the rest of the stream into the buffer, and shares the buffer as the payload.<br/>
+         * Since the stream is marked at the beginning, the bytes read are never moved or discarded from the buffer.
+         * If the buffer is grown later on, the bytes are copied to a new buffer and the shared one is left as it is.
+         *
+         * @return the payload
+         * @throws IOException if the stream cannot be read
+         */
+        synchronized JsonPayloadBuffer toPayload() throws IOException {
+            if (payload == null) {
+                super.reset();
+                while (super.skip(Long.MAX_VALUE) > 0) {
+                    // fills the buffer without copying the bytes out of it
+                }
+                payload = new JsonPayloadBuffer(buf, count);
+                super.reset();
+            }
+            return payload;
+        }
     }
 
     /**
@@ -0,0 +1,196 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.commons.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Output stream which converts the bytes written to it from one charset to another, and writes the
+ * converted bytes to the wrapped output stream.
+ * <p>
+ * The bytes are converted in a single pass, as they are written, through fixed size buffers which
+ * are allocated once per stream, so that the content is never held in memory as a whole. Malformed
+ * input and characters that cannot be mapped are replaced, the same as when converting through a
+ * {@link String}.
+ * <p>
+ * {@link #finish()} must be called once all the content has been written. Closing this stream
+ * finishes it, but leaves the wrapped output stream open.
+ */
+public class CharsetTranscodingOutputStream extends OutputStream {
+
+    private static final int DEFAULT_BUFFER_SIZE = 4096;
+
+    private static final int MIN_BUFFER_SIZE = 16;
+
+    private final OutputStream out;
+
+    private final CharsetDecoder decoder;
+
+    private final CharsetEncoder encoder;
+
+    /** Bytes written which are not decoded yet, such as the first bytes of a split character */
+    private final ByteBuffer input;
+
+    private final CharBuffer chars;
+
+    private final ByteBuffer output;
+
+    private boolean finished = false;
+
+    public CharsetTranscodingOutputStream(OutputStream out, Charset from, Charset to) {
+        this(out, from, to, DEFAULT_BUFFER_SIZE);
+    }
+
+    public CharsetTranscodingOutputStream(OutputStream out, Charset from, Charset to, int bufferSize) {
+        this.out = out;
+        this.decoder = from.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.encoder = to.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        // the buffers must at least hold a character in either charset, decoded or encoded as a whole
+        int size = Math.max(bufferSize, MIN_BUFFER_SIZE);
+        this.input = ByteBuffer.allocate(size);
+        this.chars = CharBuffer.allocate(size);
+        this.output = ByteBuffer.allocate(size);
+    }
+
+    /**
+     * Returns the charset of the given name.
+     *
+     * @param charsetName name of the charset
+     * @return the charset
+     * @throws UnsupportedEncodingException if the charset is not supported, the same as
+     *                                      {@link String#getBytes(String)}
+     */
+    public static Charset toCharset(String charsetName) throws UnsupportedEncodingException {
+        try {
+            return Charset.forName(charsetName);
+        } catch (IllegalArgumentException e) {
+            throw new UnsupportedEncodingException(charsetName);
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        input.put((byte) b);
+        if (!input.hasRemaining()) {
+            transcode(false);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            int chunk = Math.min(len, input.remaining());
+            input.put(b, off, chunk);
+            off += chunk;
+            len -= chunk;
+            if (!input.hasRemaining()) {
+                transcode(false);
+            }
+        }
+    }
+
+    /**
+     * Writes out the bytes converted so far. Bytes of a character which is not complete yet are
+     * kept until the rest of the character is written.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (!finished) {
+            transcode(false);
+            writeOutput();
+        }
+        out.flush();
+    }
+
+    /**
+     * Converts the remaining bytes and writes them out. Nothing can be written afterwards.
+     *
+     * @throws IOException if the wrapped output stream cannot be written
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        transcode(true);
+        while (decoder.flush(chars).isOverflow()) {
+            encode(false);
+        }
+        encode(true);
+        while (encoder.flush(output).isOverflow()) {
+            writeOutput();
+        }
+        writeOutput();
+        out.flush();
+    }
+
+    /**
+     * Finishes this stream, without closing the wrapped output stream.
+     */
+    @Override
+    public void close() throws IOException {
+        finish();
+    }
+
+    private void transcode(boolean endOfInput) throws IOException {
+        input.flip();
+        CoderResult result;
+        do {
+            result = decoder.decode(input, chars, endOfInput);
+            encode(false);
+        } while (result.isOverflow());
+        input.compact();
+    }
+
+    private void encode(boolean endOfInput) throws IOException {
+        chars.flip();
+        while (encoder.encode(chars, output, endOfInput).isOverflow()) {
+            writeOutput();
+        }
+        chars.compact();
+    }
+
+    private void writeOutput() throws IOException {
+        if (output.position() > 0) {
+            out.write(output.array(), 0, output.position());
+            output.clear();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (finished) {
+            throw new IOException("Stream is already finished");
+        }
+    }
+}
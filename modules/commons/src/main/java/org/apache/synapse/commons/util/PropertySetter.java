@@ -0,0 +1,248 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.commons.util;
+
+import org.apache.axiom.om.OMElement;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.commons.SynapseCommonsException;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A property setter of a class, resolved and bound into method handles once so that the
+ * property can be set on many instances of the class without looking up the setter and
+ * invoking it reflectively every time. Values are converted the same way as
+ * {@link PropertyHelper#setInstanceProperty(String, Object, Object)} does: String values are
+ * converted to the String, int, long, float, double or boolean parameter of the setter, and
+ * OMElement values are passed to an OMElement parameter.
+ */
+public class PropertySetter {
+
+    private static final Log log = LogFactory.getLog(PropertySetter.class);
+
+    private static final MethodType SETTER_TYPE =
+            MethodType.methodType(void.class, Object.class, Object.class);
+
+    /** Name of the setter method */
+    private final String methodName;
+
+    /** Overloads of the setter, in the order they are tried */
+    private final Candidate[] candidates;
+
+    private PropertySetter(String methodName, Candidate[] candidates) {
+        this.methodName = methodName;
+        this.candidates = candidates;
+    }
+
+    /**
+     * Resolve and bind the setter of the named property of the given class
+     *
+     * @param clazz class declaring the setter
+     * @param name  name of the property
+     * @return the bound setter
+     */
+    public static PropertySetter bind(Class clazz, String name) {
+
+        String mName = "set" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        List<Candidate> candidates = new ArrayList<Candidate>();
+
+        for (Method method : clazz.getMethods()) {
+            if (!mName.equals(method.getName())) {
+                continue;
+            }
+            Class[] params = method.getParameterTypes();
+            if (params.length != 1) {
+                candidates.add(new Candidate(method, null, null));
+                continue;
+            }
+            MethodHandle handle = null;
+            try {
+                handle = MethodHandles.publicLookup().unreflect(method).asType(SETTER_TYPE);
+            } catch (IllegalAccessException e) {
+                // fall back to reflection, which reports the failure when the setter is used
+                if (log.isDebugEnabled()) {
+                    log.debug("Unable to bind the setter : " + method + ", using reflection");
+                }
+            }
+            candidates.add(new Candidate(method, handle, Conversion.forType(params[0])));
+        }
+
+        return new PropertySetter(mName, candidates.toArray(new Candidate[candidates.size()]));
+    }
+
+    /**
+     * Returns whether the class has a single setter of the property, which takes a String, int, long,
+     * float, double or boolean parameter. A String value is then set by invoking that setter alone,
+     * as any property helper would.
+     *
+     * @return true if there is a single setter of the property, taking a value converted from a String
+     */
+    public boolean hasSingleValueSetter() {
+        if (candidates.length != 1) {
+            return false;
+        }
+        Conversion conversion = candidates[0].conversion;
+        return conversion != null && conversion != Conversion.OM_ELEMENT && conversion != Conversion.UNSUPPORTED;
+    }
+
+    /**
+     * Set the property on the given instance
+     *
+     * @param obj instance of the class this setter is bound to
+     * @param val value to be set
+     */
+    public void set(Object obj, Object val) {
+
+        try {
+            for (Candidate candidate : candidates) {
+                if (candidate.conversion == null) {
+                    handleException("Did not find a setter method named : " + methodName +
+                            "() that takes a single String, int, long, float, double ," +
+                            "OMElement or boolean parameter");
+                }
+
+                Object arg;
+                if (val instanceof String && candidate.conversion != Conversion.OM_ELEMENT &&
+                        candidate.conversion != Conversion.UNSUPPORTED) {
+                    arg = candidate.conversion.convert((String) val);
+                } else if (val instanceof OMElement && candidate.conversion == Conversion.OM_ELEMENT) {
+                    arg = val;
+                } else {
+                    continue;
+                }
+                candidate.invoke(obj, arg);
+                return;
+            }
+
+            handleException("Did not find a setter method named : " + methodName +
+                    "() that takes a single String, int, long, float, double " +
+                    "or boolean parameter");
+
+        } catch (Throwable e) {
+            if (e instanceof Error) {
+                throw (Error) e;
+            }
+            handleException("Error invoking setter method named : " + methodName +
+                    "() that takes a single String, int, long, float, double " +
+                    "or boolean parameter", e);
+        }
+    }
+
+    private static void handleException(String message, Throwable e) {
+        log.error(message + e.getMessage());
+        throw new SynapseCommonsException(message, e);
+    }
+
+    private static void handleException(String message) {
+        log.error(message);
+        throw new SynapseCommonsException(message);
+    }
+
+    /**
+     * A single overload of the setter
+     */
+    private static class Candidate {
+
+        private final Method method;
+        private final MethodHandle handle;
+        private final Conversion conversion;
+
+        Candidate(Method method, MethodHandle handle, Conversion conversion) {
+            this.method = method;
+            this.handle = handle;
+            this.conversion = conversion;
+        }
+
+        void invoke(Object obj, Object arg) throws Throwable {
+            if (handle != null) {
+                handle.invokeExact(obj, arg);
+            } else {
+                method.invoke(obj, arg);
+            }
+        }
+    }
+
+    /**
+     * Conversion of the setter argument, selected by the parameter type
+     */
+    private enum Conversion {
+        STRING {
+            Object convert(String value) {
+                return value;
+            }
+        },
+        INT {
+            Object convert(String value) {
+                return new Integer(value);
+            }
+        },
+        LONG {
+            Object convert(String value) {
+                return new Long(value);
+            }
+        },
+        FLOAT {
+            Object convert(String value) {
+                return new Float(value);
+            }
+        },
+        DOUBLE {
+            Object convert(String value) {
+                return new Double(value);
+            }
+        },
+        BOOLEAN {
+            Object convert(String value) {
+                return Boolean.valueOf(value);
+            }
+        },
+        OM_ELEMENT,
+        UNSUPPORTED;
+
+        Object convert(String value) {
+            throw new UnsupportedOperationException();
+        }
+
+        static Conversion forType(Class type) {
+            if (String.class.equals(type)) {
+                return STRING;
+            } else if (int.class.equals(type)) {
+                return INT;
+            } else if (long.class.equals(type)) {
+                return LONG;
+            } else if (float.class.equals(type)) {
+                return FLOAT;
+            } else if (double.class.equals(type)) {
+                return DOUBLE;
+            } else if (boolean.class.equals(type)) {
+                return BOOLEAN;
+            } else if (OMElement.class.equals(type)) {
+                return OM_ELEMENT;
+            }
+            return UNSUPPORTED;
+        }
+    }
+}
@@ -22,6 +22,7 @@ import org.apache.axiom.attachments.SizeAwareDataSource;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -29,16 +30,27 @@ import java.io.OutputStream;
 /**
  * Data source that reads data from a VFS {@link FileObject}.
  * This class is similar to VFS' own FileObjectDataSource implementation, but in addition
- * implements {@link SizeAwareDataSource}.
+ * implements {@link SizeAwareDataSource}. Local files can optionally be read through a memory mapping.
  */
-public class FileObjectDataSource implements SizeAwareDataSource {
+public class FileObjectDataSource implements SizeAwareDataSource, VFSDataSource {
     
     private final FileObject file;
     private final String contentType;
+    private final boolean memoryMapped;
 
     public FileObjectDataSource(FileObject file, String contentType) {
+        this(file, contentType, false);
+    }
+
+    /**
+     * @param file the file to read
+     * @param contentType the content type of the file
+     * @param memoryMapped whether to read the file through a {@link MappedFileInputStream} if it is local
+     */
+    public FileObjectDataSource(FileObject file, String contentType, boolean memoryMapped) {
         this.file = file;
         this.contentType = contentType;
+        this.memoryMapped = memoryMapped;
     }
 
     public long getSize() {
@@ -58,10 +70,20 @@ public class FileObjectDataSource implements SizeAwareDataSource {
     }
 
     public InputStream getInputStream() throws IOException {
+        if (memoryMapped) {
+            File localFile = VFSUtils.getLocalFile(file);
+            if (localFile != null) {
+                return new MappedFileInputStream(localFile);
+            }
+        }
         return file.getContent().getInputStream();
     }
 
     public OutputStream getOutputStream() throws IOException {
         return file.getContent().getOutputStream();
     }
+
+    public FileObject getFileObject() {
+        return file;
+    }
 }
@@ -204,6 +204,47 @@ public final class VFSConstants {
 
     public static final String CLUSTER_AWARE = "transport.vfs.ClusterAware";
 
+    /**
+     * Watch local (file://) directories for new files instead of listing them on every poll
+     * */
+    public static final String TRANSPORT_FILE_WATCH = "transport.vfs.FileWatch";
+
+    /**
+     * Number of files of a poll processed in parallel
+     * */
+    public static final String TRANSPORT_FILE_CONCURRENCY = "transport.vfs.FileProcessConcurrency";
+
+    public static final int DEFAULT_TRANSPORT_FILE_CONCURRENCY = 1;
+
+    /**
+     * Maximum number of files (or ordering groups) of a poll handed over to the workers at a time
+     * */
+    public static final String TRANSPORT_FILE_MAX_IN_FLIGHT = "transport.vfs.FileProcessMaxInFlight";
+
+    /**
+     * Regex applied to the file name to find the ordering key. Files with the same key are processed one after
+     * the other in the sort order, files with different keys in parallel. The first group is used as the key if
+     * the regex has one, otherwise the matched prefix.
+     * */
+    public static final String TRANSPORT_FILE_ORDERING_KEY_PATTERN = "transport.vfs.FileOrderingKeyPattern";
+
+    /**
+     * Local file recording the files which were processed but not yet moved or deleted
+     * */
+    public static final String TRANSPORT_FILE_PROGRESS_JOURNAL = "transport.vfs.FileProcessProgressJournal";
+
+    /**
+     * Size of the buffer used when a file is streamed to or from a remote file system
+     * */
+    public static final String TRANSPORT_FILE_TRANSFER_CHUNK_SIZE = "transport.vfs.TransferChunkSize";
+
+    public static final int DEFAULT_TRANSFER_CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * Read local files through a memory mapping when streaming them into the message
+     * */
+    public static final String TRANSPORT_FILE_MEMORY_MAPPED_READ = "transport.vfs.MemoryMappedRead";
+
     // The waiting time of the file before picking it up (in milliseconds)
     public static final String WAIT_TIME_BEFORE_READ = "transport.vfs.waitTimeBeforeRead";
 }
@@ -0,0 +1,37 @@
+/*
+*  Licensed to the Apache Software Foundation (ASF) under one
+*  or more contributor license agreements.  See the NOTICE file
+*  distributed with this work for additional information
+*  regarding copyright ownership.  The ASF licenses this file
+*  to you under the Apache License, Version 2.0 (the
+*  "License"); you may not use this file except in compliance
+*  with the License.  You may obtain a copy of the License at
+*
+*   http://www.apache.org/licenses/LICENSE-2.0
+*
+*  Unless required by applicable law or agreed to in writing,
+*  software distributed under the License is distributed on an
+*   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+*  KIND, either express or implied.  See the License for the
+*  specific language governing permissions and limitations
+*  under the License.
+*/
+package org.apache.synapse.commons.vfs;
+
+import org.apache.commons.vfs2.FileObject;
+
+import javax.activation.DataSource;
+
+/**
+ * Data source backed by a VFS {@link FileObject}. Senders can use the file object to copy the content with
+ * {@link VFSUtils#copy(FileObject, FileObject, boolean, int)} instead of streaming it through the data source.
+ * Declared as an interface so that the file object stays reachable when the data source is wrapped by a
+ * {@link org.apache.axis2.format.ManagedDataSourceFactory} proxy.
+ */
+public interface VFSDataSource extends DataSource {
+
+    /**
+     * @return the file holding the data
+     */
+    FileObject getFileObject();
+}
@@ -38,11 +38,18 @@ import org.apache.commons.vfs2.provider.ftps.FtpsFileSystemConfigBuilder;
 import org.apache.commons.vfs2.provider.ftps.FtpsMode;
 import org.apache.commons.vfs2.util.DelegatingFileSystemOptionsBuilder;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Date;
@@ -670,6 +677,137 @@ public class VFSUtils {
         return opts;
     }
 
+    /**
+     * Get the local file behind a VFS file object
+     * @param fo the file object
+     * @return the local file, or null if the file object is not on the local file system
+     */
+    public static File getLocalFile(FileObject fo) {
+        if (fo == null || !"file".equals(fo.getName().getScheme())) {
+            return null;
+        }
+        try {
+            return new File(fo.getURL().toURI());
+        } catch (Exception e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Unable to map " + maskURLPassword(fo.getName().getURI()) + " to a local file", e);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Copy the content of a file to another file. When both files are on the local file system the copy is done
+     * by the kernel using {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)},
+     * when only one of them is local the local side is accessed through its channel, otherwise the content is
+     * streamed in chunks of the given size.
+     * @param source the file to read
+     * @param target the file to write
+     * @param append whether to append to the target instead of overwriting it
+     * @param chunkSize size of the buffer used when the content has to be streamed
+     * @return the number of bytes copied
+     * @throws IOException on error reading or writing the files
+     */
+    public static long copy(FileObject source, FileObject target, boolean append, int chunkSize)
+            throws IOException {
+        File localSource = getLocalFile(source);
+        File localTarget = getLocalFile(target);
+
+        if (localSource != null && localTarget != null) {
+            if (localTarget.getParentFile() != null && !localTarget.getParentFile().exists()) {
+                target.getParent().createFolder();
+            }
+            FileChannel in = new FileInputStream(localSource).getChannel();
+            try {
+                FileChannel out = new FileOutputStream(localTarget, append).getChannel();
+                try {
+                    long size = in.size();
+                    long position = 0;
+                    while (position < size) {
+                        position += in.transferTo(position, size - position, out);
+                    }
+                    return position;
+                } finally {
+                    out.close();
+                }
+            } finally {
+                in.close();
+            }
+        } else if (localSource != null) {
+            FileChannel in = new FileInputStream(localSource).getChannel();
+            try {
+                OutputStream out = target.getContent().getOutputStream(append);
+                try {
+                    WritableByteChannel channel = Channels.newChannel(out);
+                    long size = in.size();
+                    long position = 0;
+                    while (position < size) {
+                        position += in.transferTo(position, Math.min(chunkSize, size - position), channel);
+                    }
+                    return position;
+                } finally {
+                    out.close();
+                }
+            } finally {
+                in.close();
+            }
+        } else if (localTarget != null) {
+            if (localTarget.getParentFile() != null && !localTarget.getParentFile().exists()) {
+                target.getParent().createFolder();
+            }
+            InputStream in = source.getContent().getInputStream();
+            try {
+                FileOutputStream fileOut = new FileOutputStream(localTarget, append);
+                FileChannel out = fileOut.getChannel();
+                try {
+                    ReadableByteChannel channel = Channels.newChannel(in);
+                    long position = out.position();
+                    long start = position;
+                    long transferred;
+                    while ((transferred = out.transferFrom(channel, position, chunkSize)) > 0) {
+                        position += transferred;
+                    }
+                    return position - start;
+                } finally {
+                    out.close();
+                }
+            } finally {
+                in.close();
+            }
+        } else {
+            InputStream in = source.getContent().getInputStream();
+            try {
+                OutputStream out = target.getContent().getOutputStream(append);
+                try {
+                    return copy(in, out, chunkSize);
+                } finally {
+                    out.close();
+                }
+            } finally {
+                in.close();
+            }
+        }
+    }
+
+    /**
+     * Copy a stream to another stream using a buffer of the given size. The streams are not closed.
+     * @param in the stream to read
+     * @param out the stream to write
+     * @param chunkSize size of the buffer
+     * @return the number of bytes copied
+     * @throws IOException on error reading or writing the streams
+     */
+    public static long copy(InputStream in, OutputStream out, int chunkSize) throws IOException {
+        byte[] buffer = new byte[chunkSize > 0 ? chunkSize : VFSConstants.DEFAULT_TRANSFER_CHUNK_SIZE];
+        long count = 0;
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+            count += n;
+        }
+        return count;
+    }
+
     /**
      * Function to resolve hostname of the vfs uri
      * @param uri URI need to resolve
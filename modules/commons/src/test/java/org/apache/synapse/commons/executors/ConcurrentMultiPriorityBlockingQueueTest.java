@@ -0,0 +1,89 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.commons.executors;
+
+import org.apache.synapse.commons.executors.queues.FixedSizeQueue;
+import org.apache.synapse.commons.executors.queues.UnboundedQueue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the MultiPriorityBlockingQueue tests against the ConcurrentMultiPriorityBlockingQueue
+ * and tests the weighted selection and the queue metrics.
+ */
+public class ConcurrentMultiPriorityBlockingQueueTest extends MultiPriorityBlockingQueueTest {
+
+    @Override
+    protected MultiPriorityBlockingQueue<DummyTask> createUnboundedQueue(
+            int noQueues, int[] priorities) {
+        List<InternalQueue<DummyTask>> internalQueueList =
+                new ArrayList<InternalQueue<DummyTask>>();
+        for (int i = 0; i < noQueues; i++) {
+            internalQueueList.add(new UnboundedQueue<DummyTask>(priorities[i]));
+        }
+        return new ConcurrentMultiPriorityBlockingQueue<DummyTask>(internalQueueList, false, false);
+    }
+
+    @Override
+    protected MultiPriorityBlockingQueue<DummyTask> createFixedQueue(
+            int noQueues, int[] sizes, int[] priorities) {
+        List<InternalQueue<DummyTask>> internalQueueList =
+                new ArrayList<InternalQueue<DummyTask>>();
+        for (int i = 0; i < noQueues; i++) {
+            internalQueueList.add(new FixedSizeQueue<DummyTask>(priorities[i], sizes[i]));
+        }
+        return new ConcurrentMultiPriorityBlockingQueue<DummyTask>(internalQueueList, true, true);
+    }
+
+    public void testWeightedSelection() throws InterruptedException {
+        MultiPriorityBlockingQueue<DummyTask> queue = createUnboundedQueue(2, new int[]{3, 1});
+        for (int i = 0; i < 40; i++) {
+            queue.offer(new DummyTask(3));
+            queue.offer(new DummyTask(1));
+        }
+
+        int high = 0;
+        for (int i = 0; i < 40; i++) {
+            if (queue.take().getPriority() == 3) {
+                high++;
+            }
+        }
+        assertEquals("Items should be taken in the ratio of the priorities", 30, high);
+    }
+
+    public void testQueueMetrics() throws InterruptedException {
+        ConcurrentMultiPriorityBlockingQueue<DummyTask> queue =
+                (ConcurrentMultiPriorityBlockingQueue<DummyTask>)
+                        createFixedQueue(2, new int[]{5, 5}, new int[]{10, 1});
+        queue.offer(new DummyTask(10));
+        queue.offer(new DummyTask(10));
+        queue.offer(new DummyTask(1));
+
+        assertEquals(2, queue.getQueueDepth(10));
+        assertEquals(1, queue.getQueueDepth(1));
+        assertEquals(7, queue.remainingCapacity());
+
+        Thread.sleep(10);
+        queue.take();
+        assertEquals(1, queue.getDequeuedCount(10) + queue.getDequeuedCount(1));
+        assertTrue(queue.getMaxWaitTime(10) + queue.getMaxWaitTime(1) >= 10);
+        assertTrue(queue.getAverageWaitTime(10) + queue.getAverageWaitTime(1) > 0);
+    }
+}
@@ -21,6 +21,7 @@ import junit.framework.TestCase;
 import org.apache.axiom.om.OMElement;
 import org.apache.axiom.om.util.AXIOMUtil;
 import org.apache.axis2.AxisFault;
+import org.apache.synapse.commons.executors.ConcurrentMultiPriorityBlockingQueue;
 import org.apache.synapse.commons.executors.PriorityExecutor;
 
 import javax.xml.stream.XMLStreamException;
@@ -98,6 +99,29 @@ public class PriorityExecutorFactoryTest extends TestCase {
         assertEquals("Priority executor queue count invalid", 2, executor.getQueue().getQueues().size());
     }
 
+    /**
+     * Test creating PriorityExecutor with lock free queues and work stealing
+     * @throws XMLStreamException
+     * @throws AxisFault
+     */
+    public void testCreateExecutorWithLockFreeQueues() throws XMLStreamException, AxisFault {
+        OMElement element = AXIOMUtil.stringToOM("<priority-executor xmlns=\"http://ws.apache.org/ns/synapse\" name=\"executor3\">\n" +
+                "   <queues isFixedSize=\"true\" lockFree=\"true\" workStealing=\"true\">\n" +
+                "      <queue size=\"25\" priority=\"10\"/>\n" +
+                "      <queue size=\"15\" priority=\"5\"/>\n" +
+                "   </queues>\n" +
+                "   <threads max=\"100\" core=\"20\" keep-alive=\"5\"/>\n" +
+                "</priority-executor>");
+
+        PriorityExecutor executor = PriorityExecutorFactory.createExecutor("http://ws.apache.org/ns/synapse",
+                element, true, new Properties());
+        assertTrue("Lock free queue expected",
+                executor.getQueue() instanceof ConcurrentMultiPriorityBlockingQueue);
+        assertTrue("Work stealing should be enabled",
+                ((ConcurrentMultiPriorityBlockingQueue) executor.getQueue()).isWorkStealing());
+        assertEquals("Invalid remaining capacity", 40, executor.getQueue().remainingCapacity());
+    }
+
     /**
      * Test creating PriorityExecutor when name is not defined
      * @throws XMLStreamException
@@ -0,0 +1,88 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.synapse.commons.json;
+
+import org.apache.axis2.context.MessageContext;
+import org.apache.commons.io.IOUtils;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Compares the memory allocated, and the time taken, to clone a JSON payload and read it as a string, by copying
+ * the payload stream as the message clones used to and by sharing the payload buffer as they do now. The figures
+ * depend too much on the machine to be asserted, hence this is run by hand and is not part of the unit tests. The
+ * allocations are only reported on JVMs which count the bytes allocated by a thread.
+ * <p>
+ * Usage : JsonPayloadBenchmark [payload size in KB, 64 by default] [clones, 2000 by default]
+ */
+public class JsonPayloadBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int size = (args.length > 0 ? Integer.parseInt(args[0]) : 64) * 1024;
+        int clones = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        MessageContext source = Util.newMessageContext();
+        JsonUtil.getNewJsonPayload(source, new ByteArrayInputStream(createPayload(size)), true, true);
+
+        // warm up both code paths before measuring them
+        run(source, clones, true);
+        run(source, clones, false);
+
+        for (boolean copy : new boolean[]{true, false}) {
+            long allocated = allocatedBytes();
+            long start = System.nanoTime();
+            run(source, clones, copy);
+            long time = (System.nanoTime() - start) / clones;
+            allocated = allocatedBytes() - allocated;
+            System.out.println((copy ? "Copied" : "Shared") + " payload of " + (size >> 10) + "KB, per clone : "
+                               + time + " ns" + (allocated >= 0 ? ", " + allocated / clones + " bytes allocated" : ""));
+        }
+    }
+
+    private static void run(MessageContext source, int clones, boolean copy) throws Exception {
+        for (int i = 0; i < clones; i++) {
+            MessageContext clone = Util.newMessageContext();
+            if (copy) {
+                // as the payload was cloned before it was shared
+                byte[] bytes = IOUtils.toByteArray(JsonUtil.getJsonPayload(source));
+                JsonUtil.getNewJsonPayload(clone, new ByteArrayInputStream(bytes), true, true);
+                IOUtils.toString(JsonUtil.getJsonPayload(clone));
+            } else {
+                JsonUtil.cloneJsonPayload(source, clone);
+                JsonUtil.jsonPayloadToString(clone);
+            }
+        }
+    }
+
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static byte[] createPayload(int size) {
+        StringBuilder payload = new StringBuilder("[");
+        for (int i = 0; payload.length() < size; i++) {
+            payload.append(i > 0 ? "," : "").append("{\"id\":").append(i).append(",\"name\":\"item-")
+                    .append(i).append("\"}");
+        }
+        return payload.append(']').toString().getBytes();
+    }
+}
@@ -22,10 +22,12 @@ import org.apache.axiom.om.OMElement;
 import org.apache.axiom.om.util.AXIOMUtil;
 import org.apache.axis2.AxisFault;
 import org.apache.axis2.context.MessageContext;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.output.ByteArrayOutputStream;
 
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -146,6 +148,43 @@ public class JsonUtilTest extends TestCase {
         assertEquals("Invalid payload received", "{\"name\":\"WSO2\"}", new String(bytes));
     }
 
+    public void testCloneJsonPayloadSharesPayload() throws IOException {
+        MessageContext sourceContext = Util.newMessageContext();
+        JsonUtil.getNewJsonPayload(sourceContext, new ByteArrayInputStream("{\"name\":\"WSO2\"}".getBytes()),
+                true, true);
+        MessageContext firstClone = Util.newMessageContext();
+        MessageContext secondClone = Util.newMessageContext();
+        assertTrue("Json payload not cloned", JsonUtil.cloneJsonPayload(sourceContext, firstClone));
+        assertTrue("Json payload not cloned", JsonUtil.cloneJsonPayload(sourceContext, secondClone));
+
+        Object firstStream = firstClone.getProperty(Constants.ORG_APACHE_SYNAPSE_COMMONS_JSON_JSON_INPUT_STREAM);
+        Object secondStream = secondClone.getProperty(Constants.ORG_APACHE_SYNAPSE_COMMONS_JSON_JSON_INPUT_STREAM);
+        assertTrue("Cloned payload should be shared", firstStream instanceof JsonPayloadBuffer.SharedStream);
+        assertNotSame("Each clone should read with a stream of its own", firstStream, secondStream);
+        assertSame("Clones should share the same payload", ((JsonPayloadBuffer.SharedStream) firstStream).getPayload(),
+                ((JsonPayloadBuffer.SharedStream) secondStream).getPayload());
+
+        assertEquals("Invalid payload received", "{\"name\":\"WSO2\"}", JsonUtil.jsonPayloadToString(sourceContext));
+        assertEquals("Invalid payload received", "{\"name\":\"WSO2\"}", JsonUtil.jsonPayloadToString(firstClone));
+        assertTrue("Cloned payload should be a JSON object", JsonUtil.hasAJsonObject(secondClone));
+    }
+
+    public void testJsonPayloadToByteArrayReturnsCopy() throws AxisFault {
+        MessageContext messageContext = Util.newMessageContext();
+        JsonUtil.getNewJsonPayload(messageContext, new ByteArrayInputStream("[1,2]".getBytes()), true, true);
+        byte[] bytes = JsonUtil.jsonPayloadToByteArray(messageContext);
+        bytes[1] = '3';
+        assertEquals("Payload should not change", "[1,2]", new String(JsonUtil.jsonPayloadToByteArray(messageContext)));
+    }
+
+    public void testNewJavaScriptSourceReader() throws IOException {
+        MessageContext messageContext = Util.newMessageContext();
+        JsonUtil.getNewJsonPayload(messageContext, new ByteArrayInputStream("{\"a\":1}".getBytes()), true, true);
+        assertEquals("Invalid JavaScript source received", "({\"a\":1})",
+                IOUtils.toString(JsonUtil.newJavaScriptSourceReader(messageContext)));
+        assertEquals("Payload should be readable again", "{\"a\":1}", JsonUtil.jsonPayloadToString(messageContext));
+    }
+
     public void testJsonPayloadToByteArrayContextNull() {
         byte[] bytes = JsonUtil.jsonPayloadToByteArray(null);
         assertEquals("Empty array expected", 0, bytes.length);
@@ -0,0 +1,113 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.commons.util;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Tests the streaming charset conversion against the conversion done through a String.
+ */
+public class CharsetTranscodingOutputStreamTest extends TestCase {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Charset UTF_16 = Charset.forName("UTF-16BE");
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    private static final String TEXT = "{\"name\":\"Gr\u00fc\u00dfe \u4e16\u754c \ud83d\ude00\",\"id\":12345}";
+
+    public void testConvertsWholeContent() throws IOException {
+        byte[] in = TEXT.getBytes(UTF_8);
+        assertConverted(in, UTF_8, UTF_16, in.length);
+        assertConverted(in, UTF_8, ISO_8859_1, in.length);
+        assertConverted(TEXT.getBytes(UTF_16), UTF_16, UTF_8, in.length);
+    }
+
+    /**
+     * Characters split across writes and across the buffers are converted as a whole.
+     */
+    public void testConvertsSplitCharacters() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            text.append(TEXT);
+        }
+        byte[] in = text.toString().getBytes(UTF_8);
+        for (int chunk : new int[]{1, 3, 7, 100}) {
+            assertConverted(in, UTF_8, UTF_16, chunk);
+            assertConverted(in, UTF_8, ISO_8859_1, chunk);
+        }
+    }
+
+    public void testReplacesMalformedInput() throws IOException {
+        byte[] in = {'{', (byte) 0xc3, '}', (byte) 0xe4, (byte) 0xb8};
+        assertConverted(in, UTF_8, UTF_16, 1);
+        assertConverted(in, UTF_8, UTF_16, in.length);
+    }
+
+    public void testLeavesWrappedStreamOpen() throws IOException {
+        final boolean[] closed = {false};
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+        CharsetTranscodingOutputStream transcoder = new CharsetTranscodingOutputStream(out, UTF_8, ISO_8859_1);
+        transcoder.write("caf\u00e9".getBytes(UTF_8));
+        transcoder.close();
+        assertFalse("Wrapped stream should be left open", closed[0]);
+        assertEquals("caf\u00e9", new String(out.toByteArray(), ISO_8859_1));
+        try {
+            transcoder.write('a');
+            fail("Should not write to a finished stream");
+        } catch (IOException expected) {
+            // expected
+        }
+    }
+
+    public void testUnsupportedCharset() {
+        try {
+            CharsetTranscodingOutputStream.toCharset("no-such-charset");
+            fail("Unsupported charset should not be found");
+        } catch (UnsupportedEncodingException expected) {
+            // expected
+        }
+    }
+
+    private static void assertConverted(byte[] in, Charset from, Charset to, int chunk) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CharsetTranscodingOutputStream transcoder = new CharsetTranscodingOutputStream(out, from, to, 16);
+        for (int off = 0; off < in.length; off += chunk) {
+            if (chunk == 1) {
+                transcoder.write(in[off]);
+            } else {
+                transcoder.write(in, off, Math.min(chunk, in.length - off));
+            }
+        }
+        transcoder.finish();
+        byte[] expected = new String(in, from).getBytes(to);
+        assertTrue("Converted content differs for " + from + " to " + to + " in chunks of " + chunk,
+                Arrays.equals(expected, out.toByteArray()));
+    }
+}
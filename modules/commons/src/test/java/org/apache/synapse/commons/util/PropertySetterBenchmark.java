@@ -0,0 +1,53 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.synapse.commons.util;
+
+/**
+ * Compares the bound setter against PropertyHelper, which looks up the setter each time. The figures
+ * depend on the machine, hence this is run by hand and is not part of the unit tests.
+ * <p>
+ * Usage : PropertySetterBenchmark [iterations, 100000 by default]
+ */
+public class PropertySetterBenchmark {
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        PropertySetterTest.Target target = new PropertySetterTest.Target();
+        PropertySetter setter = PropertySetter.bind(PropertySetterTest.Target.class, "count");
+
+        // warm up both paths
+        for (int i = 0; i < iterations; i++) {
+            PropertyHelper.setInstanceProperty("count", "1", target);
+            setter.set(target, "1");
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            PropertyHelper.setInstanceProperty("count", "2", target);
+        }
+        long reflective = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            setter.set(target, "3");
+        }
+        long bound = System.nanoTime() - start;
+
+        System.out.println("Set a property " + iterations + " times, PropertyHelper : "
+                + (reflective / 1000000) + " ms, PropertySetter : " + (bound / 1000000) + " ms");
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.commons.util;
+
+import junit.framework.TestCase;
+import org.apache.synapse.commons.SynapseCommonsException;
+
+/**
+ * Tests the bound property setter against the conversions done by PropertyHelper. Their throughput
+ * is compared by {@link PropertySetterBenchmark}.
+ */
+public class PropertySetterTest extends TestCase {
+
+    public void testStringConversions() {
+        Target target = new Target();
+        PropertySetter.bind(Target.class, "name").set(target, "foo");
+        PropertySetter.bind(Target.class, "count").set(target, "12");
+        PropertySetter.bind(Target.class, "size").set(target, "1234567890123");
+        PropertySetter.bind(Target.class, "ratio").set(target, "0.5");
+        PropertySetter.bind(Target.class, "enabled").set(target, "true");
+
+        assertEquals("foo", target.name);
+        assertEquals(12, target.count);
+        assertEquals(1234567890123L, target.size);
+        assertEquals(0.5d, target.ratio);
+        assertTrue(target.enabled);
+    }
+
+    public void testSingleValueSetter() {
+        assertTrue(PropertySetter.bind(Target.class, "count").hasSingleValueSetter());
+        assertFalse(PropertySetter.bind(Target.class, "unknown").hasSingleValueSetter());
+    }
+
+    public void testSetterIsReusedAcrossInstances() {
+        PropertySetter setter = PropertySetter.bind(Target.class, "count");
+        for (int i = 0; i < 10; i++) {
+            Target target = new Target();
+            setter.set(target, String.valueOf(i));
+            assertEquals(i, target.count);
+        }
+    }
+
+    public void testMissingSetter() {
+        try {
+            PropertySetter.bind(Target.class, "unknown").set(new Target(), "value");
+            fail("A missing setter must be reported");
+        } catch (SynapseCommonsException expected) {
+            // expected
+        }
+    }
+
+    public void testUnsupportedValue() {
+        try {
+            PropertySetter.bind(Target.class, "count").set(new Target(), 12);
+            fail("Only String and OMElement values are supported");
+        } catch (SynapseCommonsException expected) {
+            // expected
+        }
+    }
+
+    public void testExceptionFromSetter() {
+        try {
+            PropertySetter.bind(Target.class, "count").set(new Target(), "not a number");
+            fail("The conversion failure must be reported");
+        } catch (SynapseCommonsException expected) {
+            assertTrue(expected.getCause() instanceof NumberFormatException);
+        }
+    }
+
+    /**
+     * Class with setters of the supported types
+     */
+    public static class Target {
+
+        private String name;
+        private int count;
+        private long size;
+        private double ratio;
+        private boolean enabled;
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public void setSize(long size) {
+            this.size = size;
+        }
+
+        public void setRatio(double ratio) {
+            this.ratio = ratio;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.synapse.commons.vfs;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemManager;
+import org.apache.commons.vfs2.VFS;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+/**
+ * Compares the throughput of the channel based copy of {@link VFSUtils} with a plain stream copy of the same local
+ * file. The figures depend too much on the machine to be asserted, hence this is run by hand and is not part of the
+ * unit tests.
+ * <p>
+ * Usage : VFSFileTransferBenchmark [file size in MB, 32 by default]
+ */
+public class VFSFileTransferBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int size = (args.length > 0 ? Integer.parseInt(args[0]) : 32) * 1024 * 1024;
+        File directory = Files.createTempDirectory("vfs-transfer-benchmark").toFile();
+        try {
+            FileSystemManager fsManager = VFS.getManager();
+            File source = new File(directory, "benchmark.bin");
+            FileUtils.writeByteArrayToFile(source, VFSFileTransferTest.createContent(size));
+            FileObject sourceFile = fsManager.resolveFile(source.toURI().toString());
+            FileObject channelTarget = fsManager.resolveFile(new File(directory, "channel.bin").toURI().toString());
+            File streamTarget = new File(directory, "stream-copy.bin");
+
+            long start = System.nanoTime();
+            VFSUtils.copy(sourceFile, channelTarget, false, VFSConstants.DEFAULT_TRANSFER_CHUNK_SIZE);
+            long channelTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            InputStream in = sourceFile.getContent().getInputStream();
+            try {
+                FileUtils.copyInputStreamToFile(in, streamTarget);
+            } finally {
+                in.close();
+            }
+            long streamTime = System.nanoTime() - start;
+
+            System.out.println("Local copy of " + (size >> 20) + "MB - channel : " + throughput(size, channelTime)
+                               + " MB/s, stream : " + throughput(size, streamTime) + " MB/s");
+        } finally {
+            FileUtils.deleteQuietly(directory);
+        }
+    }
+
+    private static long throughput(int size, long nanos) {
+        return (size >> 20) * 1000000000L / Math.max(1, nanos);
+    }
+}
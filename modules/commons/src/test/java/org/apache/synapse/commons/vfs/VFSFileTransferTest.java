@@ -0,0 +1,125 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.commons.vfs;
+
+import junit.framework.TestCase;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemManager;
+import org.apache.commons.vfs2.VFS;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Tests the file copy fast paths of {@link VFSUtils} and the {@link MappedFileInputStream}. The throughput of the
+ * copy is measured by {@link VFSFileTransferBenchmark}, which is not part of the unit tests.
+ */
+public class VFSFileTransferTest extends TestCase {
+
+    private File directory;
+    private FileSystemManager fsManager;
+
+    @Override
+    protected void setUp() throws Exception {
+        directory = Files.createTempDirectory("vfs-transfer").toFile();
+        fsManager = VFS.getManager();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        FileUtils.deleteQuietly(directory);
+    }
+
+    public void testLocalCopy() throws Exception {
+        byte[] content = createContent(1024 * 1024 + 17);
+        File source = new File(directory, "source.bin");
+        FileUtils.writeByteArrayToFile(source, content);
+        File target = new File(directory, "out/target.bin");
+
+        FileObject sourceFile = fsManager.resolveFile(source.toURI().toString());
+        FileObject targetFile = fsManager.resolveFile(target.toURI().toString());
+        assertEquals(source.getCanonicalFile(), VFSUtils.getLocalFile(sourceFile).getCanonicalFile());
+
+        assertEquals(content.length, VFSUtils.copy(sourceFile, targetFile, false, 4096));
+        assertTrue(Arrays.equals(content, FileUtils.readFileToByteArray(target)));
+
+        // appending should keep the existing content
+        assertEquals(content.length, VFSUtils.copy(sourceFile, targetFile, true, 4096));
+        assertEquals(2L * content.length, target.length());
+    }
+
+    public void testStreamCopy() throws Exception {
+        byte[] content = createContent(100000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        File source = new File(directory, "stream.bin");
+        FileUtils.writeByteArrayToFile(source, content);
+        InputStream in = new FileInputStream(source);
+        try {
+            assertEquals(content.length, VFSUtils.copy(in, out, 333));
+        } finally {
+            in.close();
+        }
+        assertTrue(Arrays.equals(content, out.toByteArray()));
+    }
+
+    public void testMappedFileInputStream() throws Exception {
+        byte[] content = createContent(10000);
+        File source = new File(directory, "mapped.bin");
+        FileUtils.writeByteArrayToFile(source, content);
+
+        // a small region size makes the stream cross several mappings
+        MappedFileInputStream in = new MappedFileInputStream(source, 1024);
+        try {
+            assertEquals(content[0] & 0xFF, in.read());
+            assertEquals(100, in.skip(100));
+            in.mark(0);
+            byte[] rest = IOUtils.toByteArray(in);
+            assertTrue(Arrays.equals(Arrays.copyOfRange(content, 101, content.length), rest));
+            assertEquals(-1, in.read());
+            in.reset();
+            assertEquals(content[101] & 0xFF, in.read());
+        } finally {
+            in.close();
+        }
+
+        FileObject file = fsManager.resolveFile(source.toURI().toString());
+        InputStream dataSourceStream = new FileObjectDataSource(file, "application/octet-stream", true)
+                .getInputStream();
+        try {
+            assertTrue(dataSourceStream instanceof MappedFileInputStream);
+            assertTrue(Arrays.equals(content, IOUtils.toByteArray(dataSourceStream)));
+        } finally {
+            dataSourceStream.close();
+        }
+    }
+
+    static byte[] createContent(int size) {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+}
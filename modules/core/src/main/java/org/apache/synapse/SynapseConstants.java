@@ -381,6 +381,8 @@ public final class SynapseConstants {
     public static final String NO_DEFAULT_CONTENT_TYPE = "NoDefaultContentType";
     // Synapse property to store Blocking Message Sender to do blocking invocation
     public static final String BLOCKING_MSG_SENDER = "blockingMsgSender";
+    // Synapse property to store the handler of the response to a message sent without blocking
+    public static final String ASYNC_RESPONSE_HANDLER = "asyncResponseHandler";
 
     /** Synapse server instance name */
     public static final String SERVER_NAME = "serverName";
@@ -471,6 +473,7 @@ public final class SynapseConstants {
     public static final int ENDPOINT_FO_NONE_READY   = 303000;
     public static final int ENDPOINT_ADDRESS_NONE_READY = 303001;
     public static final int ENDPOINT_WSDL_NONE_READY = 303002;
+    public static final int ENDPOINT_CONCURRENCY_LIMIT_EXCEEDED = 303003;
     // Failure on endpoint in the session 
     public static final int ENDPOINT_SAL_NOT_READY = 309001;
     public static final int ENDPOINT_SAL_INVALID_PATH = 309002;
@@ -519,12 +522,29 @@ public final class SynapseConstants {
     public static final String FAIL_SAFE_MODE_REGISTRY = "registry";
     public static final String FAIL_SAFE_MODE_TASK_MANAGER = "taskManager";
 
+    // Parallel loading of the artifacts of the synapse-config directory at startup
+    public static final String PARALLEL_ARTIFACT_LOADING = "synapse.artifacts.parallel.loading.enabled";
+    public static final String PARALLEL_ARTIFACT_LOADING_THREADS = "synapse.artifacts.parallel.loading.threads";
+
+    // Defer the initialization of endpoints, sequences, proxy services and APIs until their first use
+    public static final String LAZY_ARTIFACT_INITIALIZATION = "synapse.artifacts.lazy.init.enabled";
+
+    // Threads and queue length of the executor running the statements of asynchronous DB mediators
+    public static final String DB_MEDIATOR_ASYNC_THREADS = "synapse.dbmediator.async.threads";
+    public static final String DB_MEDIATOR_ASYNC_QUEUE_LENGTH = "synapse.dbmediator.async.queue.length";
+
     //fall back XPATH support (default javax.xml style xpath processing which can support XPATH 2.0)
     public static final String FAIL_OVER_DOM_XPATH_PROCESSING = "synapse.xpath.dom.failover.enabled";
 
     //Streaming XPATH Support
     public static final String STREAMING_XPATH_PROCESSING = "synapse.streaming.xpath.enabled";
 
+    //Streaming content based routing of the switch and filter mediators on pass-through messages
+    public static final String STREAMING_CONTENT_ROUTING = "synapse.streaming.content.routing.enabled";
+
+    //Maximum number of bytes read from the message stream by content based routing before building the message
+    public static final String STREAMING_CONTENT_ROUTING_MAX_READ_SIZE = "synapse.streaming.content.routing.max.read.size";
+
     //Streaming Json Path
     public static final String STREAMING_JSONPATH_PROCESSING = "synapse.streaming.jsonpath.enabled";
 
@@ -569,6 +589,19 @@ public final class SynapseConstants {
      */
     public static final String SYNAPSE_IS_CONCURRENT_ACCESS_ALLOWED = "synapse.is.concurrent.access.allowed";
 
+    //Adaptive concurrency limiting of the endpoints
+    public static final String ENDPOINT_CONCURRENCY_LIMIT_ENABLE = "synapse.endpoint.concurrency.limit.enable";
+    public static final String ENDPOINT_CONCURRENCY_LIMIT_INITIAL = "synapse.endpoint.concurrency.limit.initial";
+    public static final String ENDPOINT_CONCURRENCY_LIMIT_MIN = "synapse.endpoint.concurrency.limit.min";
+    public static final String ENDPOINT_CONCURRENCY_LIMIT_MAX = "synapse.endpoint.concurrency.limit.max";
+    public static final String ENDPOINT_CONCURRENCY_LIMIT_TOLERANCE = "synapse.endpoint.concurrency.limit.tolerance";
+    public static final String ENDPOINT_CONCURRENCY_LIMIT_ERROR_CODE = "synapse.endpoint.concurrency.limit.error.code";
+
+    /**
+     * Keeps the permit of the request in flight to the endpoint, taken from its concurrency limiter
+     */
+    public static final String SYNAPSE_ENDPOINT_CONCURRENCY_PERMIT = "synapse.endpoint.concurrency.permit";
+
     //String constants to identity the type of the timeout
     public enum ENDPOINT_TIMEOUT_TYPE { ENDPOINT_TIMEOUT, GLOBAL_TIMEOUT, HTTP_CONNECTION_TIMEOUT};
 
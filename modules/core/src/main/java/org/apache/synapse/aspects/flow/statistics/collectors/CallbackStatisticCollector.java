@@ -50,7 +50,7 @@ public class CallbackStatisticCollector extends RuntimeStatisticCollector {
 			CallbackSentEvent callbackSentEvent = new CallbackSentEvent(dataUnit);
             addEventAndIncrementCallbackCount(messageContext, callbackSentEvent);
 
-            if (isOpenTracingEnabled()) {
+            if (isOpenTracingEnabled(messageContext)) {
 				OpenTracingManagerHolder.getOpenTracingManager().getHandler()
 					.handleAddCallback(messageContext, callbackId);
 			}
@@ -77,7 +77,7 @@ public class CallbackStatisticCollector extends RuntimeStatisticCollector {
 			CallbackCompletionEvent callbackCompletionEvent = new CallbackCompletionEvent(dataUnit);
             addEventAndDecrementCallbackCount(oldMessageContext, callbackCompletionEvent);
 
-            if (isOpenTracingEnabled()) {
+            if (isOpenTracingEnabled(oldMessageContext)) {
 				OpenTracingManagerHolder.getOpenTracingManager().getHandler()
 					.handleCallbackCompletionEvent(oldMessageContext, callbackId);
 			}
@@ -103,7 +103,7 @@ public class CallbackStatisticCollector extends RuntimeStatisticCollector {
 			CallbackReceivedEvent callbackReceivedEvent = new CallbackReceivedEvent(dataUnit);
             addEvent(oldMessageContext, callbackReceivedEvent);
 
-            if (isOpenTracingEnabled()) {
+            if (isOpenTracingEnabled(oldMessageContext)) {
 				OpenTracingManagerHolder.getOpenTracingManager().getHandler()
 					.handleUpdateParentsForCallback(oldMessageContext, callbackId);
 			}
@@ -129,7 +129,7 @@ public class CallbackStatisticCollector extends RuntimeStatisticCollector {
 			CallbackHandledEvent callbackHandledEvent = new CallbackHandledEvent(dataUnit);
             addEventAndDecrementCallbackCount(synapseOutMsgCtx, callbackHandledEvent);
 
-			if (isOpenTracingEnabled()) {
+			if (isOpenTracingEnabled(synapseOutMsgCtx)) {
 				OpenTracingManagerHolder.getOpenTracingManager().getHandler()
 					.handleReportCallbackHandlingCompletion(synapseOutMsgCtx, callbackId);
 			}
@@ -95,7 +95,7 @@ public class CloseEventCollector extends RuntimeStatisticCollector {
 				addEventAndDecrementCount(messageContext, closeEvent);
 			}
 
-			if (isOpenTracingEnabled()) {
+			if (isOpenTracingEnabled(messageContext)) {
 				OpenTracingManagerHolder.getOpenTracingManager().getHandler().
 						handleCloseEntryEvent(statisticDataUnit, messageContext);
 			}
@@ -124,7 +124,7 @@ public class CloseEventCollector extends RuntimeStatisticCollector {
                 addEventAndCloseFlow(messageContext, endFlowEvent);
             }
 
-            if (isOpenTracingEnabled()) {
+            if (isOpenTracingEnabled(messageContext)) {
 				OpenTracingManagerHolder.getOpenTracingManager().getHandler()
 					.handleCloseFlowForcefully(dataUnit, messageContext);
 			}
@@ -32,6 +32,9 @@ import org.apache.synapse.aspects.flow.statistics.opentracing.OpenTracingManager
 import org.apache.synapse.aspects.flow.statistics.opentracing.stores.ArtifactHolderStore;
 import org.apache.synapse.aspects.flow.statistics.util.StatisticDataCollectionHelper;
 import org.apache.synapse.aspects.flow.statistics.util.StatisticsConstants;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+
+import java.util.Map;
 
 /**
  * OpenEventCollector receives  open statistic events from synapse mediation engine. It Receives Statistics for Proxy
@@ -62,6 +65,12 @@ public class OpenEventCollector extends RuntimeStatisticCollector {
 			isCollectingStatistics = isCollectingStatistics || RuntimeStatisticCollector.isCollectingAllStatistics();
 		}
 
+		// Nothing is collected for a message left out by the head sampler, unless mediation statistics are needed
+		if (isCollectingStatistics && isOpenTracingEnabled() && !isSampled(messageContext, componentName) &&
+				!isMediationFlowStatisticsEnabled()) {
+			isCollectingStatistics = false;
+		}
+
 		boolean isCollectingTracing = false;
 		if (isCollectingProperties() || isCollectingPayloads()) {
 			isCollectingTracing = (aspectConfiguration != null && aspectConfiguration.isTracingEnabled());
@@ -108,7 +117,7 @@ public class OpenEventCollector extends RuntimeStatisticCollector {
 			StatisticsOpenEvent openEvent = new StatisticsOpenEvent(statisticDataUnit);
             addEventAndIncrementCount(messageContext, openEvent);
 
-            if (isOpenTracingEnabled()) {
+            if (isOpenTracingEnabled(messageContext)) {
             	OpenTracingManagerHolder.getOpenTracingManager().getHandler()
 		            .handleOpenEntryEvent(statisticDataUnit, messageContext);
 			}
@@ -119,6 +128,29 @@ public class OpenEventCollector extends RuntimeStatisticCollector {
 		return null;
 	}
 
+	/**
+	 * Returns whether the message is traced. This is decided by the head sampler once, when the message enters the
+	 * first component which collects statistics, and the decision is kept in the message context.
+	 *
+	 * @param messageContext synapse message context.
+	 * @param componentName  statistic reporting component name.
+	 * @return true if the message is traced.
+	 */
+	private static boolean isSampled(MessageContext messageContext, String componentName) {
+		Boolean isSampled = (Boolean) messageContext.getProperty(StatisticsConstants.FLOW_TRACE_IS_SAMPLED);
+		if (isSampled == null) {
+			Map headers = null;
+			if (messageContext instanceof Axis2MessageContext) {
+				headers = (Map) ((Axis2MessageContext) messageContext).getAxis2MessageContext()
+						.getProperty(org.apache.axis2.context.MessageContext.TRANSPORT_HEADERS);
+			}
+			isSampled = OpenTracingManagerHolder.getOpenTracingManager().getHeadSampler()
+					.isSampled(componentName, headers);
+			messageContext.setProperty(StatisticsConstants.FLOW_TRACE_IS_SAMPLED, isSampled);
+		}
+		return isSampled;
+	}
+
 	/**
 	 * Enqueue StatisticOpenEvent to the event Queue. This receives open events from Mediators and Resources. These
 	 * components can't start statistic collection. If statistics is already enabled, it will enqueue open event to
@@ -140,7 +172,7 @@ public class OpenEventCollector extends RuntimeStatisticCollector {
 			reportMediatorStatistics(messageContext, componentName, componentType, isContentAltering, statisticDataUnit,
 			                         aspectConfiguration);
 
-			if (isOpenTracingEnabled()) {
+			if (isOpenTracingEnabled(messageContext)) {
 				OpenTracingManagerHolder.getOpenTracingManager().getHandler()
 						.handleOpenChildEntryEvent(statisticDataUnit, messageContext);
 			}
@@ -174,7 +206,7 @@ public class OpenEventCollector extends RuntimeStatisticCollector {
 			reportMediatorStatistics(messageContext, componentName, componentType, isContentAltering, statisticDataUnit,
 			                         aspectConfiguration);
 
-			if (isOpenTracingEnabled()) {
+			if (isOpenTracingEnabled(messageContext)) {
 				OpenTracingManagerHolder.getOpenTracingManager().getHandler()
 						.handleOpenFlowContinuableEvent(statisticDataUnit, messageContext);
 			}
@@ -209,7 +241,7 @@ public class OpenEventCollector extends RuntimeStatisticCollector {
 			reportMediatorStatistics(messageContext, componentName, componentType, isContentAltering, statisticDataUnit,
 			                         aspectConfiguration);
 
-			if (isOpenTracingEnabled()) {
+			if (isOpenTracingEnabled(messageContext)) {
 				OpenTracingManagerHolder.getOpenTracingManager().getHandler()
 						.handleOpenFlowSplittingEvent(statisticDataUnit, messageContext);
 			}
@@ -243,7 +275,7 @@ public class OpenEventCollector extends RuntimeStatisticCollector {
 			reportMediatorStatistics(messageContext, componentName, componentType, isContentAltering, statisticDataUnit,
 			                         aspectConfiguration);
 
-			if (isOpenTracingEnabled()) {
+			if (isOpenTracingEnabled(messageContext)) {
 				OpenTracingManagerHolder.getOpenTracingManager().getHandler()
 						.handleOpenFlowAggregateEvent(statisticDataUnit, messageContext);
 			}
@@ -266,7 +298,7 @@ public class OpenEventCollector extends RuntimeStatisticCollector {
 			dataUnit.setCurrentIndex(StatisticDataCollectionHelper.getParentFlowPosition(messageContext, null));
 			AsynchronousExecutionEvent asynchronousExecutionEvent = new AsynchronousExecutionEvent(dataUnit);
 
-			if (isOpenTracingEnabled()) {
+			if (isOpenTracingEnabled(messageContext)) {
 				OpenTracingManagerHolder.getOpenTracingManager().getHandler()
 						.handleOpenFlowAsynchronousEvent(dataUnit, messageContext);
 			}
@@ -313,7 +345,7 @@ public class OpenEventCollector extends RuntimeStatisticCollector {
             ParentReopenEvent parentReopenEvent = new ParentReopenEvent(basicStatisticDataUnit);
 			addEvent(synCtx, parentReopenEvent);
 
-			if (isOpenTracingEnabled()) {
+			if (isOpenTracingEnabled(synCtx)) {
 				OpenTracingManagerHolder.getOpenTracingManager().getHandler()
 						.handleOpenContinuationEvents(basicStatisticDataUnit, synCtx);
 			}
@@ -111,6 +111,7 @@ public abstract class RuntimeStatisticCollector {
             new MediationFlowController();
 
             if (isOpenTracingEnabled) {
+                loadOpenTracingSamplingConfigurations();
                 boolean isZipkinEnabled = SynapsePropertiesLoader.getBooleanProperty(StatisticsConstants.ENABLE_ZIPKIN,
                         false);
                 if (!isZipkinEnabled) {
@@ -132,6 +133,49 @@ public abstract class RuntimeStatisticCollector {
         }
     }
 
+    private static void loadOpenTracingSamplingConfigurations() {
+        final String DEFAULT_SAMPLER_TYPE = "const";
+        final String DEFAULT_SAMPLER_PARAM = "1";
+        final String DEFAULT_TAIL_SAMPLING_LATENCY_THRESHOLD = "1000";
+        final String DEFAULT_TAIL_SAMPLING_MAX_TRACES = "1000";
+        final String DEFAULT_TAIL_SAMPLING_MAX_SPANS_PER_TRACE = "500";
+
+        // Head Sampler Configurations
+        String samplerType =
+                SynapsePropertiesLoader.getPropertyValue(
+                        StatisticsConstants.OPENTRACING_SAMPLER_TYPE, DEFAULT_SAMPLER_TYPE);
+        String samplerParam =
+                SynapsePropertiesLoader.getPropertyValue(
+                        StatisticsConstants.OPENTRACING_SAMPLER_PARAM, DEFAULT_SAMPLER_PARAM);
+
+        // Tail Sampling Configurations
+        boolean tailSampling =
+            SynapsePropertiesLoader.getBooleanProperty(StatisticsConstants.OPENTRACING_TAIL_SAMPLING_ENABLE, false);
+        String latencyThreshold =
+                SynapsePropertiesLoader.getPropertyValue(
+                        StatisticsConstants.OPENTRACING_TAIL_SAMPLING_LATENCY_THRESHOLD,
+                        DEFAULT_TAIL_SAMPLING_LATENCY_THRESHOLD);
+        String maxTraces =
+                SynapsePropertiesLoader.getPropertyValue(
+                        StatisticsConstants.OPENTRACING_TAIL_SAMPLING_MAX_TRACES, DEFAULT_TAIL_SAMPLING_MAX_TRACES);
+        String maxSpansPerTrace =
+                SynapsePropertiesLoader.getPropertyValue(
+                        StatisticsConstants.OPENTRACING_TAIL_SAMPLING_MAX_SPANS_PER_TRACE,
+                        DEFAULT_TAIL_SAMPLING_MAX_SPANS_PER_TRACE);
+
+        if (log.isDebugEnabled()) {
+            log.debug("OpenTracing sampler : " + samplerType + " (" + samplerParam + "), tail sampling : " +
+                      tailSampling);
+        }
+        OpenTracingManagerHolder.loadSamplingConfigurations(
+                samplerType,
+                Double.parseDouble(samplerParam),
+                tailSampling,
+                Long.parseLong(latencyThreshold),
+                Integer.parseInt(maxTraces),
+                Integer.parseInt(maxSpansPerTrace));
+    }
+
     private static void initOpenTracingJaegerClient(boolean isCollectingPayloads, boolean isCollectingProperties) {
         final String DEFAULT_JAEGER_SAMPLER_MANAGER_HOST = "localhost";
         final String DEFAULT_JAEGER_SAMPLER_MANAGER_PORT = "5778";
@@ -244,6 +288,18 @@ public abstract class RuntimeStatisticCollector {
         return isOpenTracingEnabled;
     }
 
+    /**
+     * Returns whether the given message is traced, that is OpenTracing has been enabled and the message has not been
+     * left out by the head sampler.
+     *
+     * @param messageContext synapse message context.
+     * @return true if the message is traced.
+     */
+    public static boolean isOpenTracingEnabled(MessageContext messageContext) {
+        return isOpenTracingEnabled &&
+               !Boolean.FALSE.equals(messageContext.getProperty(StatisticsConstants.FLOW_TRACE_IS_SAMPLED));
+    }
+
     /**
      * Returns whether mediation flow statistics (Analytics profile) has been enabled.
      *
@@ -295,12 +351,7 @@ public abstract class RuntimeStatisticCollector {
      * @param event
      */
     protected static void addEventAndIncrementCount(MessageContext messageContext, StatisticsReportingEvent event) {
-        StatisticsReportingEventHolder eventHolder = (StatisticsReportingEventHolder) messageContext.getProperty(StatisticsConstants.STAT_COLLECTOR_PROPERTY);
-        if (eventHolder == null) {
-            eventHolder = new StatisticsReportingEventHolder();
-            eventHolder.setPublishMediationFlowStatistics(isMediationFlowStatisticsEnabled);
-            messageContext.setProperty(StatisticsConstants.STAT_COLLECTOR_PROPERTY, eventHolder);
-        }
+        StatisticsReportingEventHolder eventHolder = getEventHolder(messageContext);
         if (eventHolder.isEvenCollectionFinished()) {
             handleError(eventHolder, event);
             return;
@@ -318,12 +369,7 @@ public abstract class RuntimeStatisticCollector {
      * @param event
      */
     protected static void addEventAndDecrementCount(MessageContext messageContext, StatisticsReportingEvent event) {
-        StatisticsReportingEventHolder eventHolder = (StatisticsReportingEventHolder) messageContext.getProperty(StatisticsConstants.STAT_COLLECTOR_PROPERTY);
-        if (eventHolder == null) {
-            eventHolder = new StatisticsReportingEventHolder();
-            eventHolder.setPublishMediationFlowStatistics(isMediationFlowStatisticsEnabled);
-            messageContext.setProperty(StatisticsConstants.STAT_COLLECTOR_PROPERTY, eventHolder);
-        }
+        StatisticsReportingEventHolder eventHolder = getEventHolder(messageContext);
 
         if (eventHolder.isEvenCollectionFinished()) {
             handleError(eventHolder, event);
@@ -331,8 +377,8 @@ public abstract class RuntimeStatisticCollector {
         }
         eventHolder.addEvent(event);
 
-        if (eventHolder.countHolder.decrementAndGetStatCount() <= 0 && eventHolder.countHolder.getCallBackCount() <= 0) {
-            eventHolder.setEvenCollectionFinished(true);
+        if (eventHolder.countHolder.decrementAndGetStatCount() <= 0 && eventHolder.countHolder.getCallBackCount() <= 0
+                && eventHolder.finishEventCollection()) {
             messageContext.getEnvironment().getMessageDataStore().enqueue(eventHolder);
         }
     }
@@ -345,12 +391,7 @@ public abstract class RuntimeStatisticCollector {
      */
     protected static void addEventAndIncrementCallbackCount(MessageContext messageContext,
                                                             StatisticsReportingEvent event) {
-        StatisticsReportingEventHolder eventHolder = (StatisticsReportingEventHolder) messageContext.getProperty(StatisticsConstants.STAT_COLLECTOR_PROPERTY);
-        if (eventHolder == null) {
-            eventHolder = new StatisticsReportingEventHolder();
-            eventHolder.setPublishMediationFlowStatistics(isMediationFlowStatisticsEnabled);
-            messageContext.setProperty(StatisticsConstants.STAT_COLLECTOR_PROPERTY, eventHolder);
-        }
+        StatisticsReportingEventHolder eventHolder = getEventHolder(messageContext);
 
         if (eventHolder.isEvenCollectionFinished()) {
             handleError(eventHolder, event);
@@ -370,20 +411,15 @@ public abstract class RuntimeStatisticCollector {
      */
     protected static void addEventAndDecrementCallbackCount(MessageContext messageContext,
                                                             StatisticsReportingEvent event) {
-        StatisticsReportingEventHolder eventHolder = (StatisticsReportingEventHolder) messageContext.getProperty(StatisticsConstants.STAT_COLLECTOR_PROPERTY);
-        if (eventHolder == null) {
-            eventHolder = new StatisticsReportingEventHolder();
-            eventHolder.setPublishMediationFlowStatistics(isMediationFlowStatisticsEnabled);
-            messageContext.setProperty(StatisticsConstants.STAT_COLLECTOR_PROPERTY, eventHolder);
-        }
+        StatisticsReportingEventHolder eventHolder = getEventHolder(messageContext);
         if (eventHolder.isEvenCollectionFinished()) {
             handleError(eventHolder, event);
             return;
         }
         eventHolder.addEvent(event);
 
-        if (eventHolder.countHolder.decrementAndGetCallbackCount() <= 0 && eventHolder.countHolder.getStatCount() <= 0) {
-            eventHolder.setEvenCollectionFinished(true);
+        if (eventHolder.countHolder.decrementAndGetCallbackCount() <= 0 && eventHolder.countHolder.getStatCount() <= 0
+                && eventHolder.finishEventCollection()) {
             messageContext.getEnvironment().getMessageDataStore().enqueue(eventHolder);
         }
     }
@@ -395,12 +431,7 @@ public abstract class RuntimeStatisticCollector {
      * @param event
      */
     protected static void addEvent(MessageContext messageContext, StatisticsReportingEvent event) {
-        StatisticsReportingEventHolder eventHolder = (StatisticsReportingEventHolder) messageContext.getProperty(StatisticsConstants.STAT_COLLECTOR_PROPERTY);
-        if (eventHolder == null) {
-            eventHolder = new StatisticsReportingEventHolder();
-            eventHolder.setPublishMediationFlowStatistics(isMediationFlowStatisticsEnabled);
-            messageContext.setProperty(StatisticsConstants.STAT_COLLECTOR_PROPERTY, eventHolder);
-        }
+        StatisticsReportingEventHolder eventHolder = getEventHolder(messageContext);
 
         if (eventHolder.isEvenCollectionFinished()) {
             handleError(eventHolder, event);
@@ -416,24 +447,32 @@ public abstract class RuntimeStatisticCollector {
      * @param event
      */
     protected static void addEventAndCloseFlow(MessageContext messageContext, StatisticsReportingEvent event) {
+        StatisticsReportingEventHolder eventHolder = getEventHolder(messageContext);
+
+        // only the thread finishing the collection adds the event and queues the holder
+        if (!eventHolder.finishEventCollection()) {
+            handleError(eventHolder, event);
+            return;
+        }
+        eventHolder.setMessageFlowError(true);
+        eventHolder.addEvent(event);
+        messageContext.getEnvironment().getMessageDataStore().enqueue(eventHolder);
+    }
+
+    /**
+     * Returns the event holder of the message flow, creating it at the first event.
+     *
+     * @param messageContext synapse message context.
+     * @return the event holder
+     */
+    private static StatisticsReportingEventHolder getEventHolder(MessageContext messageContext) {
         StatisticsReportingEventHolder eventHolder = (StatisticsReportingEventHolder) messageContext.getProperty(StatisticsConstants.STAT_COLLECTOR_PROPERTY);
         if (eventHolder == null) {
             eventHolder = new StatisticsReportingEventHolder();
             eventHolder.setPublishMediationFlowStatistics(isMediationFlowStatisticsEnabled);
             messageContext.setProperty(StatisticsConstants.STAT_COLLECTOR_PROPERTY, eventHolder);
         }
-
-        synchronized (eventHolder) {
-            if (eventHolder.isEvenCollectionFinished()) {
-                handleError(eventHolder, event);
-                return;
-            }
-            eventHolder.addEvent(event);
-
-            eventHolder.setEvenCollectionFinished(true);
-            eventHolder.setMessageFlowError(true);
-            messageContext.getEnvironment().getMessageDataStore().enqueue(eventHolder);
-        }
+        return eventHolder;
     }
 
     /**
@@ -18,27 +18,51 @@
 package org.apache.synapse.aspects.flow.statistics.log;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * This class is to hold events and stat count information before starting processing events.
+ * <p>
+ * Events of a message flow may be added by several threads, for example when a callback is received. They are
+ * appended to fixed size chunks of slots, a slot being claimed with a single atomic increment, so that adding an
+ * event neither takes a lock nor allocates a queue node.
  */
 public class StatisticsReportingEventHolder {
+
+    private static final int CHUNK_SIZE = 32;
+
+    /**
+     * Chunks of slots to accumulate events, before processing happens.
+     */
+    private final Chunk firstChunk = new Chunk(0);
+
+    /**
+     * Latest chunk known to be linked, where the search for the chunk of a new event starts.
+     */
+    private volatile Chunk lastChunk = firstChunk;
+
     /**
-     * Queue to accumulate events, before processing happens.
+     * Number of slots claimed by the added events.
      */
-    private Queue<StatisticsReportingEvent> eventQueue;
+    private final AtomicInteger claimed = new AtomicInteger();
+
+    /**
+     * Number of events dequeued.
+     */
+    private final AtomicInteger dequeued = new AtomicInteger();
+
     /**
      * Count holder which keeps stat count and callback counts.
      */
     public StatisticsReportingCountHolder countHolder;
 
-    private boolean evenCollectionFinished = false;
+    private final AtomicBoolean evenCollectionFinished = new AtomicBoolean();
 
-    private boolean messageFlowError = false;
+    private volatile boolean messageFlowError = false;
 
     /**
      * Denotes whether to publish data for Mediation Flow Statistics or not.
@@ -46,32 +70,95 @@ public class StatisticsReportingEventHolder {
     private boolean publishMediationFlowStatistics;
 
     public StatisticsReportingEventHolder() {
-        eventQueue = new ConcurrentLinkedQueue<StatisticsReportingEvent>();
         countHolder = new StatisticsReportingCountHolder();
     }
 
     public void addEvent(StatisticsReportingEvent event) {
-        this.eventQueue.add(event);
+        int index = claimed.getAndIncrement();
+        Chunk chunk = chunkOf(index, true);
+        chunk.events.set(index - chunk.offset, event);
     }
 
     public StatisticsReportingEvent deQueueEvent() {
-        return eventQueue.poll();
+        while (true) {
+            int index = dequeued.get();
+            if (index >= claimed.get()) {
+                return null;
+            }
+            StatisticsReportingEvent event = eventAt(index);
+            if (event == null) {
+                // the slot is claimed but the event is not stored yet
+                return null;
+            }
+            if (dequeued.compareAndSet(index, index + 1)) {
+                return event;
+            }
+        }
     }
 
     public List<StatisticsReportingEvent> getEventList() {
-        return new ArrayList<>(eventQueue);
+        int end = claimed.get();
+        List<StatisticsReportingEvent> events = new ArrayList<>(Math.max(end - dequeued.get(), 0));
+        for (int index = dequeued.get(); index < end; index++) {
+            StatisticsReportingEvent event = eventAt(index);
+            if (event != null) {
+                events.add(event);
+            }
+        }
+        return events;
     }
 
     public int getQueueSize() {
-        return this.eventQueue.size();
+        return Math.max(claimed.get() - dequeued.get(), 0);
+    }
+
+    private StatisticsReportingEvent eventAt(int index) {
+        Chunk chunk = chunkOf(index, false);
+        return chunk != null ? chunk.events.get(index - chunk.offset) : null;
+    }
+
+    /**
+     * Finds the chunk holding the slot of the given index, linking new chunks if asked to.
+     *
+     * @return the chunk, or null if it is not linked yet and is not to be linked
+     */
+    private Chunk chunkOf(int index, boolean link) {
+        Chunk chunk = lastChunk;
+        if (chunk.offset > index) {
+            chunk = firstChunk;
+        }
+        while (index >= chunk.offset + CHUNK_SIZE) {
+            Chunk next = chunk.next;
+            if (next == null) {
+                if (!link) {
+                    return null;
+                }
+                Chunk created = new Chunk(chunk.offset + CHUNK_SIZE);
+                next = Chunk.NEXT.compareAndSet(chunk, null, created) ? created : chunk.next;
+            }
+            chunk = next;
+        }
+        if (chunk.offset > lastChunk.offset) {
+            lastChunk = chunk;
+        }
+        return chunk;
     }
 
     public boolean isEvenCollectionFinished() {
-        return evenCollectionFinished;
+        return evenCollectionFinished.get();
     }
 
     public void setEvenCollectionFinished(boolean evenCollectionFinished) {
-        this.evenCollectionFinished = evenCollectionFinished;
+        this.evenCollectionFinished.set(evenCollectionFinished);
+    }
+
+    /**
+     * Marks the event collection as finished.
+     *
+     * @return true if the collection was finished by this call, false if it was already finished
+     */
+    public boolean finishEventCollection() {
+        return evenCollectionFinished.compareAndSet(false, true);
     }
 
     public boolean isMessageFlowError() {
@@ -89,4 +176,19 @@ public class StatisticsReportingEventHolder {
     public boolean isPublishMediationFlowStatistics() {
         return publishMediationFlowStatistics;
     }
+
+    private static final class Chunk {
+
+        private static final AtomicReferenceFieldUpdater<Chunk, Chunk> NEXT =
+                AtomicReferenceFieldUpdater.newUpdater(Chunk.class, Chunk.class, "next");
+
+        private final int offset;
+        private final AtomicReferenceArray<StatisticsReportingEvent> events =
+                new AtomicReferenceArray<>(CHUNK_SIZE);
+        private volatile Chunk next;
+
+        Chunk(int offset) {
+            this.offset = offset;
+        }
+    }
 }
@@ -19,10 +19,17 @@
 package org.apache.synapse.aspects.flow.statistics.opentracing;
 
 import io.jaegertracing.Configuration;
+import io.jaegertracing.internal.reporters.CompositeReporter;
+import io.jaegertracing.internal.reporters.LoggingReporter;
+import io.jaegertracing.internal.reporters.RemoteReporter;
 import io.jaegertracing.internal.samplers.ConstSampler;
+import io.jaegertracing.spi.Reporter;
+import io.jaegertracing.spi.Sampler;
 import org.apache.synapse.aspects.flow.statistics.opentracing.management.JaegerTracingManager;
 import org.apache.synapse.aspects.flow.statistics.opentracing.management.OpenTracingManager;
 import org.apache.synapse.aspects.flow.statistics.opentracing.management.helpers.zipkin.ZipkinV2ReporterFactory;
+import org.apache.synapse.aspects.flow.statistics.opentracing.management.sampling.HeadSampler;
+import org.apache.synapse.aspects.flow.statistics.opentracing.management.sampling.TailSamplingReporter;
 
 /**
  * Holds the OpenTracing Manager, and configurations related to it.
@@ -31,12 +38,40 @@ public class OpenTracingManagerHolder {
     private static boolean isCollectingPayloads;
     private static boolean isCollectingProperties;
     private static OpenTracingManager openTracingManager;
+    private static Sampler headSampler = new ConstSampler(true);
+    private static boolean isTailSampling;
+    private static long tailSamplingLatencyThreshold;
+    private static int tailSamplingMaxTraces;
+    private static int tailSamplingMaxSpansPerTrace;
 
     /**
      * Prevents Instantiation.
      */
     private OpenTracingManagerHolder() {}
 
+    /**
+     * Loads sampling configurations. Should be called before loading the Jaeger or Zipkin configurations.
+     *
+     * @param samplerType                   Type of the head sampler: const, probabilistic or ratelimiting.
+     * @param samplerParam                  Parameter of the head sampler.
+     * @param tailSampling                  Report only the spans of slow or faulted message flows or not.
+     * @param latencyThreshold              Duration in milliseconds, after which a message flow is reported.
+     * @param maxTraces                     Max number of message flows buffered for tail sampling.
+     * @param maxSpansPerTrace              Max number of spans buffered per message flow for tail sampling.
+     */
+    public static void loadSamplingConfigurations(String samplerType,
+                                                  double samplerParam,
+                                                  boolean tailSampling,
+                                                  long latencyThreshold,
+                                                  int maxTraces,
+                                                  int maxSpansPerTrace) {
+        headSampler = HeadSampler.createSampler(samplerType, samplerParam);
+        isTailSampling = tailSampling;
+        tailSamplingLatencyThreshold = latencyThreshold;
+        tailSamplingMaxTraces = maxTraces;
+        tailSamplingMaxSpansPerTrace = maxSpansPerTrace;
+    }
+
     /**
      * Loads Jaeger configurations required for the OpenTracingManager.
      *
@@ -65,7 +100,19 @@ public class OpenTracingManagerHolder {
                 .withSender(sender)
                 .withMaxQueueSize(reporterMaxQueueSize)
                 .withFlushInterval(reporterFlushInterval);
-        openTracingManager = new JaegerTracingManager(sampler, reporter);
+        if (isTailSampling) {
+            Reporter remoteReporter = new RemoteReporter.Builder()
+                    .withSender(sender.getSender())
+                    .withMaxQueueSize(reporterMaxQueueSize)
+                    .withFlushInterval(reporterFlushInterval)
+                    .build();
+            if (logSpans) {
+                remoteReporter = new CompositeReporter(remoteReporter, new LoggingReporter());
+            }
+            openTracingManager = new JaegerTracingManager(createTailSamplingReporter(remoteReporter), headSampler);
+        } else {
+            openTracingManager = new JaegerTracingManager(sampler, reporter, headSampler);
+        }
     }
 
     /**
@@ -75,7 +122,16 @@ public class OpenTracingManagerHolder {
      */
     public static void loadZipkinConfigurations(String zipkinBackendURL) {
         ZipkinV2ReporterFactory factory = new ZipkinV2ReporterFactory(zipkinBackendURL);
-        openTracingManager = new JaegerTracingManager(factory.getReporter());
+        Reporter reporter = factory.getReporter();
+        if (isTailSampling) {
+            reporter = createTailSamplingReporter(reporter);
+        }
+        openTracingManager = new JaegerTracingManager(reporter, headSampler);
+    }
+
+    private static Reporter createTailSamplingReporter(Reporter reporter) {
+        return new TailSamplingReporter(reporter, tailSamplingLatencyThreshold, tailSamplingMaxTraces,
+                tailSamplingMaxSpansPerTrace);
     }
 
     /**
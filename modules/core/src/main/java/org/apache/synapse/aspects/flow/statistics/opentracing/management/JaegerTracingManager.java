@@ -20,8 +20,11 @@ package org.apache.synapse.aspects.flow.statistics.opentracing.management;
 
 import io.jaegertracing.Configuration;
 import io.jaegertracing.internal.JaegerTracer;
-import io.jaegertracing.zipkin.ZipkinV2Reporter;
+import io.jaegertracing.internal.samplers.ConstSampler;
+import io.jaegertracing.spi.Reporter;
+import io.jaegertracing.spi.Sampler;
 import org.apache.synapse.aspects.flow.statistics.opentracing.management.handling.span.JaegerSpanHandler;
+import org.apache.synapse.aspects.flow.statistics.opentracing.management.sampling.HeadSampler;
 import org.apache.synapse.aspects.flow.statistics.opentracing.management.scoping.TracingScopeManager;
 
 /**
@@ -41,17 +44,25 @@ public class JaegerTracingManager implements OpenTracingManager {
      */
     private JaegerSpanHandler handler;
 
+    /**
+     * Decides whether a message is traced.
+     */
+    private HeadSampler headSampler;
+
     public JaegerTracingManager(Configuration.SamplerConfiguration sampler,
-                                Configuration.ReporterConfiguration reporter) {
+                                Configuration.ReporterConfiguration reporter,
+                                Sampler headSampler) {
         initializeTracer(sampler, reporter);
+        this.headSampler = new HeadSampler(headSampler, tracer);
         resolveHandler();
     }
 
     /**
-     * Controls Zipkin spans.
+     * Controls spans, which are reported by the given reporter. Used for Zipkin, and for tail sampling.
      */
-    public JaegerTracingManager(ZipkinV2Reporter reporter) {
+    public JaegerTracingManager(Reporter reporter, Sampler headSampler) {
         initializeTracer(reporter);
+        this.headSampler = new HeadSampler(headSampler, tracer);
         resolveHandler();
     }
 
@@ -72,13 +83,17 @@ public class JaegerTracingManager implements OpenTracingManager {
     }
 
     /**
-     * Initializes the tracer object for Zipkin.
+     * Initializes the tracer object with the given reporter.
+     * Every span is sampled by the tracer, since spans are only started for messages chosen by the head sampler.
      *
-     * @param reporter Zipkin reporter.
+     * @param reporter Span reporter.
      */
-    private void initializeTracer(ZipkinV2Reporter reporter) {
+    private void initializeTracer(Reporter reporter) {
         String serviceName = getServiceName();
-        this.tracer = new JaegerTracer.Builder(serviceName).withReporter(reporter).build();
+        this.tracer = new JaegerTracer.Builder(serviceName)
+                .withReporter(reporter)
+                .withSampler(new ConstSampler(true))
+                .build();
     }
 
 
@@ -92,6 +107,11 @@ public class JaegerTracingManager implements OpenTracingManager {
         return this.handler;
     }
 
+    @Override
+    public HeadSampler getHeadSampler() {
+        return this.headSampler;
+    }
+
     private static String getServiceName() {
         return SERVICE_NAME;
     }
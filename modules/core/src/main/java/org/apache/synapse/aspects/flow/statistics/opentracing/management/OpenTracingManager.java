@@ -19,6 +19,7 @@
 package org.apache.synapse.aspects.flow.statistics.opentracing.management;
 
 import org.apache.synapse.aspects.flow.statistics.opentracing.management.handling.span.OpenTracingSpanHandler;
+import org.apache.synapse.aspects.flow.statistics.opentracing.management.sampling.HeadSampler;
 
 /**
  * The interface for the manager, which coordinates OpenTracing.
@@ -36,4 +37,10 @@ public interface OpenTracingManager {
      */
     OpenTracingSpanHandler getHandler();
 
+    /**
+     * Returns the sampler which decides whether a message is traced.
+     * @return The head sampler.
+     */
+    HeadSampler getHeadSampler();
+
 }
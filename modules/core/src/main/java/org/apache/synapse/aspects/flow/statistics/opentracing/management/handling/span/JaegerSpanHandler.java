@@ -24,9 +24,11 @@ import io.opentracing.SpanContext;
 import io.opentracing.propagation.Format;
 import io.opentracing.propagation.TextMapExtractAdapter;
 import io.opentracing.propagation.TextMapInjectAdapter;
+import io.opentracing.tag.Tags;
 import org.apache.synapse.ContinuationState;
 import org.apache.synapse.MessageContext;
 import org.apache.synapse.SequenceType;
+import org.apache.synapse.SynapseConstants;
 import org.apache.synapse.aspects.ComponentType;
 import org.apache.synapse.aspects.flow.statistics.data.raw.BasicStatisticDataUnit;
 import org.apache.synapse.aspects.flow.statistics.data.raw.StatisticDataUnit;
@@ -275,6 +277,7 @@ public class JaegerSpanHandler implements OpenTracingSpanHandler {
             // An outer level span
             if (tracingScope.isEventCollectionFinished(synCtx)) {
                 cleanupContinuationStateSequences(spanStore);
+                tagFault(spanWrapper, synCtx);
                 spanStore.finishSpan(spanWrapper);
                 tracingScopeManager.cleanupTracingScope(tracingScope.getTracingScopeId());
             }
@@ -282,6 +285,19 @@ public class JaegerSpanHandler implements OpenTracingSpanHandler {
         }
     }
 
+    /**
+     * Tags the outer level span as an error, when a fault has occurred in the message flow.
+     * Tail sampling keeps the spans of such flows.
+     * @param spanWrapper   Span wrapper of the outer level span.
+     * @param synCtx        Message context.
+     */
+    private void tagFault(SpanWrapper spanWrapper, MessageContext synCtx) {
+        if (spanWrapper != null && spanWrapper.getSpan() != null &&
+                synCtx.getProperty(SynapseConstants.ERROR_CODE) != null) {
+            Tags.ERROR.set(spanWrapper.getSpan(), true);
+        }
+    }
+
     /**
      * Cleans up remaining unfinished continuation state sequences before ending the outer level span.
      * @param spanStore Span store object.
@@ -338,6 +354,7 @@ public class JaegerSpanHandler implements OpenTracingSpanHandler {
             synchronized (tracingScope.getSpanStore()) {
                 cleanupContinuationStateSequences(tracingScope.getSpanStore());
                 SpanWrapper outerLevelSpanWrapper = tracingScope.getSpanStore().getOuterLevelSpanWrapper();
+                tagFault(outerLevelSpanWrapper, messageContext);
                 tracingScope.getSpanStore().finishSpan(outerLevelSpanWrapper);
                 tracingScopeManager.cleanupTracingScope(tracingScope.getTracingScopeId());
             }
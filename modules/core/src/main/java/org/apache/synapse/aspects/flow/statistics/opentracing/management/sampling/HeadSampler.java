@@ -0,0 +1,96 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.aspects.flow.statistics.opentracing.management.sampling;
+
+import io.jaegertracing.internal.JaegerSpanContext;
+import io.jaegertracing.internal.JaegerTracer;
+import io.jaegertracing.internal.samplers.ConstSampler;
+import io.jaegertracing.internal.samplers.ProbabilisticSampler;
+import io.jaegertracing.internal.samplers.RateLimitingSampler;
+import io.jaegertracing.spi.Sampler;
+import io.opentracing.SpanContext;
+import io.opentracing.propagation.Format;
+import io.opentracing.propagation.TextMapExtractAdapter;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides whether a message is traced, once, when the message enters the mediation engine.
+ * A message which carries the tracing headers of an upstream service follows the decision of that service, so that
+ * traces are not broken. Otherwise the configured sampler decides.
+ * Spans are neither started nor reported for a message which is not sampled.
+ */
+public class HeadSampler {
+
+    /**
+     * Decides for messages without an upstream decision.
+     */
+    private final Sampler sampler;
+
+    /**
+     * Used to extract the upstream span context from the transport headers.
+     */
+    private final JaegerTracer tracer;
+
+    public HeadSampler(Sampler sampler, JaegerTracer tracer) {
+        this.sampler = sampler;
+        this.tracer = tracer;
+    }
+
+    /**
+     * Creates the sampler of the given type.
+     * @param type  One of const, probabilistic or ratelimiting. Const is used for an unknown type.
+     * @param param Whether to sample for const, the sampling rate for probabilistic and the maximum number of
+     *              traces per second for ratelimiting.
+     * @return      The sampler.
+     */
+    public static Sampler createSampler(String type, double param) {
+        if (ProbabilisticSampler.TYPE.equals(type)) {
+            return new ProbabilisticSampler(param);
+        }
+        if (RateLimitingSampler.TYPE.equals(type)) {
+            return new RateLimitingSampler(param);
+        }
+        return new ConstSampler(param != 0);
+    }
+
+    /**
+     * Returns whether a message is traced.
+     * @param operation Name of the component through which the message enters.
+     * @param headers   Transport headers of the message. Can be null.
+     * @return          Whether the message is traced.
+     */
+    public boolean isSampled(String operation, Map headers) {
+        if (headers != null && !headers.isEmpty()) {
+            SpanContext spanContext = tracer.extract(Format.Builtin.HTTP_HEADERS, new TextMapExtractAdapter(headers));
+            if (spanContext instanceof JaegerSpanContext) {
+                return ((JaegerSpanContext) spanContext).isSampled();
+            }
+        }
+        return sampler.sample(operation, ThreadLocalRandom.current().nextLong()).isSampled();
+    }
+
+    /**
+     * Releases the resources held by the sampler.
+     */
+    public void close() {
+        sampler.close();
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.aspects.flow.statistics.opentracing.management.sampling;
+
+import io.jaegertracing.internal.JaegerSpan;
+import io.jaegertracing.spi.Reporter;
+import io.opentracing.tag.Tags;
+import org.apache.synapse.aspects.flow.statistics.util.StatisticsConstants;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reports only the spans of slow or faulted message flows.
+ * Finished spans are buffered per trace, until the span of the proxy service or the API (or a root span) that
+ * encloses the flow finishes. The buffered spans are then handed to the delegate reporter if the flow took longer
+ * than the latency threshold, or if any of its spans is tagged as an error. Otherwise they are discarded.
+ * At most the given number of traces, and of spans per trace are buffered. When the buffer is full, the oldest trace
+ * is decided with the spans it has so far.
+ */
+public class TailSamplingReporter implements Reporter {
+
+    /**
+     * Reporter to which the spans of the kept flows are handed.
+     */
+    private final Reporter delegate;
+
+    /**
+     * Duration in microseconds, after which a flow is kept.
+     */
+    private final long latencyThresholdMicros;
+
+    private final int maxTraces;
+
+    private final int maxSpansPerTrace;
+
+    /**
+     * Spans of the traces which are not decided yet, by trace id, in the order the traces were first seen.
+     */
+    private final LinkedHashMap<Long, TraceBuffer> traces = new LinkedHashMap<>();
+
+    /**
+     * Ids of the recently kept traces, whose spans that finish later are reported directly.
+     */
+    private final Map<Long, Boolean> keptTraceIds = new LinkedHashMap<Long, Boolean>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+            return size() > maxTraces;
+        }
+    };
+
+    private final AtomicLong keptTraceCount = new AtomicLong();
+
+    private final AtomicLong droppedTraceCount = new AtomicLong();
+
+    private final AtomicLong droppedSpanCount = new AtomicLong();
+
+    /**
+     * @param delegate          Reporter to which the spans of the kept flows are handed.
+     * @param latencyThreshold  Duration in milliseconds, after which a flow is kept.
+     * @param maxTraces         Maximum number of traces buffered.
+     * @param maxSpansPerTrace  Maximum number of spans buffered per trace.
+     */
+    public TailSamplingReporter(Reporter delegate, long latencyThreshold, int maxTraces, int maxSpansPerTrace) {
+        this.delegate = delegate;
+        this.latencyThresholdMicros = TimeUnit.MILLISECONDS.toMicros(latencyThreshold);
+        this.maxTraces = maxTraces;
+        this.maxSpansPerTrace = maxSpansPerTrace;
+    }
+
+    @Override
+    public void report(JaegerSpan span) {
+        List<JaegerSpan> kept;
+        synchronized (this) {
+            kept = buffer(span);
+        }
+        for (JaegerSpan keptSpan : kept) {
+            delegate.report(keptSpan);
+        }
+    }
+
+    /**
+     * Buffers the given span, and decides the traces which are complete or do not fit in the buffer.
+     * @param span  Finished span.
+     * @return      Spans to be handed to the delegate reporter.
+     */
+    private List<JaegerSpan> buffer(JaegerSpan span) {
+        Long traceId = span.context().getTraceIdLow();
+        if (keptTraceIds.containsKey(traceId)) {
+            return Collections.singletonList(span);
+        }
+        TraceBuffer trace = traces.get(traceId);
+        if (trace == null) {
+            trace = new TraceBuffer();
+            traces.put(traceId, trace);
+        }
+        Map<String, Object> tags = span.getTags();
+        trace.add(span, tags);
+
+        List<JaegerSpan> kept = new ArrayList<>();
+        if (isFlowEnd(span, tags)) {
+            traces.remove(traceId);
+            decide(traceId, trace, kept);
+        }
+        Iterator<Map.Entry<Long, TraceBuffer>> iterator = traces.entrySet().iterator();
+        while (traces.size() > maxTraces && iterator.hasNext()) {
+            Map.Entry<Long, TraceBuffer> eldest = iterator.next();
+            iterator.remove();
+            decide(eldest.getKey(), eldest.getValue(), kept);
+        }
+        return kept;
+    }
+
+    private void decide(Long traceId, TraceBuffer trace, List<JaegerSpan> kept) {
+        if (trace.isKept()) {
+            keptTraceIds.put(traceId, Boolean.TRUE);
+            kept.addAll(trace.spans);
+            keptTraceCount.incrementAndGet();
+        } else {
+            droppedTraceCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns whether the given span encloses a message flow, which is the span of a proxy service or an API, or a
+     * span without a parent.
+     * @param span  Finished span.
+     * @param tags  Tags of the span.
+     * @return      Whether the given span encloses a message flow.
+     */
+    private static boolean isFlowEnd(JaegerSpan span, Map<String, Object> tags) {
+        if (span.context().getParentId() == 0) {
+            return true;
+        }
+        Object componentType = tags.get("componentType");
+        return StatisticsConstants.FLOW_STATISTICS_PROXYSERVICE.equals(componentType) ||
+                StatisticsConstants.FLOW_STATISTICS_API.equals(componentType);
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            traces.clear();
+            keptTraceIds.clear();
+        }
+        delegate.close();
+    }
+
+    public long getKeptTraceCount() {
+        return keptTraceCount.get();
+    }
+
+    public long getDroppedTraceCount() {
+        return droppedTraceCount.get();
+    }
+
+    public long getDroppedSpanCount() {
+        return droppedSpanCount.get();
+    }
+
+    /**
+     * Spans of a trace which is not decided yet.
+     */
+    private class TraceBuffer {
+
+        private final List<JaegerSpan> spans = new ArrayList<>();
+
+        private boolean slow;
+
+        private boolean error;
+
+        void add(JaegerSpan span, Map<String, Object> tags) {
+            slow = slow || span.getDuration() >= latencyThresholdMicros;
+            error = error || Boolean.TRUE.equals(tags.get(Tags.ERROR.getKey()));
+            if (spans.size() < maxSpansPerTrace) {
+                spans.add(span);
+            } else {
+                droppedSpanCount.incrementAndGet();
+            }
+        }
+
+        boolean isKept() {
+            return slow || error;
+        }
+    }
+}
@@ -21,24 +21,66 @@ package org.apache.synapse.aspects.flow.statistics.store;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.synapse.aspects.flow.statistics.log.StatisticsReportingEventHolder;
+import org.apache.synapse.aspects.flow.statistics.util.StatisticsConstants;
+import org.apache.synapse.config.SynapsePropertiesLoader;
 
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * MessageDataCollector contains the non-blocking queue and utility methods to store and retrieve elements from the
  * queue.
+ * <p>
+ * The queue is a bounded, lock-free ring buffer of the size configured by
+ * {@link StatisticsConstants#FLOW_STATISTICS_QUEUE_SIZE}, kept as an array of slots and a parallel array of slot
+ * sequence numbers. When the publisher falls behind and the ring is full, the event holder of the completed message
+ * flow is dropped and counted rather than blocking the mediation thread or growing the heap.
  */
 public class MessageDataStore {
 
     private static Log log = LogFactory.getLog(MessageDataStore.class);
+
+    /**
+     * Event holders of completed message flows, waiting to be published.
+     */
+    private final AtomicReferenceArray<StatisticsReportingEventHolder> slots;
+
     /**
-     * Queue which holds event holder objects with collected events.
+     * Sequence of each slot, telling whether the slot is free for the producer or filled for the consumer of a lap.
      */
-    private Queue<StatisticsReportingEventHolder> queue;
+    private final AtomicLongArray sequences;
+
+    private final int mask;
+
+    private final AtomicLong tail = new AtomicLong();
+
+    private final AtomicLong head = new AtomicLong();
+
+    private final LongAdder enqueuedEvents = new LongAdder();
+
+    private final LongAdder droppedHolders = new LongAdder();
+
+    private final LongAdder droppedEvents = new LongAdder();
 
     public MessageDataStore() {
-        queue = new ConcurrentLinkedQueue<>();
+        this(Integer.parseInt(SynapsePropertiesLoader.getPropertyValue(StatisticsConstants.FLOW_STATISTICS_QUEUE_SIZE,
+                StatisticsConstants.FLOW_STATISTICS_DEFAULT_QUEUE_SIZE)));
+    }
+
+    /**
+     * @param queueSize maximum number of event holders waiting to be published, rounded up to a power of two
+     */
+    public MessageDataStore(int queueSize) {
+        int capacity = Integer.highestOneBit(Math.max(queueSize, 2) - 1) << 1;
+        slots = new AtomicReferenceArray<>(capacity);
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        mask = capacity - 1;
     }
 
     /**
@@ -47,32 +89,117 @@ public class MessageDataStore {
      * @param statisticsReportingEventHolder StatisticReportingLog to be stored in the queue
      */
     public void enqueue(StatisticsReportingEventHolder statisticsReportingEventHolder) {
-        try {
-            if (log.isDebugEnabled()) {
-                log.debug("Adding eventHolder: " + statisticsReportingEventHolder);
+        if (log.isDebugEnabled()) {
+            log.debug("Adding eventHolder: " + statisticsReportingEventHolder);
+        }
+        int events = statisticsReportingEventHolder.getQueueSize();
+        while (true) {
+            long position = tail.get();
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots.set(index, statisticsReportingEventHolder);
+                    sequences.set(index, position + 1);
+                    enqueuedEvents.add(events);
+                    return;
+                }
+            } else if (difference < 0) {
+                drop(events);
+                return;
             }
-            queue.add(statisticsReportingEventHolder);
-        } catch (Exception e) {
-            log.error("Error adding statistic event holder to the Queue. Dropping statistics events.");
+        }
+    }
+
+    private void drop(int events) {
+        droppedHolders.increment();
+        droppedEvents.add(events);
+        long dropped = droppedHolders.sum();
+        // warn on the first drop and then at every doubling, to keep logging off the hot path
+        if ((dropped & (dropped - 1)) == 0) {
+            log.warn("Statistics event queue of size " + getCapacity() + " is full. Dropped the statistics events "
+                    + "of " + dropped + " message flow(s) so far, increase "
+                    + StatisticsConstants.FLOW_STATISTICS_QUEUE_SIZE + " if the publisher is expected to catch up");
         }
     }
 
     /**
      * Removes and return StatisticReportingLog from the queue
      *
-     * @return StatisticReportingLog instance
+     * @return StatisticReportingLog instance, or null if the queue is empty
      * @throws Exception
      */
     public StatisticsReportingEventHolder dequeue() throws Exception {
-        try {
-            if (log.isDebugEnabled()) {
-                log.debug("Polling statistics event holder object from the Queue");
+        if (log.isDebugEnabled()) {
+            log.debug("Polling statistics event holder object from the Queue");
+        }
+        while (true) {
+            long position = head.get();
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    StatisticsReportingEventHolder holder = slots.get(index);
+                    slots.set(index, null);
+                    sequences.set(index, position + mask + 1);
+                    return holder;
+                }
+            } else if (difference < 0) {
+                return null;
             }
-            return queue.poll();
-        } catch (Exception e) {
-            log.error("Error polling statistics event holder objects from Queue");
-            return null;
         }
     }
 
+    /**
+     * Removes up to the given number of event holders from the queue, so that they can be published as a batch.
+     *
+     * @param batch       collection the event holders are added to
+     * @param maxElements maximum number of event holders to remove
+     * @return the number of event holders removed
+     * @throws Exception
+     */
+    public int drainTo(Collection<? super StatisticsReportingEventHolder> batch, int maxElements) throws Exception {
+        int count = 0;
+        StatisticsReportingEventHolder holder;
+        while (count < maxElements && (holder = dequeue()) != null) {
+            batch.add(holder);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return number of event holders waiting to be published
+     */
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    /**
+     * @return maximum number of event holders waiting to be published
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * @return number of statistics events queued for publishing
+     */
+    public long getEnqueuedEventCount() {
+        return enqueuedEvents.sum();
+    }
+
+    /**
+     * @return number of message flows whose statistics events were dropped as the queue was full
+     */
+    public long getDroppedFlowCount() {
+        return droppedHolders.sum();
+    }
+
+    /**
+     * @return number of statistics events dropped as the queue was full
+     */
+    public long getDroppedEventCount() {
+        return droppedEvents.sum();
+    }
 }
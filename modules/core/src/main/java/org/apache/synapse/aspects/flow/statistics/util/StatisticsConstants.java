@@ -95,6 +95,40 @@ public class StatisticsConstants {
 	 */
 	public static final String ZIPKIN_BACKEND_URL = "opentracing.zipkin.backend.url";
 
+	/**
+	 * Type of the sampler which decides whether a message is traced, when it enters the mediation engine.
+	 * One of const, probabilistic or ratelimiting.
+	 */
+	public static final String OPENTRACING_SAMPLER_TYPE = "opentracing.sampler.type";
+
+	/**
+	 * Parameter of the sampler. Whether to trace for const, the sampling rate for probabilistic and the maximum
+	 * number of traces per second for ratelimiting.
+	 */
+	public static final String OPENTRACING_SAMPLER_PARAM = "opentracing.sampler.param";
+
+	/**
+	 * Enable tail sampling, which only reports the spans of slow or faulted message flows.
+	 */
+	public static final String OPENTRACING_TAIL_SAMPLING_ENABLE = "opentracing.tail.sampling.enable";
+
+	/**
+	 * Duration in milliseconds, after which a message flow is reported by tail sampling.
+	 */
+	public static final String OPENTRACING_TAIL_SAMPLING_LATENCY_THRESHOLD =
+			"opentracing.tail.sampling.latency.threshold";
+
+	/**
+	 * Maximum number of message flows whose spans are buffered by tail sampling.
+	 */
+	public static final String OPENTRACING_TAIL_SAMPLING_MAX_TRACES = "opentracing.tail.sampling.max.traces";
+
+	/**
+	 * Maximum number of spans buffered for a message flow by tail sampling.
+	 */
+	public static final String OPENTRACING_TAIL_SAMPLING_MAX_SPANS_PER_TRACE =
+			"opentracing.tail.sampling.max.spans.per.trace";
+
 	/**
 	 * Flow statistic queue size.
 	 */
@@ -150,6 +184,11 @@ public class StatisticsConstants {
 	 */
 	public static final String FLOW_TRACE_IS_COLLECTED = "mediation.flow.trace.collected";
 
+	/**
+	 * Key to specify whether the message has been sampled for OpenTracing.
+	 */
+	public static final String FLOW_TRACE_IS_SAMPLED = "mediation.flow.trace.sampled";
+
 	/**
 	 * Flow statistic default queue size.
 	 */
@@ -0,0 +1,134 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.config;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Keeps track of the artifacts whose initialization has been deferred until they are
+ * dispatched to for the first time. Each deferred artifact is registered with the task that
+ * initializes it, and the first caller of {@link #materialize(Object)} runs that task while
+ * any concurrent callers wait for it to complete, so an artifact is initialized exactly once
+ * no matter how many messages arrive for it at the same time.
+ */
+class LazyArtifactInitializer {
+
+    private static final Log log = LogFactory.getLog(LazyArtifactInitializer.class);
+
+    /** Initialization tasks of the artifacts which have not been dispatched to yet */
+    private final Map<Object, FutureTask<Void>> pending = new ConcurrentHashMap<Object, FutureTask<Void>>();
+
+    /**
+     * Defer the initialization of the given artifact until it is first used
+     *
+     * @param artifact    the artifact to be initialized lazily
+     * @param description type and name of the artifact, used for logging
+     * @param initializer the task which initializes the artifact
+     */
+    void register(final Object artifact, final String description, final Runnable initializer) {
+        pending.put(artifact, new FutureTask<Void>(new Callable<Void>() {
+            public Void call() {
+                long start = System.currentTimeMillis();
+                try {
+                    initializer.run();
+                } catch (Exception e) {
+                    log.error(" Error in initializing " + description + " on first use "
+                            + e.getMessage(), e);
+                    return null;
+                }
+                if (log.isDebugEnabled()) {
+                    log.debug("Initialized " + description + " on first use in "
+                            + (System.currentTimeMillis() - start) + " ms");
+                }
+                return null;
+            }
+        }));
+    }
+
+    /**
+     * Initialize the given artifact if its initialization has been deferred. Only one thread
+     * runs the initialization, the others block until it has completed.
+     *
+     * @param artifact the artifact which is about to be used
+     * @param <T>      type of the artifact
+     * @return the same artifact, for the convenience of the callers
+     */
+    <T> T materialize(T artifact) {
+        if (artifact == null || pending.isEmpty()) {
+            return artifact;
+        }
+        FutureTask<Void> task = pending.get(artifact);
+        if (task == null) {
+            return artifact;
+        }
+
+        // FutureTask#run is a no-op for every thread except the first one
+        task.run();
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.error("Unexpected error in initializing " + artifact + " on first use", e.getCause());
+        } finally {
+            if (task.isDone()) {
+                pending.remove(artifact, task);
+            }
+        }
+        return artifact;
+    }
+
+    /**
+     * Check whether the initialization of the given artifact is still deferred
+     *
+     * @param artifact the artifact to be checked
+     * @return true if the artifact has not been initialized yet
+     */
+    boolean isPending(Object artifact) {
+        return artifact != null && pending.containsKey(artifact);
+    }
+
+    /**
+     * Forget the deferred initialization of the given artifact, typically because it has been
+     * removed from the configuration before it was ever used
+     *
+     * @param artifact the artifact to be discarded
+     */
+    void discard(Object artifact) {
+        if (artifact != null) {
+            pending.remove(artifact);
+        }
+    }
+
+    int getPendingCount() {
+        return pending.size();
+    }
+
+    void clear() {
+        pending.clear();
+    }
+}
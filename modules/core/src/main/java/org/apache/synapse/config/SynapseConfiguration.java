@@ -68,6 +68,7 @@ import org.apache.synapse.registry.Registry;
 import org.apache.synapse.rest.API;
 import org.apache.synapse.startup.quartz.StartUpController;
 import org.apache.synapse.task.TaskManager;
+import org.apache.synapse.util.streaming_xpath.StreamingXPATHAnalyzer;
 import org.apache.synapse.util.xpath.ext.SynapseXpathFunctionContextProvider;
 import org.apache.synapse.util.xpath.ext.SynapseXpathVariableResolver;
 import org.apache.synapse.util.xpath.ext.XpathExtensionUtil;
@@ -239,6 +240,12 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
     
     private boolean allowHotUpdate = true;
 
+    /**
+     * Tracks the artifacts whose initialization is deferred until their first use, when the
+     * lazy artifact initialization is enabled
+     */
+    private volatile LazyArtifactInitializer lazyInitializer = null;
+
     /**
      * List of commented text segments within the Synapse Configuration
      */
@@ -296,7 +303,7 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
     }
 
     public synchronized void updateSequence(String key, Mediator mediator) {
-        localRegistry.put(key, mediator);
+        discardReplacedArtifact(localRegistry.put(key, mediator), mediator);
         for (SynapseObserver o : observers) {
             o.sequenceAdded(mediator);
         }
@@ -497,7 +504,7 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
                                     " with the API: " + existingAPI.getName());
                 }
             }        	
-            apiTable.put(name, api);
+            discardReplacedArtifact(apiTable.put(name, api), api);
             reconstructAPITable();
             for (SynapseObserver o : observers) {
                 o.apiUpdated(api);
@@ -517,6 +524,7 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
         API api = apiTable.get(name);
         if (api != null) {
             apiTable.remove(name);
+            discardDeferredInitialization(api);
             for (SynapseObserver o : observers) {
                 o.apiRemoved(api);
             }
@@ -638,7 +646,7 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
 
         Object o = getEntry(key);
         if (o instanceof Mediator) {
-            return (Mediator) o;
+            return initializeOnFirstUse((Mediator) o);
         }
 
         Entry entry = null;
@@ -733,6 +741,7 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
         Object sequence = localRegistry.get(key);
         if (sequence instanceof Mediator) {
             localRegistry.remove(key);
+            discardDeferredInitialization(sequence);
             for (SynapseObserver o : observers) {
                 o.sequenceRemoved((Mediator) sequence);
             }
@@ -1048,7 +1057,7 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
     }
 
     public synchronized void updateEndpoint(String key, Endpoint endpoint) {
-        localRegistry.put(key, endpoint);
+        discardReplacedArtifact(localRegistry.put(key, endpoint), endpoint);
         for (SynapseObserver o : observers) {
             o.endpointAdded(endpoint);
         }
@@ -1098,7 +1107,7 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
 
         Object o = getEntry(key);
         if (o != null && o instanceof Endpoint) {
-            return (Endpoint) o;
+            return initializeOnFirstUse((Endpoint) o);
         }
 
         Entry entry = null;
@@ -1158,6 +1167,7 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
         Object endpoint = localRegistry.get(key);
         if (endpoint instanceof Endpoint) {
             localRegistry.remove(key);
+            discardDeferredInitialization(endpoint);
             for (SynapseObserver o : observers) {
                 o.endpointRemoved((Endpoint) endpoint);
             }
@@ -1218,6 +1228,7 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
                         getAxisConfiguration().removeService(name);
                     }
                     proxyServices.remove(name);
+                    discardDeferredInitialization(proxy);
                     for (SynapseObserver o : observers) {
                         o.proxyServiceRemoved(proxy);
                     }
@@ -1502,8 +1513,15 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
         synapseTimer.cancel();
         synapseTimer = null;
 
+        // artifacts which were never used have nothing to be destroyed
+        final LazyArtifactInitializer lazy = lazyInitializer;
+        lazyInitializer = null;
+
         // stop and shutdown all the proxy services
         for (ProxyService p : getProxyServices()) {
+            if (lazy != null && lazy.isPending(p)) {
+                continue;
+            }
 
             if (p.getTargetInLineInSequence() != null) {
                 p.getTargetInLineInSequence().destroy();
@@ -1516,7 +1534,9 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
 
         // destroy the managed mediators
         for (ManagedLifecycle seq : getDefinedSequences().values()) {
-            seq.destroy();
+            if (lazy == null || !lazy.isPending(seq)) {
+                seq.destroy();
+            }
         }
 
         //destroy sequence templates
@@ -1533,7 +1553,9 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
 
         // destroy the managed endpoints
         for (Endpoint endpoint : getDefinedEndpoints().values()) {
-            endpoint.destroy();
+            if (lazy == null || !lazy.isPending(endpoint)) {
+                endpoint.destroy();
+            }
         }
         
         // destroy the startups
@@ -1579,7 +1601,13 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
         }
 
         for (API api : apiTable.values()) {
-            api.destroy();
+            if (lazy == null || !lazy.isPending(api)) {
+                api.destroy();
+            }
+        }
+
+        if (lazy != null) {
+            lazy.clear();
         }
     }
 
@@ -1589,13 +1617,24 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
      *
      * @param se SynapseEnvironment specifying the env to be initialized
      */
-    public synchronized void init(SynapseEnvironment se) {
+    public synchronized void init(final SynapseEnvironment se) {
         SynapseConfiguration previouseConfiguration = null;
 
         if (log.isDebugEnabled()) {
             log.debug("Initializing the Synapse Configuration using the SynapseEnvironment");
         }
 
+        long initStart = System.currentTimeMillis();
+        final LazyArtifactInitializer lazy;
+        if (SynapsePropertiesLoader.getBooleanProperty(SynapseConstants.LAZY_ARTIFACT_INITIALIZATION, false)) {
+            lazy = new LazyArtifactInitializer();
+            log.info("Initialization of endpoints, sequences, proxy services and APIs is deferred "
+                    + "until their first use");
+        } else {
+            lazy = null;
+        }
+        lazyInitializer = lazy;
+
         // initialize registry
         if (registry != null && registry instanceof ManagedLifecycle) {
             ((ManagedLifecycle) registry).init(se);
@@ -1604,7 +1643,15 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
         initCarbonTenantConfigurator(se);
 
         //initialize endpoints
-        for (Endpoint endpoint : getDefinedEndpoints().values()) {
+        for (final Endpoint endpoint : getDefinedEndpoints().values()) {
+            if (lazy != null) {
+                lazy.register(endpoint, "endpoint [" + endpoint.getName() + "]", new Runnable() {
+                    public void run() {
+                        endpoint.init(se);
+                    }
+                });
+                continue;
+            }
 			try {
 				endpoint.init(se);
 			} catch (Exception e) {
@@ -1644,8 +1691,14 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
 		}
         
         // initialize managed mediators
-        for (ManagedLifecycle seq : getDefinedSequences().values()) {
-            if (seq != null) {
+        for (final SequenceMediator seq : getDefinedSequences().values()) {
+            if (seq != null && lazy != null) {
+                lazy.register(seq, "sequence [" + seq.getName() + "]", new Runnable() {
+                    public void run() {
+                        seq.init(se);
+                    }
+                });
+            } else if (seq != null) {
 				try {
 					seq.init(se);
 				} catch (Exception e) {
@@ -1656,23 +1709,17 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
         }
 
         // initialize all the proxy services
-        for (ProxyService proxy : getProxyServices()) {
+        for (final ProxyService proxy : getProxyServices()) {
+            if (lazy != null) {
+                lazy.register(proxy, "proxy service [" + proxy.getName() + "]", new Runnable() {
+                    public void run() {
+                        initInLineArtifacts(proxy, se);
+                    }
+                });
+                continue;
+            }
 			try {
-				if (proxy.getTargetInLineEndpoint() != null) {
-					proxy.getTargetInLineEndpoint().init(se);
-				}
-
-				if (proxy.getTargetInLineInSequence() != null) {
-					proxy.getTargetInLineInSequence().init(se);
-				}
-
-				if (proxy.getTargetInLineOutSequence() != null) {
-					proxy.getTargetInLineOutSequence().init(se);
-				}
-
-				if (proxy.getTargetInLineFaultSequence() != null) {
-					proxy.getTargetInLineFaultSequence().init(se);
-				}
+				initInLineArtifacts(proxy, se);
 			} catch (Exception e) {
 				log.error(" Error in initializing Proxy Service [ "
 						+ proxy.getName() + "] " + e.getMessage());
@@ -1721,7 +1768,15 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
 			}
         }
 
-        for (API api : apiTable.values()) {
+        for (final API api : apiTable.values()) {
+            if (lazy != null) {
+                lazy.register(api, "API [" + api.getName() + "]", new Runnable() {
+                    public void run() {
+                        api.init(se);
+                    }
+                });
+                continue;
+            }
 			try {
 				api.init(se);
 			} catch (Exception e) {
@@ -1730,6 +1785,86 @@ public class SynapseConfiguration implements ManagedLifecycle, SynapseArtifact {
 			}
         }
         initImportedLibraries(se);
+
+        // report the XPath expressions of the configuration which force the message to be built
+        StreamingXPATHAnalyzer.report("the configuration");
+
+        if (lazy != null || log.isDebugEnabled()) {
+            Runtime runtime = Runtime.getRuntime();
+            String msg = "Synapse configuration initialized in " + (System.currentTimeMillis() - initStart)
+                    + " ms" + (lazy != null ? " with " + lazy.getPendingCount()
+                    + " artifact(s) deferred until first use" : "") + ", used heap : "
+                    + ((runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024)) + " MB";
+            if (lazy != null) {
+                log.info(msg);
+            } else {
+                log.debug(msg);
+            }
+        }
+    }
+
+    /**
+     * Initialize the inline endpoint and sequences of the given proxy service
+     *
+     * @param proxy the proxy service
+     * @param se    the SynapseEnvironment
+     */
+    private void initInLineArtifacts(ProxyService proxy, SynapseEnvironment se) {
+        if (proxy.getTargetInLineEndpoint() != null) {
+            proxy.getTargetInLineEndpoint().init(se);
+        }
+
+        if (proxy.getTargetInLineInSequence() != null) {
+            proxy.getTargetInLineInSequence().init(se);
+        }
+
+        if (proxy.getTargetInLineOutSequence() != null) {
+            proxy.getTargetInLineOutSequence().init(se);
+        }
+
+        if (proxy.getTargetInLineFaultSequence() != null) {
+            proxy.getTargetInLineFaultSequence().init(se);
+        }
+    }
+
+    /**
+     * Make sure the given proxy service, API, endpoint or sequence is initialized before it is
+     * used. This is a no-op unless the lazy artifact initialization is enabled through the
+     * {@link SynapseConstants#LAZY_ARTIFACT_INITIALIZATION} property, in which case the artifact
+     * is initialized by the first message dispatched to it.
+     *
+     * @param artifact the artifact about to be used
+     * @param <T>      type of the artifact
+     * @return the given artifact
+     */
+    public <T> T initializeOnFirstUse(T artifact) {
+        LazyArtifactInitializer lazy = lazyInitializer;
+        return lazy != null ? lazy.materialize(artifact) : artifact;
+    }
+
+    /**
+     * Check whether the initialization of the given artifact has been deferred and it has not
+     * been used yet
+     *
+     * @param artifact the artifact to be checked
+     * @return true if the artifact is waiting for its first use to be initialized
+     */
+    public boolean isInitializationDeferred(Object artifact) {
+        LazyArtifactInitializer lazy = lazyInitializer;
+        return lazy != null && lazy.isPending(artifact);
+    }
+
+    private void discardDeferredInitialization(Object artifact) {
+        LazyArtifactInitializer lazy = lazyInitializer;
+        if (lazy != null) {
+            lazy.discard(artifact);
+        }
+    }
+
+    private void discardReplacedArtifact(Object previous, Object artifact) {
+        if (previous != null && previous != artifact) {
+            discardDeferredInitialization(previous);
+        }
     }
 
     private void handleException(String msg) {
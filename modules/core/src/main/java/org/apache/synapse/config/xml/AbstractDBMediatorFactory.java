@@ -104,6 +104,7 @@ public abstract class AbstractDBMediatorFactory extends AbstractMediatorFactory
 
     static final QName ATT_COLUMN = new QName("column");
     static final QName ATT_TYPE = new QName("type");
+    static final QName ATT_ASYNC = new QName("async");
 
     /**
      * Reads the data source configuration for all mediators based on the <code>AbstractDBMediator</code>
@@ -311,6 +312,20 @@ public abstract class AbstractDBMediatorFactory extends AbstractMediatorFactory
         }
     }
 
+    /**
+     * Reads whether the statements of the mediator are executed asynchronously, with the
+     * async="true|false" attribute of the mediator
+     *
+     * @param elem the configuration element of the mediator
+     * @param mediator the mediator
+     */
+    protected void processAsync(OMElement elem, AbstractDBMediator mediator) {
+        OMAttribute async = elem.getAttribute(ATT_ASYNC);
+        if (async != null && async.getAttributeValue() != null) {
+            mediator.setAsync(Boolean.parseBoolean(async.getAttributeValue().trim()));
+        }
+    }
+
     protected void processStatements(OMElement elem, AbstractDBMediator mediator) {
 
         Iterator iter = elem.getChildrenWithName(STMNT_Q);
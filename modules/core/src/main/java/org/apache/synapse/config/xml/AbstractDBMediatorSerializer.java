@@ -73,7 +73,7 @@ import java.sql.Types;
  * maxopenstatements = int
  * maxwait = long
  * minidle = int
- * poolstatements = true | false
+ * poolstatements = true | false (default true)
  * testonborrow = true | false
  * testonreturn = true | false
  * testwhileidle = true | false
@@ -83,6 +83,10 @@ public abstract class AbstractDBMediatorSerializer extends AbstractMediatorSeria
 
     protected void serializeDBInformation(AbstractDBMediator mediator, OMElement dbParent) {
 
+        if (mediator.isAsync()) {
+            dbParent.addAttribute(fac.createOMAttribute("async", nullNS, "true"));
+        }
+
         OMElement connElt = fac.createOMElement("connection", synNS);
         connElt.addChild(createPoolElement(mediator));
         dbParent.addChild(connElt);
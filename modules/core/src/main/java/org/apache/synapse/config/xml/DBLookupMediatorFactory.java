@@ -19,6 +19,7 @@
 
 package org.apache.synapse.config.xml;
 
+import org.apache.axiom.om.OMAttribute;
 import org.apache.axiom.om.OMElement;
 import org.apache.synapse.Mediator;
 import org.apache.synapse.SynapseConstants;
@@ -32,7 +33,7 @@ import java.util.Properties;
  * <p>
  * Configuration syntax:
  * <pre>
- * &lt;dblookup&gt;
+ * &lt;dblookup [async="true|false"] [cacheTimeout="milliseconds"] [cacheSize="int"]&gt;
  *   &lt;connection&gt;
  *     &lt;pool&gt;
  *      (
@@ -62,11 +63,37 @@ public class DBLookupMediatorFactory extends AbstractDBMediatorFactory {
 
     private static final QName DBLOOKUP_Q =
         new QName(SynapseConstants.SYNAPSE_NAMESPACE, "dblookup");
+    private static final QName DBLOOKUP_CACHE_TIMEOUT = new QName("cacheTimeout");
+    private static final QName DBLOOKUP_CACHE_SIZE = new QName("cacheSize");
 
     public Mediator createSpecificMediator(OMElement elem, Properties properties) {
 
         DBLookupMediator mediator = new DBLookupMediator();
         processAuditStatus(mediator, elem);
+        processAsync(elem, mediator);
+
+        OMAttribute cacheTimeout = elem.getAttribute(DBLOOKUP_CACHE_TIMEOUT);
+        if (cacheTimeout != null && cacheTimeout.getAttributeValue() != null) {
+            try {
+                mediator.setCacheTimeout(Long.parseLong(cacheTimeout.getAttributeValue().trim()));
+            } catch (NumberFormatException e) {
+                handleException("Invalid cacheTimeout : " + cacheTimeout.getAttributeValue() +
+                                " for the dblookup mediator");
+            }
+        }
+        OMAttribute cacheSize = elem.getAttribute(DBLOOKUP_CACHE_SIZE);
+        if (cacheSize != null && cacheSize.getAttributeValue() != null) {
+            try {
+                int size = Integer.parseInt(cacheSize.getAttributeValue().trim());
+                if (size <= 0) {
+                    handleException("cacheSize of the dblookup mediator must be positive");
+                }
+                mediator.setCacheSize(size);
+            } catch (NumberFormatException e) {
+                handleException("Invalid cacheSize : " + cacheSize.getAttributeValue() +
+                                " for the dblookup mediator");
+            }
+        }
         buildDataSource(elem, mediator);
         processStatements(elem, mediator);
         addAllCommentChildrenToList(elem, mediator.getCommentsList());
@@ -31,7 +31,7 @@ import java.util.Properties;
 /**
  * Factory for {@link DBReportMediator} instances.
  * <pre>
- * &lt;dbreport useTransaction="true|false"&gt;
+ * &lt;dbreport useTransaction="true|false" [async="true|false"] [batchSize="int"]&gt;
  *   &lt;connection&gt;
  *     &lt;pool&gt;
  *      (
@@ -61,6 +61,7 @@ public class DBReportMediatorFactory extends AbstractDBMediatorFactory {
     private static final QName DBREPORT_Q =
             new QName(SynapseConstants.SYNAPSE_NAMESPACE, "dbreport");
     private static final QName DBREPORT_USE_TX = new QName("useTransaction");
+    private static final QName DBREPORT_BATCH_SIZE = new QName("batchSize");
 
     public Mediator createSpecificMediator(OMElement elem, Properties properties) {
         DBReportMediator mediator = new DBReportMediator();
@@ -75,6 +76,16 @@ public class DBReportMediatorFactory extends AbstractDBMediatorFactory {
                 mediator.setUseTransaction(false);
             }
         }
+        OMAttribute batchSize = elem.getAttribute(DBREPORT_BATCH_SIZE);
+        if (batchSize != null && batchSize.getAttributeValue() != null) {
+            try {
+                mediator.setBatchSize(Integer.parseInt(batchSize.getAttributeValue().trim()));
+            } catch (NumberFormatException e) {
+                handleException("Invalid batchSize : " + batchSize.getAttributeValue() +
+                                " for the dbreport mediator");
+            }
+        }
+        processAsync(elem, mediator);
         buildDataSource(elem, mediator);
         processStatements(elem, mediator);
         addAllCommentChildrenToList(elem, mediator.getCommentsList());
@@ -41,6 +41,10 @@ public class DBReportMediatorSerializer extends AbstractDBMediatorSerializer {
         if (mediator.isUseTransaction()) {
             dbReport.addAttribute(fac.createOMAttribute("useTransaction", nullNS, "true"));
         }
+        if (mediator.getBatchSize() > 0) {
+            dbReport.addAttribute(fac.createOMAttribute("batchSize", nullNS,
+                                                        String.valueOf(mediator.getBatchSize())));
+        }
         saveTracingState(dbReport, mediator);
         serializeDBInformation(mediator, dbReport);
 
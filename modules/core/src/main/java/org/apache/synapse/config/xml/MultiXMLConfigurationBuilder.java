@@ -38,7 +38,9 @@ import org.apache.synapse.commons.executors.PriorityExecutor;
 import org.apache.synapse.config.Entry;
 import org.apache.synapse.config.SynapseConfigUtils;
 import org.apache.synapse.config.SynapseConfiguration;
+import org.apache.synapse.config.SynapsePropertiesLoader;
 import org.apache.synapse.core.axis2.ProxyService;
+import org.apache.synapse.deployers.SynapseArtifactDeploymentStore;
 import org.apache.synapse.endpoints.Endpoint;
 import org.apache.synapse.eventing.SynapseEventSource;
 import org.apache.synapse.mediators.base.SequenceMediator;
@@ -47,8 +49,17 @@ import org.apache.synapse.rest.API;
 import javax.xml.namespace.QName;
 import javax.xml.stream.XMLStreamException;
 import java.io.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * <p>
@@ -107,6 +118,35 @@ public class MultiXMLConfigurationBuilder {
 
     public static SynapseConfiguration getConfiguration(String root, Properties properties) {
 
+        int parallelism = 1;
+        if (SynapsePropertiesLoader.getBooleanProperty(SynapseConstants.PARALLEL_ARTIFACT_LOADING, false)) {
+            String threads = SynapsePropertiesLoader.getPropertyValue(
+                    SynapseConstants.PARALLEL_ARTIFACT_LOADING_THREADS,
+                    String.valueOf(Runtime.getRuntime().availableProcessors()));
+            try {
+                parallelism = Integer.parseInt(threads.trim());
+            } catch (NumberFormatException e) {
+                parallelism = Runtime.getRuntime().availableProcessors();
+                log.warn("Invalid value : " + threads + " for " + SynapseConstants.PARALLEL_ARTIFACT_LOADING_THREADS
+                        + ", using " + parallelism + " threads");
+            }
+        }
+        return getConfiguration(root, properties, parallelism);
+    }
+
+    /**
+     * Build the synapse configuration from the artifact repository. With a parallelism greater than one the
+     * artifact files are parsed up front on a fork-join pool, and the endpoints, sequences and templates, which
+     * only refer to each other by key, are built concurrently. The artifact types are still built one after the
+     * other in the same order as the serial mode, and the errors are reported for the files in the same order.
+     *
+     * @param root the artifact repository
+     * @param properties synapse properties
+     * @param parallelism number of threads used to load the artifacts, 1 to load them on the calling thread
+     * @return the synapse configuration
+     */
+    public static SynapseConfiguration getConfiguration(String root, Properties properties, int parallelism) {
+
         log.info("Building synapse configuration from the synapse artifact repository at : " + root);
 
         // First try to load the configuration from synapse.xml
@@ -139,19 +179,26 @@ public class MultiXMLConfigurationBuilder {
         }
 
 
-        createSynapseImports(synapseConfig, root, properties);
-        createLocalEntries(synapseConfig, root, properties);
-        createEndpoints(synapseConfig, root, properties);
-        createSequences(synapseConfig, root, properties);
-        createTemplates(synapseConfig, root, properties);
-        createProxyServices(synapseConfig, root, properties);
-        createTasks(synapseConfig, root, properties);
-        createEventSources(synapseConfig, root, properties);
-        createExecutors(synapseConfig, root, properties);
-        createMessageStores(synapseConfig, root, properties);
-        createMessageProcessors(synapseConfig, root, properties);
-        createAPIs(synapseConfig, root, properties);
-        createInboundEndpoint(synapseConfig, root, properties);
+        ArtifactLoader loader = new ArtifactLoader(parallelism);
+        try {
+            loader.parse(root);
+
+            createSynapseImports(synapseConfig, root, properties, loader);
+            createLocalEntries(synapseConfig, root, properties, loader);
+            createEndpoints(synapseConfig, root, properties, loader);
+            createSequences(synapseConfig, root, properties, loader);
+            createTemplates(synapseConfig, root, properties, loader);
+            createProxyServices(synapseConfig, root, properties, loader);
+            createTasks(synapseConfig, root, properties, loader);
+            createEventSources(synapseConfig, root, properties, loader);
+            createExecutors(synapseConfig, root, properties, loader);
+            createMessageStores(synapseConfig, root, properties, loader);
+            createMessageProcessors(synapseConfig, root, properties, loader);
+            createAPIs(synapseConfig, root, properties, loader);
+            createInboundEndpoint(synapseConfig, root, properties, loader);
+        } finally {
+            loader.shutdown();
+        }
         return synapseConfig;
     }
 
@@ -228,7 +275,7 @@ public class MultiXMLConfigurationBuilder {
     }
 
     private static void createLocalEntries(SynapseConfiguration synapseConfig, String rootDirPath,
-                                           Properties properties) {
+                                           Properties properties, ArtifactLoader loader) {
 
         File localEntriesDir = new File(rootDirPath, LOCAL_ENTRY_DIR);
         if (localEntriesDir.exists()) {
@@ -240,7 +287,7 @@ public class MultiXMLConfigurationBuilder {
             while (entryDefinitions.hasNext()) {
                 File file = (File) entryDefinitions.next();
                 try {
-                    OMElement document = getOMElement(file);
+                    OMElement document = loader.getDocument(file);
                     Entry entry = SynapseXMLConfigurationFactory.defineEntry(synapseConfig, document,
                             properties);
                     if (entry != null) {
@@ -257,7 +304,7 @@ public class MultiXMLConfigurationBuilder {
     }
 
     private static void createProxyServices(SynapseConfiguration synapseConfig, String rootDirPath,
-                                            Properties properties) {
+                                            Properties properties, ArtifactLoader loader) {
 
         File proxyServicesDir = new File(rootDirPath, PROXY_SERVICES_DIR);
         if (proxyServicesDir.exists()) {
@@ -270,7 +317,7 @@ public class MultiXMLConfigurationBuilder {
             while (proxyDefinitions.hasNext()) {
                 File file = (File) proxyDefinitions.next();
                 try {
-                    OMElement document = getOMElement(file);
+                    OMElement document = loader.getDocument(file);
                     ProxyService proxy = SynapseXMLConfigurationFactory.defineProxy(synapseConfig,
                             document, properties);
                     if (proxy != null) {
@@ -287,7 +334,7 @@ public class MultiXMLConfigurationBuilder {
     }
 
     private static void createTasks(SynapseConfiguration synapseConfig, String rootDirPath,
-                                    Properties properties) {
+                                    Properties properties, ArtifactLoader loader) {
 
         File tasksDir = new File(rootDirPath, TASKS_DIR);
         if (tasksDir.exists()) {
@@ -299,7 +346,7 @@ public class MultiXMLConfigurationBuilder {
             while (taskDefinitions.hasNext()) {
                 File file = (File) taskDefinitions.next();
                 try {
-                    OMElement document = getOMElement(file);
+                    OMElement document = loader.getDocument(file);
                     Startup startup = SynapseXMLConfigurationFactory.defineStartup(synapseConfig,
                             document, properties);
                     startup.setFileName(file.getName());
@@ -313,8 +360,8 @@ public class MultiXMLConfigurationBuilder {
         }
     }
 
-    private static void createSequences(SynapseConfiguration synapseConfig, String rootDirPath,
-                                        Properties properties) {
+    private static void createSequences(final SynapseConfiguration synapseConfig, String rootDirPath,
+                                        final Properties properties, final ArtifactLoader loader) {
 
         File sequencesDir = new File(rootDirPath, SEQUENCES_DIR);
         if (sequencesDir.exists()) {
@@ -322,76 +369,72 @@ public class MultiXMLConfigurationBuilder {
                 log.debug("Loading sequences from : " + sequencesDir.getPath());
             }
 
-            Iterator sequences = FileUtils.iterateFiles(sequencesDir, extensions, false);
-            while (sequences.hasNext()) {
-                File file = (File) sequences.next();
-                try{
-                    OMElement document = getOMElement(file);
-                    Mediator seq = SynapseXMLConfigurationFactory.defineSequence(synapseConfig,
-                            document, properties);
-                    if (seq != null && seq instanceof SequenceMediator) {
-                        SequenceMediator sequence = (SequenceMediator) seq;
-                        sequence.setFileName(file.getName());
-                        synapseConfig.getArtifactDeploymentStore().addArtifact(
-                                file.getAbsolutePath(), sequence.getName());
+            loader.build(sequencesDir, new ArtifactTask() {
+                public void build(File file) {
+                    try {
+                        OMElement document = loader.getDocument(file);
+                        Mediator seq = SynapseXMLConfigurationFactory.defineSequence(synapseConfig,
+                                document, properties);
+                        if (seq != null && seq instanceof SequenceMediator) {
+                            SequenceMediator sequence = (SequenceMediator) seq;
+                            sequence.setFileName(file.getName());
+                            addArtifact(synapseConfig, file, sequence.getName());
+                        }
+                    } catch (Exception e) {
+                        String msg = "Sequence configuration cannot be built from : " + file.getName();
+                        handleConfigurationError(SynapseConstants.FAIL_SAFE_MODE_SEQUENCES, msg, e);
                     }
-                } catch (Exception e) {
-                    String msg = "Sequence configuration cannot be built from : " + file.getName();
-                    handleConfigurationError(SynapseConstants.FAIL_SAFE_MODE_SEQUENCES, msg, e);
                 }
-
-             }
+            });
         }
     }
 
-    private static void createTemplates(SynapseConfiguration synapseConfig, String rootDirPath,
-                                        Properties properties) {
+    private static void createTemplates(final SynapseConfiguration synapseConfig, String rootDirPath,
+                                        final Properties properties, final ArtifactLoader loader) {
 
         File templatesDir = new File(rootDirPath, TEMPLATES_DIR);
         if (templatesDir.exists()) {
             if (log.isDebugEnabled()) {
                 log.debug("Loading template from : " + templatesDir.getPath());
             }
-            Iterator templates = FileUtils.iterateFiles(templatesDir, extensions, false);
-            while (templates.hasNext()) {
-                File file = (File) templates.next();
-                try {
-                    OMElement document = getOMElement(file);
-                    OMElement element = document.getFirstChildWithName(
-                            new QName(SynapseConstants.SYNAPSE_NAMESPACE, "sequence"));
-                    if (element != null) {
-                        TemplateMediator mediator =
-                                (TemplateMediator) SynapseXMLConfigurationFactory.defineMediatorTemplate(
-                                        synapseConfig, document, properties);
-                        if (mediator != null) {
-                            mediator.setFileName(file.getName());
-                            synapseConfig.getArtifactDeploymentStore().addArtifact(
-                                    file.getAbsolutePath(), mediator.getName());
-                        }
-                    } else {
-                        element = document.getFirstChildWithName(
-                                new QName(SynapseConstants.SYNAPSE_NAMESPACE, "endpoint"));
+            loader.build(templatesDir, new ArtifactTask() {
+                public void build(File file) {
+                    try {
+                        OMElement document = loader.getDocument(file);
+                        OMElement element = document.getFirstChildWithName(
+                                new QName(SynapseConstants.SYNAPSE_NAMESPACE, "sequence"));
                         if (element != null) {
-                            Template endpointTemplate =
-                                    SynapseXMLConfigurationFactory.defineEndpointTemplate(
+                            TemplateMediator mediator =
+                                    (TemplateMediator) SynapseXMLConfigurationFactory.defineMediatorTemplate(
                                             synapseConfig, document, properties);
-                            if (endpointTemplate != null) {
-                                endpointTemplate.setFileName(file.getName());
-                                synapseConfig.getArtifactDeploymentStore().addArtifact(
-                                        file.getAbsolutePath(), endpointTemplate.getName());
+                            if (mediator != null) {
+                                mediator.setFileName(file.getName());
+                                addArtifact(synapseConfig, file, mediator.getName());
+                            }
+                        } else {
+                            element = document.getFirstChildWithName(
+                                    new QName(SynapseConstants.SYNAPSE_NAMESPACE, "endpoint"));
+                            if (element != null) {
+                                Template endpointTemplate =
+                                        SynapseXMLConfigurationFactory.defineEndpointTemplate(
+                                                synapseConfig, document, properties);
+                                if (endpointTemplate != null) {
+                                    endpointTemplate.setFileName(file.getName());
+                                    addArtifact(synapseConfig, file, endpointTemplate.getName());
+                                }
                             }
                         }
+                    } catch (Exception e) {
+                        String msg = "Template configuration cannot be built from : " + file.getName();
+                        handleConfigurationError(SynapseConstants.FAIL_SAFE_MODE_TEMPLATES, msg, e);
                     }
-                } catch (Exception e) {
-                    String msg = "Template configuration cannot be built from : " + file.getName();
-                    handleConfigurationError(SynapseConstants.FAIL_SAFE_MODE_TEMPLATES, msg, e);
                 }
-            }
+            });
         }
     }
 
-    private static void createEndpoints(SynapseConfiguration synapseConfig, String rootDirPath,
-                                        Properties properties) {
+    private static void createEndpoints(final SynapseConfiguration synapseConfig, String rootDirPath,
+                                        final Properties properties, final ArtifactLoader loader) {
 
         File endpointsDir = new File(rootDirPath, ENDPOINTS_DIR);
         if (endpointsDir.exists()) {
@@ -399,28 +442,27 @@ public class MultiXMLConfigurationBuilder {
                 log.debug("Loading endpoints from : " + endpointsDir.getPath());
             }
 
-            Iterator endpoints = FileUtils.iterateFiles(endpointsDir, extensions, false);
-            while (endpoints.hasNext()) {
-                File file = (File) endpoints.next();
-                try {
-                    OMElement document = getOMElement(file);
-                    Endpoint endpoint = SynapseXMLConfigurationFactory.defineEndpoint(
-                            synapseConfig, document, properties);
-                    if (endpoint != null) {
-                        endpoint.setFileName(file.getName());
-                        synapseConfig.getArtifactDeploymentStore().addArtifact(
-                                file.getAbsolutePath(), endpoint.getName());
+            loader.build(endpointsDir, new ArtifactTask() {
+                public void build(File file) {
+                    try {
+                        OMElement document = loader.getDocument(file);
+                        Endpoint endpoint = SynapseXMLConfigurationFactory.defineEndpoint(
+                                synapseConfig, document, properties);
+                        if (endpoint != null) {
+                            endpoint.setFileName(file.getName());
+                            addArtifact(synapseConfig, file, endpoint.getName());
+                        }
+                    } catch (Exception e) {
+                        String msg = "Endpoint configuration cannot be built from : " + file.getName();
+                        handleConfigurationError(SynapseConstants.FAIL_SAFE_MODE_EP, msg, e);
                     }
-                } catch (Exception e) {
-                    String msg = "Endpoint configuration cannot be built from : " + file.getName();
-                    handleConfigurationError(SynapseConstants.FAIL_SAFE_MODE_EP, msg, e);
                 }
-            }
+            });
         }
     }
 
     private static void createEventSources(SynapseConfiguration synapseConfig, String rootDirPath,
-                                           Properties properties) {
+                                           Properties properties, ArtifactLoader loader) {
 
         File eventsDir = new File(rootDirPath, EVENTS_DIR);
         if (eventsDir.exists()) {
@@ -432,7 +474,7 @@ public class MultiXMLConfigurationBuilder {
             while (events.hasNext()) {
                 File file = (File) events.next();
                 try {
-                    OMElement document = getOMElement(file);
+                    OMElement document = loader.getDocument(file);
                     SynapseEventSource eventSource = SynapseXMLConfigurationFactory.
                             defineEventSource(synapseConfig, document, properties);
                     if (eventSource != null) {
@@ -449,7 +491,7 @@ public class MultiXMLConfigurationBuilder {
     }
 
     private static void createExecutors(SynapseConfiguration synapseConfig, String rootDirPath,
-                                        Properties properties) {
+                                        Properties properties, ArtifactLoader loader) {
 
         File executorsDir = new File(rootDirPath, EXECUTORS_DIR);
         if (executorsDir.exists()) {
@@ -461,7 +503,7 @@ public class MultiXMLConfigurationBuilder {
             while (executors.hasNext()) {
                 File file = (File) executors.next();
                 try {
-                    OMElement document = getOMElement(file);
+                    OMElement document = loader.getDocument(file);
                     PriorityExecutor executor = SynapseXMLConfigurationFactory.
                             defineExecutor(synapseConfig, document, properties);
                     if (executor != null) {
@@ -478,7 +520,7 @@ public class MultiXMLConfigurationBuilder {
     }
 
     private static void createMessageStores(SynapseConfiguration synapseConfig ,
-                                            String rootDirPath, Properties properties) {
+                                            String rootDirPath, Properties properties, ArtifactLoader loader) {
 
         File messageStoresDir = new File(rootDirPath, MESSAGE_STORE_DIR);
         if (messageStoresDir.exists() ) {
@@ -490,7 +532,7 @@ public class MultiXMLConfigurationBuilder {
             while (messageStores.hasNext()) {
                 File file = (File) messageStores.next();
                 try {
-                    OMElement document = getOMElement(file);
+                    OMElement document = loader.getDocument(file);
                     MessageStore messageStore = SynapseXMLConfigurationFactory.defineMessageStore(
                             synapseConfig, document, properties);
                     if (messageStore != null) {
@@ -508,7 +550,7 @@ public class MultiXMLConfigurationBuilder {
 
 
     private static void createMessageProcessors(SynapseConfiguration synapseConfig,
-                                            String rootDirPath, Properties properties) {
+                                            String rootDirPath, Properties properties, ArtifactLoader loader) {
 
         File messageProcessorDir = new File(rootDirPath, MESSAGE_PROCESSOR_DIR);
         if (messageProcessorDir.exists()) {
@@ -520,7 +562,7 @@ public class MultiXMLConfigurationBuilder {
             while (messageProcessors.hasNext()) {
                 File file = (File) messageProcessors.next();
                 try {
-                    OMElement document = getOMElement(file);
+                    OMElement document = loader.getDocument(file);
                     MessageProcessor messageProcessor = SynapseXMLConfigurationFactory.defineMessageProcessor(
                             synapseConfig, document, properties);
                     if (messageProcessor != null) {
@@ -536,7 +578,8 @@ public class MultiXMLConfigurationBuilder {
         }
     }
 
-    private static void createSynapseImports(SynapseConfiguration synapseConfig, String root, Properties properties) {
+    private static void createSynapseImports(SynapseConfiguration synapseConfig, String root, Properties properties,
+                                             ArtifactLoader loader) {
         File synImportsDir = new File(root, SYNAPSE_IMPORTS_DIR);
         if (synImportsDir.exists()) {
             if (log.isDebugEnabled()) {
@@ -546,7 +589,7 @@ public class MultiXMLConfigurationBuilder {
             while (synImports.hasNext()) {
                 File file = (File) synImports.next();
                 try {
-                    OMElement document = getOMElement(file);
+                    OMElement document = loader.getDocument(file);
                     SynapseImport synImp = SynapseXMLConfigurationFactory.defineImport(
                             synapseConfig, document, properties);
                     if (synImp != null) {
@@ -565,7 +608,7 @@ public class MultiXMLConfigurationBuilder {
 
 
     private static void createAPIs(SynapseConfiguration synapseConfig,
-                                   String rootDirPath, Properties properties) {
+                                   String rootDirPath, Properties properties, ArtifactLoader loader) {
 
         File apiDir = new File(rootDirPath, REST_API_DIR);
         if (apiDir.exists()) {
@@ -577,7 +620,7 @@ public class MultiXMLConfigurationBuilder {
             while (apiIterator.hasNext()) {
                 File file = (File) apiIterator.next();
                 try {
-                    OMElement document = getOMElement(file);
+                    OMElement document = loader.getDocument(file);
                     API api = SynapseXMLConfigurationFactory.defineAPI(synapseConfig, document, properties, false);
                     if (api != null) {
                         api.setFileName(file.getName());
@@ -601,7 +644,7 @@ public class MultiXMLConfigurationBuilder {
 
 
     private static void createInboundEndpoint(SynapseConfiguration synapseConfig,
-                                              String rootDirPath, Properties properties) {
+                                              String rootDirPath, Properties properties, ArtifactLoader loader) {
         File inboundEndpointDir = new File(rootDirPath, INBOUND_ENDPOINT_DIR);
         if (inboundEndpointDir.exists()) {
             if (log.isDebugEnabled()) {
@@ -612,7 +655,7 @@ public class MultiXMLConfigurationBuilder {
             while (inboundEndpointIterator.hasNext()) {
                 File file = (File) inboundEndpointIterator.next();
                 try {
-                    OMElement document = getOMElement(file);
+                    OMElement document = loader.getDocument(file);
                     InboundEndpoint inboundEndpoint = SynapseXMLConfigurationFactory.defineInboundEndpoint(synapseConfig, document, properties);
                     if (inboundEndpoint != null) {
                         inboundEndpoint.setFileName(file.getName());
@@ -629,6 +672,148 @@ public class MultiXMLConfigurationBuilder {
 
 
 
+    /**
+     * Artifact deployment store is not thread safe, the artifacts built concurrently are added one at a time
+     */
+    private static void addArtifact(SynapseConfiguration synapseConfig, File file, String artifactName) {
+        SynapseArtifactDeploymentStore store = synapseConfig.getArtifactDeploymentStore();
+        synchronized (store) {
+            store.addArtifact(file.getAbsolutePath(), artifactName);
+        }
+    }
+
+    /**
+     * Builds a single artifact from its file and registers it with the configuration
+     */
+    private interface ArtifactTask {
+        void build(File file);
+    }
+
+    /**
+     * Parses the artifact files and builds the artifacts, either on the calling thread or, when the parallelism
+     * is greater than one, on a fork-join pool. Exceptions thrown while parsing or building a file are kept and
+     * re-thrown on the calling thread in the order of the files, so the failing file reported is the same as
+     * when loading serially.
+     */
+    private static final class ArtifactLoader {
+
+        private static final String[] ARTIFACT_DIRS = {
+                SYNAPSE_IMPORTS_DIR, LOCAL_ENTRY_DIR, ENDPOINTS_DIR, SEQUENCES_DIR, TEMPLATES_DIR,
+                PROXY_SERVICES_DIR, TASKS_DIR, EVENTS_DIR, EXECUTORS_DIR, MESSAGE_STORE_DIR,
+                MESSAGE_PROCESSOR_DIR, REST_API_DIR, INBOUND_ENDPOINT_DIR
+        };
+
+        private final ForkJoinPool pool;
+
+        private final Map<File, Future<ParseResult>> documents = new HashMap<File, Future<ParseResult>>();
+
+        private ArtifactLoader(int parallelism) {
+            this.pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        }
+
+        private void parse(String rootDirPath) {
+            if (pool == null) {
+                return;
+            }
+            long start = System.currentTimeMillis();
+            for (String dirName : ARTIFACT_DIRS) {
+                File dir = new File(rootDirPath, dirName);
+                if (!dir.exists()) {
+                    continue;
+                }
+                for (final File file : FileUtils.listFiles(dir, extensions, false)) {
+                    documents.put(file, pool.submit(new Callable<ParseResult>() {
+                        public ParseResult call() {
+                            try {
+                                return new ParseResult(getOMElement(file), null);
+                            } catch (RuntimeException e) {
+                                return new ParseResult(null, e);
+                            }
+                        }
+                    }));
+                }
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Submitted " + documents.size() + " artifact files for parsing in "
+                        + (System.currentTimeMillis() - start) + "ms");
+            }
+        }
+
+        private OMElement getDocument(File file) {
+            Future<ParseResult> parsed = documents.get(file);
+            if (parsed == null) {
+                return getOMElement(file);
+            }
+            ParseResult result = getResult(parsed);
+            if (result.error != null) {
+                throw result.error;
+            }
+            return result.document;
+        }
+
+        private void build(File dir, final ArtifactTask task) {
+            Collection<File> files = FileUtils.listFiles(dir, extensions, false);
+            if (pool == null) {
+                for (File file : files) {
+                    task.build(file);
+                }
+                return;
+            }
+
+            List<Future<RuntimeException>> results = new ArrayList<Future<RuntimeException>>(files.size());
+            for (final File file : files) {
+                results.add(pool.submit(new Callable<RuntimeException>() {
+                    public RuntimeException call() {
+                        try {
+                            task.build(file);
+                            return null;
+                        } catch (RuntimeException e) {
+                            return e;
+                        }
+                    }
+                }));
+            }
+            RuntimeException firstError = null;
+            for (Future<RuntimeException> result : results) {
+                RuntimeException error = getResult(result);
+                if (error != null && firstError == null) {
+                    firstError = error;
+                }
+            }
+            if (firstError != null) {
+                throw firstError;
+            }
+        }
+
+        private void shutdown() {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+
+        private static <T> T getResult(Future<T> future) {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SynapseException("Interrupted while loading the synapse configuration", e);
+            } catch (ExecutionException e) {
+                // the tasks catch their exceptions, only errors end up here
+                throw new SynapseException("Error while loading the synapse configuration", e.getCause());
+            }
+        }
+    }
+
+    private static final class ParseResult {
+        private final OMElement document;
+        private final RuntimeException error;
+
+        private ParseResult(OMElement document, RuntimeException error) {
+            this.document = document;
+            this.error = error;
+        }
+    }
+
     private static OMElement getOMElement(File file) {
         FileInputStream is;
         OMElement document = null;
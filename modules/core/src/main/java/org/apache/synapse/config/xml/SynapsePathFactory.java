@@ -26,6 +26,7 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.synapse.SynapseConstants;
 import org.apache.synapse.SynapseException;
 import org.apache.synapse.config.SynapsePropertiesLoader;
+import org.apache.synapse.util.streaming_xpath.StreamingXPATHAnalyzer;
 import org.apache.synapse.util.xpath.SynapseJsonPath;
 import org.apache.synapse.util.xpath.SynapseXPath;
 import org.jaxen.JaxenException;
@@ -76,6 +77,7 @@ public class SynapsePathFactory {
                 + attribName.toString() + " in the element : " + elem.toString());
         }       
 
+        StreamingXPATHAnalyzer.record(path);
         return path;
     }
 
@@ -109,6 +111,7 @@ public class SynapsePathFactory {
             handleException("Couldn't find the XPath expression");
         }
 
+        StreamingXPATHAnalyzer.record(path);
         return path;
     }
 
@@ -123,6 +126,7 @@ public class SynapsePathFactory {
         SynapseXPath xpath = new SynapseXPath(expression);
         OMElementUtils.addNameSpaces(xpath, elem, log);
 
+        StreamingXPATHAnalyzer.record(xpath);
         return xpath;
     }
 
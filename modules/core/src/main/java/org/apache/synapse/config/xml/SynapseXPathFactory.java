@@ -26,6 +26,7 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.synapse.SynapseConstants;
 import org.apache.synapse.SynapseException;
 import org.apache.synapse.config.SynapsePropertiesLoader;
+import org.apache.synapse.util.streaming_xpath.StreamingXPATHAnalyzer;
 import org.apache.synapse.util.xpath.SynapseXPath;
 import org.jaxen.JaxenException;
 
@@ -68,6 +69,7 @@ public class SynapseXPathFactory {
                 + attribName.toString() + " in the element : " + elem.toString());
         }       
 
+        StreamingXPATHAnalyzer.record(xpath);
         return xpath;
     }
 
@@ -81,6 +83,7 @@ public class SynapseXPathFactory {
         SynapseXPath xpath = new SynapseXPath(expression);
         OMElementUtils.addNameSpaces(xpath, elem, log);
 
+        StreamingXPATHAnalyzer.record(xpath);
         return xpath;
     }
 
@@ -0,0 +1,34 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.synapse.core.axis2;
+
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseConstants;
+
+/**
+ * Handler of the response to a message sent without blocking, which is set on the message as the
+ * {@link SynapseConstants#ASYNC_RESPONSE_HANDLER} property. The response is handed to the handler
+ * by the {@link SynapseCallbackReceiver} instead of being mediated, while the faults are still
+ * propagated through the fault stack of the message.
+ */
+public interface AsyncResponseHandler {
+
+    /**
+     * @param response the response, with the properties of the message sent
+     */
+    public void handleResponse(MessageContext response);
+}
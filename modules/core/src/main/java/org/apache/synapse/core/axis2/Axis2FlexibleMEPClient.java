@@ -55,6 +55,7 @@ import org.apache.synapse.rest.RESTConstants;
 import org.apache.synapse.transport.nhttp.NhttpConstants;
 import org.apache.synapse.transport.passthru.PassThroughConstants;
 import org.apache.synapse.transport.passthru.config.PassThroughConfiguration;
+import org.apache.synapse.util.ConcurrencyThrottlingUtils;
 import org.apache.synapse.util.MediatorPropertyUtils;
 import org.apache.synapse.unittest.ConfigModifier;
 import org.apache.synapse.util.MessageHelper;
@@ -671,6 +672,7 @@ public class Axis2FlexibleMEPClient {
                     concurrentAccessReplicator.replicate(throttleKey, true);
                 }
             }
+            ConcurrencyThrottlingUtils.ignoreEndpointConcurrencyPermit(synapseOutMessageContext);
         }
 
         mepClient.execute(true);
@@ -64,7 +64,7 @@ public class Axis2MessageContext implements MessageContext {
     /**
      * Synapse Message Context properties
      */
-    private final Map<String, Object> properties = new HashMap<String, Object>();
+    private final Map<String, Object> properties = new MessagePropertyMap();
 
     /**
      * Local entries fetched from the configuration or from the registry for the transactional
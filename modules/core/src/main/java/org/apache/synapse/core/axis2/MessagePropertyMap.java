@@ -0,0 +1,371 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.synapse.core.axis2;
+
+import org.apache.synapse.SynapseConstants;
+import org.apache.synapse.aspects.flow.statistics.util.StatisticsConstants;
+import org.apache.synapse.rest.RESTConstants;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Map holding the properties of a Synapse message context, which takes less memory than a
+ * {@link HashMap} for the properties set on almost every message.
+ * <p>
+ * The values of the well known properties are kept in an array, at the index assigned to their
+ * key, so that they take no entry objects. The array is allocated when the first of them is set,
+ * and only grows as far as the highest index set. Any other property is kept in an overflow
+ * {@link HashMap}, created when the first of them is set.
+ * <p>
+ * Null values are not kept, putting a null value removes the property, the same as a property
+ * which is not set. The map is not thread safe, the same as the {@link HashMap} it replaces.
+ */
+class MessagePropertyMap extends AbstractMap<String, Object> {
+
+    /**
+     * Keys of the properties kept in the array, roughly ordered by how often they are set, so that
+     * most messages only need the start of the array
+     */
+    private static final String[] KNOWN_KEYS = {
+            SynapseConstants.RESPONSE,
+            SynapseConstants.IN_TRANSPORT,
+            SynapseConstants.TRANSPORT_IN_NAME,
+            SynapseConstants.IS_CLIENT_DOING_REST,
+            SynapseConstants.IS_CLIENT_DOING_SOAP11,
+            SynapseConstants.PROXY_SERVICE,
+            SynapseConstants.ARTIFACT_NAME,
+            SynapseConstants.CONTINUATION_CALL,
+            RESTConstants.REST_API_CONTEXT,
+            RESTConstants.REST_URL_PREFIX,
+            RESTConstants.SYNAPSE_REST_API,
+            RESTConstants.SYNAPSE_REST_API_VERSION,
+            RESTConstants.SYNAPSE_RESOURCE,
+            RESTConstants.REST_SUB_REQUEST_PATH,
+            RESTConstants.REST_FULL_REQUEST_PATH,
+            RESTConstants.REST_METHOD,
+            RESTConstants.PROCESSED_API,
+            RESTConstants.REST_URL_PATTERN,
+            RESTConstants.SYNAPSE_REST_API_VERSION_STRATEGY,
+            SynapseConstants.RECEIVING_SEQUENCE,
+            SynapseConstants.SENDING_REQUEST,
+            SynapseConstants.LAST_ENDPOINT,
+            SynapseConstants.ENDPOINT_LOG,
+            SynapseConstants.RESPONSE_STATE,
+            SynapseConstants.HTTP_SC,
+            SynapseConstants.OUT_ONLY,
+            SynapseConstants.ISRESPONSE_PROPERTY,
+            SynapseConstants.SYNAPSE__FUNCTION__STACK,
+            SynapseConstants.SYNAPSE_ENDPOINT_CONCURRENCY_PERMIT,
+            SynapseConstants.SYNAPSE_CONCURRENCY_THROTTLE,
+            SynapseConstants.NO_KEEPALIVE,
+            SynapseConstants.DISABLE_CHUNKING,
+            SynapseConstants.SYNAPSE_STATISTICS_STATE,
+            SynapseConstants.STATISTICS_STACK,
+            StatisticsConstants.FLOW_STATISTICS_ID,
+            StatisticsConstants.FLOW_STATISTICS_IS_COLLECTED,
+            StatisticsConstants.FLOW_TRACE_IS_COLLECTED,
+            StatisticsConstants.MEDIATION_FLOW_STATISTICS_INDEXING_OBJECT,
+            StatisticsConstants.MEDIATION_FLOW_STATISTICS_PARENT_LIST,
+            StatisticsConstants.MEDIATION_FLOW_STATISTICS_PARENT_INDEX,
+            SynapseConstants.SENDING_FAULT,
+            SynapseConstants.ERROR_CODE,
+            SynapseConstants.ERROR_MESSAGE,
+            SynapseConstants.ERROR_DETAIL,
+            SynapseConstants.ERROR_EXCEPTION,
+            SynapseConstants.LAST_SEQ_FAULT_HANDLER,
+            SynapseConstants.BLOCKING_SENDER_ERROR
+    };
+
+    private static final Map<String, Integer> KNOWN_INDEXES = new HashMap<String, Integer>();
+
+    static {
+        for (int i = 0; i < KNOWN_KEYS.length; i++) {
+            if (KNOWN_INDEXES.put(KNOWN_KEYS[i], i) != null) {
+                throw new IllegalStateException("Duplicate message property key : " + KNOWN_KEYS[i]);
+            }
+        }
+    }
+
+    /** The array grows by this many values at a time */
+    private static final int GROWTH = 8;
+
+    /** Values of the well known properties, at the index of their key */
+    private Object[] known;
+
+    private int knownSize = 0;
+
+    private Map<String, Object> overflow;
+
+    private int modCount = 0;
+
+    private Set<Map.Entry<String, Object>> entrySet;
+
+    /**
+     * @param key property key
+     * @return the index of the array assigned to the key, or -1 if it is not well known
+     */
+    private static int indexOf(Object key) {
+        Integer index = KNOWN_INDEXES.get(key);
+        return index != null ? index : -1;
+    }
+
+    @Override
+    public Object get(Object key) {
+        int index = indexOf(key);
+        if (index >= 0) {
+            return known != null && index < known.length ? known[index] : null;
+        }
+        return overflow != null ? overflow.get(key) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        if (value == null) {
+            return remove(key);
+        }
+        int index = indexOf(key);
+        if (index >= 0) {
+            if (known == null || index >= known.length) {
+                Object[] values = new Object[Math.min((index / GROWTH + 1) * GROWTH, KNOWN_KEYS.length)];
+                if (known != null) {
+                    System.arraycopy(known, 0, values, 0, known.length);
+                }
+                known = values;
+            }
+            Object old = known[index];
+            known[index] = value;
+            if (old == null) {
+                knownSize++;
+                modCount++;
+            }
+            return old;
+        }
+        if (overflow == null) {
+            overflow = new HashMap<String, Object>();
+        }
+        Object old = overflow.put(key, value);
+        if (old == null) {
+            modCount++;
+        }
+        return old;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        int index = indexOf(key);
+        if (index >= 0) {
+            if (known == null || index >= known.length || known[index] == null) {
+                return null;
+            }
+            Object old = known[index];
+            known[index] = null;
+            knownSize--;
+            modCount++;
+            return old;
+        }
+        if (overflow == null) {
+            return null;
+        }
+        Object old = overflow.remove(key);
+        if (old != null) {
+            modCount++;
+        }
+        return old;
+    }
+
+    @Override
+    public int size() {
+        return knownSize + (overflow != null ? overflow.size() : 0);
+    }
+
+    @Override
+    public void clear() {
+        if (size() > 0) {
+            known = null;
+            knownSize = 0;
+            overflow = null;
+            modCount++;
+        }
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Map.Entry<String, Object>>() {
+                @Override
+                public Iterator<Map.Entry<String, Object>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return MessagePropertyMap.this.size();
+                }
+
+                @Override
+                public void clear() {
+                    MessagePropertyMap.this.clear();
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    /**
+     * Iterates the well known properties in the order of their index, then the other properties.
+     */
+    private class EntryIterator implements Iterator<Map.Entry<String, Object>> {
+
+        private int expectedModCount = modCount;
+
+        /** Index of the next well known property, or the length of the array when passed it */
+        private int next = -1;
+
+        /** Index of the last returned well known property, -1 if none or removed */
+        private int last = -1;
+
+        private Iterator<Map.Entry<String, Object>> overflowIterator;
+
+        private boolean lastInOverflow = false;
+
+        EntryIterator() {
+            advance();
+        }
+
+        private void advance() {
+            int length = known != null ? known.length : 0;
+            do {
+                next++;
+            } while (next < length && known[next] == null);
+        }
+
+        private boolean inKnown() {
+            return known != null && next < known.length;
+        }
+
+        public boolean hasNext() {
+            if (inKnown()) {
+                return true;
+            }
+            if (overflowIterator == null && overflow != null) {
+                overflowIterator = overflow.entrySet().iterator();
+            }
+            return overflowIterator != null && overflowIterator.hasNext();
+        }
+
+        public Map.Entry<String, Object> next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (inKnown()) {
+                last = next;
+                lastInOverflow = false;
+                advance();
+                return new KnownEntry(last);
+            }
+            last = -1;
+            lastInOverflow = true;
+            return overflowIterator.next();
+        }
+
+        public void remove() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (lastInOverflow) {
+                overflowIterator.remove();
+                lastInOverflow = false;
+            } else if (last >= 0) {
+                known[last] = null;
+                knownSize--;
+                last = -1;
+            } else {
+                throw new IllegalStateException();
+            }
+            modCount++;
+            expectedModCount = modCount;
+        }
+    }
+
+    /**
+     * Entry of a well known property, reading and writing the value in the array.
+     */
+    private class KnownEntry implements Map.Entry<String, Object> {
+
+        private final int index;
+
+        KnownEntry(int index) {
+            this.index = index;
+        }
+
+        public String getKey() {
+            return KNOWN_KEYS[index];
+        }
+
+        public Object getValue() {
+            return known != null && index < known.length ? known[index] : null;
+        }
+
+        public Object setValue(Object value) {
+            if (value == null) {
+                throw new NullPointerException("Message property values cannot be null");
+            }
+            Object old = getValue();
+            if (old == null) {
+                throw new IllegalStateException("Message property is removed : " + getKey());
+            }
+            known[index] = value;
+            return old;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry e = (Map.Entry) o;
+            Object value = getValue();
+            return getKey().equals(e.getKey()) && (value == null ? e.getValue() == null : value.equals(e.getValue()));
+        }
+
+        @Override
+        public int hashCode() {
+            Object value = getValue();
+            return getKey().hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
@@ -101,6 +101,7 @@ public class ProxyServiceMessageReceiver extends SynapseMessageReceiver {
         }
 
         MessageContext synCtx = MessageContextCreatorForAxis2.getSynapseMessageContext(mc);
+        synCtx.getConfiguration().initializeOnFirstUse(proxy);
         Integer statisticReportingIndex = null;
         //Statistic reporting
         boolean isStatisticsEnabled = RuntimeStatisticCollector.isStatisticsEnabled();
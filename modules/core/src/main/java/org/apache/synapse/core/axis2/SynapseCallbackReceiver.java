@@ -181,6 +181,8 @@ public class SynapseCallbackReceiver extends CallbackReceiver {
                 messageCtx.removeProperty(PassThroughConstants.INTERNAL_EXCEPTION_ORIGIN);
                 org.apache.synapse.MessageContext SynapseOutMsgCtx = callback.getSynapseOutMsgCtx();
                 ConcurrencyThrottlingUtils.decrementConcurrencyThrottleAccessController(SynapseOutMsgCtx);
+                ConcurrencyThrottlingUtils.releaseEndpointConcurrencyPermit(SynapseOutMsgCtx,
+                        Boolean.TRUE.equals(messageCtx.getProperty(SynapseConstants.SENDING_FAULT)));
 
                 synchronized (callback) {
                     if (callback.isMarkedForRemoval()) {
@@ -602,6 +604,14 @@ public class SynapseCallbackReceiver extends CallbackReceiver {
                 dispatcher.updateSession(synapseInMessageContext);
             }
 
+            // the response of a message sent without blocking goes back to its sender, not through mediation
+            Object responseHandler = synapseInMessageContext.getProperty(SynapseConstants.ASYNC_RESPONSE_HANDLER);
+            if (responseHandler instanceof AsyncResponseHandler) {
+                synapseInMessageContext.getPropertyKeySet().remove(SynapseConstants.ASYNC_RESPONSE_HANDLER);
+                ((AsyncResponseHandler) responseHandler).handleResponse(synapseInMessageContext);
+                return;
+            }
+
             // send the response message through the synapse mediation flow
             try {
                 synapseOutMsgCtx.getEnvironment().injectMessage(synapseInMessageContext);
@@ -219,6 +219,7 @@ public class TimeoutHandler extends TimerTask {
                     }
                     org.apache.synapse.MessageContext synapseOutMsgCtx = callback.getSynapseOutMsgCtx();
                     ConcurrencyThrottlingUtils.decrementConcurrencyThrottleAccessController(synapseOutMsgCtx);
+                    ConcurrencyThrottlingUtils.releaseEndpointConcurrencyPermit(synapseOutMsgCtx, true);
                     callbackStore.remove(key);
                     if (RuntimeStatisticCollector.isStatisticsEnabled()) {
                         CallbackStatisticCollector.callbackCompletionEvent(callback.getSynapseOutMsgCtx(), (String) key);
@@ -40,6 +40,7 @@ import org.apache.synapse.SynapseConstants;
 import org.apache.synapse.SynapseHandler;
 import org.apache.synapse.config.SynapseConfiguration;
 import org.apache.synapse.core.SynapseEnvironment;
+import org.apache.synapse.util.streaming_xpath.StreamingXPATHAnalyzer;
 
 import javax.xml.stream.XMLStreamException;
 import java.io.File;
@@ -219,6 +220,8 @@ public abstract class AbstractSynapseArtifactDeployer extends AbstractDeployer {
                 }
             } finally {
                 in.close();
+                // report the XPath expressions of the artifact which force the message to be built
+                StreamingXPATHAnalyzer.report(filename);
             }
         } catch (IOException ex) {
             handleDeploymentError("Deployment of synapse artifact failed. Error reading "
@@ -43,6 +43,7 @@ import org.apache.synapse.transport.customlogsetter.CustomLogSetter;
 import org.apache.synapse.aspects.AspectConfiguration;
 import org.apache.synapse.aspects.ComponentType;
 import org.apache.synapse.commons.jmx.MBeanRegistrar;
+import org.apache.synapse.config.SynapsePropertiesLoader;
 import org.apache.synapse.core.SynapseEnvironment;
 import org.apache.synapse.core.axis2.Axis2MessageContext;
 import org.apache.synapse.core.axis2.Axis2SynapseEnvironment;
@@ -50,6 +51,7 @@ import org.apache.synapse.mediators.MediatorFaultHandler;
 import org.apache.synapse.mediators.MediatorProperty;
 import org.apache.synapse.transport.passthru.util.RelayConstants;
 import org.apache.synapse.transport.passthru.util.RelayUtils;
+import org.apache.synapse.util.ConcurrencyThrottlingUtils;
 import org.apache.synapse.util.logging.LoggingUtils;
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -119,6 +121,12 @@ public abstract class AbstractEndpoint extends FaultHandler implements Endpoint,
 
     private boolean isEdited = false;
 
+    /** Adapts the number of requests in flight to this leaf endpoint, if enabled in the synapse.properties */
+    private AdaptiveConcurrencyLimiter concurrencyLimiter = null;
+
+    /** The error code of the fault raised when a request is rejected by the concurrency limiter */
+    private int concurrencyLimitErrorCode = SynapseConstants.ENDPOINT_CONCURRENCY_LIMIT_EXCEEDED;
+
     /** Attributes for json representation  */
     public static final String NAME_JSON_ATT = "name";
     public static final String TYPE_JSON_ATT = "type";
@@ -284,6 +292,15 @@ public abstract class AbstractEndpoint extends FaultHandler implements Endpoint,
 
             context = new EndpointContext(getName(), getDefinition(), isClusteringEnabled,
                     cc, metricsMBean);
+
+            if (isLeafEndpoint()) {
+                concurrencyLimiter = AdaptiveConcurrencyLimiter.create();
+                if (concurrencyLimiter != null) {
+                    concurrencyLimitErrorCode = Integer.parseInt(SynapsePropertiesLoader.getPropertyValue(
+                            SynapseConstants.ENDPOINT_CONCURRENCY_LIMIT_ERROR_CODE,
+                            String.valueOf(SynapseConstants.ENDPOINT_CONCURRENCY_LIMIT_EXCEEDED)));
+                }
+            }
         }
         initialized = true;
 
@@ -320,6 +337,12 @@ public abstract class AbstractEndpoint extends FaultHandler implements Endpoint,
 
         logSetter();
 
+        if (concurrencyLimiter != null && !acquireConcurrencyPermit(synCtx)) {
+            informFailure(synCtx, concurrencyLimitErrorCode, "Concurrency limit : " +
+                    concurrencyLimiter.getLimit() + " reached for endpoint : " + getName());
+            return;
+        }
+
         Integer statisticReportingIndex = null;
         boolean isStatisticsEnabled = RuntimeStatisticCollector.isStatisticsEnabled();
         if (isStatisticsEnabled) {
@@ -414,6 +437,37 @@ public abstract class AbstractEndpoint extends FaultHandler implements Endpoint,
         }
     }
 
+    /**
+     * Take a permit from the concurrency limiter for the request to be sent, and keep it in the
+     * message until the response is received, the request times out or fails
+     *
+     * @param synCtx the message to be sent
+     * @return false if the limit of requests in flight is reached
+     */
+    private boolean acquireConcurrencyPermit(MessageContext synCtx) {
+        AdaptiveConcurrencyLimiter.Permit permit = concurrencyLimiter.acquire();
+        if (permit == null) {
+            if (log.isDebugEnabled()) {
+                log.debug("Rejecting the message, " + concurrencyLimiter.getInFlight() +
+                        " requests are in flight to endpoint : " + getName());
+            }
+            return false;
+        }
+        // a permit left in the message by an earlier request is no longer in flight
+        ConcurrencyThrottlingUtils.ignoreEndpointConcurrencyPermit(synCtx);
+        synCtx.setProperty(SynapseConstants.SYNAPSE_ENDPOINT_CONCURRENCY_PERMIT, permit);
+        return true;
+    }
+
+    /**
+     * The adaptive concurrency limiter of this leaf endpoint
+     *
+     * @return the limiter, or null if adaptive concurrency limiting is not enabled
+     */
+    public AdaptiveConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
     /**
      * Is this a leaf level endpoint? or parent endpoint that has children?
      * @return true if there is no children - a leaf endpoint
@@ -553,6 +607,7 @@ public abstract class AbstractEndpoint extends FaultHandler implements Endpoint,
      * @param synCtx the message at hand
      */
     public void onFault(MessageContext synCtx) {
+        ConcurrencyThrottlingUtils.releaseEndpointConcurrencyPermit(synCtx, true);
         EndpointDefinition endpointDefinition = getDefinition();
         if (endpointDefinition != null && endpointDefinition.getTimeoutAction() == SynapseConstants.DISCARD) {
             log.info("Ignoring fault handlers since the timeout action is set to DISCARD");
@@ -0,0 +1,202 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.endpoints;
+
+import org.apache.synapse.SynapseConstants;
+import org.apache.synapse.config.SynapsePropertiesLoader;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the number of requests in flight to an endpoint, adapting the limit to the round trip
+ * times observed. The limit grows while the round trip time stays within a tolerance of its long
+ * term average, shrinks in proportion when the back end slows down (the gradient of the two), and
+ * is cut multiplicatively when a request times out or fails. Requests over the limit are rejected
+ * right away, instead of waiting for a worker thread and piling up in front of a slow back end.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    /** Factor by which the limit is cut when a request is dropped */
+    private static final double BACKOFF_RATIO = 0.9;
+    /** Weight of a new sample in the limit */
+    private static final double SMOOTHING = 0.2;
+    /** Number of samples over which the long term round trip time is averaged */
+    private static final int LONG_WINDOW = 100;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile int limit;
+
+    /** Guarded by this */
+    private double estimatedLimit;
+    /** Long term average of the round trip time in nano seconds, guarded by this */
+    private double longRtt;
+
+    /**
+     * @param initialLimit the limit to start with
+     * @param minLimit     the lowest limit
+     * @param maxLimit     the highest limit
+     * @param tolerance    how much the round trip time may grow over its long term average before
+     *                     the limit is reduced, e.g. 1.5
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.tolerance = tolerance;
+        this.estimatedLimit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+        this.limit = (int) estimatedLimit;
+    }
+
+    /**
+     * Creates a limiter from the synapse.properties, if adaptive concurrency limiting of the
+     * endpoints is enabled.
+     *
+     * @return the limiter, or null if not enabled
+     */
+    public static AdaptiveConcurrencyLimiter create() {
+        if (!SynapsePropertiesLoader.getBooleanProperty(SynapseConstants.ENDPOINT_CONCURRENCY_LIMIT_ENABLE, false)) {
+            return null;
+        }
+        return new AdaptiveConcurrencyLimiter(
+                Integer.parseInt(SynapsePropertiesLoader.getPropertyValue(
+                        SynapseConstants.ENDPOINT_CONCURRENCY_LIMIT_INITIAL, "20")),
+                Integer.parseInt(SynapsePropertiesLoader.getPropertyValue(
+                        SynapseConstants.ENDPOINT_CONCURRENCY_LIMIT_MIN, "1")),
+                Integer.parseInt(SynapsePropertiesLoader.getPropertyValue(
+                        SynapseConstants.ENDPOINT_CONCURRENCY_LIMIT_MAX, "1000")),
+                Double.parseDouble(SynapsePropertiesLoader.getPropertyValue(
+                        SynapseConstants.ENDPOINT_CONCURRENCY_LIMIT_TOLERANCE, "1.5")));
+    }
+
+    /**
+     * Takes a permit to send a request.
+     *
+     * @return the permit, which must be released once the request completes, or null if as many
+     * requests as the limit are already in flight
+     */
+    public Permit acquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                rejected.incrementAndGet();
+                return null;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return new Permit(current + 1);
+            }
+        }
+    }
+
+    /**
+     * Adapts the limit to a completed request.
+     *
+     * @param rtt      round trip time of the request in nano seconds
+     * @param inFlight number of requests in flight when the request was sent
+     * @param dropped  true if the request timed out or failed
+     */
+    synchronized void onSample(long rtt, int inFlight, boolean dropped) {
+        if (dropped) {
+            estimatedLimit = Math.max(minLimit, estimatedLimit * BACKOFF_RATIO);
+        } else {
+            rtt = Math.max(1, rtt);
+            if (longRtt == 0) {
+                longRtt = rtt;
+            } else {
+                longRtt += (rtt - longRtt) / LONG_WINDOW;
+                if (longRtt > 2 * rtt) {
+                    // recovering from a slow period, catch up with the faster back end sooner
+                    longRtt *= 0.95;
+                }
+            }
+            double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / rtt));
+            double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+            if (newLimit > estimatedLimit && inFlight * 2 < estimatedLimit) {
+                // the limit is not what holds the requests back, there is no reason to grow it
+                return;
+            }
+            newLimit = estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+            estimatedLimit = Math.min(maxLimit, Math.max(minLimit, newLimit));
+        }
+        limit = (int) estimatedLimit;
+    }
+
+    /**
+     * @return the current limit
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return the number of requests in flight
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return the number of requests rejected since the endpoint was initialized
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * A request in flight. Only the first release of a permit has any effect.
+     */
+    public final class Permit {
+
+        private final long startTime = System.nanoTime();
+        private final int inFlightAtStart;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(int inFlightAtStart) {
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        /**
+         * Releases the permit of a request which completed.
+         *
+         * @param dropped true if the request timed out or failed
+         */
+        public void release(boolean dropped) {
+            if (released.compareAndSet(false, true)) {
+                inFlight.decrementAndGet();
+                onSample(System.nanoTime() - startTime, inFlightAtStart, dropped);
+            }
+        }
+
+        /**
+         * Releases the permit of a request whose round trip time tells nothing about the back end,
+         * such as an out only message.
+         */
+        public void ignore() {
+            if (released.compareAndSet(false, true)) {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+}
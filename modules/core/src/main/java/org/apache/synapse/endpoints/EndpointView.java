@@ -245,6 +245,41 @@ public class EndpointView implements EndpointViewMBean, MessageLevelMetricsColle
         }
     }
 
+    // --- adaptive concurrency limit ---
+    /**
+     * The current adaptive concurrency limit of this leaf endpoint
+     * @return the limit, or -1 for group endpoints or if adaptive concurrency limiting is not enabled
+     */
+    public int getConcurrencyLimit() {
+        AdaptiveConcurrencyLimiter limiter = getConcurrencyLimiter();
+        return (limiter == null ? -1 : limiter.getLimit());
+    }
+
+    /**
+     * The number of requests in flight to this leaf endpoint
+     * @return the number of requests in flight, or -1 for group endpoints or if adaptive concurrency
+     * limiting is not enabled
+     */
+    public int getInFlightRequests() {
+        AdaptiveConcurrencyLimiter limiter = getConcurrencyLimiter();
+        return (limiter == null ? -1 : limiter.getInFlight());
+    }
+
+    /**
+     * The number of requests rejected by the adaptive concurrency limiter of this leaf endpoint
+     * @return the number of rejected requests, or -1 for group endpoints or if adaptive concurrency
+     * limiting is not enabled
+     */
+    public long getConcurrencyLimitRejections() {
+        AdaptiveConcurrencyLimiter limiter = getConcurrencyLimiter();
+        return (limiter == null ? -1 : limiter.getRejectedCount());
+    }
+
+    private AdaptiveConcurrencyLimiter getConcurrencyLimiter() {
+        return (endpoint instanceof AbstractEndpoint ?
+                ((AbstractEndpoint) endpoint).getConcurrencyLimiter() : null);
+    }
+
     // --- endpoint metrics ---
     /**
      * Time when statistics was last reset for this leaf endpoint
@@ -73,4 +73,8 @@ public interface EndpointViewMBean {
     public void resetStatistics();
     public long getLastResetTime();
     public long getMetricsWindow();
+
+    public int getConcurrencyLimit();
+    public int getInFlightRequests();
+    public long getConcurrencyLimitRejections();
 }
@@ -36,6 +36,7 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class represents the client used to request and retrieve OAuth tokens
@@ -61,6 +62,23 @@ public class OAuthClient {
     public static String generateToken(String tokenApiUrl, String payload, String credentials)
             throws OAuthException, IOException {
 
+        return generateAccessToken(tokenApiUrl, payload, credentials).getAccessToken();
+    }
+
+    /**
+     * Method to generate the access token from an OAuth server, along with its expiry
+     *
+     * @param tokenApiUrl The token url of the server
+     * @param payload     The payload of the request
+     * @param credentials The encoded credentials
+     * @return Token the access token and the time it expires at
+     * @throws OAuthException In the event of an unexpected HTTP status code return from the server or access_token
+     *                        key missing in the response payload
+     * @throws IOException    In the event of a problem parsing the response from the server
+     */
+    public static Token generateAccessToken(String tokenApiUrl, String payload, String credentials)
+            throws OAuthException, IOException {
+
         if (log.isDebugEnabled()) {
             log.debug("Initializing token generation request: [token-endpoint] " + tokenApiUrl);
         }
@@ -81,12 +99,12 @@ public class OAuthClient {
      * Method to retrieve the token response sent from the server
      *
      * @param response CloseableHttpResponse object
-     * @return accessToken String
+     * @return Token the access token and the time it expires at
      * @throws OAuthException In the event of an unexpected HTTP status code return from the server or access_token
      *                        key missing in the response payload
      * @throws IOException    In the event of a problem parsing the response from the server
      */
-    private static String extractToken(CloseableHttpResponse response) throws OAuthException, IOException {
+    private static Token extractToken(CloseableHttpResponse response) throws OAuthException, IOException {
 
         int responseCode = response.getStatusLine().getStatusCode();
 
@@ -117,7 +135,16 @@ public class OAuthClient {
         JsonParser parser = new JsonParser();
         JsonObject jsonResponse = (JsonObject) parser.parse(stringBuilder.toString());
         if (jsonResponse.has(OAuthConstants.ACCESS_TOKEN)) {
-            return jsonResponse.get(OAuthConstants.ACCESS_TOKEN).getAsString();
+            long lifetime = TimeUnit.MINUTES.toMillis(OAuthConstants.TOKEN_CACHE_TIMEOUT);
+            if (jsonResponse.has(OAuthConstants.EXPIRES_IN)) {
+                try {
+                    lifetime = TimeUnit.SECONDS.toMillis(jsonResponse.get(OAuthConstants.EXPIRES_IN).getAsLong());
+                } catch (RuntimeException e) {
+                    log.warn("Invalid [expires_in] in the response from the OAuth server, the token will be "
+                            + "cached for " + OAuthConstants.TOKEN_CACHE_TIMEOUT + " minutes");
+                }
+            }
+            return new Token(jsonResponse.get(OAuthConstants.ACCESS_TOKEN).getAsString(), lifetime);
         }
         throw new OAuthException("Missing key [access_token] in the response from the OAuth server");
     }
@@ -57,7 +57,18 @@ public class OAuthConstants {
     public static final int HTTP_SC_UNAUTHORIZED = 401;
     public static final int HTTP_SC_INTERNAL_SERVER_ERROR = 500;
 
-    // Timeout in minutes to invalidate the tokens in the cache
+    // Timeout in minutes to invalidate the tokens in the cache, when the server does not send expires_in
     public static final int TOKEN_CACHE_TIMEOUT = 50;
 
+    // Fraction of the lifetime of a token after which it is refreshed in the background
+    public static final String TOKEN_REFRESH_RATIO = "synapse.endpoint.oauth.token.refresh.ratio";
+    public static final double DEFAULT_TOKEN_REFRESH_RATIO = 0.8;
+
+    // Maximum number of tokens refreshed in the background at once
+    public static final String TOKEN_MAX_CONCURRENT_REFRESHES = "synapse.endpoint.oauth.token.refresh.max.concurrent";
+    public static final int DEFAULT_TOKEN_MAX_CONCURRENT_REFRESHES = 4;
+
+    // Interval in milliseconds to wait before retrying a failed background refresh
+    public static final long TOKEN_REFRESH_RETRY_INTERVAL = 5000;
+
 }
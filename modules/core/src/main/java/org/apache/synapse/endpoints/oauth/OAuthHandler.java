@@ -65,11 +65,12 @@ public abstract class OAuthHandler {
     private String getToken() throws OAuthException {
 
         try {
-            return TokenCache.getInstance().getToken(id, new Callable<String>() {
+            return TokenCache.getInstance().getToken(id, new Callable<Token>() {
                 @Override
-                public String call() throws OAuthException, IOException {
+                public Token call() throws OAuthException, IOException {
 
-                    return OAuthClient.generateToken(tokenApiUrl, buildTokenRequestPayload(), getEncodedCredentials());
+                    return OAuthClient.generateAccessToken(tokenApiUrl, buildTokenRequestPayload(),
+                            getEncodedCredentials());
                 }
             });
         } catch (ExecutionException e) {
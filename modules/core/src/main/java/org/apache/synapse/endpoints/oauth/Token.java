@@ -0,0 +1,88 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.endpoints.oauth;
+
+/**
+ * An access token issued by an OAuth server, along with the time it expires at
+ */
+public class Token {
+
+    private final String accessToken;
+
+    private final long issuedAt;
+
+    private final long expiresAt;
+
+    /**
+     * Create a token issued now
+     *
+     * @param accessToken the access token
+     * @param lifetime    lifetime of the token in milliseconds
+     */
+    public Token(String accessToken, long lifetime) {
+
+        this(accessToken, System.currentTimeMillis(), lifetime);
+    }
+
+    Token(String accessToken, long issuedAt, long lifetime) {
+
+        this.accessToken = accessToken;
+        this.issuedAt = issuedAt;
+        this.expiresAt = issuedAt + lifetime;
+    }
+
+    public String getAccessToken() {
+
+        return accessToken;
+    }
+
+    public long getIssuedAt() {
+
+        return issuedAt;
+    }
+
+    public long getExpiresAt() {
+
+        return expiresAt;
+    }
+
+    /**
+     * Check whether the token has expired
+     *
+     * @param now current time in milliseconds
+     * @return true if the token can no longer be used
+     */
+    public boolean isExpired(long now) {
+
+        return now >= expiresAt;
+    }
+
+    /**
+     * Check whether the given fraction of the lifetime of the token has elapsed, which is when it
+     * should be refreshed ahead of its expiry
+     *
+     * @param now          current time in milliseconds
+     * @param refreshRatio fraction of the lifetime after which the token is refreshed
+     * @return true if the token is due for a refresh
+     */
+    public boolean isDueForRefresh(long now, double refreshRatio) {
+
+        return now >= issuedAt + (long) ((expiresAt - issuedAt) * refreshRatio);
+    }
+}
@@ -18,26 +18,123 @@
 
 package org.apache.synapse.endpoints.oauth;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.config.SynapsePropertiesLoader;
 
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Token Cache Implementation
- * Tokens will be invalidate after a interval of TOKEN_CACHE_TIMEOUT minutes
+ * <p>
+ * Tokens are fetched at most once at a time per OAuth handler: concurrent requests which find no
+ * valid token wait for the single fetch in progress instead of calling the token endpoint
+ * themselves. Once the configured fraction of the lifetime of a token (as given by the
+ * expires_in of the token response, or TOKEN_CACHE_TIMEOUT minutes when the server does not
+ * send it) has elapsed, the token is refreshed in the background while requests keep being
+ * served with the current token. The number of background refreshes running at once is bounded.
  */
 public class TokenCache {
 
-    private static final TokenCache instance = new TokenCache();
+    private static final Log log = LogFactory.getLog(TokenCache.class);
 
-    private final Cache<String, String> tokenMap =
-            CacheBuilder.newBuilder().expireAfterWrite(OAuthConstants.TOKEN_CACHE_TIMEOUT, TimeUnit.MINUTES).build();
+    private static final TokenCache instance = new TokenCache(
+            parseRefreshRatio(SynapsePropertiesLoader.getPropertyValue(OAuthConstants.TOKEN_REFRESH_RATIO, null)),
+            parseMaxConcurrentRefreshes(SynapsePropertiesLoader.getPropertyValue(
+                    OAuthConstants.TOKEN_MAX_CONCURRENT_REFRESHES, null)));
 
-    private TokenCache() {
+    private final Map<String, TokenHolder> tokenMap = new ConcurrentHashMap<>();
 
+    private final double refreshRatio;
+
+    private final Semaphore refreshPermits;
+
+    private final ExecutorService refreshExecutor;
+
+    private final AtomicLong refreshCount = new AtomicLong();
+
+    private final AtomicLong backgroundRefreshCount = new AtomicLong();
+
+    private final AtomicLong waitCount = new AtomicLong();
+
+    private final AtomicLong failureCount = new AtomicLong();
+
+    TokenCache(double refreshRatio, int maxConcurrentRefreshes) {
+
+        this.refreshRatio = refreshRatio;
+        this.refreshPermits = new Semaphore(maxConcurrentRefreshes);
+        this.refreshExecutor = Executors.newFixedThreadPool(maxConcurrentRefreshes, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+
+                Thread thread = new Thread(r, "oauth-token-refresher-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Parse the configured refresh ratio, falling back to the default for a missing or invalid value
+     *
+     * @param value configured fraction of the token lifetime after which the token is refreshed
+     * @return refresh ratio, greater than zero and at most one
+     */
+    static double parseRefreshRatio(String value) {
+
+        double refreshRatio = OAuthConstants.DEFAULT_TOKEN_REFRESH_RATIO;
+        if (value != null) {
+            try {
+                refreshRatio = Double.parseDouble(value.trim());
+            } catch (NumberFormatException e) {
+                refreshRatio = Double.NaN;
+            }
+            if (!(refreshRatio > 0 && refreshRatio <= 1)) {
+                log.warn("Invalid value : " + value + " for " + OAuthConstants.TOKEN_REFRESH_RATIO + ", using "
+                        + OAuthConstants.DEFAULT_TOKEN_REFRESH_RATIO);
+                refreshRatio = OAuthConstants.DEFAULT_TOKEN_REFRESH_RATIO;
+            }
+        }
+        return refreshRatio;
+    }
+
+    /**
+     * Parse the configured maximum number of background refreshes, falling back to the default for
+     * a missing or invalid value
+     *
+     * @param value configured maximum number of background refreshes
+     * @return maximum number of background refreshes, greater than zero
+     */
+    static int parseMaxConcurrentRefreshes(String value) {
+
+        int maxConcurrentRefreshes = OAuthConstants.DEFAULT_TOKEN_MAX_CONCURRENT_REFRESHES;
+        if (value != null) {
+            try {
+                maxConcurrentRefreshes = Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                maxConcurrentRefreshes = 0;
+            }
+            if (maxConcurrentRefreshes <= 0) {
+                log.warn("Invalid value : " + value + " for " + OAuthConstants.TOKEN_MAX_CONCURRENT_REFRESHES
+                        + ", using " + OAuthConstants.DEFAULT_TOKEN_MAX_CONCURRENT_REFRESHES);
+                maxConcurrentRefreshes = OAuthConstants.DEFAULT_TOKEN_MAX_CONCURRENT_REFRESHES;
+            }
+        }
+        return maxConcurrentRefreshes;
     }
 
     /**
@@ -51,15 +148,116 @@ public class TokenCache {
     }
 
     /**
-     * This method returns the value in the cache, or computes it from the specified Callable
+     * This method returns the current token of the given OAuth handler, fetching a new one if there
+     * is no valid token. Only one fetch runs at a time per handler, concurrent callers wait for it.
+     * If the token is due for a refresh, a refresh is started in the background and the current
+     * token is returned.
      *
-     * @param id       id of the oauth handler
-     * @param callable to generate a new token by calling oauth server
-     * @return Token object
+     * @param id      id of the oauth handler
+     * @param fetcher to generate a new token by calling oauth server
+     * @return access token
+     * @throws ExecutionException if a new token could not be fetched
+     */
+    public String getToken(String id, Callable<Token> fetcher) throws ExecutionException {
+
+        TokenHolder holder = tokenMap.computeIfAbsent(id, key -> new TokenHolder());
+        long now = System.currentTimeMillis();
+        Token token = holder.current;
+
+        if (token != null && !token.isExpired(now)) {
+            if (token.isDueForRefresh(now, refreshRatio) && now >= holder.nextRefreshAttempt) {
+                refreshInBackground(id, holder, fetcher);
+            }
+            return token.getAccessToken();
+        }
+
+        return fetch(id, holder, fetcher, true).getAccessToken();
+    }
+
+    /**
+     * Fetch a new token, joining the fetch already in progress for the handler if there is one
+     */
+    private Token fetch(String id, TokenHolder holder, Callable<Token> fetcher, boolean waiting)
+            throws ExecutionException {
+
+        FutureTask<Token> task = new FutureTask<>(() -> {
+            Token token = fetcher.call();
+            holder.current = token;
+            refreshCount.incrementAndGet();
+            if (log.isDebugEnabled()) {
+                log.debug("Fetched a new access token for the OAuth handler : " + id + ", expires in "
+                        + (token.getExpiresAt() - System.currentTimeMillis()) + " ms");
+            }
+            return token;
+        });
+
+        FutureTask<Token> inFlight;
+        if (holder.inFlight.compareAndSet(null, task)) {
+            inFlight = task;
+            try {
+                task.run();
+            } finally {
+                holder.inFlight.compareAndSet(task, null);
+            }
+        } else {
+            inFlight = holder.inFlight.get();
+            if (inFlight == null) {
+                // the fetch in progress has just completed
+                Token token = holder.current;
+                if (token != null && !token.isExpired(System.currentTimeMillis())) {
+                    return token;
+                }
+                return fetch(id, holder, fetcher, waiting);
+            }
+            if (waiting) {
+                waitCount.incrementAndGet();
+            }
+        }
+
+        try {
+            return inFlight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExecutionException("Interrupted while waiting for an access token", e);
+        } catch (ExecutionException e) {
+            if (inFlight == task) {
+                failureCount.incrementAndGet();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Refresh the token of the handler in the background, unless a fetch is already in progress or
+     * the maximum number of background refreshes are running
      */
-    public String getToken(String id, Callable<String> callable) throws ExecutionException {
+    private void refreshInBackground(String id, TokenHolder holder, Callable<Token> fetcher) {
 
-        return tokenMap.get(id, callable);
+        if (holder.inFlight.get() != null || !refreshPermits.tryAcquire()) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    // the refresh may have been queued while another one replaced the token
+                    Token token = holder.current;
+                    if (holder.inFlight.get() == null && tokenMap.get(id) == holder && token != null
+                            && token.isDueForRefresh(System.currentTimeMillis(), refreshRatio)) {
+                        fetch(id, holder, fetcher, false);
+                        backgroundRefreshCount.incrementAndGet();
+                    }
+                } catch (ExecutionException e) {
+                    // back off, so that a failing token endpoint is not called for every request
+                    holder.nextRefreshAttempt = System.currentTimeMillis() + OAuthConstants.TOKEN_REFRESH_RETRY_INTERVAL;
+                    log.warn("Error refreshing the access token of the OAuth handler : " + id
+                            + ", the current token will be used until it expires", e.getCause());
+                } finally {
+                    refreshPermits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshPermits.release();
+        }
     }
 
     /**
@@ -69,7 +267,50 @@ public class TokenCache {
      */
     public void removeToken(String id) {
 
-        tokenMap.invalidate(id);
+        tokenMap.remove(id);
+    }
+
+    /**
+     * @return number of tokens fetched from the token endpoints
+     */
+    public long getRefreshCount() {
+
+        return refreshCount.get();
+    }
+
+    /**
+     * @return number of tokens fetched ahead of their expiry, without blocking any request
+     */
+    public long getBackgroundRefreshCount() {
+
+        return backgroundRefreshCount.get();
     }
 
+    /**
+     * @return number of requests which waited for a fetch started by another request
+     */
+    public long getWaitCount() {
+
+        return waitCount.get();
+    }
+
+    /**
+     * @return number of failed attempts to fetch a token
+     */
+    public long getFailureCount() {
+
+        return failureCount.get();
+    }
+
+    /**
+     * The current token of an OAuth handler and the fetch in progress for it, if any
+     */
+    private static class TokenHolder {
+
+        private volatile Token current;
+
+        private volatile long nextRefreshAttempt;
+
+        private final AtomicReference<FutureTask<Token>> inFlight = new AtomicReference<>();
+    }
 }
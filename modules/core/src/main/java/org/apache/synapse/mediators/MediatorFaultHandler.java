@@ -92,6 +92,7 @@ public class MediatorFaultHandler extends FaultHandler {
             traceOrDebugWarn(traceOn, "Executing fault handler mediator : " + name);
         }
         ConcurrencyThrottlingUtils.decrementConcurrencyThrottleAccessController(synCtx);
+        ConcurrencyThrottlingUtils.releaseEndpointConcurrencyPermit(synCtx, true);
         synCtx.getServiceLog().warn("Executing fault sequence mediator : " + name);
         this.faultMediator.mediate(synCtx);
         if(isStatisticsEnabled) {
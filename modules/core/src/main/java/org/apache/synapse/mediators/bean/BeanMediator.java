@@ -74,8 +74,10 @@ public class BeanMediator extends AbstractMediator {
      */
     private Class clazz;
 
-
-
+    /**
+     * Setter or getter of the bean property, bound for the class of the last bean seen
+     */
+    private volatile PropertyBinding propertyBinding;
 
     /**
      * Manipulates a JavaBean attached to the current message context according to the supplied
@@ -194,11 +196,7 @@ public class BeanMediator extends AbstractMediator {
             ((Map) bean).put(propertyName, valueObj);
         } else {
             try {
-                BeanUtils.invokeInstanceMethod(
-                        bean,
-                        new PropertyDescriptor(propertyName, bean.getClass()).getWriteMethod(),
-                        new Object[]{valueObj}
-                );
+                getPropertyBinding(bean.getClass()).method.invoke(bean, valueObj);
             } catch (IntrospectionException e) {
                 handleException("Could not resolve the setter method for '" + propertyName +
                         "' property in '" + bean.getClass() + "'.", e, synCtx);
@@ -229,11 +227,7 @@ public class BeanMediator extends AbstractMediator {
             value = ((Map) bean).get(propertyName);
         } else {
             try {
-                value = BeanUtils.invokeInstanceMethod(
-                            bean,
-                            new PropertyDescriptor(propertyName, bean.getClass()).getReadMethod(),
-                            new Object[0]
-                        );
+                value = getPropertyBinding(bean.getClass()).method.invoke(bean);
             } catch (IntrospectionException e) {
                 handleException("Could not resolve the getter method for '" + propertyName +
                         "' property in '" + bean.getClass() + "'.", e, synCtx);
@@ -252,12 +246,32 @@ public class BeanMediator extends AbstractMediator {
         return true;
     }
 
+    /**
+     * Returns the setter or the getter of the bean property, as required by the action, bound for
+     * the given bean class. The binding is reused for as long as the beans are of the same class.
+     *
+     * @param beanClass class of the bean being manipulated
+     * @return the bound property accessor
+     * @throws IntrospectionException if the bean class does not define the property
+     */
+    private PropertyBinding getPropertyBinding(Class beanClass) throws IntrospectionException {
+        PropertyBinding binding = propertyBinding;
+        if (binding == null || binding.beanClass != beanClass) {
+            PropertyDescriptor descriptor = new PropertyDescriptor(propertyName, beanClass);
+            binding = new PropertyBinding(beanClass, new BoundMethod(action == Action.SET_PROPERTY ?
+                    descriptor.getWriteMethod() : descriptor.getReadMethod()));
+            propertyBinding = binding;
+        }
+        return binding;
+    }
+
     public Action getAction() {
         return action;
     }
 
     public void setAction(Action action) {
         this.action = action;
+        this.propertyBinding = null;
     }
 
     public String getVarName() {
@@ -274,6 +288,7 @@ public class BeanMediator extends AbstractMediator {
 
     public void setPropertyName(String propertyName) {
         this.propertyName = propertyName;
+        this.propertyBinding = null;
     }
 
     public Value getValue() {
@@ -308,6 +323,20 @@ public class BeanMediator extends AbstractMediator {
         this.clazz = clazz;
     }
 
+    /**
+     * Property accessor bound for a particular bean class.
+     */
+    private static class PropertyBinding {
+
+        private final Class beanClass;
+        private final BoundMethod method;
+
+        PropertyBinding(Class beanClass, BoundMethod method) {
+            this.beanClass = beanClass;
+            this.method = method;
+        }
+    }
+
     /**
      * Enum representing the action performed by the Bean mediator.
      */
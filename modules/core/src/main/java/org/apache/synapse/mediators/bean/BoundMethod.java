@@ -0,0 +1,232 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.bean;
+
+import org.apache.axiom.om.util.AXIOMUtil;
+import org.apache.axis2.databinding.typemapping.SimpleTypeMapper;
+import org.apache.synapse.SynapseException;
+
+import javax.xml.stream.XMLStreamException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * A method which is resolved and bound into a {@link MethodHandle} once, so that it can be
+ * invoked for every message without going through {@link Method#invoke} and without working
+ * out how each argument has to be converted again. The conversions match the ones done by
+ * {@link BeanUtils#invokeInstanceMethod(Object, Method, Object[])}, except that the converter
+ * of each parameter is selected when the method is bound.
+ */
+public class BoundMethod {
+
+    private static final MethodType GENERIC_TYPE =
+            MethodType.methodType(Object.class, Object.class, Object[].class);
+
+    /** The method this instance is bound to */
+    private final Method method;
+
+    /** Invokes the method as (Object instance, Object[] args) : Object, null if not accessible */
+    private final MethodHandle handle;
+
+    /** Converters of the arguments, one per parameter */
+    private final ArgumentConverter[] converters;
+
+    /**
+     * Bind the given method
+     *
+     * @param method the method to be bound
+     */
+    public BoundMethod(Method method) {
+        this.method = method;
+        Class[] paramTypes = method.getParameterTypes();
+        this.converters = new ArgumentConverter[paramTypes.length];
+        for (int i = 0; i < paramTypes.length; i++) {
+            converters[i] = ArgumentConverter.forType(paramTypes[i]);
+        }
+        this.handle = bind(method, paramTypes.length);
+    }
+
+    private static MethodHandle bind(Method method, int paramCount) {
+        MethodHandle target;
+        try {
+            target = MethodHandles.publicLookup().unreflect(method);
+        } catch (IllegalAccessException e) {
+            // leave it to reflection to report the access failure on invocation
+            return null;
+        }
+        target = target.asSpreader(Object[].class, paramCount);
+        if (Modifier.isStatic(method.getModifiers())) {
+            target = MethodHandles.dropArguments(target, 0, Object.class);
+        }
+        return target.asType(GENERIC_TYPE);
+    }
+
+    /**
+     * Invokes the bound method on the given object, converting the arguments as required.
+     *
+     * @param instance Instance to invoke the method on.
+     * @param args     Arguments for the method invocation.
+     * @return Return value of the method invocation, null for void methods.
+     * @throws SynapseException If method invocation fails.
+     */
+    public Object invoke(Object instance, Object... args) throws SynapseException {
+
+        if (converters.length != args.length) {
+            throw new SynapseException("Provided argument count does not match method the " +
+                    "parameter count of method '" + method.getName() + "'. Argument count = " +
+                    args.length + ", method parameter count = " + converters.length);
+        }
+
+        Object[] processedArgs = args.length == 0 ? args : new Object[args.length];
+        for (int i = 0; i < args.length; ++i) {
+            processedArgs[i] = converters[i].convert(args[i], i, method);
+        }
+
+        if (handle == null) {
+            return invokeReflectively(instance, processedArgs);
+        }
+        try {
+            return (Object) handle.invokeExact(instance, processedArgs);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new SynapseException("Error while invoking '" + method.getName() + "' method.", t);
+        }
+    }
+
+    private Object invokeReflectively(Object instance, Object[] args) {
+        try {
+            return method.invoke(instance, args);
+        } catch (IllegalAccessException e) {
+            throw new SynapseException("Error while invoking '" + method.getName() + "' method " +
+                    "via reflection.", e);
+        } catch (InvocationTargetException e) {
+            throw new SynapseException("Error while invoking '" + method.getName() + "' method " +
+                    "via reflection.", e);
+        }
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * Converts an argument to the type of the parameter it is passed to. Values which are
+     * already of the parameter type are passed as they are, and the others are converted from
+     * their string form when the parameter is of a simple type.
+     */
+    private abstract static class ArgumentConverter {
+
+        private final Class type;
+
+        ArgumentConverter(Class type) {
+            this.type = type;
+        }
+
+        Object convert(Object arg, int index, Method method) {
+            if (arg == null || type.isInstance(arg)) {
+                return arg;
+            }
+            return convertFrom(arg, index, method);
+        }
+
+        abstract Object convertFrom(Object arg, int index, Method method);
+
+        static ArgumentConverter forType(final Class paramType) {
+            final Class type = wrapperOf(paramType);
+
+            if (!SimpleTypeMapper.isSimpleType(paramType)) {
+                return new ArgumentConverter(type) {
+                    Object convertFrom(Object arg, int index, Method method) {
+                        throw new SynapseException("Incompatible argument found in " + index +
+                                "th argument for '" + method.getName() + "' method.");
+                    }
+                };
+            }
+
+            // numbers are parsed directly, the rest goes through the Axis2 simple type mapping
+            if (type == Integer.class || type == Long.class || type == Short.class ||
+                    type == Byte.class || type == Double.class || type == Float.class) {
+                return new ArgumentConverter(type) {
+                    Object convertFrom(Object arg, int index, Method method) {
+                        return parseNumber(type, arg.toString());
+                    }
+                };
+            }
+
+            return new ArgumentConverter(type) {
+                Object convertFrom(Object arg, int index, Method method) {
+                    try {
+                        // Workaround for https://issues.apache.org/jira/browse/AXIS2-5212
+                        return SimpleTypeMapper.getSimpleTypeObject(paramType,
+                                AXIOMUtil.stringToOM("<a>" + arg.toString() + "</a>"));
+                    } catch (XMLStreamException ignored) {
+                        return null;
+                    }
+                }
+            };
+        }
+
+        private static Object parseNumber(Class type, String text) {
+            if (text.length() == 0) {
+                return null;
+            } else if (type == Integer.class) {
+                return Integer.valueOf(text);
+            } else if (type == Long.class) {
+                return Long.valueOf(text);
+            } else if (type == Short.class) {
+                return Short.valueOf(text);
+            } else if (type == Byte.class) {
+                return Byte.valueOf(text);
+            } else if (type == Double.class) {
+                return Double.valueOf(text);
+            } else {
+                return Float.valueOf(text);
+            }
+        }
+
+        private static Class wrapperOf(Class type) {
+            if (!type.isPrimitive()) {
+                return type;
+            } else if (type == int.class) {
+                return Integer.class;
+            } else if (type == long.class) {
+                return Long.class;
+            } else if (type == boolean.class) {
+                return Boolean.class;
+            } else if (type == double.class) {
+                return Double.class;
+            } else if (type == float.class) {
+                return Float.class;
+            } else if (type == short.class) {
+                return Short.class;
+            } else if (type == byte.class) {
+                return Byte.class;
+            } else if (type == char.class) {
+                return Character.class;
+            }
+            return Void.class;
+        }
+    }
+}
@@ -28,6 +28,7 @@ import org.apache.synapse.ManagedLifecycle;
 import org.apache.synapse.MessageContext;
 import org.apache.synapse.SynapseException;
 import org.apache.synapse.SynapseLog;
+import org.apache.synapse.aspects.flow.statistics.collectors.RuntimeStatisticCollector;
 import org.apache.synapse.commons.datasource.DBPoolView;
 import org.apache.synapse.commons.datasource.DataSourceFinder;
 import org.apache.synapse.commons.datasource.DataSourceInformation;
@@ -36,11 +37,16 @@ import org.apache.synapse.commons.datasource.DatasourceMBeanRepository;
 import org.apache.synapse.commons.datasource.RepositoryBasedDataSourceFinder;
 import org.apache.synapse.commons.datasource.factory.DataSourceFactory;
 import org.apache.synapse.commons.jmx.MBeanRepository;
+import org.apache.synapse.commons.transaction.TranscationManger;
+import org.apache.synapse.continuation.ContinuationStackManager;
+import org.apache.synapse.continuation.SeqContinuationState;
 import org.apache.synapse.util.resolver.SecureVaultResolver;
 import org.wso2.securevault.secret.SecretManager;
 import org.apache.synapse.config.SynapseConfiguration;
 import org.apache.synapse.core.SynapseEnvironment;
 import org.apache.synapse.mediators.AbstractMediator;
+import org.apache.synapse.mediators.MediatorWorker;
+import org.apache.synapse.mediators.base.SequenceMediator;
 
 import javax.naming.Context;
 import javax.sql.DataSource;
@@ -58,6 +64,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * This abstract DB mediator will perform common DB connection pooling etc. for all DB mediators
@@ -119,6 +126,12 @@ public abstract class AbstractDBMediator extends AbstractMediator implements Man
 
     private SynapseEnvironment synapseEnvironment;
 
+    /**
+     * Whether the statements are executed on the DB executor, resuming the mediation flow once
+     * they are done instead of blocking the mediation thread
+     */
+    private boolean async = false;
+
     /**
      * Initializes the mediator - either an existing data source will be looked up
      * from an in- or external JNDI provider or a custom data source will be created
@@ -129,6 +142,10 @@ public abstract class AbstractDBMediator extends AbstractMediator implements Man
     public void init(SynapseEnvironment se) {
         // check whether we shall try to lookup an existing data source or create a new custom data source
         this.synapseEnvironment = se;
+        if (async) {
+            // the flow is resumed from the continuation stack, the same as after a call mediator
+            se.updateCallMediatorCount(true);
+        }
         try {
             if (dataSourceName != null) {
                 dataSource = lookupDataSource(dataSourceName, jndiProperties);
@@ -176,6 +193,9 @@ public abstract class AbstractDBMediator extends AbstractMediator implements Man
      * Destroys the mediator. If we are using our custom DataSource, then shut down the connections
      */
     public void destroy() {
+        if (async && synapseEnvironment != null) {
+            synapseEnvironment.updateCallMediatorCount(false);
+        }
         /* If the DB mediators are used with globally defined data sources, the associated
            data source is not closed. */
         if (dataSourceName != null) {
@@ -232,12 +252,13 @@ public abstract class AbstractDBMediator extends AbstractMediator implements Man
             }
         }
 
-        for (Statement aStatement : statementList) {
-            if (aStatement != null) {
-                processStatement(aStatement, synCtx);
-            }
+        if (async && canExecuteAsync(synCtx) && executeAsync(synCtx, name)) {
+            // the flow continues after this mediator, once the statements are executed
+            return false;
         }
 
+        processStatements(synCtx);
+
         if (name.equals("DBReport") && ((DBReportMediator) this).useTransaction) {
             long key = Thread.currentThread().getId();
             closeConnection(key);
@@ -249,6 +270,72 @@ public abstract class AbstractDBMediator extends AbstractMediator implements Man
         return true;
     }
 
+    private void processStatements(MessageContext synCtx) {
+        for (Statement aStatement : statementList) {
+            if (aStatement != null) {
+                processStatement(aStatement, synCtx);
+            }
+        }
+    }
+
+    /**
+     * Statements are executed asynchronously only when the flow can be resumed from the
+     * continuation stack, and not within a transaction, which is bound to the mediation thread
+     *
+     * @param synCtx the current message
+     * @return true if the statements can be executed on the DB executor
+     */
+    private boolean canExecuteAsync(MessageContext synCtx) {
+        return synCtx.isContinuationEnabled()
+                && !synCtx.getContinuationStateStack().isEmpty()
+                && !synCtx.getEnvironment().isDebuggerEnabled()
+                && !TranscationManger.isThreadHasEnlistment()
+                && !(this instanceof DBReportMediator && ((DBReportMediator) this).useTransaction);
+    }
+
+    /**
+     * Hands the statements over to the DB executor. Once they are executed, the mediation flow is
+     * resumed on a Synapse worker thread from the position of this mediator, and any error raised
+     * by the statements is handled by the fault handler of the flow.
+     *
+     * @param synCtx the current message
+     * @param name   name of the mediator, for logging
+     * @return true if the statements are handed over, false if the DB executor is busy and the
+     * statements have to be executed on the mediation thread
+     */
+    private boolean executeAsync(final MessageContext synCtx, final String name) {
+        ContinuationStackManager.updateSeqContinuationState(synCtx, getMediatorPosition());
+        try {
+            DBExecutor.getInstance().execute(new Runnable() {
+                public void run() {
+                    RuntimeException error = null;
+                    try {
+                        processStatements(synCtx);
+                    } catch (RuntimeException e) {
+                        error = e;
+                    }
+                    SynapseLog synLog = getLog(synCtx);
+                    if (synLog.isTraceOrDebugEnabled()) {
+                        synLog.traceOrDebug("End : " + name + " mediator, resuming the mediation flow");
+                    }
+                    MediatorWorker worker = new MediatorWorker(new ContinuationMediator(error), synCtx);
+                    try {
+                        synCtx.getEnvironment().getExecutorService().execute(worker);
+                    } catch (RejectedExecutionException e) {
+                        worker.run();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            SynapseLog synLog = getLog(synCtx);
+            if (synLog.isTraceOrDebugEnabled()) {
+                synLog.traceOrDebug("DB executor is busy, executing the statements on the mediation thread");
+            }
+            return false;
+        }
+        return true;
+    }
+
     /**
      * Subclasses must specify how each SQL statement is processed
      *
@@ -311,6 +398,14 @@ public abstract class AbstractDBMediator extends AbstractMediator implements Man
         dataSourceProps.put(name, value);
     }
 
+    public boolean isAsync() {
+        return async;
+    }
+
+    public void setAsync(boolean async) {
+        this.async = async;
+    }
+
     public void addStatement(Statement stmnt) {
         statementList.add(stmnt);
     }
@@ -338,6 +433,22 @@ public abstract class AbstractDBMediator extends AbstractMediator implements Man
      */
     protected PreparedStatement getPreparedStatement(Statement stmnt, Connection con,
                                                      MessageContext msgCtx) throws SQLException {
+        return getPreparedStatement(stmnt, con, getParameterValues(stmnt, msgCtx), msgCtx);
+    }
+
+    /**
+     * Return a Prepared statement for the given Statement object and the already evaluated
+     * values of its parameters, which is ready to be executed
+     *
+     * @param stmnt  SQL stataement to be executed
+     * @param con    The connection to be used
+     * @param values the values, as returned by {@link #getParameterValues}
+     * @param msgCtx Current message context
+     * @return a PreparedStatement
+     * @throws SQLException on error
+     */
+    protected PreparedStatement getPreparedStatement(Statement stmnt, Connection con, String[] values,
+                                                     MessageContext msgCtx) throws SQLException {
 
         SynapseLog synLog = getLog(msgCtx);
 
@@ -376,17 +487,57 @@ public abstract class AbstractDBMediator extends AbstractMediator implements Man
         }
 
         PreparedStatement ps = con.prepareStatement(stmnt.getRawStatement());
+        setParameters(ps, stmnt, values, msgCtx);
+
+        if (synLog.isTraceOrDebugEnabled()) {
+            synLog.traceOrDebug("Successfully prepared statement : " + stmnt.getRawStatement() +
+                    " against DataSource : " + getDSName());
+        }
+        return ps;
+    }
 
-        // set parameters if any
+    /**
+     * Evaluate the values of the parameters of the given statement against the current message
+     *
+     * @param stmnt  SQL statement to be executed
+     * @param msgCtx Current message context
+     * @return the values, at the index of their parameters
+     */
+    protected String[] getParameterValues(Statement stmnt, MessageContext msgCtx) {
+        List<Statement.Parameter> params = stmnt.getParameters();
+        String[] values = new String[params.size()];
+        for (int i = 0; i < values.length; i++) {
+            Statement.Parameter param = params.get(i);
+            if (param != null) {
+                values[i] = (param.getPropertyName() != null ?
+                        param.getPropertyName() : param.getPath().stringValueOf(msgCtx));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Set the parameters of the given prepared statement with the given values
+     *
+     * @param ps     the prepared statement
+     * @param stmnt  SQL statement to be executed
+     * @param values the values, as returned by {@link #getParameterValues}
+     * @param msgCtx Current message context
+     * @throws SQLException on error
+     */
+    protected void setParameters(PreparedStatement ps, Statement stmnt, String[] values,
+                                 MessageContext msgCtx) throws SQLException {
+
+        SynapseLog synLog = getLog(msgCtx);
         List<Statement.Parameter> params = stmnt.getParameters();
         int column = 1;
 
-        for (Statement.Parameter param : params) {
+        for (int i = 0; i < values.length; i++) {
+            Statement.Parameter param = params.get(i);
             if (param == null) {
                 continue;
             }
-            String value = (param.getPropertyName() != null ?
-                    param.getPropertyName() : param.getPath().stringValueOf(msgCtx));
+            String value = values[i];
 
             if (synLog.isTraceOrDebugEnabled()) {
                 synLog.traceOrDebug("Setting as parameter : " + column + " value : " + value +
@@ -515,12 +666,6 @@ public abstract class AbstractDBMediator extends AbstractMediator implements Man
                 }
             }
         }
-
-        if (synLog.isTraceOrDebugEnabled()) {
-            synLog.traceOrDebug("Successfully prepared statement : " + stmnt.getRawStatement() +
-                    " against DataSource : " + getDSName());
-        }
-        return ps;
     }
 
     /**
@@ -663,4 +808,39 @@ public abstract class AbstractDBMediator extends AbstractMediator implements Man
             throw new SynapseException(msg);
         }
     }
+
+    /**
+     * Resumes the mediation flow from the continuation stack, after the statements of an
+     * asynchronous DB mediator are executed.
+     */
+    private static class ContinuationMediator extends AbstractMediator {
+
+        /** Error raised by the statements, handed to the fault handler of the flow */
+        private final RuntimeException error;
+
+        ContinuationMediator(RuntimeException error) {
+            this.error = error;
+        }
+
+        public boolean mediate(MessageContext synCtx) {
+            if (error != null) {
+                throw error;
+            }
+            boolean result = true;
+            do {
+                SeqContinuationState seqContinuationState = (SeqContinuationState)
+                        ContinuationStackManager.peakContinuationStateStack(synCtx);
+                if (seqContinuationState == null) {
+                    break;
+                }
+                SequenceMediator sequenceMediator =
+                        ContinuationStackManager.retrieveSequence(synCtx, seqContinuationState);
+                result = sequenceMediator.mediate(synCtx, seqContinuationState);
+                if (RuntimeStatisticCollector.isStatisticsEnabled()) {
+                    sequenceMediator.reportCloseStatistics(synCtx, null);
+                }
+            } while (result && !synCtx.getContinuationStateStack().isEmpty());
+            return result;
+        }
+    }
 }
@@ -0,0 +1,84 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.synapse.mediators.db;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.SynapseConstants;
+import org.apache.synapse.config.SynapsePropertiesLoader;
+import org.apache.synapse.util.concurrent.SynapseThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded executor shared by the asynchronous DB mediators, which runs their statements so that
+ * the mediation threads are not blocked for the duration of the queries. The number of threads
+ * bounds the number of connections the asynchronous mediators take from their pools at once.
+ * <p>
+ * A statement offered while all the threads are busy and the queue is full is rejected, and the
+ * mediator runs it on the mediation thread instead, which slows the mediation down to the pace
+ * of the database.
+ */
+class DBExecutor {
+
+    private static final Log log = LogFactory.getLog(DBExecutor.class);
+
+    private static final int DEFAULT_THREADS = 20;
+
+    private static final int DEFAULT_QUEUE_LENGTH = 1000;
+
+    private static volatile ThreadPoolExecutor executor;
+
+    private DBExecutor() {
+    }
+
+    static ThreadPoolExecutor getInstance() {
+        if (executor == null) {
+            synchronized (DBExecutor.class) {
+                if (executor == null) {
+                    int threads = getIntProperty(SynapseConstants.DB_MEDIATOR_ASYNC_THREADS, DEFAULT_THREADS);
+                    int queueLength = getIntProperty(SynapseConstants.DB_MEDIATOR_ASYNC_QUEUE_LENGTH,
+                                                     DEFAULT_QUEUE_LENGTH);
+                    ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                            new ArrayBlockingQueue<Runnable>(queueLength),
+                            new SynapseThreadFactory(new ThreadGroup("DBMediatorThreadGroup"), "DBMediatorWorker"));
+                    // idle threads go away, so that the executor does not hold the server when stopping
+                    pool.allowCoreThreadTimeOut(true);
+                    log.info("Started the executor of the asynchronous DB mediators with " + threads
+                             + " threads and a queue of " + queueLength + " statements");
+                    executor = pool;
+                }
+            }
+        }
+        return executor;
+    }
+
+    private static int getIntProperty(String name, int defaultValue) {
+        String value = SynapsePropertiesLoader.getPropertyValue(name, String.valueOf(defaultValue));
+        try {
+            int intValue = Integer.parseInt(value.trim());
+            if (intValue > 0) {
+                return intValue;
+            }
+        } catch (NumberFormatException ignore) {
+        }
+        log.warn("Invalid value : " + value + " for " + name + ", using " + defaultValue);
+        return defaultValue;
+    }
+}
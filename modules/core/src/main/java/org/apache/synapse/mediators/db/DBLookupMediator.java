@@ -21,24 +21,122 @@ package org.apache.synapse.mediators.db;
 
 import org.apache.synapse.MessageContext;
 import org.apache.synapse.SynapseLog;
+import org.apache.synapse.commons.jmx.MBeanRegistrar;
 import org.apache.synapse.commons.transaction.TranscationManger;
+import org.apache.synapse.core.SynapseEnvironment;
 
+import javax.management.ObjectName;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Connection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Simple database table lookup mediator. Designed only for read/lookup
+ * <p>
+ * When a cache timeout is set, the properties looked up are cached by the statement and the
+ * values of its parameters, including the lookups which return no rows, so that repeated
+ * lookups do not go to the database until the cached results expire. The cache is exposed over
+ * JMX, where it can be invalidated.
  */
 public class DBLookupMediator extends AbstractDBMediator {
-	
+
+    /** Default maximum number of results cached */
+    public static final int DEFAULT_CACHE_SIZE = 1000;
+
+    private static final String CACHE_MBEAN_CATEGORY = "DBLookupCache";
+
+    private static final AtomicInteger CACHE_SEQUENCE = new AtomicInteger();
+
+    /** Time the results are cached in milliseconds, the results are not cached if not positive */
+    private long cacheTimeout = 0;
+
+    /** Maximum number of results cached */
+    private int cacheSize = DEFAULT_CACHE_SIZE;
+
+    private LookupCache cache;
+
+    /** Name of the cache MBean, if it is registered */
+    private String cacheId;
+
+    @Override
+    public void init(SynapseEnvironment se) {
+        super.init(se);
+        if (cacheTimeout > 0) {
+            cache = new LookupCache(cacheTimeout, cacheSize);
+            String name = getDescription();
+            if (name == null) {
+                name = getDSName();
+                if (!getStatementList().isEmpty()) {
+                    name += " : " + getStatementList().get(0).getRawStatement();
+                }
+            }
+            // the statement may hold characters not allowed in an object name, and mediators may
+            // share a description or a statement, hence the quoted and numbered name
+            String id = ObjectName.quote(name + " #" + CACHE_SEQUENCE.incrementAndGet());
+            if (MBeanRegistrar.getInstance().registerMBean(cache, CACHE_MBEAN_CATEGORY, id)) {
+                cacheId = id;
+            } else {
+                log.warn("The lookup cache of : " + name + " is not exposed over JMX");
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (cacheId != null) {
+            MBeanRegistrar.getInstance().unRegisterMBean(CACHE_MBEAN_CATEGORY, cacheId);
+            cacheId = null;
+        }
+        cache = null;
+        super.destroy();
+    }
+
     protected void processStatement(Statement stmnt, MessageContext msgCtx) {
 
         SynapseLog synLog = getLog(msgCtx);
+        String[] values = getParameterValues(stmnt, msgCtx);
+
+        // results looked up within a transaction may not be committed yet, hence not cached
+        LookupCache lookupCache = TranscationManger.isThreadHasEnlistment() ? null : cache;
+        Map<String, String> results = null;
+        if (lookupCache != null) {
+            results = lookupCache.get(stmnt, values);
+            if (results != null && synLog.isTraceOrDebugEnabled()) {
+                synLog.traceOrDebug("Using the cached results of statement : " + stmnt.getRawStatement()
+                                    + ", cache hit ratio : " + lookupCache.getHitRatio());
+            }
+        }
+        if (results == null) {
+            long start = System.nanoTime();
+            results = lookup(stmnt, values, msgCtx);
+            if (lookupCache != null) {
+                lookupCache.put(stmnt, values, results, System.nanoTime() - start);
+            }
+        }
+        for (Map.Entry<String, String> result : results.entrySet()) {
+            msgCtx.setProperty(result.getKey(), result.getValue());
+        }
+    }
+
+    /**
+     * Execute the statement, and extract the first result row as the values of any results
+     * that have been specified
+     *
+     * @param stmnt  the statement
+     * @param values the values of its parameters
+     * @param msgCtx the current message
+     * @return the values by the names of the message properties to set
+     */
+    private Map<String, String> lookup(Statement stmnt, String[] values, MessageContext msgCtx) {
+
+        SynapseLog synLog = getLog(msgCtx);
+        Map<String, String> results = new LinkedHashMap<String, String>();
 
-        // execute the prepared statement, and extract the first result row and
-        // set as message context properties, any results that have been specified
         Connection con = null;
         ResultSet rs = null;
         PreparedStatement ps = null;
@@ -59,7 +157,7 @@ public class DBLookupMediator extends AbstractDBMediator {
         	}
         	
         	 
-            ps = getPreparedStatement(stmnt, con, msgCtx);
+            ps = getPreparedStatement(stmnt, con, values, msgCtx);
             rs = ps.executeQuery();
 
             if (rs.next()) {
@@ -85,7 +183,7 @@ public class DBLookupMediator extends AbstractDBMediator {
                                     " returned value : " + obj +
                                     " Setting this as the message property : " + propName);
                         }
-                        msgCtx.setProperty(propName, obj.toString());
+                        results.put(propName, obj.toString());
                     } else {
                         if (synLog.isTraceOrDebugEnabled()) {
                             synLog.traceOrDebugWarn("Column : " + columnStr +
@@ -124,6 +222,31 @@ public class DBLookupMediator extends AbstractDBMediator {
                 } catch (SQLException ignore) {}
             }
         }
+        return results.isEmpty() ? Collections.<String, String>emptyMap() : results;
+    }
+
+    public long getCacheTimeout() {
+        return cacheTimeout;
+    }
+
+    public void setCacheTimeout(long cacheTimeout) {
+        this.cacheTimeout = cacheTimeout;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    public void setCacheSize(int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * @return the result cache, or null if the results are not cached or the mediator is not
+     *         initialized
+     */
+    public LookupCache getCache() {
+        return cache;
     }
 
     @Override
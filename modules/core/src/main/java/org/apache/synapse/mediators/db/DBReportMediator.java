@@ -26,6 +26,8 @@ import org.apache.synapse.commons.transaction.TranscationManger;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Connection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A mediator that writes (i.e. inserts one row) to a table using message information
@@ -46,9 +48,28 @@ public class DBReportMediator extends AbstractDBMediator {
     // default do not participate in a distribute tx
     boolean useTransaction = false;
 
+    // Maximum number of statements of concurrent messages executed as one JDBC batch,
+    // default do not batch the statements
+    private int batchSize = 0;
+
+    private final Map<Statement, StatementBatch> batches = new ConcurrentHashMap<Statement, StatementBatch>();
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
     protected void processStatement(Statement stmnt, MessageContext msgCtx) {
 
 
+        if (batchSize > 1 && !useTransaction && !TranscationManger.isThreadHasEnlistment()) {
+            processBatchedStatement(stmnt, msgCtx);
+            return;
+        }
+
         SynapseLog synLog = getLog(msgCtx);
         Connection con = null;
         boolean threadInTx = false;
@@ -112,6 +133,38 @@ public class DBReportMediator extends AbstractDBMediator {
         }
     }
 
+    /**
+     * Execute the statement along with the same statement of concurrent messages, as a batch
+     */
+    private void processBatchedStatement(Statement stmnt, MessageContext msgCtx) {
+        SynapseLog synLog = getLog(msgCtx);
+        StatementBatch batch = batches.get(stmnt);
+        if (batch == null) {
+            StatementBatch newBatch = new StatementBatch(this, stmnt, batchSize);
+            batch = batches.putIfAbsent(stmnt, newBatch);
+            if (batch == null) {
+                batch = newBatch;
+            }
+        }
+        try {
+            int count = batch.execute(getParameterValues(stmnt, msgCtx), msgCtx);
+            if (synLog.isTraceOrDebugEnabled()) {
+                synLog.traceOrDebug("Inserted " + count + " row/s using batched statement : " +
+                                    stmnt.getRawStatement());
+            }
+            // Set row count that modified by executing SQL command as a property
+            msgCtx.setProperty(MODIFIED_ROW_COUNT_PROP_NAME, count);
+        } catch (SQLException e) {
+            handleException("SQL Error while executing insert statement : " +
+                            stmnt.getRawStatement() +
+                            " against DataSource : " + getDSName(), e, msgCtx);
+        }
+    }
+
+    StatementBatch getStatementBatch(Statement stmnt) {
+        return batches.get(stmnt);
+    }
+
     protected void closeConnection(long key) {
         TranscationManger.removeConnectionUsed(key);
     }
@@ -0,0 +1,209 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.synapse.mediators.db;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of the results of the statements of a DB lookup mediator, keyed by the statement and the
+ * values of its parameters. A result is the set of message properties looked up from the first
+ * row returned by the statement, which is empty when no row is returned, so that lookups of
+ * missing keys are cached as well.
+ * <p>
+ * A cached result expires after the timeout, and the least recently used results are evicted
+ * beyond the maximum size, which bounds the memory taken by the cache.
+ */
+public class LookupCache implements LookupCacheMBean {
+
+    private final long timeoutMillis;
+
+    private final int maxSize;
+
+    private final LinkedHashMap<Key, Result> results;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final AtomicLong loads = new AtomicLong();
+
+    private final AtomicLong loadNanos = new AtomicLong();
+
+    /**
+     * @param timeoutMillis time a result is cached, in milliseconds
+     * @param maxSize       maximum number of results cached
+     */
+    public LookupCache(long timeoutMillis, final int maxSize) {
+        this.timeoutMillis = timeoutMillis;
+        this.maxSize = maxSize;
+        this.results = new LinkedHashMap<Key, Result>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Result> eldest) {
+                if (size() > maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @param statement the statement
+     * @param values    the values of its parameters
+     * @return the cached properties, or null if the result is not cached or expired
+     */
+    public Map<String, String> get(Statement statement, String[] values) {
+        Key key = new Key(statement, values);
+        synchronized (results) {
+            Result result = results.get(key);
+            if (result != null) {
+                if (result.expiry > System.currentTimeMillis()) {
+                    hits.incrementAndGet();
+                    return result.properties;
+                }
+                results.remove(key);
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * @param statement  the statement
+     * @param values     the values of its parameters
+     * @param properties the properties looked up, which must not be modified afterwards
+     * @param loadNanos  time taken to look up the properties from the database
+     */
+    public void put(Statement statement, String[] values, Map<String, String> properties, long loadNanos) {
+        loads.incrementAndGet();
+        this.loadNanos.addAndGet(loadNanos);
+        Result result = new Result(properties, System.currentTimeMillis() + timeoutMillis);
+        synchronized (results) {
+            results.put(new Key(statement, values), result);
+        }
+    }
+
+    public int getSize() {
+        synchronized (results) {
+            return results.size();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getTimeout() {
+        return timeoutMillis;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public double getHitRatio() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    public int getNegativeSize() {
+        int negative = 0;
+        synchronized (results) {
+            for (Result result : results.values()) {
+                if (result.properties.isEmpty()) {
+                    negative++;
+                }
+            }
+        }
+        return negative;
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public double getAverageLoadTime() {
+        long count = loads.get();
+        return count == 0 ? 0 : loadNanos.get() / (count * 1000000.0);
+    }
+
+    public void invalidate() {
+        synchronized (results) {
+            results.clear();
+        }
+    }
+
+    public void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+        evictions.set(0);
+        loads.set(0);
+        loadNanos.set(0);
+    }
+
+    private static class Key {
+
+        private final Statement statement;
+
+        private final String[] values;
+
+        private final int hash;
+
+        Key(Statement statement, String[] values) {
+            this.statement = statement;
+            this.values = values;
+            this.hash = 31 * System.identityHashCode(statement) + Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return statement == key.statement && Arrays.equals(values, key.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static class Result {
+
+        private final Map<String, String> properties;
+
+        private final long expiry;
+
+        Result(Map<String, String> properties, long expiry) {
+            this.properties = properties;
+            this.expiry = expiry;
+        }
+    }
+}
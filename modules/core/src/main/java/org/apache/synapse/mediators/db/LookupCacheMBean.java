@@ -0,0 +1,60 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.synapse.mediators.db;
+
+/**
+ * JMX view of the result cache of a DB lookup mediator.
+ */
+public interface LookupCacheMBean {
+
+    /**
+     * @return the number of cached results, including expired results not evicted yet
+     */
+    public int getSize();
+
+    public int getMaxSize();
+
+    public long getTimeout();
+
+    public long getHitCount();
+
+    public long getMissCount();
+
+    /**
+     * @return the ratio of the lookups served from the cache, between 0 and 1
+     */
+    public double getHitRatio();
+
+    /**
+     * @return the number of cached results for which the statement returned no rows
+     */
+    public int getNegativeSize();
+
+    public long getEvictionCount();
+
+    /**
+     * @return the average time taken to look up a result from the database, in milliseconds
+     */
+    public double getAverageLoadTime();
+
+    /**
+     * Discard all the cached results, so that the next lookups go to the database
+     */
+    public void invalidate();
+
+    public void resetStatistics();
+}
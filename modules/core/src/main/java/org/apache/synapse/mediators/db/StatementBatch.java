@@ -0,0 +1,276 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.synapse.mediators.db;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.MessageContext;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces the executions of a statement of a DB report mediator by concurrent messages into
+ * JDBC batches.
+ * <p>
+ * The first message to arrive while no batch is being executed executes its statement, and the
+ * messages arriving meanwhile wait in the queue. Once done, it hands over to the first waiting
+ * message, which executes the queued statements as one batch of at most the maximum batch size,
+ * and so on. A batch therefore holds the statements of the messages which arrived while the
+ * previous batch was executed, without delaying a message when the database keeps up.
+ * <p>
+ * A batch is executed in a transaction of its own. If the batch fails, the transaction is rolled
+ * back and its statements are executed one by one, so that only the messages with failing
+ * statements get the error.
+ */
+class StatementBatch {
+
+    private static final Log log = LogFactory.getLog(StatementBatch.class);
+
+    private final AbstractDBMediator mediator;
+
+    private final Statement statement;
+
+    private final int maxSize;
+
+    private final Queue<Entry> queue = new ArrayDeque<Entry>();
+
+    /** Whether a message is executing the queued statements */
+    private boolean executing = false;
+
+    private final AtomicLong batchCount = new AtomicLong();
+
+    private final AtomicLong statementCount = new AtomicLong();
+
+    StatementBatch(AbstractDBMediator mediator, Statement statement, int maxSize) {
+        this.mediator = mediator;
+        this.statement = statement;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Executes the statement with the given parameter values, along with the statements of
+     * other messages, and waits until it is executed.
+     *
+     * @param values the parameter values, as returned by
+     *               {@link AbstractDBMediator#getParameterValues}
+     * @param msgCtx the current message
+     * @return the number of rows updated by the statement
+     * @throws SQLException if the statement fails
+     */
+    int execute(String[] values, MessageContext msgCtx) throws SQLException {
+        Entry entry = new Entry(values, msgCtx);
+        boolean executor;
+        synchronized (queue) {
+            queue.add(entry);
+            executor = !executing;
+            executing = true;
+        }
+        if (!executor) {
+            // wake up either executed, or to execute the queued statements
+            entry.await();
+            executor = entry.handedOver;
+        }
+        if (executor) {
+            try {
+                while (!entry.done) {
+                    List<Entry> batch = new ArrayList<Entry>();
+                    synchronized (queue) {
+                        while (batch.size() < maxSize && !queue.isEmpty()) {
+                            batch.add(queue.poll());
+                        }
+                    }
+                    executeBatch(batch);
+                }
+            } finally {
+                // the waiting messages must not be left behind, whatever happened to this one
+                synchronized (queue) {
+                    Entry next = queue.peek();
+                    if (next != null) {
+                        next.handOver();
+                    } else {
+                        executing = false;
+                    }
+                }
+            }
+        }
+        if (entry.error instanceof SQLException) {
+            throw (SQLException) entry.error;
+        } else if (entry.error instanceof RuntimeException) {
+            throw (RuntimeException) entry.error;
+        } else if (entry.error != null) {
+            throw new SQLException("Error executing statement : " + statement.getRawStatement(), entry.error);
+        }
+        return entry.count;
+    }
+
+    private void executeBatch(List<Entry> batch) {
+        Connection con = null;
+        PreparedStatement ps = null;
+        try {
+            con = mediator.getDataSource().getConnection();
+            ps = con.prepareStatement(statement.getRawStatement());
+            List<Entry> added = new ArrayList<Entry>(batch.size());
+            for (Entry entry : batch) {
+                try {
+                    mediator.setParameters(ps, statement, entry.values, entry.msgCtx);
+                    ps.addBatch();
+                    added.add(entry);
+                } catch (Exception e) {
+                    entry.complete(0, e);
+                    ps.clearParameters();
+                }
+            }
+            if (added.isEmpty()) {
+                return;
+            }
+            boolean autoCommit = con.getAutoCommit();
+            try {
+                if (autoCommit) {
+                    con.setAutoCommit(false);
+                }
+                int[] counts = ps.executeBatch();
+                con.commit();
+                for (int i = 0; i < added.size(); i++) {
+                    added.get(i).complete(i < counts.length ? counts[i] : 0, null);
+                }
+            } catch (SQLException e) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Batch of " + added.size() + " statements : " + statement.getRawStatement()
+                              + " failed, executing the statements one by one", e);
+                }
+                con.rollback();
+                ps.clearBatch();
+                executeOneByOne(con, ps, added);
+            } finally {
+                if (autoCommit) {
+                    con.setAutoCommit(true);
+                }
+            }
+            batchCount.incrementAndGet();
+            statementCount.addAndGet(added.size());
+        } catch (Exception e) {
+            for (Entry entry : batch) {
+                // entries already committed, or failed on their own, keep their outcome
+                if (!entry.done) {
+                    entry.complete(0, e);
+                }
+            }
+        } finally {
+            if (ps != null) {
+                try {
+                    ps.close();
+                } catch (SQLException ignore) {
+                }
+            }
+            if (con != null) {
+                try {
+                    con.close();
+                } catch (SQLException ignore) {
+                }
+            }
+            for (Entry entry : batch) {
+                if (!entry.done) {
+                    entry.complete(0, new SQLException("Statement was not executed : "
+                                                       + statement.getRawStatement()));
+                }
+            }
+        }
+    }
+
+    private void executeOneByOne(Connection con, PreparedStatement ps, List<Entry> entries) throws SQLException {
+        for (Entry entry : entries) {
+            try {
+                mediator.setParameters(ps, statement, entry.values, entry.msgCtx);
+                int count = ps.executeUpdate();
+                con.commit();
+                entry.complete(count, null);
+            } catch (Exception e) {
+                con.rollback();
+                entry.complete(0, e);
+            }
+        }
+    }
+
+    long getBatchCount() {
+        return batchCount.get();
+    }
+
+    long getStatementCount() {
+        return statementCount.get();
+    }
+
+    /**
+     * Execution of the statement by a message.
+     */
+    private static class Entry {
+
+        private final String[] values;
+
+        private final MessageContext msgCtx;
+
+        private final CountDownLatch signal = new CountDownLatch(1);
+
+        private volatile boolean done = false;
+
+        private volatile boolean handedOver = false;
+
+        private int count;
+
+        private Exception error;
+
+        Entry(String[] values, MessageContext msgCtx) {
+            this.values = values;
+            this.msgCtx = msgCtx;
+        }
+
+        void complete(int count, Exception error) {
+            this.count = count;
+            this.error = error;
+            done = true;
+            signal.countDown();
+        }
+
+        void handOver() {
+            handedOver = true;
+            signal.countDown();
+        }
+
+        void await() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    signal.await();
+                    break;
+                } catch (InterruptedException e) {
+                    // the statement is executed anyway, so its outcome has to be waited for
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
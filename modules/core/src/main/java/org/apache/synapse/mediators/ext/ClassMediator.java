@@ -24,6 +24,7 @@ import org.apache.synapse.Mediator;
 import org.apache.synapse.MessageContext;
 import org.apache.synapse.SynapseException;
 import org.apache.synapse.SynapseLog;
+import org.apache.synapse.commons.util.PropertySetter;
 import org.apache.synapse.config.xml.PropertyHelper;
 import org.apache.synapse.core.SynapseEnvironment;
 import org.apache.synapse.mediators.AbstractMediator;
@@ -33,6 +34,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The class mediator delegates the mediation to a single instance of a specified
@@ -51,6 +53,8 @@ public class ClassMediator extends AbstractMediator implements ManagedLifecycle
     private Mediator mediator = null;
     /** The holder for the custom properties */
     private final List<MediatorProperty> properties = new ArrayList<MediatorProperty>();
+    /** Setters of the dynamic properties, bound for the class of the mediator instance */
+    private final Map<String, PropertySetter> boundSetters = new ConcurrentHashMap<String, PropertySetter>();
 
     /**
 	 * Don't use a new instance... do one instance of the object per instance of
@@ -87,8 +91,7 @@ public class ClassMediator extends AbstractMediator implements ManagedLifecycle
         try {
             for (MediatorProperty property : properties) {
                 if (property.getExpression() != null) {
-                    PropertyHelper.setInstanceProperty(property.getName(), property.getEvaluatedExpression(synCtx),
-                            mediator);
+                    setProperty(property.getName(), property.getEvaluatedExpression(synCtx));
                 }
             }
             result = mediator.mediate(synCtx);
@@ -124,10 +127,51 @@ public class ClassMediator extends AbstractMediator implements ManagedLifecycle
         if (mediator instanceof ManagedLifecycle) {
             ((ManagedLifecycle) mediator).init(se);
         }
+
+        for (MediatorProperty property : properties) {
+            if (property.getExpression() != null) {
+                boundSetters.put(property.getName(), PropertySetter.bind(mediator.getClass(), property.getName()));
+            }
+        }
+    }
+
+    /**
+     * Sets a dynamic property on the mediator instance. A String value is set through the setter
+     * bound at initialization when the mediator class has a single setter of the property taking a
+     * String or a primitive value, which is the same as what PropertyHelper does for it. Any other
+     * value or setter is left to PropertyHelper, so that the properties are set as they always were.
+     *
+     * @param name  name of the property
+     * @param value evaluated value of the property
+     */
+    private void setProperty(String name, Object value) {
+        PropertySetter setter = value instanceof String ? getSetter(name) : null;
+        if (setter != null && setter.hasSingleValueSetter()) {
+            setter.set(mediator, value);
+        } else {
+            PropertyHelper.setInstanceProperty(name, value, mediator);
+        }
+    }
+
+    /**
+     * Returns the setter of the given property, bound for the class of the mediator instance at
+     * initialization or on first use
+     *
+     * @param name name of the property
+     * @return the bound setter
+     */
+    private PropertySetter getSetter(String name) {
+        PropertySetter setter = boundSetters.get(name);
+        if (setter == null) {
+            setter = PropertySetter.bind(mediator.getClass(), name);
+            boundSetters.put(name, setter);
+        }
+        return setter;
     }
 
     public void setMediator(Mediator mediator) {
 		this.mediator = mediator;
+		this.boundSetters.clear();
 	}
 
 	public Mediator getMediator() {
@@ -22,29 +22,35 @@ package org.apache.synapse.mediators.ext;
 import org.apache.axiom.om.OMAbstractFactory;
 import org.apache.axiom.om.OMNode;
 import org.apache.synapse.Command;
+import org.apache.synapse.ManagedLifecycle;
 import org.apache.synapse.MessageContext;
 import org.apache.synapse.SynapseLog;
-import org.apache.synapse.commons.util.PropertyHelper;
+import org.apache.synapse.SynapseException;
+import org.apache.synapse.commons.util.PropertySetter;
+import org.apache.synapse.core.SynapseEnvironment;
 import org.apache.synapse.mediators.AbstractMediator;
+import org.apache.synapse.mediators.bean.BoundMethod;
 import org.apache.synapse.mediators.eip.EIPUtils;
 import org.apache.synapse.util.xpath.SynapseXPath;
 import org.jaxen.JaxenException;
 
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This mediator will use the specified command object and execute the command after setting
  * the properties specified to it through the configuraiton. The specified command object may or
  * may not implement the Command interface. If the Command object has not implemented the Command
  * interface then this will use reflection to find a method called execute() and execute it.
+ * The setters, getters and the execute() method of the command class are looked up and bound
+ * into method handles when the mediator is initialized, and are then invoked for every message.
  *
  * @see org.apache.synapse.Command interface
  */
-public class POJOCommandMediator extends AbstractMediator {
+public class POJOCommandMediator extends AbstractMediator implements ManagedLifecycle {
 
     /**
      * This will hold the command object to be executed
@@ -81,6 +87,21 @@ public class POJOCommandMediator extends AbstractMediator {
      */
     private final Map<String, SynapseXPath> messageGetterProperties = new HashMap<String, SynapseXPath>();
 
+    /**
+     * Bound setters of the command class, by the property name
+     */
+    private final Map<String, PropertySetter> boundSetters = new ConcurrentHashMap<String, PropertySetter>();
+
+    /**
+     * Bound getters of the command class, by the property name
+     */
+    private final Map<String, BoundGetter> boundGetters = new ConcurrentHashMap<String, BoundGetter>();
+
+    /**
+     * The bound execute() method of a command class which does not implement Command
+     */
+    private volatile BoundMethod executeMethod;
+
     /**
      * Implements the mediate method of the Mediator interface. This method will instantiate
      * a new instance of the POJO class, set all specified properties from the current runtime
@@ -123,21 +144,19 @@ public class POJOCommandMediator extends AbstractMediator {
         synLog.traceOrDebug("Instance created, setting static and dynamic properties");
 
         // then set the static/constant properties first
-        for (String name : staticSetterProperties.keySet()) {
-            PropertyHelper.setInstanceProperty(name, staticSetterProperties.get(name), commandObject);
+        for (Map.Entry<String, Object> property : staticSetterProperties.entrySet()) {
+            getSetter(property.getKey()).set(commandObject, property.getValue());
         }
 
         // now set the any dynamic properties from the message context properties
-        for (String name : contextSetterProperties.keySet()) {
-            PropertyHelper.setInstanceProperty(name, synCtx.getProperty(contextSetterProperties.get(name)),
-                commandObject);
+        for (Map.Entry<String, String> property : contextSetterProperties.entrySet()) {
+            getSetter(property.getKey()).set(commandObject, synCtx.getProperty(property.getValue()));
         }
 
         // now set the any dynamic properties evaluating XPath's on the current message
-        for (String name : messageSetterProperties.keySet()) {
-            SynapseXPath xpath = messageSetterProperties.get(name);
-            String value = xpath.stringValueOf(synCtx);
-            PropertyHelper.setInstanceProperty(name, value, commandObject);
+        for (Map.Entry<String, SynapseXPath> property : messageSetterProperties.entrySet()) {
+            String value = property.getValue().stringValueOf(synCtx);
+            getSetter(property.getKey()).set(commandObject, value);
         }
 
         synLog.traceOrDebug("POJO initialized successfully, invoking the execute() method");
@@ -154,8 +173,7 @@ public class POJOCommandMediator extends AbstractMediator {
         } else {
 
             try {
-                Method exeMethod = command.getMethod("execute");
-                exeMethod.invoke(commandObject);
+                getExecuteMethod().invoke(commandObject);
             } catch (NoSuchMethodException e) {
                 handleException("Cannot locate an execute() method on POJO class : " +
                     command.getClass(), e, synCtx);
@@ -219,19 +237,18 @@ public class POJOCommandMediator extends AbstractMediator {
      */
     private Object getInstanceProperty(String name, Object obj, MessageContext synCtx) {
 
-        String mName = "get" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
-        try {
-            Method[] methods = obj.getClass().getMethods();
+        BoundGetter getter = boundGetters.get(name);
+        if (getter == null || getter.clazz != obj.getClass()) {
+            getter = bindGetter(obj.getClass(), name);
+            boundGetters.put(name, getter);
+        }
 
-            for (Method method : methods) {
-                if (mName.equals(method.getName())) {
-                    return method.invoke(obj);
-                }
-            }
-        } catch(InvocationTargetException e) {
-            handleException("Unable to get the command property '"
-                + name + "' back to the message", e, synCtx);
-        } catch(IllegalAccessException e){
+        if (getter.method == null) {
+            return null;
+        }
+        try {
+            return getter.method.invoke(obj);
+        } catch (SynapseException e) {
             handleException("Unable to get the command property '"
                 + name + "' back to the message", e, synCtx);
         }
@@ -239,12 +256,100 @@ public class POJOCommandMediator extends AbstractMediator {
         return null;
     }
 
+    /**
+     * Resolve and bind the getter method of the form getXXX of the given class
+     *
+     * @param clazz class declaring the getter
+     * @param name  name of the getter field
+     * @return the bound getter, with a null method if the class has no such getter
+     */
+    private BoundGetter bindGetter(Class clazz, String name) {
+        String mName = "get" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        for (Method m : clazz.getMethods()) {
+            if (mName.equals(m.getName())) {
+                return new BoundGetter(clazz, new BoundMethod(m));
+            }
+        }
+        return new BoundGetter(clazz, null);
+    }
+
+    /**
+     * Returns the setter of the given property bound for the command class
+     *
+     * @param name name of the property
+     * @return the bound setter
+     */
+    private PropertySetter getSetter(String name) {
+        PropertySetter setter = boundSetters.get(name);
+        if (setter == null) {
+            setter = PropertySetter.bind(command, name);
+            boundSetters.put(name, setter);
+        }
+        return setter;
+    }
+
+    /**
+     * Returns the execute() method of the command class, bound at initialization or on first use
+     *
+     * @return the bound execute() method
+     * @throws NoSuchMethodException if the command class does not define an execute() method
+     */
+    private BoundMethod getExecuteMethod() throws NoSuchMethodException {
+        BoundMethod method = executeMethod;
+        if (method == null) {
+            method = new BoundMethod(command.getMethod("execute"));
+            executeMethod = method;
+        }
+        return method;
+    }
+
+    /**
+     * Binds the setters and getters of the configured properties and the execute() method of the
+     * command class, so that no method is looked up while mediating
+     *
+     * @param se the Synapse environment
+     */
+    public void init(SynapseEnvironment se) {
+        if (command == null) {
+            return;
+        }
+        for (String name : staticSetterProperties.keySet()) {
+            boundSetters.put(name, PropertySetter.bind(command, name));
+        }
+        for (String name : contextSetterProperties.keySet()) {
+            boundSetters.put(name, PropertySetter.bind(command, name));
+        }
+        for (String name : messageSetterProperties.keySet()) {
+            boundSetters.put(name, PropertySetter.bind(command, name));
+        }
+        for (String name : contextGetterProperties.keySet()) {
+            boundGetters.put(name, bindGetter(command, name));
+        }
+        for (String name : messageGetterProperties.keySet()) {
+            boundGetters.put(name, bindGetter(command, name));
+        }
+        if (!Command.class.isAssignableFrom(command)) {
+            try {
+                getExecuteMethod();
+            } catch (NoSuchMethodException e) {
+                // reported on every message, as before
+                log.warn("Cannot locate an execute() method on POJO class : " + command.getName());
+            }
+        }
+    }
+
+    public void destroy() {
+    }
+
     public Class getCommand() {
         return command;
     }
 
     public void setCommand(Class command) {
         this.command = command;
+        this.boundSetters.clear();
+        this.boundGetters.clear();
+        this.executeMethod = null;
     }
 
     public void addStaticSetterProperty(String name, Object value) {
@@ -286,4 +391,18 @@ public class POJOCommandMediator extends AbstractMediator {
     public Map<String, SynapseXPath> getMessageGetterProperties() {
         return this.messageGetterProperties;
     }
+
+    /**
+     * A getter bound for a particular class, with a null method if the class has no such getter
+     */
+    private static class BoundGetter {
+
+        private final Class clazz;
+        private final BoundMethod method;
+
+        BoundGetter(Class clazz, BoundMethod method) {
+            this.clazz = clazz;
+            this.method = method;
+        }
+    }
 }
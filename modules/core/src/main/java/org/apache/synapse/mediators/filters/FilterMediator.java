@@ -37,6 +37,7 @@ import org.apache.synapse.mediators.AbstractListMediator;
 import org.apache.synapse.mediators.FlowContinuableMediator;
 import org.apache.synapse.mediators.ListMediator;
 import org.apache.synapse.mediators.base.SequenceMediator;
+import org.apache.synapse.util.streaming_xpath.StreamingContentRouter;
 import org.apache.synapse.util.xpath.SynapseJsonPath;
 import org.apache.synapse.util.xpath.SynapseXPath;
 import org.jaxen.JaxenException;
@@ -54,6 +55,8 @@ public class FilterMediator extends AbstractListMediator implements
     private SynapsePath source = null;
     private Pattern regex = null;
     private SynapsePath xpath = null;
+    /** Evaluates the xpath or source on the message stream when streaming content routing is enabled */
+    private StreamingContentRouter router = null;
     private AnonymousListMediator elseMediator = null;
     private boolean thenElementPresent = false;
     private String thenKey = null;
@@ -284,7 +287,9 @@ public class FilterMediator extends AbstractListMediator implements
 
         if (xpath != null) {
             try {
-                if (xpath instanceof SynapseXPath) {
+                if (router != null) {
+                    return router.booleanValueOf(synCtx);
+                } else if (xpath instanceof SynapseXPath) {
                     return xpath.booleanValueOf(synCtx);
                 } else if (xpath instanceof SynapseJsonPath) {
                     return ((SynapseJsonPath) xpath).booleanValueOf(synCtx);
@@ -294,7 +299,7 @@ public class FilterMediator extends AbstractListMediator implements
             }
 
         } else if (source != null && regex != null) {
-            String sourceString = source.stringValueOf(synCtx);
+            String sourceString = router != null ? router.stringValueOf(synCtx) : source.stringValueOf(synCtx);
             if (sourceString == null) {
                 if (synLog.isTraceOrDebugEnabled()) {
                     synLog.traceOrDebug("Source String : " + source + " evaluates to null");
@@ -322,6 +327,9 @@ public class FilterMediator extends AbstractListMediator implements
 
     public void setSource(SynapsePath source) {
         this.source = source;
+        if (xpath == null) {
+            this.router = source != null ? StreamingContentRouter.create(source, false) : null;
+        }
     }
 
     public Pattern getRegex() {
@@ -338,6 +346,7 @@ public class FilterMediator extends AbstractListMediator implements
 
     public void setXpath(SynapsePath xpath) {
         this.xpath = xpath;
+        this.router = xpath != null ? StreamingContentRouter.create(xpath, true) : null;
     }
 
     public ListMediator getElseMediator() {
@@ -374,7 +383,10 @@ public class FilterMediator extends AbstractListMediator implements
 
     @Override
     public boolean isContentAware() {
-        if (xpath != null) {
+        // the router builds the message only if it can not route on the message stream
+        if (router != null) {
+            return false;
+        } else if (xpath != null) {
             return xpath.isContentAware();
         } else if (source != null) {
             return source.isContentAware();
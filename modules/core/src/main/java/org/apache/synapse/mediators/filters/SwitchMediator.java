@@ -37,6 +37,7 @@ import org.apache.synapse.core.SynapseEnvironment;
 import org.apache.synapse.mediators.AbstractMediator;
 import org.apache.synapse.mediators.FlowContinuableMediator;
 import org.apache.synapse.mediators.eip.Target;
+import org.apache.synapse.util.streaming_xpath.StreamingContentRouter;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -52,6 +53,8 @@ public class SwitchMediator extends AbstractMediator implements ManagedLifecycle
 
     /** The Path expression specifying the source element to apply the switch case expressions against   */
     private SynapsePath source = null;
+    /** Evaluates the source on the message stream when streaming content routing is enabled */
+    private StreamingContentRouter router = null;
     /** The list of switch cases    */
     private final List<SwitchCase> cases = new ArrayList<SwitchCase>();
     /** The default switch case, if any */
@@ -104,7 +107,7 @@ public class SwitchMediator extends AbstractMediator implements ManagedLifecycle
         // to pass it on; else, do nothing -> i.e. let the parents state flow
         setEffectiveTraceState(synCtx);
 
-        String sourceText = source.stringValueOf(synCtx);
+        String sourceText = router != null ? router.stringValueOf(synCtx) : source.stringValueOf(synCtx);
         if (synLog.isTraceOrDebugEnabled()) {
             synLog.traceOrDebug("XPath : " + source + " evaluates to : " + sourceText);
         }
@@ -242,6 +245,7 @@ public class SwitchMediator extends AbstractMediator implements ManagedLifecycle
      */
     public void setSource(SynapsePath source) {
         this.source = source;
+        this.router = source != null ? StreamingContentRouter.create(source, false) : null;
     }
 
     /**
@@ -263,7 +267,8 @@ public class SwitchMediator extends AbstractMediator implements ManagedLifecycle
     
     @Override
     public boolean isContentAware() {
-        if (source != null) {
+        // the router builds the message only if it can not route on the message stream
+        if (source != null && router == null) {
             return source.isContentAware();
         } 
         return false;
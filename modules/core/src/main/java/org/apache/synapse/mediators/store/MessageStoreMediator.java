@@ -122,8 +122,13 @@ public class MessageStoreMediator extends AbstractMediator{
                     handleException("Error when cloning the message context", af, synCtx);
                 }
 
-                synchronized (storeMessageLock) {
-                   produceStatus = messageStore.getProducer().storeMessage(newCtx);
+                if (messageStore instanceof JmsStore && ((JmsStore) messageStore).isProducerPooled()) {
+                    // each message is stored over a producer of its own
+                    produceStatus = messageStore.getProducer().storeMessage(newCtx);
+                } else {
+                    synchronized (storeMessageLock) {
+                        produceStatus = messageStore.getProducer().storeMessage(newCtx);
+                    }
                 }
 
                 if (!produceStatus) {
@@ -28,6 +28,7 @@ import org.apache.synapse.message.processor.MessageProcessorConstants;
 import org.apache.synapse.message.processor.impl.failover.FailoverForwardingService;
 import org.apache.synapse.message.processor.impl.forwarder.ForwardingProcessorConstants;
 import org.apache.synapse.message.processor.impl.forwarder.ForwardingService;
+import org.apache.synapse.message.processor.impl.forwarder.ParallelForwardingService;
 import org.apache.synapse.message.processor.impl.sampler.SamplingService;
 import org.apache.synapse.message.senders.blocking.BlockingMsgSender;
 import org.apache.synapse.registry.Registry;
@@ -428,6 +429,8 @@ public abstract class ScheduledMessageProcessor extends AbstractMessageProcessor
 		    ((SamplingService) task).terminate();
 	    } else if (task instanceof FailoverForwardingService) {
 		    ((FailoverForwardingService) task).terminate();
+	    } else if (task instanceof ParallelForwardingService) {
+		    ((ParallelForwardingService) task).terminate();
 	    }
 		for (int i = 0; i < memberCount; i++) {
 			taskManager.pause(TASK_PREFIX + name + SYMBOL_UNDERSCORE + i);
@@ -81,4 +81,21 @@ public final class ForwardingProcessorConstants {
      * Message store to keep un-processable messages of message processor
      */
     public static final String FAIL_MESSAGES_STORE = "message.processor.failMessagesStore";
+
+    /**
+     * Number of messages forwarded at once, messages are forwarded one at a time by default
+     */
+    public static final String CONCURRENCY = "message.processor.concurrency";
+
+    /**
+     * Message property or transport header, the messages with the same value of which are
+     * forwarded in the order they are stored when forwarding messages at once
+     */
+    public static final String ORDERING_KEY = "message.processor.ordering.key";
+
+    /**
+     * Whether messages are sent through the non-blocking sender, waiting for the responses without
+     * holding a thread. The number of messages awaiting a response is bounded by the concurrency.
+     */
+    public static final String NON_BLOCKING = "message.processor.non.blocking";
 }
@@ -31,13 +31,16 @@ import org.apache.axis2.AxisFault;
 import org.apache.axis2.transport.http.HTTPConstants;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.FaultHandler;
 import org.apache.synapse.ManagedLifecycle;
 import org.apache.synapse.Mediator;
 import org.apache.synapse.MessageContext;
 import org.apache.synapse.SynapseConstants;
 import org.apache.synapse.SynapseException;
 import org.apache.synapse.commons.json.JsonUtil;
+import org.apache.synapse.config.SynapseConfigUtils;
 import org.apache.synapse.core.SynapseEnvironment;
+import org.apache.synapse.core.axis2.AsyncResponseHandler;
 import org.apache.synapse.core.axis2.Axis2MessageContext;
 import org.apache.synapse.endpoints.AbstractEndpoint;
 import org.apache.synapse.endpoints.Endpoint;
@@ -60,7 +63,11 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -192,6 +199,18 @@ public class ForwardingService implements Task, ManagedLifecycle {
 		this.isDeactivatedAtStartup = isDeactivatedAtStartup;
 	}
 
+	/**
+	 * Creates a service which forwards the messages handed over by a
+	 * {@link ParallelForwardingService} through the given consumer, instead of
+	 * consuming the store itself.
+	 */
+	ForwardingService(MessageProcessor messageProcessor, BlockingMsgSender sender,
+					  SynapseEnvironment synapseEnvironment, long thresholdInterval,
+					  MessageConsumer messageConsumer) {
+		this(messageProcessor, sender, synapseEnvironment, thresholdInterval);
+		this.messageConsumer = messageConsumer;
+	}
+
 	/**
 	 * Starts the execution of this task which grabs a message from the message
 	 * queue and dispatch it to a given endpoint.
@@ -229,16 +248,7 @@ public class ForwardingService implements Task, ManagedLifecycle {
 				if (!this.messageProcessor.isDeactivated()) {
 					messageContext = fetch();
 					if (messageContext != null) {
-
-						Set proSet = messageContext.getPropertyKeySet();
-						if (proSet != null) {
-							if (proSet.contains(ForwardingProcessorConstants.BLOCKING_SENDER_ERROR)) {
-								proSet.remove(ForwardingProcessorConstants.BLOCKING_SENDER_ERROR);
-							}
-						}
-						// Now it is NOT terminated anymore.
-						isTerminated = messageProcessor.isDeactivated();
-						dispatch(messageContext);
+						forward(messageContext);
 					} else {
 						// either the connection is broken or there are no new
 						// massages.
@@ -333,6 +343,51 @@ public class ForwardingService implements Task, ManagedLifecycle {
 		}
 	}
 
+	/**
+	 * Forwards a message received from the store, retrying, dropping or
+	 * deactivating the processor on failures as configured.
+	 *
+	 * @param messageContext the message to forward
+	 */
+	void forward(MessageContext messageContext) {
+		prepareToForward(messageContext);
+		dispatch(messageContext);
+	}
+
+	/**
+	 * Forwards a message received from the store without blocking the calling thread until the
+	 * endpoint responds. The message is sent through the non-blocking sender, and its response or
+	 * fault is evaluated by the thread receiving it, which acknowledges the message, or sends it
+	 * again after the retry interval, the same as {@link #forward(MessageContext)} does.
+	 *
+	 * @param messageContext the message to forward
+	 * @param scheduler      scheduler of the retries, and of the expiry of the sends
+	 * @param completion     run once the message is acknowledged, dropped or moved to the fail
+	 *                       messages store, or the forwarding is terminated
+	 */
+	void forwardNonBlocking(MessageContext messageContext, ScheduledExecutorService scheduler,
+							Runnable completion) {
+		prepareToForward(messageContext);
+		Endpoint endpoint = getEndpoint(messageContext);
+		if (endpoint == null) {
+			completion.run();
+			return;
+		}
+		new NonBlockingDispatch(messageContext, endpoint, scheduler, completion).run();
+	}
+
+	private void prepareToForward(MessageContext messageContext) {
+		resetService();
+		Set proSet = messageContext.getPropertyKeySet();
+		if (proSet != null) {
+			if (proSet.contains(ForwardingProcessorConstants.BLOCKING_SENDER_ERROR)) {
+				proSet.remove(ForwardingProcessorConstants.BLOCKING_SENDER_ERROR);
+			}
+		}
+		// Now it is NOT terminated anymore.
+		isTerminated = messageProcessor.isDeactivated();
+	}
+
 	public void init(SynapseEnvironment se) throws SynapseException {
 		// Setting up the JMS consumer here.
 		try {
@@ -486,6 +541,38 @@ public class ForwardingService implements Task, ManagedLifecycle {
 					+ messageProcessor.getName() + "]");
 		}
 
+		Endpoint endpoint = getEndpoint(messageContext);
+		if (endpoint != null) {
+			SOAPEnvelope originalEnvelop = messageContext.getEnvelope();
+			try {
+				// Send message to the client
+				while (!isSuccessful && !isTerminated) {
+					tryToDispatchToEndpoint(messageContext, endpoint, originalEnvelop);
+
+					isTerminated = messageProcessor.isDeactivated();
+					if (!isTerminated && (messageProcessor instanceof ScheduledMessageProcessor)) {
+						isTerminated = !((ScheduledMessageProcessor) messageProcessor).isActive();
+					}
+
+					if (!isSuccessful) {
+						prepareToRetry(messageContext, originalEnvelop);
+					}
+				}
+			} catch (Exception e) {
+				log.error("Message processor [" + messageProcessor.getName() +
+						"] failed to send the message to" + " client", e);
+			}
+		}
+	}
+
+	/**
+	 * Finds the endpoint to forward the message to, deactivating the message processor if there
+	 * is none.
+	 *
+	 * @param messageContext synapse {@link MessageContext} to be sent
+	 * @return the endpoint, or null if the message processor is deactivated
+	 */
+	private Endpoint getEndpoint(MessageContext messageContext) {
 		// The below code is just for keeping the backward compatibility with the old code.
 		if (targetEndpoint == null) {
 			targetEndpoint =
@@ -497,7 +584,7 @@ public class ForwardingService implements Task, ManagedLifecycle {
 			if (endpoint == null) {
 				log.error("Endpoint does not exists. Deactivating the message processor");
 				deactivateMessageProcessor(messageContext);
-				return;
+				return null;
 			}
 			if (endpoint instanceof TemplateEndpoint) {
 				endpoint = ((TemplateEndpoint) endpoint).getRealEndpoint();
@@ -510,25 +597,7 @@ public class ForwardingService implements Task, ManagedLifecycle {
 				//we only validate response for certain protocols (i.e HTTP/HTTPS)
 				isResponseValidationNotRequired = !isResponseValidationRequiredEndpoint(endpointReferenceValue);
 			}
-			SOAPEnvelope originalEnvelop = messageContext.getEnvelope();
-			try {
-				// Send message to the client
-				while (!isSuccessful && !isTerminated) {
-					tryToDispatchToEndpoint(messageContext, endpoint, originalEnvelop);
-
-					isTerminated = messageProcessor.isDeactivated();
-					if (!isTerminated && (messageProcessor instanceof ScheduledMessageProcessor)) {
-						isTerminated = !((ScheduledMessageProcessor) messageProcessor).isActive();
-					}
-
-					if (!isSuccessful) {
-						prepareToRetry(messageContext, originalEnvelop);
-					}
-				}
-			} catch (Exception e) {
-				log.error("Message processor [" + messageProcessor.getName() +
-						"] failed to send the message to" + " client", e);
-			}
+			return endpoint;
 		} else {
 			/*
 			 * No Target Endpoint defined for the Message So we do not have a
@@ -541,6 +610,7 @@ public class ForwardingService implements Task, ManagedLifecycle {
 					+ "Property " + ForwardingProcessorConstants.TARGET_ENDPOINT
 					+ " is found in the message context, hence deactivating the MessageProcessor");
 			deactivateMessageProcessor(messageContext);
+			return null;
 		}
 	}
 
@@ -596,48 +666,57 @@ public class ForwardingService implements Task, ManagedLifecycle {
 				}
 			}
 
-			/*
-			 * Validation as message is forwarded successfully depends on
-			 * 1. is message forwarding validation is required
-			 * 2. is there a outCtx
-			 * 3. has some error happened inside blocking sender
-			 * 4. HTTP_SC code is in success family or configured to consider as a success
-			 * 5. Some exception has happened during message forwarding
-			 */
+			evaluateResponse(outCtx, endpoint);
+		} catch (Exception e) {
 
-			//For Protocols like JMS etc no need of validating response
-			if (isResponseValidationNotRequired) {
-				isSuccessful = true;
-				onForwardSuccess(endpoint);
-				return;
-			}
+			log.error("[ " + messageProcessor.getName() + " ] Error while forwarding message to endpoint "
+					+ targetEndpoint + ".", e);
+			handleFailedInvocations(outCtx);
+		}
+	}
+
+	/**
+	 * Acknowledges the message if it is forwarded successfully, or handles the failed invocation
+	 *
+	 * @param outCtx   MessageContext containing the response, or null if there is no response
+	 * @param endpoint endpoint the message is forwarded to
+	 */
+	private void evaluateResponse(MessageContext outCtx, Endpoint endpoint) {
+		/*
+		 * Validation as message is forwarded successfully depends on
+		 * 1. is message forwarding validation is required
+		 * 2. is there a outCtx
+		 * 3. has some error happened inside blocking sender
+		 * 4. HTTP_SC code is in success family or configured to consider as a success
+		 * 5. Some exception has happened during message forwarding
+		 */
+
+		//For Protocols like JMS etc no need of validating response
+		if (isResponseValidationNotRequired) {
+			isSuccessful = true;
+			onForwardSuccess(endpoint);
+			return;
+		}
 
-			//there is no response
-			if (outCtx == null) {
+		//there is no response
+		if (outCtx == null) {
+			isSuccessful = true;
+			onForwardSuccess(endpoint);
+		} else {
+			//there is a response (In message context) but failed to send with no exception thrown
+			if ("true".equals(outCtx.getProperty(SynapseConstants.BLOCKING_SENDER_ERROR))) {
+				log.error("Blocking Sender Error " + outCtx.getProperty(SynapseConstants.ERROR_EXCEPTION));
+				isSuccessful = false;
+				handleFailedInvocations(outCtx);
+				return;
+			} else if (validateResponse(outCtx)) {
 				isSuccessful = true;
+				sendThroughReplySeq(outCtx);
 				onForwardSuccess(endpoint);
 			} else {
-				//there is a response (In message context) but failed to send with no exception thrown
-				if ("true".equals(outCtx.getProperty(SynapseConstants.BLOCKING_SENDER_ERROR))) {
-					log.error("Blocking Sender Error " + outCtx.getProperty(SynapseConstants.ERROR_EXCEPTION));
-					isSuccessful = false;
-					handleFailedInvocations(outCtx);
-					return;
-				} else if (validateResponse(outCtx)) {
-					isSuccessful = true;
-					sendThroughReplySeq(outCtx);
-					onForwardSuccess(endpoint);
-				} else {
-					isSuccessful = false;
-					handleFailedInvocations(outCtx);
-				}
+				isSuccessful = false;
+				handleFailedInvocations(outCtx);
 			}
-
-		} catch (Exception e) {
-
-			log.error("[ " + messageProcessor.getName() + " ] Error while forwarding message to endpoint "
-					+ targetEndpoint + ".", e);
-			handleFailedInvocations(outCtx);
 		}
 	}
 
@@ -883,7 +962,7 @@ public class ForwardingService implements Task, ManagedLifecycle {
 		}
 	}
 
-	private void deactivateMessageProcessor(MessageContext messageContext) {
+	void deactivateMessageProcessor(MessageContext messageContext) {
 		if (null != messageContext) {
 			sendThroughDeactivateSeq(messageContext);
 		}
@@ -961,10 +1040,13 @@ public class ForwardingService implements Task, ManagedLifecycle {
 	 * @throws StoreForwardException on an issue initializing the consumer if not done
 	 */
 	private void setMessageConsumer() throws StoreForwardException {
-		final String messageStore = messageProcessor.getMessageStoreName();
-		messageConsumer =
-				synapseEnvironment.getSynapseConfiguration()
-						.getMessageStore(messageStore).getConsumer();
+		// a consumer is already given when forwarding for a parallel forwarding service
+		if (messageConsumer == null) {
+			final String messageStore = messageProcessor.getMessageStoreName();
+			messageConsumer =
+					synapseEnvironment.getSynapseConfiguration()
+							.getMessageStore(messageStore).getConsumer();
+		}
 		
         /*
 		 * If Message Processor is deactivated via Advanced params, then we need
@@ -1067,4 +1149,182 @@ public class ForwardingService implements Task, ManagedLifecycle {
 		}
 	}
 
+	/**
+	 * Forwarding of a message through the non-blocking sender. Each time the message is sent, an
+	 * {@link Attempt} waits for its response or fault, after which the message is sent again on
+	 * the scheduler once the retry interval elapses, until it is forwarded, dropped or moved to the
+	 * fail messages store, or the forwarding is terminated.
+	 */
+	private class NonBlockingDispatch implements Runnable {
+
+		private final MessageContext message;
+
+		private final Endpoint endpoint;
+
+		private final SOAPEnvelope originalEnvelop;
+
+		private final ScheduledExecutorService scheduler;
+
+		private final Runnable completion;
+
+		/** Time after which a send without response nor fault is given up, in milliseconds */
+		private final long expiryTime;
+
+		NonBlockingDispatch(MessageContext message, Endpoint endpoint, ScheduledExecutorService scheduler,
+							Runnable completion) {
+			this.message = message;
+			this.endpoint = endpoint;
+			this.originalEnvelop = message.getEnvelope();
+			this.scheduler = scheduler;
+			this.completion = completion;
+			// the callbacks timed out are expired by the timeout handler, which runs periodically
+			long timeout = SynapseConfigUtils.getGlobalTimeoutInterval();
+			EndpointDefinition definition = ((AbstractEndpoint) endpoint).getDefinition();
+			if (definition != null && definition.getTimeoutDuration() > timeout) {
+				timeout = definition.getTimeoutDuration();
+			}
+			this.expiryTime = timeout + 2 * SynapseConfigUtils.getTimeoutHandlerInterval();
+		}
+
+		/**
+		 * Sends the message, the first time and on each retry
+		 */
+		public void run() {
+			if (isTerminated) {
+				completion.run();
+				return;
+			}
+			isSuccessful = false;
+			Attempt attempt = new Attempt(this);
+			try {
+				// For each retry we need to have a fresh copy of the original message
+				getFreshCopyOfOriginalMessage(message, originalEnvelop);
+				// Clear the message context properties related to endpoint in last service invocation
+				Set keySet = message.getPropertyKeySet();
+				if (keySet != null) {
+					keySet.remove(SynapseConstants.RECEIVING_SEQUENCE);
+					keySet.remove(EndpointDefinition.DYNAMIC_URL_VALUE);
+					keySet.remove(SynapseConstants.LAST_ENDPOINT);
+					keySet.remove(SynapseConstants.BLOCKING_SENDER_ERROR);
+					keySet.remove(SynapseConstants.BLOCKING_MSG_SENDER);
+				}
+				boolean outOnly = "true".equals(message.getProperty(SynapseConstants.OUT_ONLY));
+				if (!outOnly) {
+					message.setProperty(SynapseConstants.ASYNC_RESPONSE_HANDLER, attempt);
+					attempt.expiry = scheduler.schedule(attempt, expiryTime, TimeUnit.MILLISECONDS);
+				}
+				message.pushFaultHandler(attempt);
+				endpoint.send(message);
+				if (outOnly) {
+					// there is no response to wait for
+					attempt.handleResponse(null);
+				}
+			} catch (Exception e) {
+				if (attempt.begin()) {
+					log.error("[ " + messageProcessor.getName() + " ] Error while forwarding message to endpoint "
+							+ targetEndpoint + ".", e);
+					handleFailedInvocations(null);
+					afterAttempt();
+				}
+			}
+		}
+
+		/**
+		 * Completes the forwarding of the message, or schedules the next attempt after a failed one
+		 */
+		private void afterAttempt() {
+			try {
+				if (!isTerminated) {
+					isTerminated = messageProcessor.isDeactivated();
+					if (!isTerminated && (messageProcessor instanceof ScheduledMessageProcessor)) {
+						isTerminated = !((ScheduledMessageProcessor) messageProcessor).isActive();
+					}
+				}
+				if (!isSuccessful && !isTerminated) {
+					checkAndDeactivateProcessor(message, originalEnvelop);
+				}
+				if (!isSuccessful && !isTerminated && !messageProcessor.isDeactivated()) {
+					if (log.isDebugEnabled()) {
+						log.debug("Failed to send to client retrying after " + retryInterval +
+								"ms with attempt count - " + attemptCount);
+					}
+					scheduler.schedule(this, retryInterval, TimeUnit.MILLISECONDS);
+					return;
+				}
+			} catch (AxisFault e) {
+				log.error("Message processor [" + messageProcessor.getName() +
+						"] failed to send the message to" + " client", e);
+			} catch (RejectedExecutionException e) {
+				log.warn("Message processor [" + messageProcessor.getName() +
+						"] is stopped while retrying to send the message to client");
+			}
+			completion.run();
+		}
+	}
+
+	/**
+	 * A send of a message without blocking, which is notified once of the response, of the fault,
+	 * or of the expiry of the send when neither arrives in time, as when the fault handlers are
+	 * discarded on timeouts.
+	 */
+	private class Attempt extends FaultHandler implements AsyncResponseHandler, Runnable {
+
+		private final NonBlockingDispatch dispatch;
+
+		private final AtomicBoolean done = new AtomicBoolean(false);
+
+		private volatile ScheduledFuture<?> expiry;
+
+		Attempt(NonBlockingDispatch dispatch) {
+			this.dispatch = dispatch;
+		}
+
+		public void handleResponse(MessageContext response) {
+			if (begin()) {
+				try {
+					evaluateResponse(response, dispatch.endpoint);
+				} catch (Exception e) {
+					log.error("[ " + messageProcessor.getName() + " ] Error while forwarding message to endpoint "
+							+ targetEndpoint + ".", e);
+					handleFailedInvocations(response);
+				}
+				dispatch.afterAttempt();
+			}
+		}
+
+		@Override
+		public void onFault(MessageContext synCtx) {
+			if (begin()) {
+				handleFailedInvocations(synCtx);
+				dispatch.afterAttempt();
+			}
+		}
+
+		public void run() {
+			if (begin()) {
+				log.warn("Message processor [" + messageProcessor.getName() + "] received neither a response nor "
+						+ "a fault from endpoint " + targetEndpoint + " within " + dispatch.expiryTime + "ms");
+				handleFailedInvocations(dispatch.message);
+				dispatch.afterAttempt();
+			}
+		}
+
+		/**
+		 * @return true only for the first notification of the attempt
+		 */
+		private boolean begin() {
+			if (!done.compareAndSet(false, true)) {
+				return false;
+			}
+			if (expiry != null) {
+				expiry.cancel(false);
+			}
+			Set keySet = dispatch.message.getPropertyKeySet();
+			if (keySet != null) {
+				keySet.remove(SynapseConstants.ASYNC_RESPONSE_HANDLER);
+			}
+			dispatch.message.getFaultStack().remove(this);
+			return true;
+		}
+	}
 }
@@ -0,0 +1,444 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.synapse.message.processor.impl.forwarder;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.ManagedLifecycle;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseException;
+import org.apache.synapse.core.SynapseEnvironment;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.apache.synapse.message.MessageConsumer;
+import org.apache.synapse.message.processor.MessageProcessor;
+import org.apache.synapse.message.processor.MessageProcessorConstants;
+import org.apache.synapse.message.senders.blocking.BlockingMsgSender;
+import org.apache.synapse.message.store.AbstractMessageStore;
+import org.apache.synapse.message.store.BrowsableMessageStore;
+import org.apache.synapse.message.store.MessageStore;
+import org.apache.synapse.task.Task;
+import org.apache.synapse.util.concurrent.SynapseThreadFactory;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * This task forwards the messages of a {@link BrowsableMessageStore} to the target endpoint
+ * through a number of lanes which dispatch concurrently, instead of one message at a time as the
+ * {@link ForwardingService} does.
+ * <p>
+ * Each lane forwards one message at a time with a {@link ForwardingService} of its own, so that the
+ * retries, the reply, fault and deactivate sequences, and dropping or moving messages to the fail
+ * messages store behave the same as when forwarding one message at a time. A message is removed
+ * from the store when its lane acknowledges it, hence messages still being forwarded when the
+ * processor is deactivated are forwarded again when it is activated.
+ * <p>
+ * When forwarding without blocking, a lane sends its message through the non-blocking sender and
+ * is notified of the response, instead of waiting for it on a thread of its own, so that the lanes
+ * bound the number of messages awaiting a response from the endpoint, rather than the threads.
+ * The retries are scheduled on a single thread, which sends the messages again.
+ * <p>
+ * Messages are handed to the idle lanes in the order they are stored. If an ordering key is
+ * configured, the messages with the same value of that message property or transport header are
+ * always forwarded by the same lane, one after the other in the order they are stored. The other
+ * messages may be forwarded in any order.
+ */
+public class ParallelForwardingService implements Task, ManagedLifecycle {
+
+    private static final Log log = LogFactory.getLog(ParallelForwardingService.class);
+
+    /** Number of messages looked ahead in the store for each lane, to find messages of idle lanes */
+    private static final int LOOK_AHEAD = 4;
+
+    private final MessageProcessor messageProcessor;
+
+    private final BlockingMsgSender sender;
+
+    private final SynapseEnvironment synapseEnvironment;
+
+    private final long interval;
+
+    private final int concurrency;
+
+    private final boolean nonBlocking;
+
+    private boolean isDeactivatedAtStartup;
+
+    private String orderingKey;
+
+    private BrowsableMessageStore store;
+
+    private Lane[] lanes;
+
+    /** Lanes done with their message, waiting to be handed another one */
+    private final BlockingQueue<Lane> completedLanes = new LinkedBlockingQueue<Lane>();
+
+    /** Lanes by the ids of the messages they forward, only accessed by the thread executing the task */
+    private final Map<String, Lane> inFlight = new HashMap<String, Lane>();
+
+    private ThreadPoolExecutor executor;
+
+    /** Scheduler of the retries when forwarding without blocking */
+    private ScheduledThreadPoolExecutor scheduler;
+
+    private volatile boolean isTerminated = false;
+
+    private boolean initialized = false;
+
+    public ParallelForwardingService(MessageProcessor messageProcessor, BlockingMsgSender sender,
+                                     SynapseEnvironment synapseEnvironment, long thresholdInterval,
+                                     int concurrency, boolean nonBlocking, boolean isDeactivatedAtStartup) {
+        this.messageProcessor = messageProcessor;
+        this.sender = sender;
+        this.synapseEnvironment = synapseEnvironment;
+        this.interval = thresholdInterval;
+        this.concurrency = concurrency;
+        this.nonBlocking = nonBlocking;
+        this.isDeactivatedAtStartup = isDeactivatedAtStartup;
+    }
+
+    /**
+     * Hands the messages of the store to the idle lanes until the store is drained, or the
+     * message processor is deactivated.
+     */
+    public void execute() {
+        if (isDeactivatedAtStartup) {
+            // wait until the task is paused by the ScheduledMessageProcessor, as the processor is inactive
+            try {
+                TimeUnit.MILLISECONDS.sleep(MessageProcessorConstants.INITIAL_EXECUTION_DELAY);
+            } catch (InterruptedException exception) {
+                log.warn("Initial delay interrupted when parallel forwarding service started as inactive",
+                         exception);
+            }
+            isDeactivatedAtStartup = false;
+        }
+        if (!initialized) {
+            try {
+                init(synapseEnvironment);
+            } catch (SynapseException e) {
+                log.fatal("Deactivating the message processor [" + messageProcessor.getName()
+                          + "] due to initialization issue", e);
+                messageProcessor.deactivate();
+                return;
+            }
+        }
+        isTerminated = messageProcessor.isDeactivated();
+        long pollInterval = Math.max(1, Math.min(interval, MessageProcessorConstants.THRESHOULD_INTERVAL));
+        try {
+            while (!isTerminated && !messageProcessor.isDeactivated()) {
+                releaseCompletedLanes();
+                if (assign() == 0) {
+                    if (inFlight.isEmpty()) {
+                        // this means we have consumed all the messages
+                        break;
+                    }
+                    awaitCompletion(pollInterval);
+                }
+            }
+        } catch (Throwable e) {
+            log.fatal("Deactivating the message processor [" + messageProcessor.getName() + "]", e);
+            messageProcessor.deactivate();
+        } finally {
+            // messages being forwarded are not left behind, or the next execution would forward them again
+            while (!inFlight.isEmpty()) {
+                if (!awaitCompletion(pollInterval)) {
+                    log.warn("Interrupted while waiting for " + inFlight.size() + " messages being forwarded "
+                             + "by message processor [" + messageProcessor.getName() + "]");
+                    break;
+                }
+            }
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Exiting service thread of message processor [" + messageProcessor.getName() + "]");
+        }
+    }
+
+    public void init(SynapseEnvironment se) throws SynapseException {
+        MessageStore messageStore =
+                se.getSynapseConfiguration().getMessageStore(messageProcessor.getMessageStoreName());
+        if (!(messageStore instanceof BrowsableMessageStore)
+            || !((BrowsableMessageStore) messageStore).isBrowsable()) {
+            throw new SynapseException("Message store [" + messageProcessor.getMessageStoreName()
+                                       + "] does not support forwarding messages in parallel");
+        }
+        store = (BrowsableMessageStore) messageStore;
+        orderingKey = (String) messageProcessor.getParameters().get(ForwardingProcessorConstants.ORDERING_KEY);
+
+        lanes = new Lane[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            lanes[i] = new Lane(i, se);
+        }
+        if (nonBlocking) {
+            scheduler = new ScheduledThreadPoolExecutor(1,
+                    new SynapseThreadFactory(new ThreadGroup("MessageProcessorThreadGroup"),
+                                             "MessageForwardingScheduler-" + messageProcessor.getName()));
+            // the expiries of the sends are cancelled on their responses
+            scheduler.setRemoveOnCancelPolicy(true);
+        } else {
+            executor = new ThreadPoolExecutor(concurrency, concurrency, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(),
+                    new SynapseThreadFactory(new ThreadGroup("MessageProcessorThreadGroup"),
+                                             "MessageForwardingWorker-" + messageProcessor.getName()));
+            // idle threads go away, so that a deactivated processor does not hold them
+            executor.allowCoreThreadTimeOut(true);
+        }
+        initialized = true;
+    }
+
+    /**
+     * Hands the next messages of the store to the idle lanes.
+     *
+     * @return the number of messages handed to the lanes
+     */
+    private int assign() {
+        int idle = concurrency - inFlight.size();
+        if (idle == 0) {
+            return 0;
+        }
+        int lookAhead = orderingKey == null ? idle : LOOK_AHEAD * concurrency;
+        List<MessageContext> messages = store.browse(inFlight.size() + lookAhead);
+        int assigned = 0;
+        for (MessageContext message : messages) {
+            if (assigned == idle) {
+                break;
+            }
+            if (inFlight.containsKey(message.getMessageID())) {
+                continue;
+            }
+            // a message of a group is left in the store while the lane of its group is busy
+            Lane lane = selectLane(message);
+            if (lane != null) {
+                inFlight.put(message.getMessageID(), lane);
+                lane.message = message;
+                if (nonBlocking) {
+                    lane.forwardNonBlocking();
+                } else {
+                    executor.execute(lane);
+                }
+                assigned++;
+            }
+        }
+        return assigned;
+    }
+
+    /**
+     * @return the idle lane to forward the message, or null if the lane of its group is busy
+     */
+    private Lane selectLane(MessageContext message) {
+        String group = getGroup(message);
+        if (group != null) {
+            Lane lane = lanes[(group.hashCode() & Integer.MAX_VALUE) % concurrency];
+            return lane.message == null ? lane : null;
+        }
+        for (Lane lane : lanes) {
+            if (lane.message == null) {
+                return lane;
+            }
+        }
+        return null;
+    }
+
+    private String getGroup(MessageContext message) {
+        if (orderingKey == null) {
+            return null;
+        }
+        Object value = message.getProperty(orderingKey);
+        if (value == null && message instanceof Axis2MessageContext) {
+            Object headers = ((Axis2MessageContext) message).getAxis2MessageContext()
+                    .getProperty(org.apache.axis2.context.MessageContext.TRANSPORT_HEADERS);
+            if (headers instanceof Map) {
+                value = ((Map) headers).get(orderingKey);
+            }
+        }
+        return value != null ? value.toString() : null;
+    }
+
+    private void releaseCompletedLanes() {
+        Lane lane;
+        while ((lane = completedLanes.poll()) != null) {
+            release(lane);
+        }
+    }
+
+    /**
+     * Waits for a lane to complete its message, and releases the completed lanes.
+     *
+     * @return false if interrupted while waiting
+     */
+    private boolean awaitCompletion(long timeout) {
+        try {
+            Lane lane = completedLanes.poll(timeout, TimeUnit.MILLISECONDS);
+            if (lane != null) {
+                release(lane);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        releaseCompletedLanes();
+        return true;
+    }
+
+    private void release(Lane lane) {
+        inFlight.remove(lane.message.getMessageID());
+        lane.message = null;
+    }
+
+    /**
+     * Terminates the job of the message processor, and the forwarding of the messages the lanes
+     * are retrying.
+     *
+     * @return <code>true</code> always
+     */
+    public boolean terminate() {
+        isTerminated = true;
+        if (lanes != null) {
+            for (Lane lane : lanes) {
+                lane.service.terminate();
+            }
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Successfully terminated job of message processor [" + messageProcessor.getName() + "]");
+        }
+        return true;
+    }
+
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+    public void destroy() {
+        terminate();
+        if (executor != null) {
+            executor.shutdown();
+        }
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    /**
+     * A lane forwarding one message at a time, handed over by the task.
+     */
+    private class Lane implements Runnable {
+
+        private final ForwardingService service;
+
+        /** The message being forwarded, or null if the lane is idle */
+        private volatile MessageContext message;
+
+        Lane(int id, SynapseEnvironment se) {
+            LaneConsumer consumer = new LaneConsumer(this);
+            consumer.setId(id);
+            service = new ForwardingService(messageProcessor, sender, se, interval, consumer);
+            service.init(se);
+        }
+
+        public void run() {
+            try {
+                service.forward(message);
+            } catch (Throwable e) {
+                // all the possible recoverable exceptions are handled by the forwarding service
+                log.fatal("Deactivating the message processor [" + messageProcessor.getName() + "]", e);
+                service.deactivateMessageProcessor(message);
+            } finally {
+                completedLanes.add(this);
+            }
+        }
+
+        /**
+         * Sends the message of the lane without blocking, the lane being completed once the
+         * message is forwarded, dropped or moved, or the forwarding is terminated.
+         */
+        void forwardNonBlocking() {
+            final AtomicBoolean completed = new AtomicBoolean(false);
+            Runnable completion = new Runnable() {
+                public void run() {
+                    if (completed.compareAndSet(false, true)) {
+                        completedLanes.add(Lane.this);
+                    }
+                }
+            };
+            try {
+                service.forwardNonBlocking(message, scheduler, completion);
+            } catch (Throwable e) {
+                log.fatal("Deactivating the message processor [" + messageProcessor.getName() + "]", e);
+                service.deactivateMessageProcessor(message);
+                completion.run();
+            }
+        }
+    }
+
+    /**
+     * Consumer through which the forwarding service of a lane receives and acknowledges the
+     * message handed to the lane.
+     */
+    private class LaneConsumer implements MessageConsumer {
+
+        private final Lane lane;
+
+        private volatile boolean isAlive = true;
+
+        private String id;
+
+        LaneConsumer(Lane lane) {
+            this.lane = lane;
+        }
+
+        public MessageContext receive() {
+            return lane.message;
+        }
+
+        public boolean ack() {
+            MessageContext message = lane.message;
+            if (message == null || store.remove(message.getMessageID()) == null) {
+                return false;
+            }
+            if (store instanceof AbstractMessageStore) {
+                ((AbstractMessageStore) store).dequeued();
+            }
+            return true;
+        }
+
+        public boolean cleanup() {
+            return true;
+        }
+
+        public boolean isAlive() {
+            return isAlive;
+        }
+
+        public void setAlive(boolean isAlive) {
+            this.isAlive = isAlive;
+        }
+
+        public void setId(int id) {
+            this.id = "[" + store.getName() + "-" + messageProcessor.getName() + "-L-" + id + "]";
+        }
+
+        public String getId() {
+            return id;
+        }
+    }
+}
@@ -18,9 +18,13 @@
  */
 package org.apache.synapse.message.processor.impl.forwarder;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.apache.synapse.SynapseException;
 import org.apache.synapse.core.SynapseEnvironment;
 import org.apache.synapse.message.processor.impl.ScheduledMessageProcessor;
+import org.apache.synapse.message.store.BrowsableMessageStore;
+import org.apache.synapse.message.store.MessageStore;
 import org.apache.synapse.task.Task;
 
 /**
@@ -28,6 +32,8 @@ import org.apache.synapse.task.Task;
  * It will Time to time Redeliver the Messages to a given target.
  */
 public class ScheduledMessageForwardingProcessor extends ScheduledMessageProcessor {
+    private static final Log log = LogFactory.getLog(ScheduledMessageForwardingProcessor.class);
+
     private MessageForwardingProcessorView view;
 
 	@Override
@@ -74,6 +80,37 @@ public class ScheduledMessageForwardingProcessor extends ScheduledMessageProcess
     
 	@Override
 	protected Task getTask() {
+		int concurrency = getConcurrency();
+		boolean nonBlocking = isNonBlocking();
+		if (concurrency > 1 || nonBlocking) {
+			MessageStore store = synapseEnvironment.getSynapseConfiguration().getMessageStore(messageStore);
+			if (store instanceof BrowsableMessageStore && ((BrowsableMessageStore) store).isBrowsable()) {
+				return new ParallelForwardingService(this, sender, synapseEnvironment, interval,
+				                                     Math.max(1, concurrency), nonBlocking,
+				                                     isProcessorStartAsDeactivated());
+			}
+			log.warn("Message store [" + messageStore + "] of message processor [" + getName()
+			         + "] does not support forwarding messages in parallel or without blocking, forwarding "
+			         + "one message at a time");
+		}
 		return new ForwardingService(this, sender, synapseEnvironment, interval, isProcessorStartAsDeactivated());
 	}
+
+	private boolean isNonBlocking() {
+		Object nonBlocking = parameters.get(ForwardingProcessorConstants.NON_BLOCKING);
+		return nonBlocking != null && Boolean.parseBoolean(nonBlocking.toString().trim());
+	}
+
+	private int getConcurrency() {
+		Object concurrency = parameters.get(ForwardingProcessorConstants.CONCURRENCY);
+		if (concurrency == null) {
+			return 1;
+		}
+		try {
+			return Integer.parseInt(concurrency.toString().trim());
+		} catch (NumberFormatException e) {
+			throw new SynapseException("Invalid " + ForwardingProcessorConstants.CONCURRENCY + " : " + concurrency
+			                           + " for message processor [" + getName() + "]");
+		}
+	}
 }
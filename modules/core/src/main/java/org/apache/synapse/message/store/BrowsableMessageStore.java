@@ -0,0 +1,46 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.synapse.message.store;
+
+import org.apache.synapse.MessageContext;
+
+import java.util.List;
+
+/**
+ * A message store whose messages can be looked at beyond the first one, and removed in any order
+ * with {@link #remove(String)}. A message processor can therefore forward several messages of
+ * such a store at once, instead of one at a time through a {@link org.apache.synapse.message.MessageConsumer}.
+ */
+public interface BrowsableMessageStore extends MessageStore {
+
+    /**
+     * Returns the first messages of the store, in the order they are consumed, without removing
+     * them from the store.
+     *
+     * @param count maximum number of messages to return
+     * @return the messages, which is empty if the store is empty
+     */
+    List<MessageContext> browse(int count);
+
+    /**
+     * Returns whether the messages of this store can be browsed, which a store deriving from a
+     * browsable store may not allow, e.g. when it hands out its messages strictly in sequence.
+     *
+     * @return true if {@link #browse(int)} and {@link #remove(String)} can be used
+     */
+    boolean isBrowsable();
+}
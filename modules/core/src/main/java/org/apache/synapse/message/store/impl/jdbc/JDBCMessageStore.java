@@ -28,6 +28,7 @@ import org.apache.synapse.core.axis2.Axis2SynapseEnvironment;
 import org.apache.synapse.message.MessageConsumer;
 import org.apache.synapse.message.MessageProducer;
 import org.apache.synapse.message.store.AbstractMessageStore;
+import org.apache.synapse.message.store.BrowsableMessageStore;
 import org.apache.synapse.message.store.impl.commons.MessageConverter;
 import org.apache.synapse.message.store.impl.commons.StorableMessage;
 import org.apache.synapse.message.store.impl.jdbc.util.JDBCConfiguration;
@@ -53,7 +54,7 @@ import java.util.concurrent.locks.ReentrantLock;
 /**
  * JDBC Store class
  */
-public class JDBCMessageStore extends AbstractMessageStore {
+public class JDBCMessageStore extends AbstractMessageStore implements BrowsableMessageStore {
     /**
      * Message Utility class used to provide utilities to do processing
      */
@@ -174,6 +175,10 @@ public class JDBCMessageStore extends AbstractMessageStore {
         try {
             con = jdbcConfiguration.getConnection();
             ps = con.prepareStatement(statement.getStatement());
+            if (statement.getMaxRows() > 0) {
+                ps.setMaxRows(statement.getMaxRows());
+                ps.setFetchSize(statement.getMaxRows());
+            }
             int index = 1;
             for (Object param : statement.getParameters()) {
                 if (param instanceof String) {
@@ -593,6 +598,40 @@ public class JDBCMessageStore extends AbstractMessageStore {
         }
     }
 
+    @Override
+    public boolean isBrowsable() {
+        return true;
+    }
+
+    /**
+     * Select and return the first messages in current table, in the order they were stored
+     *
+     * @param count - maximum number of messages to return
+     * @return - List containing the message contexts
+     */
+    @Override
+    public List<MessageContext> browse(final int count) {
+        Statement statement = new Statement("SELECT message FROM " + jdbcConfiguration.getTableName()
+                + " ORDER BY indexId ASC") {
+            @Override
+            public List<Map> getResult(ResultSet resultSet) throws SQLException {
+                ArrayList<Map> elements = new ArrayList<>();
+                while (elements.size() < count && resultSet.next()) {
+                    HashMap<String, Object> rowData = new HashMap<>();
+                    rowData.put(MESSAGE_COLUMN_NAME, deserializeMessage(resultSet.getBytes(MESSAGE_COLUMN_NAME)));
+                    elements.add(rowData);
+                }
+                return elements;
+            }
+        };
+        statement.setMaxRows(count);
+        List<MessageContext> messages = new ArrayList<>();
+        for (Map row : getProcessedRows(statement)) {
+            messages.add((MessageContext) row.get(MESSAGE_COLUMN_NAME));
+        }
+        return messages;
+    }
+
     /**
      * Return the first element with given msg_id
      *
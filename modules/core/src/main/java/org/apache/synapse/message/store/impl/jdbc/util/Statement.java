@@ -37,6 +37,11 @@ public abstract class Statement {
      */
     private final List<Object> parameters = new ArrayList<Object>();
 
+    /**
+     * Maximum number of rows the statement should return, no limit if not positive.
+     */
+    private int maxRows = 0;
+
     /**
      * Provides the de-serialized outcome of the query.
      *
@@ -60,4 +65,12 @@ public abstract class Statement {
     public List<Object> getParameters() {
         return parameters;
     }
+
+    public int getMaxRows() {
+        return maxRows;
+    }
+
+    public void setMaxRows(int maxRows) {
+        this.maxRows = maxRows;
+    }
 }
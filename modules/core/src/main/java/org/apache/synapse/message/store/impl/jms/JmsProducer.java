@@ -129,7 +129,11 @@ public class JmsProducer implements MessageProducer {
                               + store.getName() + "]. Error:" + throwable.getLocalizedMessage();
             logger.error(errorMsg, throwable);
             try {
-                store.closeWriteConnection();
+                if (connection != null) {
+                    store.closeWriteConnection(connection);
+                } else {
+                    store.closeWriteConnection();
+                }
             } catch (JMSException e) {
                 logger.error("Error while closing connection  to store " + store.getName(), e);
             }
@@ -161,6 +165,13 @@ public class JmsProducer implements MessageProducer {
         return this;
     }
 
+    /**
+     * @return the JMS connection the session of this producer was created on
+     */
+    public Connection getConnection() {
+        return connection;
+    }
+
     public JmsProducer setSession(Session session) {
         this.session = session;
         return this;
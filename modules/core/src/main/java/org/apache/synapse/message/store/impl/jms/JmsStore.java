@@ -79,6 +79,8 @@ public class JmsStore extends AbstractMessageStore {
     public static final String QUEUE_PREFIX = "queue.";
     /** Guaranteed delivery status*/
     public static final String GUARANTEED_DELIVERY_ENABLE = "store.producer.guaranteed.delivery.enable";
+    /** Number of JMS sessions and producers pooled to store messages concurrently */
+    public static final String PRODUCER_POOL_SIZE = "store.jms.producer.pool.size";
 
     /** JMS connection properties */
     private final Properties connectionProperties = new Properties();
@@ -107,7 +109,7 @@ public class JmsStore extends AbstractMessageStore {
     /** */
     private final Object queueLock = new Object();
     /** JMS Connection used to send messages to the queue */
-    private Connection producerConnection;
+    private volatile Connection producerConnection;
     /** lock protecting the producer connection */
     private final Object producerLock = new Object();
     /** records the last retried time between the broker and ESB */
@@ -118,6 +120,8 @@ public class JmsStore extends AbstractMessageStore {
     private MessageProducer cachedProducer;
 
     private MessageProducer producer = null;
+    /** Pool of producers, if producer pooling is enabled */
+    private PooledJmsProducer producerPool;
 
     private SynapseEnvironment synapseEnvironment;
 
@@ -127,6 +131,9 @@ public class JmsStore extends AbstractMessageStore {
     private Pattern queueLookupPattern = Pattern.compile(SECURE_VAULT_REGEX);
 
     public MessageProducer getProducer() {
+        if (producerPool != null) {
+            return producerPool;
+        }
         if (cacheLevel == 1 && cachedProducer != null) {
             return cachedProducer;
         }
@@ -248,6 +255,9 @@ public class JmsStore extends AbstractMessageStore {
             logger.debug("Destroying " + nameString() + "...");
         }
         try {
+            if (producerPool != null) {
+                producerPool.cleanup();
+            }
             closeWriteConnection();
         } catch (JMSException e) {
             throw new SynapseException("Error while closing JMS connection at " + nameString(), e);
@@ -412,10 +422,76 @@ public class JmsStore extends AbstractMessageStore {
         synchronized (producerLock) {
             if (producerConnection != null) {
                 closeConnection(producerConnection);
+                producerConnection = null;
+            }
+        }
+    }
+
+    /**
+     * Closes the JMS message producer connection if it is still the given one, so that a producer which failed
+     * does not close a connection which has replaced its own, and which other producers may be using.
+     *
+     * @param connection the connection the failed producer was created on
+     * @throws JMSException on a JMS level issue
+     */
+    public void closeWriteConnection(Connection connection) throws JMSException {
+        synchronized (producerLock) {
+            if (producerConnection != null && producerConnection == connection) {
+                closeConnection(producerConnection);
+                producerConnection = null;
             }
         }
     }
 
+    /**
+     * Creates a new producer of the producer pool, with a JMS session of its own on the producer connection.
+     * A new producer connection is created if there is none, or if a session can not be created on it.
+     *
+     * @return the new producer
+     * @throws StoreForwardException on a non JMS related issue
+     * @throws JMSException          on a JMS issue
+     */
+    JmsProducer newPooledProducer() throws StoreForwardException, JMSException {
+        Connection connection;
+        synchronized (producerLock) {
+            if (producerConnection == null) {
+                newWriteConnection();
+            }
+            connection = producerConnection;
+        }
+        Session session;
+        try {
+            session = newSession(connection, Session.AUTO_ACKNOWLEDGE, true);
+        } catch (JMSException e) {
+            synchronized (producerLock) {
+                // replace the connection, unless another producer has already done so
+                if (producerConnection == null || producerConnection == connection) {
+                    newWriteConnection();
+                }
+                connection = producerConnection;
+            }
+            session = newSession(connection, Session.AUTO_ACKNOWLEDGE, true);
+        }
+        try {
+            JmsProducer pooledProducer = new JmsProducer(this);
+            pooledProducer.setId(nextProducerId());
+            pooledProducer.setConnection(connection).setSession(session).setProducer(newProducer(session));
+            return pooledProducer;
+        } catch (JMSException | StoreForwardException e) {
+            session.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns whether messages are stored with producers taken from a pool, so that they can be stored concurrently.
+     *
+     * @return true if producer pooling is enabled, false otherwise.
+     */
+    public boolean isProducerPooled() {
+        return producerPool != null;
+    }
+
     /**
      * Returns the existing JMS message producer connection.
      *
@@ -509,6 +585,21 @@ public class JmsStore extends AbstractMessageStore {
             }
             cacheLevel = 1;
         }
+        String poolSize = (String) parameters.get(PRODUCER_POOL_SIZE);
+        if (poolSize != null) {
+            try {
+                int size = Integer.parseInt(poolSize.trim());
+                if (size > 0) {
+                    producerPool = new PooledJmsProducer(this, size);
+                    producerPool.setId(nextProducerId());
+                } else {
+                    logger.warn(nameString() + ". Producer pool size should be positive. Producer pooling disabled.");
+                }
+            } catch (NumberFormatException e) {
+                logger.warn(nameString() + ". Invalid producer pool size [" + poolSize + "]. "
+                            + "Producer pooling disabled.");
+            }
+        }
         String destination = (String) parameters.get(DESTINATION);
         if (destination != null) {
             this.destination = destination;
@@ -0,0 +1,186 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.message.store.impl.jms;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseException;
+import org.apache.synapse.message.MessageProducer;
+import org.apache.synapse.message.StoreForwardException;
+
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Message producer of a JMS message store, which stores each message with a producer taken from a pool.
+ * Messages stored at the same time are sent over JMS sessions of their own, and the sessions and the JMS producers
+ * are reused from message to message instead of being created for each message.
+ * At most the given number of producers are in use at a time. Callers wait for a producer when all of them are in
+ * use. A pooled producer is discarded when it fails to store a message, or when the connection it was created on has
+ * been replaced since.
+ */
+public class PooledJmsProducer implements MessageProducer {
+
+    private static final Log logger = LogFactory.getLog(PooledJmsProducer.class.getName());
+
+    private final JmsStore store;
+
+    /** Producers which are not in use, the most recently used first */
+    private final ConcurrentLinkedDeque<JmsProducer> idleProducers = new ConcurrentLinkedDeque<>();
+
+    /** Limits the number of producers in use */
+    private final Semaphore permits;
+
+    private final int size;
+
+    /** Number of producers created, including the discarded ones */
+    private final AtomicInteger createdCount = new AtomicInteger();
+
+    private volatile boolean closed = false;
+
+    private String idString;
+
+    public PooledJmsProducer(JmsStore store, int size) {
+        this.store = store;
+        this.size = size;
+        this.permits = new Semaphore(size);
+    }
+
+    public boolean storeMessage(MessageContext synCtx) {
+        if (synCtx == null) {
+            return false;
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn(getId() + " interrupted while waiting for a producer. Ignored MessageID : "
+                        + synCtx.getMessageID());
+            return false;
+        }
+        JmsProducer producer = null;
+        try {
+            producer = borrowProducer();
+            if (producer == null) {
+                logger.warn(getId() + ". Ignored MessageID : " + synCtx.getMessageID());
+                return false;
+            }
+            boolean stored = producer.storeMessage(synCtx);
+            if (stored && !closed) {
+                idleProducers.offerFirst(producer);
+                producer = null;
+            }
+            return stored;
+        } finally {
+            if (producer != null) {
+                discard(producer);
+            }
+            permits.release();
+        }
+    }
+
+    /**
+     * Takes an idle producer created on the current producer connection of the store, or creates a new one.
+     *
+     * @return the producer, or null if a new producer could not be created
+     */
+    private JmsProducer borrowProducer() {
+        Connection connection = store.producerConnection();
+        JmsProducer producer;
+        while ((producer = idleProducers.pollFirst()) != null) {
+            if (connection != null && producer.getConnection() == connection) {
+                return producer;
+            }
+            // the connection of the producer has been replaced after an error
+            discard(producer);
+        }
+        try {
+            producer = store.newPooledProducer();
+            createdCount.incrementAndGet();
+            if (logger.isDebugEnabled()) {
+                logger.debug(getId() + " created pooled message producer " + producer.getId());
+            }
+            return producer;
+        } catch (JMSException | StoreForwardException e) {
+            logger.error(getId() + " could not create a message producer for store " + store.getName(), e);
+            return null;
+        }
+    }
+
+    private void discard(JmsProducer producer) {
+        try {
+            producer.cleanup();
+        } catch (SynapseException e) {
+            // the session is already unusable
+            if (logger.isDebugEnabled()) {
+                logger.debug(getId() + " could not close the session of producer " + producer.getId(), e);
+            }
+        }
+    }
+
+    /**
+     * Closes the sessions of the idle producers. Producers in use are closed once they are done.
+     *
+     * @return {@code true}
+     */
+    public boolean cleanup() {
+        closed = true;
+        JmsProducer producer;
+        while ((producer = idleProducers.pollFirst()) != null) {
+            discard(producer);
+        }
+        return true;
+    }
+
+    /**
+     * @return the maximum number of producers in use at a time
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return the number of producers created so far, including the discarded ones
+     */
+    public int getCreatedCount() {
+        return createdCount.get();
+    }
+
+    /**
+     * @return the number of producers which are not in use
+     */
+    public int getIdleCount() {
+        return idleProducers.size();
+    }
+
+    public void setId(int id) {
+        idString = "[" + store.getName() + "-P-" + id + "]";
+    }
+
+    public String getId() {
+        if (idString == null) {
+            return "[unknown-producer]";
+        }
+        return idString;
+    }
+}
@@ -25,6 +25,7 @@ import org.apache.synapse.core.SynapseEnvironment;
 import org.apache.synapse.message.MessageConsumer;
 import org.apache.synapse.message.MessageProducer;
 import org.apache.synapse.message.store.AbstractMessageStore;
+import org.apache.synapse.message.store.BrowsableMessageStore;
 import org.apache.synapse.message.store.Constants;
 
 import java.util.ArrayList;
@@ -33,7 +34,7 @@ import java.util.NoSuchElementException;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
-public class InMemoryStore extends AbstractMessageStore {
+public class InMemoryStore extends AbstractMessageStore implements BrowsableMessageStore {
     private static final Log logger = LogFactory.getLog(InMemoryStore.class.getName());
 
     private Queue<MessageContext> queue = new ConcurrentLinkedQueue<MessageContext>();
@@ -140,6 +141,23 @@ public class InMemoryStore extends AbstractMessageStore {
         return list;
     }
 
+    public boolean isBrowsable() {
+        return true;
+    }
+
+    public List<MessageContext> browse(int count) {
+        List<MessageContext> list = new ArrayList<MessageContext>(count);
+        synchronized (queueLock) {
+            for (MessageContext m : queue) {
+                if (list.size() == count) {
+                    break;
+                }
+                list.add(m);
+            }
+        }
+        return list;
+    }
+
     public MessageContext get(String messageId) {
         MessageContext message = null;
         synchronized (queueLock) {
@@ -457,4 +457,18 @@ public class ResequenceMessageStore extends JDBCMessageStore {
         }
         return msg;
     }
+
+    /**
+     * Messages are handed out strictly in sequence, hence they can not be browsed ahead of the next one.
+     */
+    @Override
+    public boolean isBrowsable() {
+        return false;
+    }
+
+    @Override
+    public List<MessageContext> browse(int count) {
+        throw new UnsupportedOperationException("Messages of the resequence message store can only be consumed "
+                + "in sequence");
+    }
 }
@@ -319,6 +319,7 @@ public class API extends AbstractRESTProcessor implements ManagedLifecycle, Aspe
 
     void process(MessageContext synCtx) {
 
+        synCtx.getConfiguration().initializeOnFirstUse(this);
         auditDebug("Processing message with ID: " + synCtx.getMessageID() + " through the " +
                     "API: " + name);
         synCtx.setProperty(RESTConstants.PROCESSED_API, this);
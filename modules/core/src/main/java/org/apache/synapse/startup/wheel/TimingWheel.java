@@ -0,0 +1,215 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.synapse.startup.wheel;
+
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel holding the timeouts of the scheduled tasks.
+ * <p>
+ * A wheel is a ring of buckets, each holding the timeouts which expire within one tick. The
+ * timeouts beyond the span of a wheel are held by an overflow wheel, the tick of which is the span
+ * of the wheel, and are moved down to the finer wheel once their bucket of the overflow wheel
+ * expires. Adding and cancelling a timeout take constant time, and advancing the wheels takes time
+ * proportional to the ticks elapsed and the timeouts expiring, regardless of the number of timeouts
+ * pending. Timeouts expire up to one tick early, as the wheels do not track time below a tick.
+ * <p>
+ * The wheels are not thread safe, their owner guards them.
+ */
+class TimingWheel {
+
+    private final long tick;
+
+    private final int size;
+
+    private final long span;
+
+    private final Bucket[] buckets;
+
+    /** Start of the current tick, a multiple of the tick */
+    private long currentTime;
+
+    private TimingWheel overflow;
+
+    /** Number of timeouts held by this wheel and its overflow wheels, only kept by the finest wheel */
+    private int count;
+
+    /**
+     * @param tick      duration of a tick, in milliseconds
+     * @param size      number of buckets of the wheel
+     * @param startTime current time, in milliseconds
+     */
+    TimingWheel(long tick, int size, long startTime) {
+        this.tick = tick;
+        this.size = size;
+        this.span = tick * size;
+        this.buckets = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new Bucket();
+        }
+        this.currentTime = startTime - startTime % tick;
+    }
+
+    /**
+     * @param timeout the timeout to add, which is not held by a wheel
+     * @return false if the timeout has already expired, in which case it is not added
+     */
+    boolean add(Timeout timeout) {
+        if (!place(timeout)) {
+            return false;
+        }
+        count++;
+        return true;
+    }
+
+    private boolean place(Timeout timeout) {
+        long deadline = timeout.getDeadline();
+        if (deadline < currentTime + tick) {
+            return false;
+        }
+        if (deadline < currentTime + span) {
+            buckets[(int) ((deadline / tick) % size)].add(timeout);
+            return true;
+        }
+        if (overflow == null) {
+            overflow = new TimingWheel(span, size, currentTime);
+        }
+        return overflow.place(timeout);
+    }
+
+    /**
+     * @param timeout the timeout to remove, which is held by this wheel or one of its overflow wheels
+     */
+    void remove(Timeout timeout) {
+        if (timeout.bucket != null) {
+            timeout.bucket.remove(timeout);
+            count--;
+        }
+    }
+
+    /**
+     * Advances the wheels up to the given time, moving the timeouts of the expired buckets of the
+     * overflow wheels down to the finer wheels.
+     *
+     * @param time    current time, in milliseconds
+     * @param expired collects the timeouts expired
+     */
+    void advance(long time, List<Timeout> expired) {
+        int first = expired.size();
+        advanceTo(time, expired);
+        // the timeouts of the coarse buckets may not be due yet
+        int last = expired.size();
+        for (int i = first; i < last; i++) {
+            Timeout timeout = expired.get(i);
+            if (place(timeout)) {
+                expired.set(i, null);
+            } else {
+                count--;
+            }
+        }
+        for (int i = last - 1; i >= first; i--) {
+            if (expired.get(i) == null) {
+                expired.remove(i);
+            }
+        }
+    }
+
+    private void advanceTo(long time, List<Timeout> expired) {
+        if (time >= currentTime + tick) {
+            long newTime = time - time % tick;
+            // each bucket is drained at most once, even after a jump beyond the span
+            long ticks = Math.min((newTime - currentTime) / tick, size);
+            for (long i = 1; i <= ticks; i++) {
+                buckets[(int) (((currentTime / tick) + i) % size)].drainTo(expired);
+            }
+            currentTime = newTime;
+        }
+        if (overflow != null) {
+            overflow.advanceTo(currentTime, expired);
+        }
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * A timeout, held by at most one bucket at a time.
+     */
+    abstract static class Timeout {
+
+        private final long deadline;
+
+        private Bucket bucket;
+
+        private Timeout previous;
+
+        private Timeout next;
+
+        protected Timeout(long deadline) {
+            this.deadline = deadline;
+        }
+
+        long getDeadline() {
+            return deadline;
+        }
+
+        boolean isPending() {
+            return bucket != null;
+        }
+    }
+
+    /**
+     * Doubly linked list of the timeouts which expire within a tick.
+     */
+    private static class Bucket {
+
+        private Timeout head;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.previous = null;
+            timeout.next = head;
+            if (head != null) {
+                head.previous = timeout;
+            }
+            head = timeout;
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.previous != null) {
+                timeout.previous.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.previous = timeout.previous;
+            }
+            timeout.bucket = null;
+            timeout.previous = null;
+            timeout.next = null;
+        }
+
+        void drainTo(List<Timeout> timeouts) {
+            while (head != null) {
+                Timeout timeout = head;
+                remove(timeout);
+                timeouts.add(timeout);
+            }
+        }
+    }
+}
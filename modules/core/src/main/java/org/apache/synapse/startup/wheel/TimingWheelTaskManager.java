@@ -0,0 +1,776 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.synapse.startup.wheel;
+
+import org.apache.axiom.om.OMElement;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.ManagedLifecycle;
+import org.apache.synapse.commons.util.PropertyHelper;
+import org.apache.synapse.core.SynapseEnvironment;
+import org.apache.synapse.task.SynapseTaskException;
+import org.apache.synapse.task.Task;
+import org.apache.synapse.task.TaskConstants;
+import org.apache.synapse.task.TaskDescription;
+import org.apache.synapse.task.TaskManager;
+import org.apache.synapse.task.TaskManagerObserver;
+import org.apache.synapse.util.concurrent.SynapseThreadFactory;
+import org.quartz.CronExpression;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In memory task manager for frequent tasks which need not be persisted, such as the tasks of the
+ * message processors. The tasks are scheduled on a {@link TimingWheel} advanced by a single timer
+ * thread, and executed by a pool of workers shared by all the tasks, instead of a trigger and a
+ * job kept by Quartz for each task.
+ * <p>
+ * The tasks of the message processors may block a worker for long, e.g. while a message is
+ * retried, hence the pool grows with the number of scheduled tasks, up to the maximum number of
+ * workers, so that a blocked task does not hold back the others. As a task is not executed again
+ * while it is still executing, it never needs more than one worker. Beyond the maximum, tasks
+ * may wait for a worker while others block, which is reported when it happens.
+ * <p>
+ * The interval, count, start and end times and cron expression of the task descriptions are
+ * honoured within one tick, and a task is not executed again while it is still executing, the
+ * firings in between being skipped. The tasks are not persisted nor shared within a cluster.
+ */
+public class TimingWheelTaskManager implements TaskManager {
+
+    private static final Log logger = LogFactory.getLog(TimingWheelTaskManager.class);
+
+    /** Duration of a tick of the timing wheel, in milliseconds */
+    public static final String TICK = "timingWheel.tick";
+
+    /** Number of buckets of each timing wheel */
+    public static final String WHEEL_SIZE = "timingWheel.size";
+
+    /** Maximum number of threads executing the tasks */
+    public static final String WORKERS = "timingWheel.workers";
+
+    private static final long DEFAULT_TICK = 10;
+
+    private static final int DEFAULT_WHEEL_SIZE = 64;
+
+    private static final int DEFAULT_WORKERS = 32;
+
+    /** Guards the timing wheel and the tasks */
+    private final Object lock = new Object();
+
+    private final Map<String, ScheduledTask> tasks = new HashMap<String, ScheduledTask>();
+
+    private final Map<String, Object> properties = new HashMap<String, Object>(5);
+
+    private final List<TaskManagerObserver> observers = new ArrayList<TaskManagerObserver>();
+
+    protected final Properties configProperties = new Properties();
+
+    private TimingWheel wheel;
+
+    private long tick = DEFAULT_TICK;
+
+    private ThreadPoolExecutor workers;
+
+    private int maxWorkers = DEFAULT_WORKERS;
+
+    private Thread timer;
+
+    private boolean pausedAll = false;
+
+    private volatile boolean initialized = false;
+
+    private String name;
+
+    @Override
+    public boolean schedule(TaskDescription taskDescription) {
+        assertInitialized();
+        if (taskDescription == null) {
+            throw new SynapseTaskException("Task Description cannot be found", logger);
+        }
+        String taskName = taskDescription.getName();
+        if (taskName == null || "".equals(taskName)) {
+            throw new SynapseTaskException("Name of the Task cannot be null", logger);
+        }
+        if (taskDescription.getCount() == 0) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("did not schedule the task : " + taskName + ". count is zero.");
+            }
+            return true;
+        }
+        Task task = createTask(taskDescription);
+        if (task == null) {
+            return false;
+        }
+        synchronized (lock) {
+            if (tasks.containsKey(taskName)) {
+                logger.warn("did not schedule the task : " + taskName + ". the task is already scheduled.");
+                return true;
+            }
+            ScheduledTask scheduledTask = new ScheduledTask(taskDescription, task);
+            tasks.put(taskName, scheduledTask);
+            resizeWorkers();
+            if (!pausedAll) {
+                scheduledTask.arm(scheduledTask.getFirstFireTime());
+            }
+        }
+        logger.info("Scheduled task [" + taskName + "::" + taskDescription.getTaskGroup() + "]");
+        return true;
+    }
+
+    /**
+     * Reschedules the task with the trigger of the given description, keeping the task instance.
+     */
+    @Override
+    public boolean reschedule(String name, TaskDescription taskDescription) {
+        assertInitialized();
+        synchronized (lock) {
+            ScheduledTask scheduledTask = tasks.get(name);
+            if (scheduledTask == null || taskDescription == null) {
+                return false;
+            }
+            scheduledTask.disarm();
+            scheduledTask.setTrigger(taskDescription);
+            if (!scheduledTask.paused && !pausedAll) {
+                scheduledTask.arm(scheduledTask.getFirstFireTime());
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean delete(String nameGroup) {
+        if (nameGroup == null) {
+            return false;
+        }
+        assertInitialized();
+        String taskName = nameGroup.split("::")[0];
+        if (taskName == null || "".equals(taskName)) {
+            throw new SynapseTaskException("Task name is null", logger);
+        }
+        synchronized (lock) {
+            ScheduledTask scheduledTask = removeTask(taskName);
+            if (scheduledTask != null) {
+                scheduledTask.disarm();
+            }
+            logger.debug("Deleted task [" + nameGroup + "] [" + (scheduledTask != null) + "]");
+        }
+        return true;
+    }
+
+    @Override
+    public boolean pause(String name) {
+        synchronized (lock) {
+            ScheduledTask scheduledTask = tasks.get(name);
+            if (scheduledTask == null) {
+                return false;
+            }
+            scheduledTask.paused = true;
+            scheduledTask.disarm();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean pauseAll() {
+        assertInitialized();
+        synchronized (lock) {
+            pausedAll = true;
+            for (ScheduledTask scheduledTask : tasks.values()) {
+                scheduledTask.disarm();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean resume(String name) {
+        synchronized (lock) {
+            ScheduledTask scheduledTask = tasks.get(name);
+            if (scheduledTask == null) {
+                return false;
+            }
+            scheduledTask.paused = false;
+            if (!pausedAll) {
+                scheduledTask.rearm();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean resumeAll() {
+        assertInitialized();
+        synchronized (lock) {
+            pausedAll = false;
+            for (ScheduledTask scheduledTask : tasks.values()) {
+                if (!scheduledTask.paused) {
+                    scheduledTask.rearm();
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public TaskDescription getTask(String name) {
+        synchronized (lock) {
+            ScheduledTask scheduledTask = tasks.get(name);
+            return scheduledTask != null ? scheduledTask.description : null;
+        }
+    }
+
+    @Override
+    public String[] getTaskNames() {
+        synchronized (lock) {
+            return tasks.keySet().toArray(new String[tasks.size()]);
+        }
+    }
+
+    /**
+     * Starts the timer and the workers, as the message processors schedule their tasks without
+     * starting the task manager.
+     */
+    @Override
+    public boolean init(Properties properties) {
+        synchronized (lock) {
+            if (initialized) {
+                return true;
+            }
+            int wheelSize = DEFAULT_WHEEL_SIZE;
+            if (properties != null) {
+                tick = getProperty(properties, TICK, DEFAULT_TICK);
+                wheelSize = (int) getProperty(properties, WHEEL_SIZE, DEFAULT_WHEEL_SIZE);
+                maxWorkers = (int) getProperty(properties, WORKERS, DEFAULT_WORKERS);
+            }
+            wheel = new TimingWheel(tick, wheelSize, currentTimeMillis());
+            String id = name != null ? name : TaskDescription.DEFAULT_GROUP;
+            workers = createWorkers(id);
+            timer = new Thread(new Timer(), "TimingWheelTimer-" + id);
+            timer.setDaemon(true);
+            timer.start();
+            initialized = true;
+            logger.info("initialized");
+        }
+        for (TaskManagerObserver observer : observers) {
+            observer.update();
+        }
+        return true;
+    }
+
+    /**
+     * Creates the pool executing the tasks, which grows with the tasks scheduled, see
+     * {@link #resizeWorkers()}.
+     *
+     * @param id name of the workers
+     * @return the pool of workers
+     */
+    ThreadPoolExecutor createWorkers(String id) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(1, maxWorkers, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new SynapseThreadFactory(new ThreadGroup("TimingWheelTaskManagerThreadGroup"),
+                                         "TaskWorker-" + id));
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * @return the current time, in milliseconds, which the firings of the tasks are scheduled by
+     */
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Advances the timing wheel up to the current time, handing the tasks due to the workers.
+     */
+    void advance() {
+        List<TimingWheel.Timeout> expired = new ArrayList<TimingWheel.Timeout>();
+        synchronized (lock) {
+            if (!initialized) {
+                return;
+            }
+            wheel.advance(currentTimeMillis(), expired);
+            for (TimingWheel.Timeout timeout : expired) {
+                ((Firing) timeout).fire();
+            }
+        }
+    }
+
+    /**
+     * Sizes the pool to a worker per scheduled task, up to the maximum number of workers, as a
+     * task executing blocks a worker. Idle workers time out.
+     */
+    private void resizeWorkers() {
+        if (workers == null) {
+            return;
+        }
+        int size = Math.max(1, Math.min(tasks.size(), maxWorkers));
+        if (size != workers.getCorePoolSize()) {
+            workers.setCorePoolSize(size);
+        }
+    }
+
+    private ScheduledTask removeTask(String taskName) {
+        ScheduledTask scheduledTask = tasks.remove(taskName);
+        if (scheduledTask != null) {
+            resizeWorkers();
+        }
+        return scheduledTask;
+    }
+
+    private static long getProperty(Properties properties, String name, long defaultValue) {
+        String value = properties.getProperty(name);
+        if (value == null || "".equals(value.trim())) {
+            return defaultValue;
+        }
+        try {
+            long longValue = Long.parseLong(value.trim());
+            if (longValue > 0) {
+                return longValue;
+            }
+        } catch (NumberFormatException ignore) {
+            // reported below
+        }
+        throw new SynapseTaskException("Invalid " + name + " : " + value, logger);
+    }
+
+    @Override
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+    @Override
+    public boolean start() {
+        assertInitialized();
+        return true;
+    }
+
+    @Override
+    public boolean stop() {
+        synchronized (lock) {
+            if (!initialized) {
+                return false;
+            }
+            if (logger.isDebugEnabled()) {
+                logger.debug("ShuttingDown Task Scheduler : " + name);
+            }
+            for (ScheduledTask scheduledTask : tasks.values()) {
+                scheduledTask.disarm();
+            }
+            tasks.clear();
+            initialized = false;
+            lock.notifyAll();
+        }
+        timer.interrupt();
+        workers.shutdown();
+        return true;
+    }
+
+    @Override
+    public int getRunningTaskCount() {
+        int runningTasks = 0;
+        synchronized (lock) {
+            for (ScheduledTask scheduledTask : tasks.values()) {
+                if (scheduledTask.executing.get()) {
+                    runningTasks++;
+                }
+            }
+        }
+        return runningTasks;
+    }
+
+    @Override
+    public boolean isTaskRunning(Object taskKey) {
+        return taskKey instanceof String && isTaskBlocked((String) taskKey);
+    }
+
+    @Override
+    public boolean setProperties(Map<String, Object> properties) {
+        synchronized (lock) {
+            this.properties.putAll(properties);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean setProperty(String name, Object property) {
+        synchronized (lock) {
+            properties.put(name, property);
+        }
+        return true;
+    }
+
+    @Override
+    public Object getProperty(String name) {
+        if (name == null) {
+            return null;
+        }
+        synchronized (lock) {
+            return properties.get(name);
+        }
+    }
+
+    @Override
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getProviderClass() {
+        return this.getClass().getName();
+    }
+
+    @Override
+    public Properties getConfigurationProperties() {
+        synchronized (lock) {
+            return configProperties;
+        }
+    }
+
+    @Override
+    public void setConfigurationProperties(Properties properties) {
+        synchronized (lock) {
+            this.configProperties.putAll(properties);
+        }
+    }
+
+    @Override
+    public void addObserver(TaskManagerObserver o) {
+        observers.add(o);
+    }
+
+    @Override
+    public boolean isTaskDeactivated(String taskName) {
+        synchronized (lock) {
+            ScheduledTask scheduledTask = tasks.get(taskName);
+            return scheduledTask != null && (scheduledTask.paused || pausedAll);
+        }
+    }
+
+    /**
+     * @return true if the task is executing
+     */
+    @Override
+    public boolean isTaskBlocked(String taskName) {
+        synchronized (lock) {
+            ScheduledTask scheduledTask = tasks.get(taskName);
+            return scheduledTask != null && scheduledTask.executing.get();
+        }
+    }
+
+    /**
+     * @return true if the task is scheduled and not paused
+     */
+    @Override
+    public boolean isTaskRunning(String taskName) {
+        synchronized (lock) {
+            ScheduledTask scheduledTask = tasks.get(taskName);
+            return scheduledTask != null && !scheduledTask.paused && !pausedAll;
+        }
+    }
+
+    @Override
+    public void sendClusterMessage(Callable<Void> task) {
+
+    }
+
+    @Override
+    public boolean isTaskExist(String taskName) {
+        synchronized (lock) {
+            return tasks.containsKey(taskName);
+        }
+    }
+
+    private Task createTask(TaskDescription taskDescription) {
+        Object clsInstance = taskDescription.getResource(TaskDescription.INSTANCE);
+        if (clsInstance == null) {
+            String className = (String) taskDescription.getProperty(TaskDescription.CLASSNAME);
+            try {
+                clsInstance = Class.forName(className).newInstance();
+                if (clsInstance instanceof ManagedLifecycle) {
+                    Object se = getProperty(TaskConstants.SYNAPSE_ENV);
+                    if (!(se instanceof SynapseEnvironment)) {
+                        return null;
+                    }
+                    ((ManagedLifecycle) clsInstance).init((SynapseEnvironment) se);
+                }
+                for (Object property : taskDescription.getXmlProperties()) {
+                    OMElement prop = (OMElement) property;
+                    logger.debug("Found Property : " + prop.toString());
+                    PropertyHelper.setStaticProperty(prop, clsInstance);
+                }
+            } catch (ClassNotFoundException e) {
+                logger.error("Could not schedule task[" + taskDescription.getName() + "].", e);
+                return null;
+            } catch (InstantiationException e) {
+                logger.error("Could not schedule task[" + taskDescription.getName() + "].", e);
+                return null;
+            } catch (IllegalAccessException e) {
+                logger.error("Could not schedule task[" + taskDescription.getName() + "].", e);
+                return null;
+            }
+        }
+        if (!(clsInstance instanceof Task)) {
+            logger.error("Could not schedule task[" + taskDescription.getName() + "]. "
+                         + clsInstance.getClass().getName() + " is not a task");
+            return null;
+        }
+        return (Task) clsInstance;
+    }
+
+    private void assertInitialized() {
+        if (!initialized) {
+            throw new SynapseTaskException("Scheduler has not been initialled yet", logger);
+        }
+    }
+
+    /**
+     * Advances the timing wheel every tick, handing the tasks due to the workers.
+     */
+    private class Timer implements Runnable {
+
+        public void run() {
+            try {
+                while (true) {
+                    synchronized (lock) {
+                        // an idle timer does not wake up every tick
+                        while (initialized && wheel.isEmpty()) {
+                            lock.wait();
+                        }
+                        if (!initialized) {
+                            return;
+                        }
+                    }
+                    advance();
+                    long now = currentTimeMillis();
+                    Thread.sleep(tick - now % tick);
+                }
+            } catch (InterruptedException e) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Timer of task manager [" + name + "] is stopped");
+                }
+            } catch (Throwable e) {
+                logger.fatal("Timer of task manager [" + name + "] failed, no more tasks are executed", e);
+            }
+        }
+    }
+
+    /**
+     * The next firing of a task.
+     */
+    private static class Firing extends TimingWheel.Timeout {
+
+        private final ScheduledTask task;
+
+        Firing(ScheduledTask task, long deadline) {
+            super(deadline);
+            this.task = task;
+        }
+
+        void fire() {
+            task.fire(this);
+        }
+    }
+
+    /**
+     * A task with its trigger, armed with the timeout of its next firing unless it is paused.
+     */
+    private class ScheduledTask implements Runnable {
+
+        private final Task task;
+
+        private final AtomicBoolean executing = new AtomicBoolean(false);
+
+        private TaskDescription description;
+
+        private long interval;
+
+        private CronExpression cronExpression;
+
+        /** Number of firings left, negative to fire forever */
+        private int remaining;
+
+        private Firing firing;
+
+        /** Deadline of the last firing, which sets the phase of the following firings */
+        private long lastDeadline;
+
+        private boolean paused = false;
+
+        /** Time the task was handed to the workers at */
+        private volatile long queuedSince;
+
+        ScheduledTask(TaskDescription description, Task task) {
+            this.task = task;
+            setTrigger(description);
+        }
+
+        void setTrigger(TaskDescription description) {
+            String cron = description.getCronExpression();
+            CronExpression expression = null;
+            if (cron != null && !"".equals(cron)) {
+                try {
+                    expression = new CronExpression(cron);
+                } catch (ParseException e) {
+                    throw new SynapseTaskException("Invalid cron expression : " + cron + " of task ["
+                                                   + description.getName() + "]", e, logger);
+                }
+            }
+            long repeatInterval = description.getInterval();
+            if (!description.getIntervalInMs()) {
+                repeatInterval = repeatInterval * 1000;
+            }
+            if (expression == null && repeatInterval <= 0 && description.getCount() != 1) {
+                throw new SynapseTaskException("Invalid interval : " + description.getInterval() + " of task ["
+                                               + description.getName() + "]", logger);
+            }
+            this.description = description;
+            this.cronExpression = expression;
+            this.interval = repeatInterval;
+            this.remaining = description.getCount();
+        }
+
+        long getFirstFireTime() {
+            long now = currentTimeMillis();
+            long start = description.getStartTime() != null ? description.getStartTime().getTimeInMillis() : now;
+            if (cronExpression != null) {
+                Date next = cronExpression.getNextValidTimeAfter(new Date(Math.max(start, now) - 1));
+                return next != null ? next.getTime() : -1;
+            }
+            return start;
+        }
+
+        /**
+         * @return the time of the firing following the given one, which is after the current
+         *         time, or -1 if there is none
+         */
+        long getNextFireTime(long previous, long now) {
+            if (cronExpression != null) {
+                Date next = cronExpression.getNextValidTimeAfter(new Date(Math.max(previous, now)));
+                return next != null ? next.getTime() : -1;
+            }
+            if (interval <= 0) {
+                return -1;
+            }
+            long next = previous + interval;
+            if (next <= now) {
+                // the firings missed are skipped, keeping the phase
+                next += ((now - next) / interval + 1) * interval;
+            }
+            return next;
+        }
+
+        void arm(long deadline) {
+            if (deadline < 0 || (description.getEndTime() != null
+                                 && deadline > description.getEndTime().getTimeInMillis())) {
+                removeTask(description.getName());
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Task [" + description.getName() + "] is complete");
+                }
+                return;
+            }
+            firing = new Firing(this, deadline);
+            if (!wheel.add(firing)) {
+                fire(firing);
+                return;
+            }
+            lock.notifyAll();
+        }
+
+        /**
+         * Arms the task with the next firing in the phase of the last one.
+         */
+        void rearm() {
+            if (firing != null && firing.isPending()) {
+                return;
+            }
+            arm(lastDeadline == 0 ? getFirstFireTime()
+                                  : getNextFireTime(lastDeadline, currentTimeMillis()));
+        }
+
+        void disarm() {
+            if (firing != null && firing.isPending()) {
+                wheel.remove(firing);
+            }
+            firing = null;
+        }
+
+        void fire(Firing due) {
+            if (due != firing || paused || pausedAll) {
+                return;
+            }
+            firing = null;
+            lastDeadline = due.getDeadline();
+            if (executing.compareAndSet(false, true)) {
+                queuedSince = currentTimeMillis();
+                try {
+                    workers.execute(this);
+                    if (remaining > 0) {
+                        remaining--;
+                    }
+                } catch (RejectedExecutionException e) {
+                    // the task would never be executed again
+                    executing.set(false);
+                    logger.error("Task [" + description.getName() + "] is rejected by the workers, skipped a firing", e);
+                }
+            } else if (logger.isDebugEnabled()) {
+                logger.debug("Task [" + description.getName() + "] is still executing, skipped a firing");
+            }
+            if (remaining == 0) {
+                removeTask(description.getName());
+                return;
+            }
+            arm(getNextFireTime(lastDeadline, currentTimeMillis()));
+        }
+
+        public void run() {
+            long waited = currentTimeMillis() - queuedSince;
+            if (interval > 0 && waited > interval) {
+                logger.warn("Task [" + description.getName() + "] waited " + waited + " ms for a worker, more than its "
+                            + "interval, as the other tasks hold all the " + maxWorkers + " workers. Increase "
+                            + WORKERS + " of the task manager");
+            }
+            try {
+                Object se = getProperty(TaskConstants.SYNAPSE_ENV);
+                if (!(se instanceof SynapseEnvironment) || ((SynapseEnvironment) se).isInitialized()) {
+                    task.execute();
+                }
+            } catch (Throwable e) {
+                logger.error("Error executing task [" + description.getName() + "]", e);
+            } finally {
+                executing.set(false);
+            }
+        }
+    }
+}
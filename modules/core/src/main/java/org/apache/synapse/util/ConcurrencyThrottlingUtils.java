@@ -24,6 +24,7 @@ import org.apache.synapse.MessageContext;
 import org.apache.synapse.SynapseConstants;
 import org.apache.synapse.commons.throttle.core.ConcurrentAccessController;
 import org.apache.synapse.commons.throttle.core.ConcurrentAccessReplicator;
+import org.apache.synapse.endpoints.AdaptiveConcurrencyLimiter;
 
 /**
  * Utility class with related Synapse concurrency throttling.
@@ -66,4 +67,41 @@ public class ConcurrencyThrottlingUtils {
 
     }
 
+    /**
+     * Release the permit taken from the adaptive concurrency limiter of the endpoint the message was
+     * sent through, once the response is received, the request times out or mediation ends up in a
+     * fault. The round trip time of the request adapts the limit of the endpoint.
+     *
+     * @param synCtx  Synapse Message Context of which mediation occurs.
+     * @param dropped true if the request timed out or failed.
+     */
+    public static void releaseEndpointConcurrencyPermit(MessageContext synCtx, boolean dropped) {
+        AdaptiveConcurrencyLimiter.Permit permit = removeEndpointConcurrencyPermit(synCtx);
+        if (permit != null) {
+            permit.release(dropped);
+        }
+    }
+
+    /**
+     * Release the permit taken from the adaptive concurrency limiter of the endpoint, without adapting
+     * the limit of the endpoint, as for out only messages which do not wait for a response.
+     *
+     * @param synCtx Synapse Message Context of which mediation occurs.
+     */
+    public static void ignoreEndpointConcurrencyPermit(MessageContext synCtx) {
+        AdaptiveConcurrencyLimiter.Permit permit = removeEndpointConcurrencyPermit(synCtx);
+        if (permit != null) {
+            permit.ignore();
+        }
+    }
+
+    private static AdaptiveConcurrencyLimiter.Permit removeEndpointConcurrencyPermit(MessageContext synCtx) {
+        Object permit = synCtx.getProperty(SynapseConstants.SYNAPSE_ENDPOINT_CONCURRENCY_PERMIT);
+        if (permit == null) {
+            return null;
+        }
+        synCtx.getPropertyKeySet().remove(SynapseConstants.SYNAPSE_ENDPOINT_CONCURRENCY_PERMIT);
+        return (AdaptiveConcurrencyLimiter.Permit) permit;
+    }
+
 }
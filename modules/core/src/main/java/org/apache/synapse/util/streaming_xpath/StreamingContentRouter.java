@@ -0,0 +1,257 @@
+/*
+ *  Copyright (c) 2005-2010, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.util.streaming_xpath;
+
+import org.apache.axiom.om.util.StAXUtils;
+import org.apache.axiom.soap.SOAP11Constants;
+import org.apache.axiom.soap.SOAP12Constants;
+import org.apache.axiom.soap.SOAPEnvelope;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseConstants;
+import org.apache.synapse.SynapseException;
+import org.apache.synapse.config.SynapsePropertiesLoader;
+import org.apache.synapse.config.xml.SynapsePath;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.apache.synapse.transport.passthru.PassThroughConstants;
+import org.apache.synapse.transport.passthru.Pipe;
+import org.apache.synapse.transport.passthru.util.RelayUtils;
+import org.apache.synapse.util.streaming_xpath.compiler.SinglePassXPATHCompiler;
+import org.apache.synapse.util.streaming_xpath.compiler.exception.StreamingXPATHCompilerException;
+import org.apache.synapse.util.streaming_xpath.custom.SinglePassStreamingParser;
+import org.apache.synapse.util.streaming_xpath.custom.components.ParserComponent;
+import org.apache.synapse.util.streaming_xpath.exception.StreamingXPATHException;
+import org.apache.synapse.util.xpath.SynapseXPath;
+import org.jaxen.JaxenException;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Evaluates the routing expression of a switch or filter mediator on the stream of a pass-through
+ * message which is not built yet. The bytes read from the pipe are handed back to it, so that the
+ * message is relayed without being built or copied. A condition is read only up to the node which
+ * decides it, while the value of a node set is, as with {@link SynapseXPath#stringValueOf}, the
+ * concatenation of the values of all its nodes, so the whole message is read to evaluate it.
+ * <p/>
+ * If the message is already built, is not XML, or the expression can not be decided within the
+ * configured number of bytes, the message is built and the expression evaluated the usual way.
+ */
+public class StreamingContentRouter {
+
+    private static final Log log = LogFactory.getLog(StreamingContentRouter.class);
+
+    private static final int DEFAULT_MAX_READ_SIZE = 1024 * 1024;
+
+    private final SynapsePath path;
+    private final SinglePassStreamingParser parser;
+    private final int maxReadSize;
+
+    /**
+     * @param path        the routing expression
+     * @param condition   true if the expression is evaluated as a boolean condition
+     * @param maxReadSize maximum number of bytes read from the message stream
+     * @throws StreamingXPATHCompilerException if the expression can not be evaluated in a single pass
+     */
+    public StreamingContentRouter(SynapsePath path, boolean condition, int maxReadSize) {
+        this.path = path;
+        this.maxReadSize = maxReadSize;
+        SinglePassStreamingParser parser = SinglePassXPATHCompiler.compile(path.getExpression());
+        if (condition && !parser.hasBooleanResult()) {
+            parser = SinglePassXPATHCompiler.compile("boolean(" + path.getExpression() + ")");
+        }
+        this.parser = parser;
+    }
+
+    /**
+     * Creates a router for the given expression if content based routing is enabled in the
+     * synapse.properties and the expression can be evaluated in a single pass.
+     *
+     * @param path      the routing expression
+     * @param condition true if the expression is evaluated as a boolean condition
+     * @return the router, or null if the expression is evaluated the usual way
+     */
+    public static StreamingContentRouter create(SynapsePath path, boolean condition) {
+        if (!(path instanceof SynapseXPath) || ((SynapseXPath) path).isForceDisableStreamXpath() ||
+                !SynapsePropertiesLoader.getBooleanProperty(SynapseConstants.STREAMING_CONTENT_ROUTING, false)) {
+            return null;
+        }
+        int maxReadSize = DEFAULT_MAX_READ_SIZE;
+        String value = SynapsePropertiesLoader.getPropertyValue(
+                SynapseConstants.STREAMING_CONTENT_ROUTING_MAX_READ_SIZE, null);
+        if (value != null) {
+            try {
+                maxReadSize = Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value : " + value + " for " +
+                        SynapseConstants.STREAMING_CONTENT_ROUTING_MAX_READ_SIZE + ", using " + maxReadSize);
+            }
+        }
+        try {
+            return new StreamingContentRouter(path, condition, maxReadSize);
+        } catch (StreamingXPATHCompilerException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Expression : " + path.getExpression() + " is not routed on the message stream : " +
+                        e.getMessage());
+            }
+            return null;
+        }
+    }
+
+    /**
+     * @param synCtx the message
+     * @return the string value of the expression
+     */
+    public String stringValueOf(MessageContext synCtx) {
+        String value = evaluate(synCtx);
+        return value != null ? value : path.stringValueOf(synCtx);
+    }
+
+    /**
+     * @param synCtx the message
+     * @return the boolean value of the expression
+     * @throws JaxenException on errors evaluating the expression against the built message
+     */
+    public boolean booleanValueOf(MessageContext synCtx) throws JaxenException {
+        String value = evaluate(synCtx);
+        return value != null ? Boolean.parseBoolean(value) : path.booleanValueOf(synCtx);
+    }
+
+    /**
+     * @return the value of the expression over the message stream, or null once the message has
+     * been built for the expression to be evaluated against it
+     */
+    private String evaluate(MessageContext synCtx) {
+        if (!(synCtx instanceof Axis2MessageContext)) {
+            return null;
+        }
+        SOAPEnvelope envelope = synCtx.getEnvelope();
+        if (envelope != null && envelope.getBody().getFirstElement() != null) {
+            return null;
+        }
+        org.apache.axis2.context.MessageContext axis2MC = ((Axis2MessageContext) synCtx).getAxis2MessageContext();
+        Pipe pipe = (Pipe) axis2MC.getProperty(PassThroughConstants.PASS_THROUGH_PIPE);
+        Map<String, String> namespaces = ParserComponent.getPrefixNameSpaceMap();
+        if (pipe != null && !Boolean.TRUE.equals(axis2MC.getProperty(PassThroughConstants.MESSAGE_BUILDER_INVOKED))
+                && axis2MC.getProperty(PassThroughConstants.BUFFERED_INPUT_STREAM) == null
+                && isXmlContentType((String) axis2MC.getProperty(SynapseConstants.AXIS2_PROPERTY_CONTENT_TYPE))
+                && parser.isResolvable(namespaces)) {
+            String value = evaluate(pipe, namespaces);
+            if (value != null) {
+                return value;
+            }
+        }
+        try {
+            RelayUtils.buildMessage(axis2MC, false);
+        } catch (Exception e) {
+            throw new SynapseException("Error while building message. " + e.getMessage(), e);
+        }
+        return null;
+    }
+
+    private String evaluate(Pipe pipe, Map<String, String> namespaces) {
+        PeekInputStream in = new PeekInputStream(pipe.getInputStream(), maxReadSize);
+        try {
+            XMLStreamReader reader = StAXUtils.createXMLStreamReader(in);
+            try {
+                return parser.process(reader, namespaces, true);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Expression : " + path.getExpression() + " could not be evaluated on the message " +
+                        "stream, building the message : " + e.getMessage());
+            }
+        } catch (StreamingXPATHException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Expression : " + path.getExpression() + " could not be evaluated on the message " +
+                        "stream, building the message : " + e.getMessage());
+            }
+        } finally {
+            pipe.unread(in.bytes, 0, in.count);
+        }
+        return null;
+    }
+
+    private static boolean isXmlContentType(String contentType) {
+        return contentType != null &&
+                (contentType.contains(SOAP11Constants.SOAP_11_CONTENT_TYPE) ||
+                        contentType.contains(SOAP12Constants.SOAP_12_CONTENT_TYPE) ||
+                        contentType.contains(SynapseConstants.XML_CONTENT_TYPE));
+    }
+
+    /**
+     * Keeps the bytes read from the pipe so that they can be handed back, up to a limit.
+     */
+    private static final class PeekInputStream extends FilterInputStream {
+
+        private final int limit;
+        private byte[] bytes = new byte[4096];
+        private int count;
+
+        PeekInputStream(InputStream in, int limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (count >= limit) {
+                throw new IOException("More than " + limit + " bytes read from the message stream");
+            }
+            int n = super.read(b, off, Math.min(len, limit - count));
+            if (n > 0) {
+                if (count + n > bytes.length) {
+                    bytes = Arrays.copyOf(bytes, Math.min(Math.max(bytes.length * 2, count + n), limit));
+                }
+                System.arraycopy(b, off, bytes, count, n);
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            byte[] b = new byte[(int) Math.min(n, 4096)];
+            return Math.max(read(b, 0, b.length), 0);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+            // the rest of the stream stays in the pipe
+        }
+    }
+}
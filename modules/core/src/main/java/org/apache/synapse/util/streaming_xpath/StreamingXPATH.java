@@ -19,16 +19,28 @@ package org.apache.synapse.util.streaming_xpath;
 
 import org.antlr.runtime.RecognitionException;
 import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.util.StAXUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.util.streaming_xpath.compiler.SinglePassXPATHCompiler;
 import org.apache.synapse.util.streaming_xpath.compiler.StreamingXPATHCompiler;
+import org.apache.synapse.util.streaming_xpath.compiler.exception.StreamingXPATHCompilerException;
+import org.apache.synapse.util.streaming_xpath.custom.SinglePassStreamingParser;
 import org.apache.synapse.util.streaming_xpath.custom.StreamingParser;
+import org.apache.synapse.util.streaming_xpath.custom.components.ParserComponent;
 import org.apache.synapse.util.streaming_xpath.exception.StreamingXPATHException;
 
 import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.InputStream;
 
 public class StreamingXPATH {
+    private static final Log log = LogFactory.getLog(StreamingXPATH.class);
+
     private String xPath;
     private StreamingParser streamingParser;
+    /** Set when the expression can be evaluated in a single forward pass without an object model */
+    private SinglePassStreamingParser singlePassParser;
 
     /**
      * This constructor is responsible For Create a Custom XPATH Parser Object
@@ -38,6 +50,15 @@ public class StreamingXPATH {
      */
     public StreamingXPATH(String xPath) throws StreamingXPATHException {
         setxPath(xPath);
+        try {
+            singlePassParser = SinglePassXPATHCompiler.compile(xPath);
+            return;
+        } catch (StreamingXPATHCompilerException e) {
+            // not in the single pass subset, try the component chain
+            if (log.isDebugEnabled()) {
+                log.debug(e.getMessage());
+            }
+        }
         try {
             setStreamingParser(StreamingXPATHCompiler.parse(getxPath()));
             if (streamingParser.getFirstComp() == null) {
@@ -58,6 +79,9 @@ public class StreamingXPATH {
      * @throws org.apache.synapse.util.streaming_xpath.exception.StreamingXPATHException
      */
     public String getStringValue(InputStream inputStream) throws XMLStreamException, StreamingXPATHException {
+        if (singlePassParser != null) {
+            return process(StAXUtils.createXMLStreamReader(inputStream), false);
+        }
         if (streamingParser != null) {
 
             return getStreamingParser().process(inputStream);
@@ -75,12 +99,68 @@ public class StreamingXPATH {
      * @throws org.apache.synapse.util.streaming_xpath.exception.StreamingXPATHException
      */
     public String getStringValue(OMElement documentElement) throws XMLStreamException, StreamingXPATHException {
+        if (singlePassParser != null) {
+            return process(documentElement.getXMLStreamReader(), false);
+        }
         if (streamingParser != null) {
             return getStreamingParser().process(documentElement);
         }
         return null;
     }
 
+    /**
+     * This will return the XPATH expression's result for the raw message content. A payload which
+     * is not a SOAP envelope is evaluated as the content of a SOAP body, the way the message is seen
+     * once it is built.
+     *
+     * @param inputStream the message content
+     * @return Result of the XPATH expression
+     * @throws javax.xml.stream.XMLStreamException
+     *
+     * @throws org.apache.synapse.util.streaming_xpath.exception.StreamingXPATHException
+     */
+    public String getMessageStringValue(InputStream inputStream) throws XMLStreamException, StreamingXPATHException {
+        if (singlePassParser != null) {
+            return process(StAXUtils.createXMLStreamReader(inputStream), true);
+        }
+        return getStringValue(inputStream);
+    }
+
+    private String process(XMLStreamReader reader, boolean wrapInEnvelope)
+            throws XMLStreamException, StreamingXPATHException {
+        try {
+            return singlePassParser.process(reader, ParserComponent.getPrefixNameSpaceMap(), wrapInEnvelope);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * @return true if the expression is evaluated in a single forward pass over the stream, false if
+     * a partial object model is built by the component chain
+     */
+    public boolean isSinglePass() {
+        return singlePassParser != null;
+    }
+
+    /**
+     * The component chain returns the matched element serialized as XML, whose text is the value
+     * of the expression. The single pass evaluator returns the value itself.
+     *
+     * @return true if the result of the evaluation is a serialized element
+     */
+    public boolean hasSerializedResult() {
+        return singlePassParser == null;
+    }
+
+    /**
+     * @return false if a namespace prefix used by the expression is not declared yet, in which case
+     * the expression has to be evaluated against the built message
+     */
+    public boolean canEvaluate() {
+        return singlePassParser == null || singlePassParser.isResolvable(ParserComponent.getPrefixNameSpaceMap());
+    }
+
     public String getxPath() {
         return xPath;
     }
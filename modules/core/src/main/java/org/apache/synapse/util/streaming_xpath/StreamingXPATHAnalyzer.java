@@ -0,0 +1,126 @@
+/*
+ *  Copyright (c) 2005-2010, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.util.streaming_xpath;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.config.xml.SynapsePath;
+import org.apache.synapse.util.xpath.SynapseXPath;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps track of how the content aware XPath expressions of the deployed configuration are
+ * evaluated when streaming XPath is enabled, so that expressions which force the message to be
+ * built can be reported at deployment time.
+ * <p>
+ * Expressions are recorded by the configuration factories, not for the expressions compiled while
+ * messages are mediated. The recorded expressions are reported, and discarded, once the
+ * configuration is initialized and after each hot deployment, and at most
+ * {@link #MAX_EXPRESSIONS} are kept in between.
+ */
+public final class StreamingXPATHAnalyzer {
+
+    private static final Log log = LogFactory.getLog(StreamingXPATHAnalyzer.class);
+
+    public enum Evaluation {
+        /** Evaluated in a single forward pass over the message stream */
+        SINGLE_PASS,
+        /** Evaluated over a partially built object model of the message stream */
+        PARTIAL_BUILD,
+        /** Requires the message to be built */
+        BUILD
+    }
+
+    /** Maximum number of expressions kept until the next report */
+    static final int MAX_EXPRESSIONS = 1000;
+
+    private static final Map<String, Evaluation> expressions = new ConcurrentHashMap<String, Evaluation>();
+
+    private StreamingXPATHAnalyzer() {
+    }
+
+    /**
+     * Records how an expression is evaluated.
+     *
+     * @param expression the XPath expression
+     * @param evaluation how the expression is evaluated
+     */
+    public static void record(String expression, Evaluation evaluation) {
+        if (expressions.size() < MAX_EXPRESSIONS || expressions.containsKey(expression)) {
+            expressions.put(expression, evaluation);
+        }
+    }
+
+    /**
+     * Records how a path of the configuration is evaluated, if it is a content aware XPath
+     * expression and streaming XPath is enabled.
+     *
+     * @param path the path built from the configuration
+     */
+    public static void record(SynapsePath path) {
+        if (path instanceof SynapseXPath) {
+            Evaluation evaluation = ((SynapseXPath) path).getStreamingEvaluation();
+            if (evaluation != null) {
+                record(path.getExpression(), evaluation);
+            }
+        }
+    }
+
+    /**
+     * @param evaluation the kind of evaluation
+     * @return the recorded expressions evaluated the given way
+     */
+    public static Set<String> getExpressions(Evaluation evaluation) {
+        Set<String> result = new TreeSet<String>();
+        for (Map.Entry<String, Evaluation> entry : expressions.entrySet()) {
+            if (entry.getValue() == evaluation) {
+                result.add(entry.getKey());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Logs a summary of the expressions recorded since the last report, listing the expressions
+     * which force the message to be built.
+     *
+     * @param source the configuration or artifact the expressions were recorded from
+     */
+    public static void report(String source) {
+        if (expressions.isEmpty()) {
+            return;
+        }
+        Set<String> building = getExpressions(Evaluation.BUILD);
+        log.info("Streaming XPath of " + source + " : " + getExpressions(Evaluation.SINGLE_PASS).size() +
+                " expression(s) are evaluated in a single pass over the message stream, " +
+                getExpressions(Evaluation.PARTIAL_BUILD).size() + " over a partially built message and " +
+                building.size() + " require the message to be built" + (building.isEmpty() ? "" : " : " + building));
+        expressions.clear();
+    }
+
+    /**
+     * Discards the recorded expressions.
+     */
+    public static void clear() {
+        expressions.clear();
+    }
+}
@@ -0,0 +1,428 @@
+/*
+ *  Copyright (c) 2005-2010, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.util.streaming_xpath.compiler;
+
+import org.apache.synapse.util.streaming_xpath.compiler.exception.StreamingXPATHCompilerException;
+import org.apache.synapse.util.streaming_xpath.custom.SinglePassStreamingParser;
+import org.apache.synapse.util.streaming_xpath.custom.SinglePassStreamingParser.Comparison;
+import org.apache.synapse.util.streaming_xpath.custom.SinglePassStreamingParser.Function;
+import org.apache.synapse.util.streaming_xpath.custom.SinglePassStreamingParser.NameTest;
+import org.apache.synapse.util.streaming_xpath.custom.SinglePassStreamingParser.Operator;
+import org.apache.synapse.util.streaming_xpath.custom.SinglePassStreamingParser.PathStep;
+import org.apache.synapse.util.streaming_xpath.custom.SinglePassStreamingParser.Selector;
+import org.apache.synapse.util.streaming_xpath.custom.SinglePassStreamingParser.StepPredicate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiles the subset of XPath 1.0 evaluated by {@link SinglePassStreamingParser}. Expressions
+ * outside the subset are rejected with a {@link StreamingXPATHCompilerException}, the caller then
+ * falls back to the component chain built by {@link StreamingXPATHCompiler} or to building the
+ * message. Relative paths are resolved against the document element, as the SOAP envelope is the
+ * context node of message level expressions, and <code>$body</code> selects the SOAP body.
+ */
+public class SinglePassXPATHCompiler {
+
+    private static final int SLASH = 0;
+    private static final int DOUBLE_SLASH = 1;
+    private static final int LEFT_BRACKET = 2;
+    private static final int RIGHT_BRACKET = 3;
+    private static final int LEFT_PARENTHESIS = 4;
+    private static final int RIGHT_PARENTHESIS = 5;
+    private static final int AT = 6;
+    private static final int STAR = 7;
+    private static final int DOT = 8;
+    private static final int OPERATOR = 9;
+    private static final int NAME = 10;
+    private static final int VARIABLE = 11;
+    private static final int LITERAL = 12;
+    private static final int NUMBER = 13;
+    private static final int END = 14;
+
+    private final String source;
+    private final List<Token> tokens = new ArrayList<Token>();
+    private int index;
+
+    private Selector selector = Selector.ELEMENT;
+    private NameTest attributeTest;
+
+    private SinglePassXPATHCompiler(String source) {
+        this.source = source;
+    }
+
+    /**
+     * Compiles the given expression for single pass evaluation.
+     *
+     * @param source the XPath expression
+     * @return the compiled expression
+     * @throws StreamingXPATHCompilerException if the expression is outside the supported subset
+     */
+    public static SinglePassStreamingParser compile(String source) {
+        SinglePassXPATHCompiler compiler = new SinglePassXPATHCompiler(source);
+        compiler.tokenize();
+        return compiler.expression();
+    }
+
+    private SinglePassStreamingParser expression() {
+        Function function = Function.NONE;
+        Comparison comparison = null;
+        List<PathStep> steps;
+
+        if (peek().type == LITERAL || peek().type == NUMBER) {
+            Token literal = next();
+            Operator operator = operator();
+            function = functionCall();
+            steps = function == Function.NONE ? path() : functionArgument();
+            comparison = new Comparison(operator, literal.text, literal.type == NUMBER).reverse();
+        } else {
+            function = functionCall();
+            steps = function == Function.NONE ? path() : functionArgument();
+            if (peek().type == OPERATOR) {
+                Operator operator = operator();
+                Token literal = next();
+                if (literal.type != LITERAL && literal.type != NUMBER) {
+                    throw unsupported();
+                }
+                comparison = new Comparison(operator, literal.text, literal.type == NUMBER);
+            }
+        }
+        if (comparison != null && function == Function.COUNT && !comparison.isNumeric()) {
+            throw unsupported();
+        }
+        expect(END);
+        return new SinglePassStreamingParser(steps, selector, attributeTest, function, comparison);
+    }
+
+    private Function functionCall() {
+        Token token = peek();
+        if (token.type != NAME || peek(1).type != LEFT_PARENTHESIS) {
+            return Function.NONE;
+        }
+        if ("count".equals(token.text)) {
+            next();
+            return Function.COUNT;
+        } else if ("boolean".equals(token.text)) {
+            next();
+            return Function.BOOLEAN;
+        } else if ("not".equals(token.text)) {
+            next();
+            return Function.NOT;
+        }
+        throw unsupported();
+    }
+
+    private List<PathStep> functionArgument() {
+        expect(LEFT_PARENTHESIS);
+        List<PathStep> steps = path();
+        expect(RIGHT_PARENTHESIS);
+        return steps;
+    }
+
+    private List<PathStep> path() {
+        List<PathStep> steps = new ArrayList<PathStep>();
+        Token token = peek();
+        if (token.type == VARIABLE) {
+            if (!"body".equals(token.text)) {
+                throw unsupported();
+            }
+            next();
+            steps.add(new PathStep(NameTest.anyNamespace("Envelope"), false, null));
+            steps.add(new PathStep(NameTest.anyNamespace("Body"), false, null));
+            if (peek().type != SLASH && peek().type != DOUBLE_SLASH) {
+                return steps;
+            }
+        } else if (token.type == SLASH) {
+            next();
+            step(steps, false);
+        } else if (token.type == DOUBLE_SLASH) {
+            next();
+            step(steps, true);
+        } else {
+            // the context node of a relative path is the document element
+            steps.add(new PathStep(NameTest.anyNamespace(null), false, null));
+            step(steps, false);
+        }
+        while (peek().type == SLASH || peek().type == DOUBLE_SLASH) {
+            if (selector != Selector.ELEMENT) {
+                throw unsupported();
+            }
+            step(steps, next().type == DOUBLE_SLASH);
+        }
+        return steps;
+    }
+
+    private void step(List<PathStep> steps, boolean descendant) {
+        Token token = peek();
+        if (token.type == AT || isNodeTypeTest(token, "text")) {
+            if (token.type == AT) {
+                next();
+                attributeTest = nameTest();
+                selector = Selector.ATTRIBUTE;
+            } else {
+                next();
+                next();
+                expect(RIGHT_PARENTHESIS);
+                selector = Selector.TEXT;
+            }
+            if (descendant) {
+                steps.add(new PathStep(NameTest.anyNamespace(null), true, null));
+            } else if (steps.isEmpty()) {
+                throw unsupported();
+            }
+            if (peek().type == LEFT_BRACKET) {
+                throw unsupported();
+            }
+            return;
+        }
+        if (token.type != NAME && token.type != STAR) {
+            throw unsupported();
+        }
+        if (token.type == NAME && peek(1).type == LEFT_PARENTHESIS) {
+            throw unsupported();
+        }
+        NameTest test = nameTest();
+        List<StepPredicate> predicates = new ArrayList<StepPredicate>();
+        while (peek().type == LEFT_BRACKET) {
+            next();
+            predicates.add(predicate());
+            expect(RIGHT_BRACKET);
+        }
+        steps.add(new PathStep(test, descendant, predicates));
+    }
+
+    private StepPredicate predicate() {
+        Token token = peek();
+        if (token.type == NUMBER) {
+            next();
+            return new StepPredicate(StepPredicate.Kind.POSITION, null, position(Operator.EQ, token.text));
+        }
+        if (isNodeTypeTest(token, "position")) {
+            next();
+            next();
+            expect(RIGHT_PARENTHESIS);
+            Operator operator = operator();
+            Token number = expect(NUMBER);
+            return new StepPredicate(StepPredicate.Kind.POSITION, null, position(operator, number.text));
+        }
+        StepPredicate.Kind kind;
+        NameTest name = null;
+        if (token.type == AT) {
+            next();
+            kind = StepPredicate.Kind.ATTRIBUTE;
+            name = nameTest();
+        } else if (isNodeTypeTest(token, "text")) {
+            next();
+            next();
+            expect(RIGHT_PARENTHESIS);
+            kind = StepPredicate.Kind.TEXT;
+        } else if (token.type == DOT) {
+            next();
+            kind = StepPredicate.Kind.SELF;
+        } else if (token.type == NAME && peek(1).type != LEFT_PARENTHESIS) {
+            kind = StepPredicate.Kind.CHILD;
+            name = nameTest();
+        } else {
+            throw unsupported();
+        }
+        Comparison comparison = null;
+        if (peek().type == OPERATOR) {
+            Operator operator = operator();
+            Token literal = next();
+            if (literal.type != LITERAL && literal.type != NUMBER) {
+                throw unsupported();
+            }
+            comparison = new Comparison(operator, literal.text, literal.type == NUMBER);
+        }
+        return new StepPredicate(kind, name, comparison);
+    }
+
+    private Comparison position(Operator operator, String number) {
+        if (number.indexOf('.') >= 0) {
+            throw unsupported();
+        }
+        return new Comparison(operator, number, true);
+    }
+
+    private NameTest nameTest() {
+        Token token = next();
+        if (token.type == STAR) {
+            return NameTest.anyNamespace(null);
+        }
+        if (token.type != NAME) {
+            throw unsupported();
+        }
+        int colon = token.text.indexOf(':');
+        if (colon < 0) {
+            return new NameTest(null, token.text);
+        }
+        String localName = token.text.substring(colon + 1);
+        return new NameTest(token.text.substring(0, colon), "*".equals(localName) ? null : localName);
+    }
+
+    private Operator operator() {
+        Token token = expect(OPERATOR);
+        return Operator.forSymbol(token.text);
+    }
+
+    private boolean isNodeTypeTest(Token token, String name) {
+        return token.type == NAME && name.equals(token.text) && peek(1).type == LEFT_PARENTHESIS;
+    }
+
+    private Token peek() {
+        return tokens.get(index);
+    }
+
+    private Token peek(int ahead) {
+        return tokens.get(Math.min(index + ahead, tokens.size() - 1));
+    }
+
+    private Token next() {
+        Token token = tokens.get(index);
+        if (token.type != END) {
+            index++;
+        }
+        return token;
+    }
+
+    private Token expect(int type) {
+        Token token = next();
+        if (token.type != type) {
+            throw unsupported();
+        }
+        return token;
+    }
+
+    private StreamingXPATHCompilerException unsupported() {
+        return new StreamingXPATHCompilerException("XPath expression " + source +
+                " is not supported by the single pass streaming evaluator");
+    }
+
+    private void tokenize() {
+        int i = 0;
+        int length = source.length();
+        while (i < length) {
+            char c = source.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '/') {
+                if (i + 1 < length && source.charAt(i + 1) == '/') {
+                    tokens.add(new Token(DOUBLE_SLASH, "//"));
+                    i += 2;
+                } else {
+                    tokens.add(new Token(SLASH, "/"));
+                    i++;
+                }
+            } else if (c == '[' || c == ']' || c == '(' || c == ')' || c == '@' || c == '*') {
+                int type = c == '[' ? LEFT_BRACKET : c == ']' ? RIGHT_BRACKET : c == '(' ? LEFT_PARENTHESIS :
+                        c == ')' ? RIGHT_PARENTHESIS : c == '@' ? AT : STAR;
+                tokens.add(new Token(type, String.valueOf(c)));
+                i++;
+            } else if (c == '=' || c == '<' || c == '>' || c == '!') {
+                int end = i + 1 < length && source.charAt(i + 1) == '=' ? i + 2 : i + 1;
+                String symbol = source.substring(i, end);
+                if (Operator.forSymbol(symbol) == null) {
+                    throw unsupported();
+                }
+                tokens.add(new Token(OPERATOR, symbol));
+                i = end;
+            } else if (c == '\'' || c == '"') {
+                int end = source.indexOf(c, i + 1);
+                if (end < 0) {
+                    throw unsupported();
+                }
+                tokens.add(new Token(LITERAL, source.substring(i + 1, end)));
+                i = end + 1;
+            } else if (Character.isDigit(c) ||
+                    (c == '.' && i + 1 < length && Character.isDigit(source.charAt(i + 1)))) {
+                int end = i;
+                while (end < length && (Character.isDigit(source.charAt(end)) || source.charAt(end) == '.')) {
+                    end++;
+                }
+                tokens.add(new Token(NUMBER, source.substring(i, end)));
+                i = end;
+            } else if (c == '.') {
+                if (i + 1 < length && source.charAt(i + 1) == '.') {
+                    // the parent axis can not be evaluated in a forward pass
+                    throw unsupported();
+                }
+                tokens.add(new Token(DOT, "."));
+                i++;
+            } else if (c == '$') {
+                int end = nameEnd(i + 1, false);
+                tokens.add(new Token(VARIABLE, source.substring(i + 1, end)));
+                i = end;
+            } else if (isNameStart(c)) {
+                int end = nameEnd(i, true);
+                tokens.add(new Token(NAME, source.substring(i, end)));
+                i = end;
+            } else {
+                throw unsupported();
+            }
+        }
+        tokens.add(new Token(END, ""));
+    }
+
+    private int nameEnd(int start, boolean qualified) {
+        int end = start;
+        int length = source.length();
+        while (end < length && isNamePart(source.charAt(end))) {
+            end++;
+        }
+        if (end == start) {
+            throw unsupported();
+        }
+        if (end < length && source.charAt(end) == ':') {
+            if (!qualified || (end + 1 < length && source.charAt(end + 1) == ':')) {
+                // axis specifiers and prefixed variables are not supported
+                throw unsupported();
+            }
+            if (end + 1 < length && source.charAt(end + 1) == '*') {
+                return end + 2;
+            }
+            int localEnd = end + 1;
+            while (localEnd < length && isNamePart(source.charAt(localEnd))) {
+                localEnd++;
+            }
+            if (localEnd == end + 1) {
+                throw unsupported();
+            }
+            return localEnd;
+        }
+        return end;
+    }
+
+    private static boolean isNameStart(char c) {
+        return Character.isLetter(c) || c == '_';
+    }
+
+    private static boolean isNamePart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '.';
+    }
+
+    private static final class Token {
+
+        private final int type;
+        private final String text;
+
+        Token(int type, String text) {
+            this.type = type;
+            this.text = text;
+        }
+    }
+}
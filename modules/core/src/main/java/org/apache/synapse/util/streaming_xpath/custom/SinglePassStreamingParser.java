@@ -0,0 +1,939 @@
+/*
+ *  Copyright (c) 2005-2010, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.synapse.util.streaming_xpath.custom;
+
+import org.apache.axiom.soap.SOAP11Constants;
+import org.apache.axiom.soap.SOAP12Constants;
+import org.apache.synapse.util.streaming_xpath.compiler.exception.StreamingXPATHCompilerException;
+import org.apache.synapse.util.streaming_xpath.exception.StreamingXPATHException;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates an XPath expression in a single forward pass over a StAX event stream without building
+ * an object model. Location paths made of child and descendant steps over (namespaced) element
+ * names are supported, optionally ending with an attribute or a <code>text()</code> step.
+ * Steps may carry position and attribute predicates, and the last step may also carry predicates
+ * on its text, its string value or the value of a child element. A path may be wrapped in
+ * <code>count()</code>, <code>boolean()</code> or <code>not()</code>, and a path or a count may be
+ * compared with a literal.
+ * <p/>
+ * Results are the same strings <code>SynapseXPath#stringValueOf</code> produces for the built
+ * message. Instances are immutable and may be shared by concurrent evaluations.
+ */
+public class SinglePassStreamingParser {
+
+    /** The maximum number of element steps, active steps of an element are kept in a bit mask */
+    public static final int MAX_STEPS = 63;
+
+    private static final QName ENVELOPE = new QName(
+            SOAP11Constants.SOAP_ENVELOPE_NAMESPACE_URI, SOAP11Constants.SOAPENVELOPE_LOCAL_NAME, "soapenv");
+    private static final QName BODY = new QName(
+            SOAP11Constants.SOAP_ENVELOPE_NAMESPACE_URI, SOAP11Constants.BODY_LOCAL_NAME, "soapenv");
+
+    /** The node selected by the last step of the path */
+    public enum Selector {
+        ELEMENT, ATTRIBUTE, TEXT
+    }
+
+    /** The function applied to the selected nodes */
+    public enum Function {
+        NONE, COUNT, BOOLEAN, NOT
+    }
+
+    public enum Operator {
+        EQ("="), NE("!="), LT("<"), LE("<="), GT(">"), GE(">=");
+
+        private final String symbol;
+
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+
+        public static Operator forSymbol(String symbol) {
+            for (Operator operator : values()) {
+                if (operator.symbol.equals(symbol)) {
+                    return operator;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * @return the operator to use when the operands are swapped
+         */
+        public Operator reverse() {
+            switch (this) {
+                case LT:
+                    return GT;
+                case LE:
+                    return GE;
+                case GT:
+                    return LT;
+                case GE:
+                    return LE;
+                default:
+                    return this;
+            }
+        }
+
+        boolean isRelational() {
+            return this != EQ && this != NE;
+        }
+    }
+
+    /**
+     * Matches an element or attribute name. A null local name matches any name, a null prefix
+     * matches names without a namespace.
+     */
+    public static final class NameTest {
+
+        private final String prefix;
+        private final String localName;
+        private final boolean anyNamespace;
+
+        public NameTest(String prefix, String localName) {
+            this(prefix, localName, false);
+        }
+
+        private NameTest(String prefix, String localName, boolean anyNamespace) {
+            this.prefix = prefix;
+            this.localName = localName;
+            this.anyNamespace = anyNamespace;
+        }
+
+        /**
+         * Creates a name test matching the given local name in any namespace.
+         *
+         * @param localName local name to match, null to match any name
+         * @return the name test
+         */
+        public static NameTest anyNamespace(String localName) {
+            return new NameTest(null, localName, true);
+        }
+
+        boolean matches(QName name, Map<String, String> namespaces) {
+            if (localName != null && !localName.equals(name.getLocalPart())) {
+                return false;
+            }
+            if (anyNamespace) {
+                return true;
+            }
+            String namespaceURI = prefix == null ? "" : namespaces.get(prefix);
+            String actual = name.getNamespaceURI();
+            return namespaceURI != null && namespaceURI.equals(actual == null ? "" : actual);
+        }
+
+        boolean isResolvable(Map<String, String> namespaces) {
+            return anyNamespace || prefix == null || namespaces.containsKey(prefix);
+        }
+    }
+
+    /**
+     * A comparison of a node value, a position or a count with a literal.
+     */
+    public static final class Comparison {
+
+        private final Operator operator;
+        private final String literal;
+        private final boolean numeric;
+        private final double number;
+
+        public Comparison(Operator operator, String literal, boolean numeric) {
+            this.operator = operator;
+            this.literal = literal;
+            this.numeric = numeric;
+            this.number = toNumber(literal);
+        }
+
+        public Comparison reverse() {
+            return new Comparison(operator.reverse(), literal, numeric);
+        }
+
+        public boolean isNumeric() {
+            return numeric;
+        }
+
+        boolean matches(String value) {
+            if (numeric || operator.isRelational()) {
+                return matches(toNumber(value));
+            }
+            return operator == Operator.EQ ? literal.equals(value) : !literal.equals(value);
+        }
+
+        boolean matches(double value) {
+            switch (operator) {
+                case EQ:
+                    return value == number;
+                case NE:
+                    return value != number;
+                case LT:
+                    return value < number;
+                case LE:
+                    return value <= number;
+                case GT:
+                    return value > number;
+                default:
+                    return value >= number;
+            }
+        }
+
+        private static double toNumber(String value) {
+            try {
+                return Double.parseDouble(value.trim());
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+    }
+
+    /**
+     * A predicate of a location step.
+     */
+    public static final class StepPredicate {
+
+        public enum Kind {
+            /** <code>[2]</code> or <code>[position() &gt; 2]</code> */
+            POSITION,
+            /** <code>[@name]</code> or <code>[@name = 'value']</code> */
+            ATTRIBUTE,
+            /** <code>[text()]</code> or <code>[text() = 'value']</code> */
+            TEXT,
+            /** <code>[. = 'value']</code> */
+            SELF,
+            /** <code>[child]</code> or <code>[child = 'value']</code> */
+            CHILD
+        }
+
+        private final Kind kind;
+        private final NameTest name;
+        private final Comparison comparison;
+
+        public StepPredicate(Kind kind, NameTest name, Comparison comparison) {
+            this.kind = kind;
+            this.name = name;
+            this.comparison = comparison;
+        }
+
+        /**
+         * @return true if the predicate depends on content that follows the start tag
+         */
+        boolean isContent() {
+            return kind == Kind.TEXT || kind == Kind.SELF || kind == Kind.CHILD;
+        }
+
+        boolean matchesAttributes(XMLStreamReader attributes, Map<String, String> namespaces) {
+            if (attributes == null) {
+                return false;
+            }
+            for (int i = 0; i < attributes.getAttributeCount(); i++) {
+                if (name.matches(attributes.getAttributeName(i), namespaces) &&
+                        (comparison == null || comparison.matches(attributes.getAttributeValue(i)))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean matchesContent(Match match, Map<String, String> namespaces) {
+            switch (kind) {
+                case TEXT:
+                    for (String text : match.textNodes) {
+                        if (comparison == null || comparison.matches(text)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                case SELF:
+                    return comparison == null || comparison.matches(match.stringValue.toString());
+                default:
+                    for (int i = 0; i < match.childNames.size(); i++) {
+                        if (name.matches(match.childNames.get(i), namespaces) &&
+                                (comparison == null || comparison.matches(match.childValues.get(i)))) {
+                            return true;
+                        }
+                    }
+                    return false;
+            }
+        }
+    }
+
+    /**
+     * A child or descendant step selecting elements.
+     */
+    public static final class PathStep {
+
+        private final NameTest test;
+        private final boolean descendant;
+        private final List<StepPredicate> predicates;
+        private final int firstContentPredicate;
+
+        public PathStep(NameTest test, boolean descendant, List<StepPredicate> predicates) {
+            this.test = test;
+            this.descendant = descendant;
+            this.predicates = predicates == null ?
+                    Collections.<StepPredicate>emptyList() : new ArrayList<StepPredicate>(predicates);
+            int first = this.predicates.size();
+            for (int i = 0; i < this.predicates.size(); i++) {
+                if (this.predicates.get(i).isContent()) {
+                    first = i;
+                    break;
+                }
+            }
+            this.firstContentPredicate = first;
+        }
+
+        boolean hasContentPredicates() {
+            return firstContentPredicate < predicates.size();
+        }
+
+        boolean hasPredicate(StepPredicate.Kind kind) {
+            for (StepPredicate predicate : predicates) {
+                if (predicate.kind == kind) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final PathStep[] steps;
+    private final Selector selector;
+    private final NameTest attributeTest;
+    private final Function function;
+    private final Comparison comparison;
+
+    private final boolean captureText;
+    private final boolean captureStringValue;
+    private final boolean captureXml;
+    private final boolean captureChildren;
+
+    /**
+     * @param steps         the element steps of the path, evaluated from the document node
+     * @param selector      what the path selects from the elements matching the last step
+     * @param attributeTest the attribute name to select when the selector is ATTRIBUTE
+     * @param function      the function applied to the selected nodes
+     * @param comparison    optional comparison of the selected node values, or of the count
+     */
+    public SinglePassStreamingParser(List<PathStep> steps, Selector selector, NameTest attributeTest,
+                                     Function function, Comparison comparison) {
+        if (steps.isEmpty() || steps.size() > MAX_STEPS) {
+            throw new StreamingXPATHCompilerException("Unsupported number of location steps : " + steps.size());
+        }
+        for (int i = 0; i < steps.size() - 1; i++) {
+            if (steps.get(i).hasContentPredicates()) {
+                throw new StreamingXPATHCompilerException(
+                        "Content predicates are only supported on the last location step");
+            }
+        }
+        if ((function == Function.BOOLEAN || function == Function.NOT) && comparison != null) {
+            throw new StreamingXPATHCompilerException("Comparisons of boolean values are not supported");
+        }
+        this.steps = steps.toArray(new PathStep[steps.size()]);
+        this.selector = selector;
+        this.attributeTest = attributeTest;
+        this.function = function;
+        this.comparison = comparison;
+
+        PathStep last = this.steps[this.steps.length - 1];
+        this.captureText = selector == Selector.TEXT ||
+                (selector == Selector.ELEMENT && function == Function.NONE && comparison == null) ||
+                last.hasPredicate(StepPredicate.Kind.TEXT);
+        this.captureStringValue = (selector == Selector.ELEMENT && function == Function.NONE && comparison != null)
+                || last.hasPredicate(StepPredicate.Kind.SELF);
+        this.captureXml = selector == Selector.ELEMENT && function == Function.NONE && comparison == null;
+        this.captureChildren = last.hasPredicate(StepPredicate.Kind.CHILD);
+    }
+
+    /**
+     * @return true if the expression evaluates to a boolean value
+     */
+    public boolean hasBooleanResult() {
+        return function == Function.BOOLEAN || function == Function.NOT || comparison != null;
+    }
+
+    /**
+     * Checks whether all namespace prefixes of the expression are declared.
+     *
+     * @param namespaces prefix to namespace URI map
+     * @return true if the expression can be evaluated with the given namespaces
+     */
+    public boolean isResolvable(Map<String, String> namespaces) {
+        if (attributeTest != null && !attributeTest.isResolvable(namespaces)) {
+            return false;
+        }
+        for (PathStep step : steps) {
+            if (!step.test.isResolvable(namespaces)) {
+                return false;
+            }
+            for (StepPredicate predicate : step.predicates) {
+                if (predicate.name != null && !predicate.name.isResolvable(namespaces)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Evaluates the expression reading the given stream reader forward until the result is known.
+     *
+     * @param reader         reader positioned at the start of the document or of the root element
+     * @param namespaces     prefix to namespace URI map used to resolve the expression
+     * @param wrapInEnvelope if true and the root element is not a SOAP envelope, the document is
+     *                       evaluated as if it was the payload of a SOAP 1.1 body, which is how the
+     *                       message is seen once built
+     * @return the string value of the expression
+     * @throws XMLStreamException      on errors reading the stream
+     * @throws StreamingXPATHException if a namespace prefix of the expression is not declared
+     */
+    public String process(XMLStreamReader reader, Map<String, String> namespaces, boolean wrapInEnvelope)
+            throws XMLStreamException, StreamingXPATHException {
+
+        if (!isResolvable(namespaces)) {
+            throw new StreamingXPATHException("Undeclared namespace prefix in the streaming XPath expression");
+        }
+        Evaluation evaluation = new Evaluation(namespaces);
+        boolean rootSeen = false;
+        int event = reader.getEventType();
+        while (!evaluation.done) {
+            switch (event) {
+                case XMLStreamConstants.START_ELEMENT:
+                    if (!rootSeen) {
+                        rootSeen = true;
+                        if (wrapInEnvelope && !isEnvelope(reader.getName())) {
+                            evaluation.startElement(ENVELOPE, null);
+                            evaluation.startElement(BODY, null);
+                        }
+                    }
+                    evaluation.startElement(reader.getName(), reader);
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    evaluation.endElement();
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    evaluation.text(reader.getText());
+                    break;
+                case XMLStreamConstants.COMMENT:
+                    evaluation.comment(reader.getText());
+                    break;
+                default:
+                    break;
+            }
+            if (event == XMLStreamConstants.END_DOCUMENT || !reader.hasNext()) {
+                break;
+            }
+            event = reader.next();
+        }
+        return evaluation.result();
+    }
+
+    private static boolean isEnvelope(QName name) {
+        return SOAP11Constants.SOAPENVELOPE_LOCAL_NAME.equals(name.getLocalPart()) &&
+                (SOAP11Constants.SOAP_ENVELOPE_NAMESPACE_URI.equals(name.getNamespaceURI()) ||
+                        SOAP12Constants.SOAP_ENVELOPE_NAMESPACE_URI.equals(name.getNamespaceURI()));
+    }
+
+    private static boolean isBlank(String s) {
+        // String.trim does not remove U+00A0 (No-break space)
+        return s.replace((char) 160, ' ').trim().length() == 0;
+    }
+
+    /**
+     * The elements matched by the location steps so far. Active steps are kept as a bit mask,
+     * a set bit k means the children of the element are tested against step k.
+     */
+    private static final class Frame {
+
+        private final long states;
+        private int[][] positions;
+
+        Frame(long states) {
+            this.states = states;
+        }
+
+        int nextPosition(int stepCount, int step, int predicate, int predicateCount) {
+            if (positions == null) {
+                positions = new int[stepCount][];
+            }
+            if (positions[step] == null) {
+                positions[step] = new int[predicateCount];
+            }
+            return ++positions[step][predicate];
+        }
+    }
+
+    /**
+     * An element matching the last step, with the parts of its content needed for the result.
+     */
+    private static final class Match {
+
+        private final int depth;
+        private final Frame parent;
+        private final int step;
+        private final int deferredFrom;
+        private final boolean[] attributeOutcomes;
+
+        private List<String> attributeValues = Collections.emptyList();
+        private final List<String> textNodes = new ArrayList<String>();
+        private StringBuilder currentText;
+        private final StringBuilder stringValue = new StringBuilder();
+        private XmlCapture xml;
+        private final List<QName> childNames = new ArrayList<QName>();
+        private final List<String> childValues = new ArrayList<String>();
+        private StringBuilder childValue;
+
+        private boolean rejected;
+
+        Match(int depth, Frame parent, int step, int deferredFrom, boolean[] attributeOutcomes) {
+            this.depth = depth;
+            this.parent = parent;
+            this.step = step;
+            this.deferredFrom = deferredFrom;
+            this.attributeOutcomes = attributeOutcomes;
+        }
+
+        String directText() {
+            if (textNodes.size() == 1) {
+                return textNodes.get(0);
+            }
+            StringBuilder text = new StringBuilder();
+            for (String node : textNodes) {
+                text.append(node);
+            }
+            return text.toString();
+        }
+
+        void closeTextNode() {
+            if (currentText != null) {
+                textNodes.add(currentText.toString());
+                currentText = null;
+            }
+        }
+    }
+
+    /**
+     * Serializes a captured element the way its object model counterpart is serialized.
+     */
+    private static final class XmlCapture {
+
+        private final StringBuilder buffer = new StringBuilder();
+        private final List<String> names = new ArrayList<String>();
+        private boolean startPending;
+
+        void start(QName name, XMLStreamReader reader, boolean root) {
+            closeStart();
+            String qualifiedName = qualifiedName(name);
+            buffer.append('<').append(qualifiedName);
+            boolean declared = false;
+            if (reader != null) {
+                for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                    String prefix = reader.getNamespacePrefix(i);
+                    if (prefix == null || prefix.length() == 0) {
+                        buffer.append(" xmlns=\"");
+                        declared |= isEmpty(name.getPrefix());
+                    } else {
+                        buffer.append(" xmlns:").append(prefix).append("=\"");
+                        declared |= prefix.equals(name.getPrefix());
+                    }
+                    escape(reader.getNamespaceURI(i), true);
+                    buffer.append('"');
+                }
+            }
+            if (root && !declared && !isEmpty(name.getNamespaceURI())) {
+                // the declaration is inherited from an ancestor which is not part of the capture
+                buffer.append(isEmpty(name.getPrefix()) ? " xmlns" : " xmlns:" + name.getPrefix()).append("=\"");
+                escape(name.getNamespaceURI(), true);
+                buffer.append('"');
+            }
+            if (reader != null) {
+                for (int i = 0; i < reader.getAttributeCount(); i++) {
+                    buffer.append(' ').append(qualifiedName(reader.getAttributeName(i))).append("=\"");
+                    escape(reader.getAttributeValue(i), true);
+                    buffer.append('"');
+                }
+            }
+            names.add(qualifiedName);
+            startPending = true;
+        }
+
+        void text(String text) {
+            closeStart();
+            escape(text, false);
+        }
+
+        void comment(String text) {
+            closeStart();
+            buffer.append("<!--").append(text).append("-->");
+        }
+
+        void end() {
+            String qualifiedName = names.remove(names.size() - 1);
+            if (startPending) {
+                buffer.append("/>");
+                startPending = false;
+            } else {
+                buffer.append("</").append(qualifiedName).append('>');
+            }
+        }
+
+        private void closeStart() {
+            if (startPending) {
+                buffer.append('>');
+                startPending = false;
+            }
+        }
+
+        private void escape(String text, boolean attribute) {
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                switch (c) {
+                    case '&':
+                        buffer.append("&amp;");
+                        break;
+                    case '<':
+                        buffer.append("&lt;");
+                        break;
+                    case '>':
+                        buffer.append("&gt;");
+                        break;
+                    case '"':
+                        buffer.append(attribute ? "&quot;" : "\"");
+                        break;
+                    default:
+                        buffer.append(c);
+                }
+            }
+        }
+
+        private static String qualifiedName(QName name) {
+            return isEmpty(name.getPrefix()) ? name.getLocalPart() : name.getPrefix() + ":" + name.getLocalPart();
+        }
+
+        private static boolean isEmpty(String s) {
+            return s == null || s.length() == 0;
+        }
+
+        @Override
+        public String toString() {
+            return buffer.toString();
+        }
+    }
+
+    /**
+     * The state of one evaluation.
+     */
+    private final class Evaluation {
+
+        private final Map<String, String> namespaces;
+        private final List<Frame> frames = new ArrayList<Frame>();
+        private final List<Match> active = new ArrayList<Match>();
+        private final List<Match> matches = new ArrayList<Match>();
+        private int depth;
+        private int count;
+        private boolean found;
+        private boolean done;
+
+        Evaluation(Map<String, String> namespaces) {
+            this.namespaces = namespaces;
+            frames.add(new Frame(1L));
+        }
+
+        void startElement(QName name, XMLStreamReader reader) {
+            int elementDepth = depth + 1;
+            for (Match match : active) {
+                if (elementDepth == match.depth + 1) {
+                    match.closeTextNode();
+                    if (captureChildren) {
+                        match.childNames.add(name);
+                        match.childValue = new StringBuilder();
+                    }
+                }
+                if (match.xml != null) {
+                    match.xml.start(name, reader, false);
+                }
+            }
+
+            Frame parent = frames.get(frames.size() - 1);
+            long childStates = 0;
+            for (int k = 0; k < steps.length; k++) {
+                if ((parent.states & (1L << k)) == 0) {
+                    continue;
+                }
+                PathStep step = steps[k];
+                if (step.descendant) {
+                    childStates |= 1L << k;
+                }
+                if (!step.test.matches(name, namespaces)) {
+                    continue;
+                }
+                boolean[] attributeOutcomes = step.hasContentPredicates() ?
+                        new boolean[step.predicates.size()] : null;
+                if (!matchesStartPredicates(step, k, parent, reader, attributeOutcomes)) {
+                    continue;
+                }
+                if (k + 1 < steps.length) {
+                    childStates |= 1L << (k + 1);
+                } else {
+                    addMatch(name, reader, elementDepth, parent, k, attributeOutcomes);
+                }
+            }
+            depth = elementDepth;
+            frames.add(new Frame(childStates));
+        }
+
+        void endElement() {
+            frames.remove(frames.size() - 1);
+            for (int i = active.size() - 1; i >= 0; i--) {
+                Match match = active.get(i);
+                if (match.depth == depth) {
+                    active.remove(i);
+                    match.closeTextNode();
+                    if (match.xml != null) {
+                        match.xml.end();
+                    }
+                    if (matchesDeferredPredicates(match)) {
+                        accept(match);
+                    } else {
+                        match.rejected = true;
+                    }
+                    continue;
+                }
+                if (match.xml != null) {
+                    match.xml.end();
+                }
+                if (match.childValue != null && depth == match.depth + 1) {
+                    match.childValues.add(match.childValue.toString());
+                    match.childValue = null;
+                }
+            }
+            depth--;
+        }
+
+        void text(String text) {
+            for (Match match : active) {
+                if (captureText && depth == match.depth) {
+                    if (match.currentText == null) {
+                        match.currentText = new StringBuilder();
+                    }
+                    match.currentText.append(text);
+                }
+                if (captureStringValue) {
+                    match.stringValue.append(text);
+                }
+                if (match.childValue != null) {
+                    match.childValue.append(text);
+                }
+                if (match.xml != null) {
+                    match.xml.text(text);
+                }
+            }
+        }
+
+        void comment(String text) {
+            for (Match match : active) {
+                if (depth == match.depth) {
+                    match.closeTextNode();
+                }
+                if (match.xml != null) {
+                    match.xml.comment(text);
+                }
+            }
+        }
+
+        /**
+         * Evaluates the predicates known at the start tag. Predicates following the first content
+         * predicate are deferred to the end tag, except that attribute predicates are evaluated
+         * here and their outcome kept, since the attributes are gone by then.
+         */
+        private boolean matchesStartPredicates(PathStep step, int k, Frame parent, XMLStreamReader reader,
+                                               boolean[] attributeOutcomes) {
+            List<StepPredicate> predicates = step.predicates;
+            for (int i = 0; i < predicates.size(); i++) {
+                StepPredicate predicate = predicates.get(i);
+                if (i >= step.firstContentPredicate) {
+                    if (predicate.kind == StepPredicate.Kind.ATTRIBUTE) {
+                        attributeOutcomes[i] = predicate.matchesAttributes(reader, namespaces);
+                    }
+                    continue;
+                }
+                if (predicate.kind == StepPredicate.Kind.POSITION) {
+                    if (!predicate.comparison.matches(parent.nextPosition(steps.length, k, i, predicates.size()))) {
+                        return false;
+                    }
+                } else if (!predicate.matchesAttributes(reader, namespaces)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean matchesDeferredPredicates(Match match) {
+            PathStep step = steps[match.step];
+            List<StepPredicate> predicates = step.predicates;
+            for (int i = match.deferredFrom; i < predicates.size(); i++) {
+                StepPredicate predicate = predicates.get(i);
+                switch (predicate.kind) {
+                    case POSITION:
+                        if (!predicate.comparison.matches(
+                                match.parent.nextPosition(steps.length, match.step, i, predicates.size()))) {
+                            return false;
+                        }
+                        break;
+                    case ATTRIBUTE:
+                        if (!match.attributeOutcomes[i]) {
+                            return false;
+                        }
+                        break;
+                    default:
+                        if (!predicate.matchesContent(match, namespaces)) {
+                            return false;
+                        }
+                }
+            }
+            return true;
+        }
+
+        private void addMatch(QName name, XMLStreamReader reader, int elementDepth, Frame parent, int k,
+                              boolean[] attributeOutcomes) {
+            PathStep step = steps[k];
+            Match match = new Match(elementDepth, parent, k, step.firstContentPredicate, attributeOutcomes);
+            if (selector == Selector.ATTRIBUTE && reader != null) {
+                match.attributeValues = new ArrayList<String>();
+                for (int i = 0; i < reader.getAttributeCount(); i++) {
+                    if (attributeTest.matches(reader.getAttributeName(i), namespaces)) {
+                        match.attributeValues.add(reader.getAttributeValue(i));
+                    }
+                }
+            }
+            if (function == Function.NONE && comparison == null) {
+                // reserve the place of the match in document order
+                matches.add(match);
+            }
+            if (step.hasContentPredicates() || captureText || captureStringValue || captureXml) {
+                if (captureXml) {
+                    match.xml = new XmlCapture();
+                    match.xml.start(name, reader, true);
+                }
+                active.add(match);
+            } else {
+                accept(match);
+            }
+        }
+
+        private void accept(Match match) {
+            switch (function) {
+                case NONE:
+                    if (comparison != null) {
+                        for (String value : values(match)) {
+                            if (comparison.matches(value)) {
+                                found = true;
+                                done = true;
+                                break;
+                            }
+                        }
+                    }
+                    break;
+                case COUNT:
+                    count += nodeCount(match);
+                    break;
+                default:
+                    if (nodeCount(match) > 0) {
+                        found = true;
+                        done = true;
+                    }
+            }
+        }
+
+        private List<String> values(Match match) {
+            switch (selector) {
+                case ATTRIBUTE:
+                    return match.attributeValues;
+                case TEXT:
+                    return match.textNodes;
+                default:
+                    return Collections.singletonList(match.stringValue.toString());
+            }
+        }
+
+        private int nodeCount(Match match) {
+            switch (selector) {
+                case ATTRIBUTE:
+                    return match.attributeValues.size();
+                case TEXT:
+                    return match.textNodes.size();
+                default:
+                    return 1;
+            }
+        }
+
+        String result() {
+            switch (function) {
+                case COUNT:
+                    return comparison == null ?
+                            Double.toString(count) : Boolean.toString(comparison.matches(count));
+                case BOOLEAN:
+                    return Boolean.toString(found);
+                case NOT:
+                    return Boolean.toString(!found);
+                default:
+                    if (comparison != null) {
+                        return Boolean.toString(found);
+                    }
+            }
+
+            List<Match> selected = new ArrayList<Match>(matches.size());
+            for (Match match : matches) {
+                // matches still active belong to a truncated document and are dropped
+                if (!match.rejected && !active.contains(match)) {
+                    selected.add(match);
+                }
+            }
+            StringBuilder result = new StringBuilder();
+            for (Match match : selected) {
+                if (selector == Selector.ATTRIBUTE) {
+                    for (String value : match.attributeValues) {
+                        result.append(value);
+                    }
+                } else if (selector == Selector.TEXT) {
+                    for (String text : match.textNodes) {
+                        result.append(text);
+                    }
+                } else if (selected.size() == 1) {
+                    String text = match.directText();
+                    result.append(isBlank(text) ? match.xml.toString() : text);
+                } else {
+                    String text = match.directText();
+                    String trimmed = text.replace((char) 160, ' ').trim();
+                    String xml = match.xml.toString();
+                    result.append(trimmed.length() == 0 ? xml : xml.replace(text, trimmed));
+                }
+            }
+            return result.toString();
+        }
+    }
+}
@@ -47,6 +47,7 @@ import org.apache.synapse.transport.passthru.PassThroughConstants;
 import org.apache.synapse.transport.passthru.config.PassThroughConfiguration;
 import org.apache.synapse.transport.passthru.util.RelayUtils;
 import org.apache.synapse.util.streaming_xpath.StreamingXPATH;
+import org.apache.synapse.util.streaming_xpath.StreamingXPATHAnalyzer;
 import org.apache.synapse.util.streaming_xpath.compiler.exception.StreamingXPATHCompilerException;
 import org.apache.synapse.util.streaming_xpath.custom.components.ParserComponent;
 import org.apache.synapse.util.streaming_xpath.exception.StreamingXPATHException;
@@ -131,6 +132,9 @@ public class SynapseXPath extends SynapsePath {
             getProperty(SynapseConstants.STREAMING_XPATH_PROCESSING);
     private StreamingXPATH streamingXPATH =null;
 
+    /** How the expression is evaluated when streaming XPath is enabled, null if it is not content aware */
+    private StreamingXPATHAnalyzer.Evaluation streamingEvaluation = null;
+
     /** If the expression is identified as a XPath 2.0 expression in the compile time, we can make this property TRUE
      * Then it will not try to evaluate the expression in Jaxen (XPath 1) parser but directly evaluate with XPath 2.0*/
     private Boolean forceFailoverEvaluation = Boolean.FALSE;
@@ -195,6 +199,8 @@ public class SynapseXPath extends SynapsePath {
             try {
                 this.streamingXPATH = new StreamingXPATH(xpathString);
                 contentAware = false;
+                streamingEvaluation = streamingXPATH.isSinglePass() ?
+                        StreamingXPATHAnalyzer.Evaluation.SINGLE_PASS : StreamingXPATHAnalyzer.Evaluation.PARTIAL_BUILD;
             } catch (StreamingXPATHException e) {
                 if (log.isDebugEnabled()) {
                     log.debug("Provided XPATH expression " + xpathString + " cant be evaluated custom.");
@@ -211,6 +217,9 @@ public class SynapseXPath extends SynapsePath {
                 }
                 contentAware = true;
             }
+            if (contentAware) {
+                streamingEvaluation = StreamingXPATHAnalyzer.Evaluation.BUILD;
+            }
         }
     }
 
@@ -371,8 +380,11 @@ public class SynapseXPath extends SynapsePath {
             InputStream inputStream = null;
             Object result = null;
             org.apache.axis2.context.MessageContext axis2MC =null;
+            // an expression using a namespace prefix which is not declared yet falls back to the built message
+            boolean streamed = !forceDisableStreamXpath && "true".equals(enableStreamingXpath) &&
+                    streamingXPATH != null && streamingXPATH.canEvaluate();
 
-            if (!forceDisableStreamXpath && "true".equals(enableStreamingXpath) && streamingXPATH != null &&
+            if (streamed &&
                     (((Axis2MessageContext) synCtx).getEnvelope() == null ||
                             ((Axis2MessageContext) synCtx).getEnvelope().getBody().getFirstElement() == null)) {
                 try {
@@ -391,7 +403,7 @@ public class SynapseXPath extends SynapsePath {
                 }
                 if (inputStream != null) {
                     try {
-                        result = streamingXPATH.getStringValue(inputStream);
+                        result = streamingXPATH.getMessageStringValue(inputStream);
                     } catch (XMLStreamException e) {
                         handleException("Error occurred while parsing the XPATH String", e);
                     } catch (StreamingXPATHException e) {
@@ -407,6 +419,7 @@ public class SynapseXPath extends SynapsePath {
                     }
                 }
             } else {
+                streamed = false;
                 result = evaluate(synCtx);
             }
 
@@ -464,7 +477,7 @@ public class SynapseXPath extends SynapsePath {
                     }
                 }
 
-            }else if("true".equals(enableStreamingXpath)&& streamingXPATH != null){
+            }else if(streamed && streamingXPATH.hasSerializedResult()){
                 if(!"".equals((String) result)){
                     OMElement re=AXIOMUtil.stringToOM((String) result);
                     if(re!=null){
@@ -624,6 +637,14 @@ public class SynapseXPath extends SynapsePath {
     	this.forceDisableStreamXpath = forceDisableStreamXpath;
     }
 
+    /**
+     * @return how the expression is evaluated when streaming XPath is enabled, or null if streaming
+     * XPath is disabled or the expression does not read the message content
+     */
+    public StreamingXPATHAnalyzer.Evaluation getStreamingEvaluation() {
+        return streamingEvaluation;
+    }
+
     /**
      * This is a wrapper class used to inject both envelope and message contexts for xpath
      * We use this to resolve function scope xpath variables
@@ -0,0 +1,158 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.aspects.flow.statistics.opentracing.management.sampling;
+
+import io.jaegertracing.internal.JaegerSpan;
+import io.jaegertracing.internal.JaegerTracer;
+import io.jaegertracing.internal.reporters.InMemoryReporter;
+import io.jaegertracing.internal.samplers.ConstSampler;
+import io.jaegertracing.internal.samplers.ProbabilisticSampler;
+import io.opentracing.tag.Tags;
+import org.apache.synapse.aspects.flow.statistics.util.StatisticsConstants;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Unit tests for HeadSampler and TailSamplingReporter, reporting to an in memory reporter.
+ */
+public class SamplingTest {
+
+    private static final long START = 1000000L;
+
+    /**
+     * Test that the spans of a fast flow are dropped.
+     */
+    @Test
+    public void testFastFlowIsDropped() {
+        InMemoryReporter inMemoryReporter = new InMemoryReporter();
+        TailSamplingReporter reporter = new TailSamplingReporter(inMemoryReporter, 1000, 10, 10);
+        JaegerTracer tracer = createTracer(reporter);
+
+        reportFlow(tracer, 10, false);
+
+        Assert.assertTrue("spans of a fast flow should be dropped", inMemoryReporter.getSpans().isEmpty());
+        Assert.assertEquals(1, reporter.getDroppedTraceCount());
+        Assert.assertEquals(0, reporter.getKeptTraceCount());
+    }
+
+    /**
+     * Test that all the spans of a slow flow are reported.
+     */
+    @Test
+    public void testSlowFlowIsKept() {
+        InMemoryReporter inMemoryReporter = new InMemoryReporter();
+        TailSamplingReporter reporter = new TailSamplingReporter(inMemoryReporter, 1000, 10, 10);
+        JaegerTracer tracer = createTracer(reporter);
+
+        reportFlow(tracer, 2000, false);
+
+        Assert.assertEquals("all spans of a slow flow should be reported", 2, inMemoryReporter.getSpans().size());
+        Assert.assertEquals(1, reporter.getKeptTraceCount());
+    }
+
+    /**
+     * Test that all the spans of a faulted flow are reported.
+     */
+    @Test
+    public void testFaultedFlowIsKept() {
+        InMemoryReporter inMemoryReporter = new InMemoryReporter();
+        TailSamplingReporter reporter = new TailSamplingReporter(inMemoryReporter, 1000, 10, 10);
+        JaegerTracer tracer = createTracer(reporter);
+
+        reportFlow(tracer, 10, true);
+
+        Assert.assertEquals("all spans of a faulted flow should be reported", 2, inMemoryReporter.getSpans().size());
+    }
+
+    /**
+     * Test that the buffer is bounded, deciding the oldest flows when full.
+     */
+    @Test
+    public void testBufferIsBounded() {
+        InMemoryReporter inMemoryReporter = new InMemoryReporter();
+        TailSamplingReporter reporter = new TailSamplingReporter(inMemoryReporter, 1000, 2, 2);
+        JaegerTracer tracer = createTracer(reporter);
+
+        for (int i = 0; i < 3; i++) {
+            JaegerSpan proxy = tracer.buildSpan("proxy").withStartTimestamp(START).start();
+            for (int j = 0; j < 3; j++) {
+                tracer.buildSpan("mediator").asChildOf(proxy).withStartTimestamp(START).start().finish(START + 10);
+            }
+        }
+
+        Assert.assertEquals("oldest flow should be decided when the buffer is full",
+                1, reporter.getDroppedTraceCount());
+        Assert.assertEquals("spans over the limit of a flow should be dropped", 3, reporter.getDroppedSpanCount());
+        Assert.assertTrue(inMemoryReporter.getSpans().isEmpty());
+    }
+
+    /**
+     * Test the decisions of the head sampler.
+     */
+    @Test
+    public void testHeadSampling() {
+        JaegerTracer tracer = createTracer(new InMemoryReporter());
+
+        Assert.assertTrue(new HeadSampler(HeadSampler.createSampler(ConstSampler.TYPE, 1), tracer)
+                .isSampled("proxy", null));
+        Assert.assertFalse(new HeadSampler(HeadSampler.createSampler(ConstSampler.TYPE, 0), tracer)
+                .isSampled("proxy", null));
+        Assert.assertFalse(new HeadSampler(HeadSampler.createSampler(ProbabilisticSampler.TYPE, 0), tracer)
+                .isSampled("proxy", null));
+        Assert.assertTrue(new HeadSampler(HeadSampler.createSampler(ProbabilisticSampler.TYPE, 1), tracer)
+                .isSampled("proxy", new HashMap<String, String>()));
+    }
+
+    /**
+     * Test that the decision of an upstream service is followed.
+     */
+    @Test
+    public void testUpstreamDecisionIsFollowed() {
+        JaegerTracer tracer = createTracer(new InMemoryReporter());
+        Map<String, String> headers = new HashMap<>();
+
+        headers.put("uber-trace-id", "abc:def:0:0");
+        Assert.assertFalse("upstream decision should be followed",
+                new HeadSampler(new ConstSampler(true), tracer).isSampled("proxy", headers));
+
+        headers.put("uber-trace-id", "abc:def:0:1");
+        Assert.assertTrue("upstream decision should be followed",
+                new HeadSampler(new ConstSampler(false), tracer).isSampled("proxy", headers));
+    }
+
+    private static JaegerTracer createTracer(io.jaegertracing.spi.Reporter reporter) {
+        return new JaegerTracer.Builder("test").withReporter(reporter).withSampler(new ConstSampler(true)).build();
+    }
+
+    /**
+     * Reports the spans of a proxy service with a mediator.
+     */
+    private static void reportFlow(JaegerTracer tracer, long durationMillis, boolean fault) {
+        JaegerSpan proxy = tracer.buildSpan("proxy").withStartTimestamp(START).start();
+        tracer.buildSpan("mediator").asChildOf(proxy).withStartTimestamp(START).start().finish(START + 10);
+        proxy.setTag("componentType", StatisticsConstants.FLOW_STATISTICS_PROXYSERVICE);
+        if (fault) {
+            Tags.ERROR.set(proxy, true);
+        }
+        proxy.finish(START + durationMillis * 1000);
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.synapse.aspects.flow.statistics.store;
+
+import org.apache.synapse.aspects.flow.statistics.log.StatisticsReportingEvent;
+import org.apache.synapse.aspects.flow.statistics.log.StatisticsReportingEventHolder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the cost per event of recording the events of a flow, queueing and publishing the flow, and of
+ * dropping the flow when the queue is full. The figures depend too much on the machine to be asserted, hence
+ * this is run by hand and is not part of the unit tests.
+ * <p>
+ * Usage : MessageDataStoreBenchmark [flows, 20000 by default] [events per flow, 20 by default]
+ */
+public class MessageDataStoreBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int flows = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int eventsPerFlow = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        MessageDataStore store = new MessageDataStore(flows);
+        List<StatisticsReportingEventHolder> batch = new ArrayList<>(flows);
+        StatisticsReportingEvent event = new MessageDataStoreTest.TestEvent();
+
+        // warm up the code paths before measuring them
+        recordAndPublish(store, batch, event, flows, eventsPerFlow);
+
+        long start = System.nanoTime();
+        recordAndPublish(store, batch, event, flows, eventsPerFlow);
+        long publishedCost = (System.nanoTime() - start) / ((long) flows * eventsPerFlow);
+
+        for (int i = 0; i < store.getCapacity(); i++) {
+            store.enqueue(MessageDataStoreTest.createHolder(eventsPerFlow));
+        }
+        start = System.nanoTime();
+        recordFlows(store, event, flows, eventsPerFlow);
+        long droppedCost = (System.nanoTime() - start) / ((long) flows * eventsPerFlow);
+
+        System.out.println("Statistics event cost, published : " + publishedCost + " ns, dropped : "
+                           + droppedCost + " ns");
+    }
+
+    private static void recordAndPublish(MessageDataStore store, List<StatisticsReportingEventHolder> batch,
+                                         StatisticsReportingEvent event, int flows, int eventsPerFlow)
+            throws Exception {
+        recordFlows(store, event, flows, eventsPerFlow);
+        batch.clear();
+        store.drainTo(batch, flows);
+        for (StatisticsReportingEventHolder holder : batch) {
+            while (holder.deQueueEvent() != null) {
+                // publish
+            }
+        }
+    }
+
+    private static void recordFlows(MessageDataStore store, StatisticsReportingEvent event, int flows,
+                                    int eventsPerFlow) {
+        for (int i = 0; i < flows; i++) {
+            StatisticsReportingEventHolder holder = new StatisticsReportingEventHolder();
+            for (int j = 0; j < eventsPerFlow; j++) {
+                holder.addEvent(event);
+            }
+            store.enqueue(holder);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ *  Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.aspects.flow.statistics.store;
+
+import org.apache.synapse.aspects.flow.statistics.data.raw.BasicStatisticDataUnit;
+import org.apache.synapse.aspects.flow.statistics.log.StatisticsReportingEvent;
+import org.apache.synapse.aspects.flow.statistics.log.StatisticsReportingEventHolder;
+import org.apache.synapse.aspects.flow.statistics.log.templates.AbstractStatisticEvent;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Unit tests for MessageDataStore and StatisticsReportingEventHolder.
+ */
+public class MessageDataStoreTest {
+
+    /**
+     * Test that the queue is bounded and drops the event holders which do not fit, counting their events.
+     */
+    @Test
+    public void testQueueDropsWhenFull() throws Exception {
+        MessageDataStore store = new MessageDataStore(3);
+        Assert.assertEquals("queue size should be rounded up to a power of two", 4, store.getCapacity());
+        List<StatisticsReportingEventHolder> holders = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            StatisticsReportingEventHolder holder = createHolder(2);
+            holders.add(holder);
+            store.enqueue(holder);
+        }
+        Assert.assertEquals(4, store.size());
+        Assert.assertEquals(8, store.getEnqueuedEventCount());
+        Assert.assertEquals(2, store.getDroppedFlowCount());
+        Assert.assertEquals(4, store.getDroppedEventCount());
+
+        List<StatisticsReportingEventHolder> batch = new ArrayList<>();
+        Assert.assertEquals(3, store.drainTo(batch, 3));
+        Assert.assertEquals(holders.subList(0, 3), batch);
+        Assert.assertSame(holders.get(3), store.dequeue());
+        Assert.assertNull(store.dequeue());
+
+        store.enqueue(holders.get(5));
+        Assert.assertSame("queue should accept holders once drained", holders.get(5), store.dequeue());
+    }
+
+    /**
+     * Test that event holders are neither lost nor duplicated when enqueued and dequeued concurrently.
+     */
+    @Test
+    public void testConcurrentEnqueueAndDequeue() throws Exception {
+        final MessageDataStore store = new MessageDataStore(64);
+        final int producers = 4;
+        final int holdersPerProducer = 5000;
+        final CountDownLatch done = new CountDownLatch(producers);
+        for (int i = 0; i < producers; i++) {
+            new Thread(new Runnable() {
+                public void run() {
+                    for (int j = 0; j < holdersPerProducer; j++) {
+                        store.enqueue(createHolder(1));
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+        Map<StatisticsReportingEventHolder, Boolean> dequeued = new IdentityHashMap<>();
+        while (done.getCount() > 0 || store.size() > 0) {
+            StatisticsReportingEventHolder holder = store.dequeue();
+            if (holder != null) {
+                Assert.assertNull("holder dequeued twice", dequeued.put(holder, Boolean.TRUE));
+            }
+        }
+        Assert.assertEquals(producers * holdersPerProducer, dequeued.size() + store.getDroppedFlowCount());
+        Assert.assertEquals(dequeued.size(), store.getEnqueuedEventCount());
+    }
+
+    /**
+     * Test that the events added concurrently to an event holder are all kept.
+     */
+    @Test
+    public void testConcurrentAddEvent() throws Exception {
+        final StatisticsReportingEventHolder holder = new StatisticsReportingEventHolder();
+        final int threads = 8;
+        final int eventsPerThread = 1000;
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread(new Runnable() {
+                public void run() {
+                    for (int j = 0; j < eventsPerThread; j++) {
+                        holder.addEvent(new TestEvent());
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+        done.await();
+        Assert.assertEquals(threads * eventsPerThread, holder.getQueueSize());
+        Assert.assertEquals(threads * eventsPerThread, holder.getEventList().size());
+
+        Map<StatisticsReportingEvent, Boolean> events = new IdentityHashMap<>();
+        StatisticsReportingEvent event;
+        while ((event = holder.deQueueEvent()) != null) {
+            events.put(event, Boolean.TRUE);
+        }
+        Assert.assertEquals(threads * eventsPerThread, events.size());
+        Assert.assertEquals(0, holder.getQueueSize());
+        Assert.assertTrue(holder.getEventList().isEmpty());
+    }
+
+    /**
+     * Test that the event collection is finished only once.
+     */
+    @Test
+    public void testFinishEventCollection() {
+        StatisticsReportingEventHolder holder = new StatisticsReportingEventHolder();
+        Assert.assertTrue(holder.finishEventCollection());
+        Assert.assertFalse(holder.finishEventCollection());
+        Assert.assertTrue(holder.isEvenCollectionFinished());
+    }
+
+    /**
+     * Test that every event of the flows queued is published once drained, and that the events of the flows
+     * arriving while the queue is full are counted as dropped. The cost per event is measured by
+     * {@link MessageDataStoreBenchmark}.
+     */
+    @Test
+    public void testPublishAndDropEvents() throws Exception {
+        int eventsPerFlow = 20;
+        int flows = 64;
+        MessageDataStore store = new MessageDataStore(flows);
+        for (int i = 0; i < flows; i++) {
+            store.enqueue(createHolder(eventsPerFlow));
+        }
+        store.enqueue(createHolder(eventsPerFlow));
+        Assert.assertEquals(1, store.getDroppedFlowCount());
+        Assert.assertEquals(eventsPerFlow, store.getDroppedEventCount());
+
+        List<StatisticsReportingEventHolder> batch = new ArrayList<>(flows);
+        Assert.assertEquals(flows, store.drainTo(batch, flows + 1));
+        int published = 0;
+        for (StatisticsReportingEventHolder holder : batch) {
+            while (holder.deQueueEvent() != null) {
+                published++;
+            }
+        }
+        Assert.assertEquals(flows * eventsPerFlow, published);
+        Assert.assertEquals(flows * eventsPerFlow, store.getEnqueuedEventCount());
+        Assert.assertEquals(0, store.size());
+    }
+
+    static StatisticsReportingEventHolder createHolder(int events) {
+        StatisticsReportingEventHolder holder = new StatisticsReportingEventHolder();
+        for (int i = 0; i < events; i++) {
+            holder.addEvent(new TestEvent());
+        }
+        return holder;
+    }
+
+    static class TestEvent implements StatisticsReportingEvent {
+
+        public AbstractStatisticEvent.EventType getEventType() {
+            return null;
+        }
+
+        public BasicStatisticDataUnit getDataUnit() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ *
+ *  Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.synapse.config;
+
+import junit.framework.TestCase;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the single-flight, on first use initialization of the artifacts done by the
+ * LazyArtifactInitializer.
+ */
+public class LazyArtifactInitializerTest extends TestCase {
+
+    private static final Log log = LogFactory.getLog(LazyArtifactInitializerTest.class);
+
+    public void testArtifactIsInitializedOnlyOnFirstUse() {
+        LazyArtifactInitializer initializer = new LazyArtifactInitializer();
+        Object artifact = new Object();
+        CountingTask task = new CountingTask(0);
+        initializer.register(artifact, "endpoint [test]", task);
+
+        assertTrue(initializer.isPending(artifact));
+        assertEquals(0, task.count.get());
+
+        assertSame(artifact, initializer.materialize(artifact));
+        assertEquals(1, task.count.get());
+        assertFalse(initializer.isPending(artifact));
+
+        initializer.materialize(artifact);
+        assertEquals("Artifact must not be initialized twice", 1, task.count.get());
+        assertEquals(0, initializer.getPendingCount());
+    }
+
+    public void testUnknownArtifactIsReturnedAsIs() {
+        LazyArtifactInitializer initializer = new LazyArtifactInitializer();
+        Object artifact = new Object();
+        assertSame(artifact, initializer.materialize(artifact));
+        assertNull(initializer.materialize(null));
+    }
+
+    public void testConcurrentFirstUseInitializesOnce() throws Exception {
+        final LazyArtifactInitializer initializer = new LazyArtifactInitializer();
+        final Object artifact = new Object();
+        final CountingTask task = new CountingTask(50);
+        initializer.register(artifact, "API [test]", task);
+
+        int threadCount = 16;
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threadCount);
+        final AtomicInteger seenUninitialized = new AtomicInteger();
+        for (int i = 0; i < threadCount; i++) {
+            new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        start.await();
+                        initializer.materialize(artifact);
+                        // no caller may proceed before the initialization has completed
+                        if (task.completed.get() != 1) {
+                            seenUninitialized.incrementAndGet();
+                        }
+                    } catch (InterruptedException ignored) {
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        start.countDown();
+        done.await();
+
+        assertEquals("Artifact must be initialized exactly once", 1, task.count.get());
+        assertEquals("A caller used the artifact before it was initialized", 0, seenUninitialized.get());
+        assertFalse(initializer.isPending(artifact));
+    }
+
+    public void testFailedInitializationIsNotPropagated() {
+        LazyArtifactInitializer initializer = new LazyArtifactInitializer();
+        Object artifact = new Object();
+        initializer.register(artifact, "sequence [failing]", new Runnable() {
+            public void run() {
+                throw new IllegalStateException("expected failure");
+            }
+        });
+        assertSame(artifact, initializer.materialize(artifact));
+        assertFalse(initializer.isPending(artifact));
+    }
+
+    public void testDiscardedArtifactIsNotInitialized() {
+        LazyArtifactInitializer initializer = new LazyArtifactInitializer();
+        Object artifact = new Object();
+        CountingTask task = new CountingTask(0);
+        initializer.register(artifact, "proxy service [test]", task);
+        initializer.discard(artifact);
+
+        initializer.materialize(artifact);
+        assertEquals(0, task.count.get());
+    }
+
+    /**
+     * Compares the time and heap taken to bring up a configuration of artifacts with a
+     * costly initialization eagerly and lazily
+     */
+    public void testColdStartWithLazyInitialization() {
+        int artifactCount = 500;
+
+        System.gc();
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        List<Object> eager = new ArrayList<Object>();
+        for (int i = 0; i < artifactCount; i++) {
+            HeavyTask task = new HeavyTask();
+            task.run();
+            eager.add(task);
+        }
+        long eagerTime = System.nanoTime() - start;
+        long eagerHeap = usedHeap() - heapBefore;
+        eager.clear();
+
+        System.gc();
+        heapBefore = usedHeap();
+        start = System.nanoTime();
+        LazyArtifactInitializer initializer = new LazyArtifactInitializer();
+        List<Object> artifacts = new ArrayList<Object>();
+        for (int i = 0; i < artifactCount; i++) {
+            Object artifact = new Object();
+            initializer.register(artifact, "artifact [" + i + "]", new HeavyTask());
+            artifacts.add(artifact);
+        }
+        long lazyTime = System.nanoTime() - start;
+        long lazyHeap = usedHeap() - heapBefore;
+
+        log.info("Cold start of " + artifactCount + " artifacts, eager : " + (eagerTime / 1000000)
+                + " ms / " + (eagerHeap / 1024) + " KB, lazy : " + (lazyTime / 1000000) + " ms / "
+                + (lazyHeap / 1024) + " KB");
+
+        assertEquals(artifactCount, initializer.getPendingCount());
+        initializer.materialize(artifacts.get(0));
+        assertEquals(artifactCount - 1, initializer.getPendingCount());
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static class CountingTask implements Runnable {
+
+        private final AtomicInteger count = new AtomicInteger();
+        private final AtomicInteger completed = new AtomicInteger();
+        private final long delay;
+
+        CountingTask(long delay) {
+            this.delay = delay;
+        }
+
+        public void run() {
+            count.incrementAndGet();
+            if (delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            completed.incrementAndGet();
+        }
+    }
+
+    /**
+     * Stands in for building the mediators and loading the resources of an artifact
+     */
+    private static class HeavyTask implements Runnable {
+
+        private byte[][] state;
+
+        public void run() {
+            state = new byte[16][];
+            for (int i = 0; i < state.length; i++) {
+                state[i] = new byte[4096];
+                for (int j = 0; j < state[i].length; j += 64) {
+                    state[i][j] = (byte) (i ^ j);
+                }
+            }
+        }
+    }
+}
@@ -80,4 +80,23 @@ public class DBLookupMediatorSerializationTest extends AbstractTestCase {
         assertTrue(serialization(inputXml, dbLookupFactory, dbLookupSerializer));
         assertTrue(serialization(inputXml, dbLookupSerializer));
     }
+
+    public void testDBLookupMediatorSerializationWithCache() throws Exception {
+
+        String inputXml =
+            "<syn:dblookup xmlns:syn=\"http://ws.apache.org/ns/synapse\" cacheTimeout=\"60000\" " +
+                    "cacheSize=\"500\">" +
+                    "<syn:connection><syn:pool><syn:dsName>lookupdb</syn:dsName>" +
+                    "<syn:icClass>com.sun.jndi.rmi.registry.RegistryContextFactory</syn:icClass>" +
+                    "<syn:url>rmi://localhost:2199</syn:url>" +
+                    "<syn:user>user</syn:user>" +
+                    "<syn:password>password</syn:password>" +
+                    "</syn:pool></syn:connection><syn:statement><syn:sql>" +
+                    "<![CDATA[select target from destinations where source = ?]]></syn:sql>" +
+                    "<syn:parameter expression=\"//source\" type=\"INTEGER\"/>" +
+                    "<syn:result name=\"targetProp\" column=\"target\"/></syn:statement></syn:dblookup>";
+
+        assertTrue(serialization(inputXml, dbLookupFactory, dbLookupSerializer));
+        assertTrue(serialization(inputXml, dbLookupSerializer));
+    }
 }
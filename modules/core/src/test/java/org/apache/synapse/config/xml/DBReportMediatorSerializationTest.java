@@ -72,4 +72,15 @@ public class DBReportMediatorSerializationTest extends AbstractTestCase {
         assertTrue(serialization(inputXml, dbReportMediatorFactory, dbReportMediatorSerializer));
         assertTrue(serialization(inputXml, dbReportMediatorSerializer));
     }
-}
\ No newline at end of file
+
+    public void testDBReportMediatorSerializationWithAsyncBatching() throws Exception {
+        String inputXml = "<dbreport xmlns=\"http://ws.apache.org/ns/synapse\" batchSize=\"100\" async=\"true\">" +
+                          "<connection><pool>" +
+                          "<dsName>DataServiceName</dsName></pool>" +
+                          "</connection><statement><sql><![CDATA[insert into audit values(?)]]></sql>" +
+                          "<parameter expression=\"//m0:return/m0:symbol/child::text()\" " +
+                          "xmlns:m0=\"http://services.samples/xsd\" type=\"VARCHAR\"/></statement></dbreport>";
+        assertTrue(serialization(inputXml, dbReportMediatorFactory, dbReportMediatorSerializer));
+        assertTrue(serialization(inputXml, dbReportMediatorSerializer));
+    }
+}
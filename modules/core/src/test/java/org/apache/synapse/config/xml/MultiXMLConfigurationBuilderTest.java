@@ -23,14 +23,20 @@ import junit.framework.TestCase;
 
 import java.io.File;
 import java.net.URL;
+import java.nio.file.Files;
 import java.util.Properties;
 
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.apache.synapse.config.SynapseConfiguration;
 import org.apache.synapse.mediators.base.SequenceMediator;
 import org.apache.axis2.util.JavaUtils;
 
 public class MultiXMLConfigurationBuilderTest extends TestCase {
 
+    private static final Log log = LogFactory.getLog(MultiXMLConfigurationBuilderTest.class);
+
     public void testConfigurationBuilder() throws Exception {
         URL u = this.getClass().getClassLoader().getResource("synapse-config");
         String root = new File(u.toURI()).getAbsolutePath();
@@ -60,4 +66,56 @@ public class MultiXMLConfigurationBuilderTest extends TestCase {
         assertTrue(JavaUtils.isTrueExplicitly(synapseConfig.getProperty(
                 MultiXMLConfigurationBuilder.SEPARATE_REGISTRY_DEFINITION)));
     }
+
+    /**
+     * Loads a generated artifact repository serially and in parallel, and reports the startup time of both.
+     */
+    public void testParallelConfigurationBuilder() throws Exception {
+        int artifacts = 300;
+        File root = Files.createTempDirectory("synapse-config").toFile();
+        try {
+            File sequences = new File(root, MultiXMLConfigurationBuilder.SEQUENCES_DIR);
+            File endpoints = new File(root, MultiXMLConfigurationBuilder.ENDPOINTS_DIR);
+            File entries = new File(root, MultiXMLConfigurationBuilder.LOCAL_ENTRY_DIR);
+            for (int i = 0; i < artifacts; i++) {
+                FileUtils.writeStringToFile(new File(endpoints, "ep" + i + ".xml"),
+                        "<endpoint xmlns=\"http://ws.apache.org/ns/synapse\" name=\"ep" + i + "\">" +
+                        "<address uri=\"http://localhost:9000/services/Service" + i + "\"/></endpoint>");
+                FileUtils.writeStringToFile(new File(sequences, "seq" + i + ".xml"),
+                        "<sequence xmlns=\"http://ws.apache.org/ns/synapse\" name=\"seq" + i + "\">" +
+                        "<log level=\"custom\"><property name=\"index\" value=\"" + i + "\"/></log>" +
+                        "<send><endpoint key=\"ep" + i + "\"/></send></sequence>");
+                FileUtils.writeStringToFile(new File(entries, "entry" + i + ".xml"),
+                        "<localEntry xmlns=\"http://ws.apache.org/ns/synapse\" key=\"entry" + i + "\">" +
+                        "value" + i + "</localEntry>");
+            }
+
+            long start = System.currentTimeMillis();
+            SynapseConfiguration serial =
+                    MultiXMLConfigurationBuilder.getConfiguration(root.getAbsolutePath(), new Properties(), 1);
+            long serialTime = System.currentTimeMillis() - start;
+
+            start = System.currentTimeMillis();
+            SynapseConfiguration parallel =
+                    MultiXMLConfigurationBuilder.getConfiguration(root.getAbsolutePath(), new Properties(), 4);
+            long parallelTime = System.currentTimeMillis() - start;
+
+            assertEquals(serial.getDefinedSequences().size(), parallel.getDefinedSequences().size());
+            assertEquals(serial.getDefinedEndpoints().size(), parallel.getDefinedEndpoints().size());
+            assertEquals(serial.getDefinedEntries().size(), parallel.getDefinedEntries().size());
+            for (int i = 0; i < artifacts; i++) {
+                SequenceMediator sequence = parallel.getDefinedSequences().get("seq" + i);
+                assertNotNull(sequence);
+                assertEquals("seq" + i + ".xml", sequence.getFileName());
+                assertNotNull(parallel.getDefinedEndpoints().get("ep" + i));
+                assertEquals("value" + i, parallel.getEntry("entry" + i));
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("Loaded " + (artifacts * 3) + " artifacts, serial : " + serialTime +
+                        "ms, parallel : " + parallelTime + "ms");
+            }
+        } finally {
+            FileUtils.deleteQuietly(root);
+        }
+    }
 }
@@ -19,12 +19,29 @@
 package org.apache.synapse.config.xml;
 
 import junit.framework.TestCase;
+import org.apache.axiom.om.OMAbstractFactory;
 import org.apache.axiom.om.util.AXIOMUtil;
 import org.apache.commons.io.IOUtils;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseConstants;
+import org.apache.synapse.config.SynapseConfiguration;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.apache.synapse.transport.passthru.PassThroughConstants;
+import org.apache.synapse.transport.passthru.Pipe;
+import org.apache.synapse.transport.passthru.config.BaseConfiguration;
+import org.apache.synapse.transport.passthru.util.ControlledByteBuffer;
+import org.apache.synapse.util.streaming_xpath.StreamingContentRouter;
 import org.apache.synapse.util.streaming_xpath.StreamingXPATH;
+import org.apache.synapse.util.streaming_xpath.compiler.SinglePassXPATHCompiler;
+import org.apache.synapse.util.streaming_xpath.compiler.exception.StreamingXPATHCompilerException;
+import org.apache.synapse.util.streaming_xpath.custom.components.ParserComponent;
 import org.apache.synapse.util.streaming_xpath.exception.StreamingXPATHException;
+import org.apache.synapse.util.xpath.SynapseXPath;
+import org.mockito.Mockito;
 
 import javax.xml.stream.XMLStreamException;
+import java.nio.ByteBuffer;
 
 /**
  * Tests stream xpath related operations
@@ -36,6 +53,12 @@ public class StreamXPathTestCase extends TestCase {
             + "  <author>Giada De Laurentiis</author>\n" + "  <year>2005</year>\n" + "  <price>30.00</price>\n"
             + "</book>\n </bookstore>";
 
+    private static final String ORDER = "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\">"
+            + "<soapenv:Body><m:order xmlns:m=\"urn:order\" id=\"o1\">"
+            + "<m:item sku=\"a\" qty=\"2\">apple</m:item><m:item sku=\"b\" qty=\"5\">pear</m:item>"
+            + "<m:item sku=\"c\" qty=\"1\"><m:name>fig</m:name></m:item><m:type>bulk</m:type>"
+            + "</m:order></soapenv:Body></soapenv:Envelope>";
+
     private static final String XPATH1 = "/bookstore/book/title";
     private static final String XPATH2 = "/bookstore/book[1]/year";
 
@@ -61,4 +84,102 @@ public class StreamXPathTestCase extends TestCase {
         assertTrue("Invalid result from xpath execution", result.contains("Everyday Italian"));
     }
 
+
+    public void testSinglePassPredicates() throws Exception {
+        ParserComponent.addToNameSpaceMap("m", "urn:order");
+        ParserComponent.addToNameSpaceMap("soapenv", "http://schemas.xmlsoap.org/soap/envelope/");
+        assertEquals("pear", evaluate("//m:item[2]", ORDER));
+        assertEquals("bc", evaluate("//m:item[position() > 1]/@sku", ORDER));
+        assertEquals("c", evaluate("//m:item[m:name = 'fig']/@sku", ORDER));
+        assertEquals("5", evaluate("//m:item[text() = 'pear']/@qty", ORDER));
+        assertEquals("bulk", evaluate("$body/m:order/m:type/text()", ORDER));
+        assertEquals("o1", evaluate("soapenv:Body/m:order/@id", ORDER));
+    }
+
+    public void testSinglePassFunctionsAndComparisons() throws Exception {
+        ParserComponent.addToNameSpaceMap("m", "urn:order");
+        assertEquals("3.0", evaluate("count(//m:item)", ORDER));
+        assertEquals("2.0", evaluate("count(//m:item[@qty > 1])", ORDER));
+        assertEquals("true", evaluate("//m:type = 'bulk'", ORDER));
+        assertEquals("false", evaluate("boolean(//m:missing)", ORDER));
+        assertEquals("true", evaluate("not(//m:missing)", ORDER));
+    }
+
+    public void testPayloadEvaluatedAsSOAPBody() throws Exception {
+        StreamingXPATH parser = new StreamingXPATH("$body/bookstore/book/year");
+        assertEquals("2005", parser.getMessageStringValue(IOUtils.toInputStream(ELEMENT, "UTF-8")));
+        parser = new StreamingXPATH(XPATH2);
+        assertEquals("", parser.getMessageStringValue(IOUtils.toInputStream(ELEMENT, "UTF-8")));
+    }
+
+    public void testUnsupportedExpressionFallsBack() throws Exception {
+        assertTrue(new StreamingXPATH(XPATH1).isSinglePass());
+        try {
+            SinglePassXPATHCompiler.compile("//book[last()]");
+            fail("last() can not be evaluated in a single forward pass");
+        } catch (StreamingXPATHCompilerException expected) {
+            // expected
+        }
+    }
+
+    public void testContentRoutingReadsOnlyTheStartOfTheMessage() throws Exception {
+        StringBuilder payload = new StringBuilder("<m:order xmlns:m=\"urn:order\"><m:type>bulk</m:type>");
+        for (int i = 0; i < 2000; i++) {
+            payload.append("<m:item sku=\"").append(i).append("\">apple</m:item>");
+        }
+        payload.append("</m:order>");
+        Pipe pipe = createPipe(payload.toString());
+        MessageContext synCtx = createPassThroughMessageContext(pipe);
+
+        // far less than the message, which has to be routed on its first bytes
+        assertTrue(createRouter("//m:item[@sku = '5']", true, 4096).booleanValueOf(synCtx));
+        assertTrue(createRouter("boolean(//m:type)", false, 4096).booleanValueOf(synCtx));
+        assertNull("The message is built", synCtx.getEnvelope().getBody().getFirstElement());
+        assertTrue("The bytes read by the router are not to be consumed", pipe.isConsumeRequired());
+        assertEquals("The message is not relayed as received",
+                payload.toString(), IOUtils.toString(pipe.getInputStream(), "UTF-8"));
+    }
+
+    public void testContentRoutingNodeSetValue() throws Exception {
+        String payload = "<m:order xmlns:m=\"urn:order\"><m:type>bulk</m:type>" +
+                "<m:item sku=\"1\">apple</m:item><m:item sku=\"2\">pear</m:item></m:order>";
+        Pipe pipe = createPipe(payload);
+        MessageContext synCtx = createPassThroughMessageContext(pipe);
+
+        // the values of all the nodes, as when the expression is evaluated on the built message
+        assertEquals("bulk", createRouter("//m:type", false, 4096).stringValueOf(synCtx));
+        assertEquals("12", createRouter("//m:item/@sku", false, 4096).stringValueOf(synCtx));
+        assertEquals("applepear", createRouter("//m:item/text()", false, 4096).stringValueOf(synCtx));
+        assertNull("The message is built", synCtx.getEnvelope().getBody().getFirstElement());
+        assertEquals("The message is not relayed as received",
+                payload, IOUtils.toString(pipe.getInputStream(), "UTF-8"));
+    }
+
+    private static StreamingContentRouter createRouter(String expression, boolean condition, int maxReadSize)
+            throws Exception {
+        SynapseXPath xpath = new SynapseXPath(expression);
+        xpath.addNamespace("m", "urn:order");
+        return new StreamingContentRouter(xpath, condition, maxReadSize);
+    }
+
+    private static Pipe createPipe(String content) throws Exception {
+        byte[] bytes = content.getBytes("UTF-8");
+        ControlledByteBuffer buffer = new ControlledByteBuffer(ByteBuffer.allocate(bytes.length));
+        buffer.getByteBuffer().put(bytes);
+        Pipe pipe = new Pipe(buffer, "test", Mockito.mock(BaseConfiguration.class));
+        pipe.forceProducerComplete(Mockito.mock(ContentDecoder.class));
+        return pipe;
+    }
+
+    private static MessageContext createPassThroughMessageContext(Pipe pipe) throws Exception {
+        org.apache.axis2.context.MessageContext axis2MC = new org.apache.axis2.context.MessageContext();
+        axis2MC.setEnvelope(OMAbstractFactory.getSOAP11Factory().getDefaultEnvelope());
+        axis2MC.setProperty(PassThroughConstants.PASS_THROUGH_PIPE, pipe);
+        axis2MC.setProperty(SynapseConstants.AXIS2_PROPERTY_CONTENT_TYPE, SynapseConstants.XML_CONTENT_TYPE);
+        return new Axis2MessageContext(axis2MC, new SynapseConfiguration(), null);
+    }
+
+    private static String evaluate(String xpath, String xml) throws Exception {
+        return new StreamingXPATH(xpath).getStringValue(IOUtils.toInputStream(xml, "UTF-8"));
+    }
 }
@@ -0,0 +1,134 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.synapse.core.axis2;
+
+import junit.framework.TestCase;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseConstants;
+import org.apache.synapse.mediators.TestUtils;
+import org.apache.synapse.rest.RESTConstants;
+
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+public class MessagePropertyMapTest extends TestCase {
+
+    public void testKnownAndOtherProperties() {
+        Map<String, Object> map = new MessagePropertyMap();
+        assertTrue(map.isEmpty());
+
+        assertNull(map.put(SynapseConstants.RESPONSE, "true"));
+        assertNull(map.put(SynapseConstants.BLOCKING_SENDER_ERROR, "error"));
+        assertNull(map.put("custom", 1));
+        assertEquals("true", map.put(SynapseConstants.RESPONSE, "false"));
+
+        assertEquals(3, map.size());
+        assertEquals("false", map.get(SynapseConstants.RESPONSE));
+        assertEquals("error", map.get(SynapseConstants.BLOCKING_SENDER_ERROR));
+        assertEquals(1, map.get("custom"));
+        assertNull(map.get(RESTConstants.REST_METHOD));
+        assertFalse(map.containsKey(RESTConstants.REST_METHOD));
+        assertNull(map.get("other"));
+
+        Map<String, Object> expected = new HashMap<String, Object>();
+        expected.put(SynapseConstants.RESPONSE, "false");
+        expected.put(SynapseConstants.BLOCKING_SENDER_ERROR, "error");
+        expected.put("custom", 1);
+        assertEquals(expected, map);
+        assertEquals(map, expected);
+        assertEquals(expected.hashCode(), map.hashCode());
+        assertEquals(expected.keySet(), map.keySet());
+    }
+
+    public void testRemove() {
+        Map<String, Object> map = new MessagePropertyMap();
+        map.put(SynapseConstants.RESPONSE, "true");
+        map.put("custom", "value");
+
+        assertEquals("true", map.remove(SynapseConstants.RESPONSE));
+        assertNull(map.remove(SynapseConstants.RESPONSE));
+        assertNull(map.remove(SynapseConstants.BLOCKING_SENDER_ERROR));
+        assertEquals(1, map.size());
+
+        // a null value is the same as a property which is not set
+        map.put("custom", null);
+        assertTrue(map.isEmpty());
+
+        map.put(SynapseConstants.OUT_ONLY, "true");
+        map.put("custom", "value");
+        assertTrue(map.keySet().remove(SynapseConstants.OUT_ONLY));
+        assertTrue(map.keySet().remove("custom"));
+        assertTrue(map.isEmpty());
+
+        map.put(SynapseConstants.OUT_ONLY, "true");
+        map.clear();
+        assertNull(map.get(SynapseConstants.OUT_ONLY));
+        assertTrue(map.isEmpty());
+    }
+
+    public void testIterator() {
+        Map<String, Object> map = new MessagePropertyMap();
+        map.put(SynapseConstants.RESPONSE, "true");
+        map.put(SynapseConstants.ERROR_CODE, 101503);
+        map.put("custom", "value");
+
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            if (SynapseConstants.ERROR_CODE.equals(entry.getKey())) {
+                assertEquals(101503, entry.setValue(101504));
+            }
+        }
+        assertEquals(101504, map.get(SynapseConstants.ERROR_CODE));
+
+        Iterator<String> keys = map.keySet().iterator();
+        int count = 0;
+        while (keys.hasNext()) {
+            String key = keys.next();
+            if (!"custom".equals(key)) {
+                keys.remove();
+            }
+            count++;
+        }
+        assertEquals(3, count);
+        assertEquals(1, map.size());
+        assertEquals("value", map.get("custom"));
+        assertNull(map.get(SynapseConstants.RESPONSE));
+
+        keys = map.keySet().iterator();
+        keys.next();
+        map.put(SynapseConstants.RESPONSE, "true");
+        try {
+            keys.remove();
+            fail("Adding a property while iterating should not go unnoticed");
+        } catch (ConcurrentModificationException expected) {
+            // expected
+        }
+    }
+
+    public void testMessageContextProperties() throws Exception {
+        MessageContext synCtx = TestUtils.getTestContext("<empty/>");
+        synCtx.setProperty(SynapseConstants.SYNAPSE_ENDPOINT_CONCURRENCY_PERMIT, Boolean.TRUE);
+        synCtx.setProperty("custom", "value");
+        assertTrue(synCtx.getPropertyKeySet().contains(SynapseConstants.SYNAPSE_ENDPOINT_CONCURRENCY_PERMIT));
+
+        synCtx.getPropertyKeySet().remove(SynapseConstants.SYNAPSE_ENDPOINT_CONCURRENCY_PERMIT);
+        assertNull(synCtx.getProperty(SynapseConstants.SYNAPSE_ENDPOINT_CONCURRENCY_PERMIT));
+        assertFalse(synCtx.getPropertyKeySet().contains(SynapseConstants.SYNAPSE_ENDPOINT_CONCURRENCY_PERMIT));
+        assertEquals("value", synCtx.getProperty("custom"));
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.endpoints;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test class for unit testing of AdaptiveConcurrencyLimiter, injecting the latency of the back end
+ * as the round trip time of the requests.
+ */
+public class AdaptiveConcurrencyLimiterTest extends TestCase {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(50);
+
+    /**
+     * Requests over the limit are rejected until a request in flight completes.
+     */
+    public void testRejectsRequestsOverTheLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 1.5);
+        AdaptiveConcurrencyLimiter.Permit first = limiter.acquire();
+        assertNotNull(first);
+        assertNotNull(limiter.acquire());
+        assertNull("request over the limit should be rejected", limiter.acquire());
+        assertEquals(2, limiter.getInFlight());
+        assertEquals(1, limiter.getRejectedCount());
+
+        first.ignore();
+        assertEquals(1, limiter.getInFlight());
+        assertNotNull("request should be accepted once a request completes", limiter.acquire());
+    }
+
+    /**
+     * Only the first release of a permit counts.
+     */
+    public void testPermitIsReleasedOnce() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 1.5);
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire();
+        permit.release(false);
+        permit.release(true);
+        permit.ignore();
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    /**
+     * The limit grows while the back end keeps up, up to the maximum.
+     */
+    public void testLimitGrowsWhileLatencyIsSteady() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100, 1.5);
+        for (int i = 0; i < 200; i++) {
+            limiter.onSample(FAST, limiter.getLimit(), false);
+        }
+        assertEquals(100, limiter.getLimit());
+    }
+
+    /**
+     * The limit does not grow when the requests in flight are far below it.
+     */
+    public void testLimitDoesNotGrowWhenNotUsed() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100, 1.5);
+        for (int i = 0; i < 200; i++) {
+            limiter.onSample(FAST, 1, false);
+        }
+        assertEquals(10, limiter.getLimit());
+    }
+
+    /**
+     * The limit shrinks when the back end slows down, and grows back once it recovers.
+     */
+    public void testLimitFollowsLatency() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100, 1.5);
+        for (int i = 0; i < 200; i++) {
+            limiter.onSample(FAST, limiter.getLimit(), false);
+        }
+        int steadyLimit = limiter.getLimit();
+
+        for (int i = 0; i < 20; i++) {
+            limiter.onSample(SLOW, limiter.getLimit(), false);
+        }
+        int slowLimit = limiter.getLimit();
+        assertTrue("limit should shrink when the back end slows down", slowLimit < steadyLimit / 2);
+
+        for (int i = 0; i < 50; i++) {
+            limiter.onSample(FAST, limiter.getLimit(), false);
+        }
+        assertTrue("limit should grow once the back end recovers", limiter.getLimit() > slowLimit);
+    }
+
+    /**
+     * The limit is cut down to the minimum by dropped requests.
+     */
+    public void testLimitBacksOffOnDroppedRequests() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(50, 5, 100, 1.5);
+        limiter.onSample(FAST, 50, true);
+        assertEquals(45, limiter.getLimit());
+        for (int i = 0; i < 100; i++) {
+            limiter.onSample(FAST, 50, true);
+        }
+        assertEquals(5, limiter.getLimit());
+    }
+}
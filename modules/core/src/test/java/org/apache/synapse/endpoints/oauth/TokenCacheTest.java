@@ -0,0 +1,176 @@
+/*
+ *  Copyright (c) 2020, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.endpoints.oauth;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the single-flight and proactive refresh of the tokens held by the TokenCache
+ */
+public class TokenCacheTest extends TestCase {
+
+    /**
+     * Tests that concurrent requests without a token result in a single call to the token endpoint
+     */
+    public void testConcurrentRequestsFetchOnce() throws Exception {
+
+        final TokenCache cache = new TokenCache(0.8, 2);
+        final CountingFetcher fetcher = new CountingFetcher(60000, 100);
+        int threadCount = 16;
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threadCount);
+        final AtomicInteger errors = new AtomicInteger();
+
+        for (int i = 0; i < threadCount; i++) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                    if (!"token-1".equals(cache.getToken("handler", fetcher))) {
+                        errors.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    errors.incrementAndGet();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        start.countDown();
+        done.await();
+
+        assertEquals(0, errors.get());
+        assertEquals("Token endpoint must be called once", 1, fetcher.calls.get());
+        assertEquals(1, cache.getRefreshCount());
+        assertTrue(cache.getWaitCount() > 0);
+    }
+
+    /**
+     * Tests that a token is refreshed in the background once it is due, while the current token
+     * keeps being served
+     */
+    public void testProactiveRefresh() throws Exception {
+
+        TokenCache cache = new TokenCache(0.5, 1);
+        CountingFetcher fetcher = new CountingFetcher(400, 0);
+
+        assertEquals("token-1", cache.getToken("handler", fetcher));
+        Thread.sleep(250);
+
+        // due for a refresh but not expired, the current token is served
+        assertEquals("token-1", cache.getToken("handler", fetcher));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (cache.getBackgroundRefreshCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, cache.getBackgroundRefreshCount());
+        assertEquals("token-2", cache.getToken("handler", fetcher));
+        assertEquals(0, cache.getWaitCount());
+    }
+
+    /**
+     * Tests that a failed fetch is reported and retried by the next request
+     */
+    public void testFailedFetch() throws Exception {
+
+        TokenCache cache = new TokenCache(0.8, 1);
+        Callable<Token> failing = () -> {
+            throw new OAuthException("Token endpoint is not available");
+        };
+
+        try {
+            cache.getToken("handler", failing);
+            fail("Failure to fetch a token must be reported");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof OAuthException);
+        }
+        assertEquals(1, cache.getFailureCount());
+
+        assertEquals("token-1", cache.getToken("handler", new CountingFetcher(60000, 0)));
+    }
+
+    /**
+     * Tests that a removed token is fetched again
+     */
+    public void testRemoveToken() throws Exception {
+
+        TokenCache cache = new TokenCache(0.8, 1);
+        CountingFetcher fetcher = new CountingFetcher(60000, 0);
+
+        assertEquals("token-1", cache.getToken("handler", fetcher));
+        assertEquals("token-1", cache.getToken("handler", fetcher));
+        cache.removeToken("handler");
+        assertEquals("token-2", cache.getToken("handler", fetcher));
+    }
+
+    /**
+     * Tests that invalid values in synapse.properties fall back to the defaults
+     */
+    public void testInvalidConfiguration() {
+
+        assertEquals(OAuthConstants.DEFAULT_TOKEN_REFRESH_RATIO, TokenCache.parseRefreshRatio(null));
+        assertEquals(0.5, TokenCache.parseRefreshRatio(" 0.5 "));
+        assertEquals(OAuthConstants.DEFAULT_TOKEN_REFRESH_RATIO, TokenCache.parseRefreshRatio("half"));
+        assertEquals(OAuthConstants.DEFAULT_TOKEN_REFRESH_RATIO, TokenCache.parseRefreshRatio("0"));
+        assertEquals(OAuthConstants.DEFAULT_TOKEN_REFRESH_RATIO, TokenCache.parseRefreshRatio("1.5"));
+
+        assertEquals(OAuthConstants.DEFAULT_TOKEN_MAX_CONCURRENT_REFRESHES,
+                TokenCache.parseMaxConcurrentRefreshes(null));
+        assertEquals(2, TokenCache.parseMaxConcurrentRefreshes("2"));
+        assertEquals(OAuthConstants.DEFAULT_TOKEN_MAX_CONCURRENT_REFRESHES,
+                TokenCache.parseMaxConcurrentRefreshes("four"));
+        assertEquals(OAuthConstants.DEFAULT_TOKEN_MAX_CONCURRENT_REFRESHES,
+                TokenCache.parseMaxConcurrentRefreshes("0"));
+        assertEquals(OAuthConstants.DEFAULT_TOKEN_MAX_CONCURRENT_REFRESHES,
+                TokenCache.parseMaxConcurrentRefreshes("-1"));
+    }
+
+    /**
+     * Issues numbered tokens of the given lifetime, taking the given time to do so
+     */
+    private static class CountingFetcher implements Callable<Token> {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        private final long lifetime;
+
+        private final long delay;
+
+        CountingFetcher(long lifetime, long delay) {
+
+            this.lifetime = lifetime;
+            this.delay = delay;
+        }
+
+        @Override
+        public Token call() throws Exception {
+
+            int count = calls.incrementAndGet();
+            if (delay > 0) {
+                Thread.sleep(delay);
+            }
+            return new Token("token-" + count, lifetime);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.synapse.mediators.bean;
+
+import java.lang.reflect.Method;
+
+/**
+ * Compares the throughput of a bound setter against reflective invocation through BeanUtils. The
+ * figures depend on the machine, hence this is run by hand and is not part of the unit tests.
+ * <p>
+ * Usage : BoundMethodBenchmark [iterations, 200000 by default]
+ */
+public class BoundMethodBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        Method setter = BoundMethodTest.NumberBean.class.getMethod("setCount", int.class);
+        BoundMethod bound = new BoundMethod(setter);
+        BoundMethodTest.NumberBean bean = new BoundMethodTest.NumberBean();
+
+        // warm up both paths
+        for (int i = 0; i < iterations; i++) {
+            BeanUtils.invokeInstanceMethod(bean, setter, new Object[]{i});
+            bound.invoke(bean, i);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            BeanUtils.invokeInstanceMethod(bean, setter, new Object[]{"" + (i & 1023)});
+        }
+        long reflective = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            bound.invoke(bean, "" + (i & 1023));
+        }
+        long boundTime = System.nanoTime() - start;
+
+        System.out.println("Invoked a setter " + iterations + " times with a string argument, reflection : "
+                + (reflective / 1000000) + " ms, bound : " + (boundTime / 1000000) + " ms");
+    }
+}
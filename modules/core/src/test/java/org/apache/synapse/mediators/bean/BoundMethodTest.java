@@ -0,0 +1,115 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.apache.synapse.mediators.bean;
+
+import junit.framework.TestCase;
+import org.apache.synapse.SynapseException;
+
+/**
+ * Unit tests for the BoundMethod class. Its throughput against reflective invocation through
+ * BeanUtils is compared by {@link BoundMethodBenchmark}.
+ */
+public class BoundMethodTest extends TestCase {
+
+    public void testInvokeSetterAndGetter() throws Exception {
+        SampleBean bean = new SampleBean();
+        new BoundMethod(SampleBean.class.getMethod("setTestProperty", Object.class)).invoke(bean, "value");
+        assertEquals("value", bean.getTestProperty());
+
+        Object value = new BoundMethod(SampleBean.class.getMethod("getTestProperty")).invoke(bean);
+        assertEquals("value", value);
+    }
+
+    public void testSimpleTypeConversion() throws Exception {
+        NumberBean bean = new NumberBean();
+        new BoundMethod(NumberBean.class.getMethod("setCount", int.class)).invoke(bean, "42");
+        assertEquals(42, bean.getCount());
+
+        new BoundMethod(NumberBean.class.getMethod("setTotal", Long.class)).invoke(bean, 7);
+        assertEquals(Long.valueOf(7), bean.getTotal());
+
+        new BoundMethod(NumberBean.class.getMethod("setCount", int.class)).invoke(bean, 5);
+        assertEquals(5, bean.getCount());
+    }
+
+    public void testArgumentCountMismatch() throws Exception {
+        BoundMethod method = new BoundMethod(SampleBean.class.getMethod("setTestProperty", Object.class));
+        try {
+            method.invoke(new SampleBean());
+            fail("Argument count mismatch must be reported");
+        } catch (SynapseException expected) {
+            // expected
+        }
+    }
+
+    public void testIncompatibleArgument() throws Exception {
+        BoundMethod method = new BoundMethod(NumberBean.class.getMethod("setHolder", NumberBean.class));
+        try {
+            method.invoke(new NumberBean(), "not a bean");
+            fail("Incompatible argument must be reported");
+        } catch (SynapseException expected) {
+            // expected
+        }
+    }
+
+    public void testExceptionFromMethodIsWrapped() throws Exception {
+        BoundMethod method = new BoundMethod(NumberBean.class.getMethod("fail"));
+        try {
+            method.invoke(new NumberBean());
+            fail("Exception thrown by the method must be propagated");
+        } catch (SynapseException expected) {
+            assertTrue(expected.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    /**
+     * Bean with properties of simple types
+     */
+    public static class NumberBean {
+
+        private int count;
+        private Long total;
+        private NumberBean holder;
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public Long getTotal() {
+            return total;
+        }
+
+        public void setTotal(Long total) {
+            this.total = total;
+        }
+
+        public void setHolder(NumberBean holder) {
+            this.holder = holder;
+        }
+
+        public void fail() {
+            throw new IllegalStateException("expected");
+        }
+    }
+}
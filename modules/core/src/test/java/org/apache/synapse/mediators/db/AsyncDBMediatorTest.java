@@ -0,0 +1,342 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.synapse.mediators.db;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.FaultHandler;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.config.SynapseConfiguration;
+import org.apache.synapse.config.xml.DBLookupMediatorFactory;
+import org.apache.synapse.config.xml.DBReportMediatorFactory;
+import org.apache.synapse.core.SynapseEnvironment;
+import org.apache.synapse.core.axis2.Axis2SynapseEnvironment;
+import org.apache.synapse.mediators.AbstractMediator;
+import org.apache.synapse.mediators.AbstractMediatorTestCase;
+import org.apache.synapse.mediators.TestUtils;
+import org.apache.synapse.mediators.base.SequenceMediator;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the asynchronous execution of the DB mediators, and the batching of the statements of
+ * the DB report mediator, against an embedded Derby database.
+ */
+public class AsyncDBMediatorTest extends AbstractMediatorTestCase {
+
+    private static final Log log = LogFactory.getLog(AsyncDBMediatorTest.class);
+
+    private static final int THREADS = 8;
+
+    private static final int MESSAGES_PER_THREAD = 100;
+
+    private static String dbUrl;
+
+    private SynapseConfiguration synapseConfiguration;
+
+    private SynapseEnvironment synapseEnvironment;
+
+    @Override
+    protected void setUp() throws Exception {
+        synapseConfiguration = new SynapseConfiguration();
+        synapseEnvironment = new Axis2SynapseEnvironment(synapseConfiguration);
+    }
+
+    /**
+     * The flow continues after the asynchronous lookup, on another thread, with the looked up
+     * properties set.
+     */
+    public void testAsyncLookup() throws Exception {
+        DBLookupMediator lookup = (DBLookupMediator) new DBLookupMediatorFactory().createMediator(createOMElement(
+                "<dblookup xmlns=\"http://ws.apache.org/ns/synapse\" async=\"true\">\n" +
+                pool() +
+                "  <statement>\n" +
+                "    <sql>select target from async_destinations where source = ?</sql>\n" +
+                "    <parameter expression=\"//source\" type=\"INTEGER\"/>\n" +
+                "    <result name=\"targetProp\" column=\"target\"/>\n" +
+                "  </statement>\n" +
+                "</dblookup>"), new Properties());
+        assertTrue(lookup.isAsync());
+        ContinuationRecorder recorder = new ContinuationRecorder();
+        SequenceMediator sequence = newSequence("asyncLookupSequence", lookup, recorder);
+
+        MessageContext synCtx = newMessageContext("<dummy><source>5</source></dummy>");
+        assertFalse("Flow should be put on hold until the lookup is done", sequence.mediate(synCtx));
+        assertTrue("Flow was not resumed", recorder.latch.await(10, TimeUnit.SECONDS));
+        assertEquals("svr1", recorder.targetProp);
+        assertNotSame(Thread.currentThread(), recorder.thread);
+        assertTrue(synCtx.getContinuationStateStack().isEmpty());
+        sequence.destroy();
+    }
+
+    /**
+     * An error of the asynchronous statements is handed to the fault handler of the flow.
+     */
+    public void testAsyncLookupFault() throws Exception {
+        DBLookupMediator lookup = (DBLookupMediator) new DBLookupMediatorFactory().createMediator(createOMElement(
+                "<dblookup xmlns=\"http://ws.apache.org/ns/synapse\" async=\"true\">\n" +
+                pool() +
+                "  <statement>\n" +
+                "    <sql>select target from missing_table where source = ?</sql>\n" +
+                "    <parameter expression=\"//source\" type=\"INTEGER\"/>\n" +
+                "    <result name=\"targetProp\" column=\"target\"/>\n" +
+                "  </statement>\n" +
+                "</dblookup>"), new Properties());
+        ContinuationRecorder recorder = new ContinuationRecorder();
+        SequenceMediator sequence = newSequence("asyncFaultSequence", lookup, recorder);
+
+        MessageContext synCtx = newMessageContext("<dummy><source>5</source></dummy>");
+        final CountDownLatch faulted = new CountDownLatch(1);
+        synCtx.pushFaultHandler(new FaultHandler() {
+            public void onFault(MessageContext synCtx) {
+                faulted.countDown();
+            }
+        });
+        assertFalse(sequence.mediate(synCtx));
+        assertTrue("Fault handler was not invoked", faulted.await(10, TimeUnit.SECONDS));
+        assertEquals("Flow should not continue after the fault", 1, recorder.latch.getCount());
+        sequence.destroy();
+    }
+
+    /**
+     * Without a continuation stack to resume from, the statements are executed on the mediation thread.
+     */
+    public void testAsyncLookupWithoutContinuation() throws Exception {
+        DBLookupMediator lookup = (DBLookupMediator) new DBLookupMediatorFactory().createMediator(createOMElement(
+                "<dblookup xmlns=\"http://ws.apache.org/ns/synapse\" async=\"true\">\n" +
+                pool() +
+                "  <statement>\n" +
+                "    <sql>select target from async_destinations where source = ?</sql>\n" +
+                "    <parameter expression=\"//source\" type=\"INTEGER\"/>\n" +
+                "    <result name=\"targetProp\" column=\"target\"/>\n" +
+                "  </statement>\n" +
+                "</dblookup>"), new Properties());
+        lookup.init(synapseEnvironment);
+        MessageContext synCtx = TestUtils.getTestContext("<dummy><source>6</source></dummy>");
+        assertTrue(lookup.mediate(synCtx));
+        assertEquals("svr3", synCtx.getProperty("targetProp"));
+        lookup.destroy();
+    }
+
+    /**
+     * Statements of concurrent messages are all inserted, in fewer batches than messages.
+     */
+    public void testBatchedReport() throws Exception {
+        DBReportMediator report = newReport(" batchSize=\"50\"");
+        long time = reportConcurrently(report);
+        StatementBatch batch = report.getStatementBatch(report.getStatementList().get(0));
+        assertEquals(THREADS * MESSAGES_PER_THREAD, countRows(report, "batch"));
+        assertEquals(THREADS * MESSAGES_PER_THREAD, batch.getStatementCount());
+        assertTrue("Statements should be batched", batch.getBatchCount() < THREADS * MESSAGES_PER_THREAD);
+        log.info("Inserted " + THREADS * MESSAGES_PER_THREAD + " rows in " + batch.getBatchCount() +
+                 " batches in " + time + " ms");
+        report.destroy();
+
+        report = newReport("");
+        time = reportConcurrently(report);
+        assertEquals(THREADS * MESSAGES_PER_THREAD, countRows(report, "single"));
+        log.info("Inserted " + THREADS * MESSAGES_PER_THREAD + " rows one by one in " + time + " ms");
+        report.destroy();
+    }
+
+    /**
+     * A failing statement of a batch fails its own message only.
+     */
+    public void testBatchedReportFailure() throws Exception {
+        final DBReportMediator report = newReport(" batchSize=\"10\"");
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+        for (int i = 0; i < 40; i++) {
+            // the category column holds at most 10 characters
+            final String category = i == 7 ? "TOO-LONG-CATEGORY" : "failure";
+            results.add(executor.submit(new Callable<Boolean>() {
+                public Boolean call() throws Exception {
+                    MessageContext synCtx = TestUtils.getTestContext(
+                            "<dummy><from>me</from><category>" + category + "</category></dummy>");
+                    try {
+                        report.mediate(synCtx);
+                        return true;
+                    } catch (Exception e) {
+                        return false;
+                    }
+                }
+            }));
+        }
+        int failed = 0;
+        for (Future<Boolean> result : results) {
+            if (!result.get()) {
+                failed++;
+            }
+        }
+        executor.shutdown();
+        assertEquals(1, failed);
+        assertEquals(39, countRows(report, "failure"));
+        report.destroy();
+    }
+
+    private long reportConcurrently(final DBReportMediator report) throws Exception {
+        final String category = report.getBatchSize() > 0 ? "batch" : "single";
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>();
+        for (int i = 0; i < THREADS; i++) {
+            tasks.add(new Callable<Boolean>() {
+                public Boolean call() throws Exception {
+                    for (int j = 0; j < MESSAGES_PER_THREAD; j++) {
+                        MessageContext synCtx = TestUtils.getTestContext(
+                                "<dummy><from>me</from><category>" + category + "</category></dummy>");
+                        report.mediate(synCtx);
+                        assertEquals(1, synCtx.getProperty(DBReportMediator.MODIFIED_ROW_COUNT_PROP_NAME));
+                    }
+                    return true;
+                }
+            });
+        }
+        long start = System.currentTimeMillis();
+        try {
+            for (Future<Boolean> result : executor.invokeAll(tasks)) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return System.currentTimeMillis() - start;
+    }
+
+    private DBReportMediator newReport(String attributes) throws Exception {
+        DBReportMediator report = (DBReportMediator) new DBReportMediatorFactory().createMediator(createOMElement(
+                "<dbreport xmlns=\"http://ws.apache.org/ns/synapse\"" + attributes + ">\n" +
+                pool() +
+                "  <statement>\n" +
+                "    <sql>insert into batch_audit values(?, ?)</sql>\n" +
+                "    <parameter expression=\"//from\" type=\"VARCHAR\"/>\n" +
+                "    <parameter expression=\"//category\" type=\"VARCHAR\"/>\n" +
+                "  </statement>\n" +
+                "</dbreport>"), new Properties());
+        report.init(synapseEnvironment);
+        return report;
+    }
+
+    private static int countRows(AbstractDBMediator mediator, String category) throws SQLException {
+        Connection con = mediator.getDataSource().getConnection();
+        try {
+            ResultSet rs = con.createStatement().executeQuery(
+                    "select count(*) from batch_audit where category = '" + category + "'");
+            assertTrue(rs.next());
+            return rs.getInt(1);
+        } finally {
+            con.close();
+        }
+    }
+
+    private SequenceMediator newSequence(String name, AbstractDBMediator dbMediator, ContinuationRecorder recorder) {
+        SequenceMediator sequence = new SequenceMediator();
+        sequence.setName(name);
+        sequence.addChild(dbMediator);
+        sequence.addChild(recorder);
+        synapseConfiguration.addSequence(name, sequence);
+        sequence.init(synapseEnvironment);
+        return sequence;
+    }
+
+    private MessageContext newMessageContext(String payload) throws Exception {
+        MessageContext synCtx = TestUtils.createLightweightSynapseMessageContext(payload, synapseConfiguration);
+        synCtx.setEnvironment(synapseEnvironment);
+        synCtx.setContinuationEnabled(true);
+        return synCtx;
+    }
+
+    private static String pool() {
+        return "  <connection>\n" +
+               "    <pool>\n" +
+               "      <driver>org.apache.derby.jdbc.EmbeddedDriver</driver>\n" +
+               "      <url>" + dbUrl + "</url>\n" +
+               "      <user>user</user>\n" +
+               "      <password>pass</password>\n" +
+               "      <property name=\"maxactive\" value=\"" + THREADS + "\"/>\n" +
+               "    </pool>\n" +
+               "  </connection>\n";
+    }
+
+    /**
+     * Records the thread and the looked up property of the resumed flow.
+     */
+    private static class ContinuationRecorder extends AbstractMediator {
+
+        private final CountDownLatch latch = new CountDownLatch(1);
+
+        private volatile Thread thread;
+
+        private volatile Object targetProp;
+
+        public boolean mediate(MessageContext synCtx) {
+            thread = Thread.currentThread();
+            targetProp = synCtx.getProperty("targetProp");
+            latch.countDown();
+            return true;
+        }
+    }
+
+    public static Test suite() {
+        return new TestSetup(new TestSuite(AsyncDBMediatorTest.class)) {
+
+            @Override
+            protected void setUp() throws Exception {
+
+                String baseDir = System.getProperty("basedir");
+                if (baseDir == null) {
+                    baseDir = ".";
+                }
+                dbUrl = "jdbc:derby:" + baseDir + "/target/derbyDB;create=true";
+
+                Class.forName("org.apache.derby.jdbc.EmbeddedDriver");
+                Connection con = java.sql.DriverManager.getConnection(dbUrl, "user", "pass");
+                java.sql.Statement s = con.createStatement();
+                try {
+                    s.execute("drop table async_destinations");
+                } catch (SQLException ignore) {}
+                try {
+                    s.execute("drop table batch_audit");
+                } catch (SQLException ignore) {}
+                s.execute("create table async_destinations(target varchar(10), source int)");
+                s.execute("insert into async_destinations values ('svr1', 5)");
+                s.execute("insert into async_destinations values ('svr3', 6)");
+                s.execute("create table batch_audit(fromepr varchar(10), category varchar(10))");
+                s.close();
+                con.close();
+            }
+
+            @Override
+            protected void tearDown() throws Exception {
+
+            }
+        };
+    }
+}
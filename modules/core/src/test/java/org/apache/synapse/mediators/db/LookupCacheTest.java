@@ -0,0 +1,83 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.synapse.mediators.db;
+
+import junit.framework.TestCase;
+
+import java.util.Collections;
+import java.util.Map;
+
+public class LookupCacheTest extends TestCase {
+
+    private final Statement statement = new Statement("select target from destinations where source = ?");
+
+    public void testHitAndMiss() {
+        LookupCache cache = new LookupCache(60000, 10);
+        assertNull(cache.get(statement, new String[]{"5"}));
+        cache.put(statement, new String[]{"5"}, Collections.singletonMap("targetProp", "svr1"), 2000000);
+
+        Map<String, String> result = cache.get(statement, new String[]{"5"});
+        assertEquals("svr1", result.get("targetProp"));
+        assertNull(cache.get(statement, new String[]{"6"}));
+        assertNull(cache.get(new Statement(statement.getRawStatement()), new String[]{"5"}));
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+        assertEquals(0.25, cache.getHitRatio(), 0.0001);
+        assertEquals(2.0, cache.getAverageLoadTime(), 0.0001);
+    }
+
+    public void testNegativeResult() {
+        LookupCache cache = new LookupCache(60000, 10);
+        cache.put(statement, new String[]{"7"}, Collections.<String, String>emptyMap(), 0);
+        Map<String, String> result = cache.get(statement, new String[]{"7"});
+        assertNotNull(result);
+        assertTrue(result.isEmpty());
+        assertEquals(1, cache.getNegativeSize());
+    }
+
+    public void testExpiry() throws Exception {
+        LookupCache cache = new LookupCache(50, 10);
+        cache.put(statement, new String[]{"5"}, Collections.singletonMap("targetProp", "svr1"), 0);
+        assertNotNull(cache.get(statement, new String[]{"5"}));
+        Thread.sleep(100);
+        assertNull(cache.get(statement, new String[]{"5"}));
+        assertEquals(0, cache.getSize());
+    }
+
+    public void testEviction() {
+        LookupCache cache = new LookupCache(60000, 2);
+        cache.put(statement, new String[]{"1"}, Collections.<String, String>emptyMap(), 0);
+        cache.put(statement, new String[]{"2"}, Collections.<String, String>emptyMap(), 0);
+        // the first result becomes the most recently used
+        assertNotNull(cache.get(statement, new String[]{"1"}));
+        cache.put(statement, new String[]{"3"}, Collections.<String, String>emptyMap(), 0);
+
+        assertEquals(2, cache.getSize());
+        assertEquals(1, cache.getEvictionCount());
+        assertNotNull(cache.get(statement, new String[]{"1"}));
+        assertNull(cache.get(statement, new String[]{"2"}));
+    }
+
+    public void testInvalidate() {
+        LookupCache cache = new LookupCache(60000, 10);
+        cache.put(statement, new String[]{"5"}, Collections.singletonMap("targetProp", "svr1"), 0);
+        cache.invalidate();
+        assertNull(cache.get(statement, new String[]{"5"}));
+        assertEquals(0, cache.getSize());
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.synapse.mediators.db;
+
+import junit.framework.TestCase;
+import org.mockito.Mockito;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+
+/**
+ * Tests the release of the statement batch of a DB report mediator when a batch fails.
+ */
+public class StatementBatchTest extends TestCase {
+
+    /**
+     * A batch failing with a runtime exception reports it, and the next message executes its
+     * statement instead of waiting for the failed one to hand over.
+     */
+    public void testRuntimeFailureReleasesTheBatch() throws Exception {
+        final DataSource dataSource = Mockito.mock(DataSource.class);
+        Mockito.when(dataSource.getConnection()).thenThrow(new IllegalStateException("Data source is closed"));
+        DBReportMediator mediator = new DBReportMediator() {
+            @Override
+            public DataSource getDataSource() {
+                return dataSource;
+            }
+        };
+        final StatementBatch batch = new StatementBatch(mediator, new Statement("insert into audit values(?)"), 10);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            for (int i = 0; i < 2; i++) {
+                Future<Integer> result = executor.submit(new Callable<Integer>() {
+                    public Integer call() throws Exception {
+                        return batch.execute(new String[0], null);
+                    }
+                });
+                try {
+                    result.get(10, TimeUnit.SECONDS);
+                    fail("The failure of the batch should be reported");
+                } catch (ExecutionException expected) {
+                    assertTrue(expected.getCause() instanceof IllegalStateException);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, batch.getBatchCount());
+    }
+}
@@ -28,12 +28,16 @@ import org.apache.commons.lang.StringEscapeUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.synapse.ManagedLifecycle;
 import org.apache.synapse.Mediator;
+import org.apache.synapse.MessageContext;
 import org.apache.synapse.SynapseException;
 import org.apache.synapse.TestMessageContext;
 import org.apache.synapse.config.SynapseConfiguration;
 import org.apache.synapse.config.xml.MediatorFactoryFinder;
 import org.apache.synapse.core.axis2.Axis2SynapseEnvironment;
+import org.apache.synapse.mediators.AbstractMediator;
 import org.apache.synapse.mediators.AbstractMediatorTestCase;
+import org.apache.synapse.mediators.MediatorProperty;
+import org.apache.synapse.util.xpath.SynapseXPath;
 
 import javax.xml.namespace.QName;
 import java.text.DateFormat;
@@ -100,6 +104,56 @@ public class ClassMediatorTest extends AbstractMediatorTestCase {
         assertTrue(ClassMediatorTestMediator.destroyed);
     }
 
+    /**
+     * Dynamic properties are set as PropertyHelper sets them, through the bound setter for a single
+     * setter, and through every overload otherwise.
+     */
+    public void testDynamicProperties() throws Exception {
+        PropertyTestMediator target = new PropertyTestMediator();
+        ClassMediator cm = new ClassMediator();
+        cm.setMediator(target);
+        cm.addProperty(createDynamicProperty("count", "'7'"));
+        cm.addProperty(createDynamicProperty("name", "'12'"));
+        cm.init(new Axis2SynapseEnvironment(new SynapseConfiguration()));
+
+        TestMessageContext msgContext = new TestMessageContext();
+        msgContext.setEnvironment(new Axis2SynapseEnvironment(new SynapseConfiguration()));
+        cm.mediate(msgContext);
+        assertEquals(7, target.count);
+        assertEquals("12", target.name);
+        assertEquals(12, target.nameLength);
+    }
+
+    private static MediatorProperty createDynamicProperty(String name, String expression) throws Exception {
+        MediatorProperty property = new MediatorProperty();
+        property.setName(name);
+        property.setExpression(new SynapseXPath(expression));
+        return property;
+    }
+
+    public static class PropertyTestMediator extends AbstractMediator {
+
+        private int count;
+        private String name;
+        private int nameLength;
+
+        public boolean mediate(MessageContext synCtx) {
+            return true;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public void setName(int nameLength) {
+            this.nameLength = nameLength;
+        }
+    }
+
 //    public void testCreationWithXPathProperties() throws Exception {
 //        ClassMediator cm = new ClassMediator();
 //        MediatorProperty mp = new MediatorProperty();
@@ -142,4 +142,23 @@ public class POJOCommandMediatorTest extends AbstractMediatorTestCase {
         assertEquals("testcommand", ctx.getProperty("testCtxProp").toString());
         assertTrue(POJOCommandTestHelper.getInstance().isExecuted());
     }
+
+    public void testPojoWithPropertiesBoundAtInit() throws Exception {
+        Mediator pcm = MediatorFactoryFinder.getInstance().getMediator(createOMElement(
+                "<pojoCommand name='org.apache.synapse.mediators.ext.POJOCommandTestImplementedMediator' " +
+                        "xmlns='http://ws.apache.org/ns/synapse'><property name=\"ctxTest\" " +
+                        "context-name=\"testCtxProp\" action=\"ReadAndUpdateContext\"/></pojoCommand>"), new Properties());
+        SynapseConfiguration synapseConfig = new SynapseConfiguration();
+        Axis2SynapseEnvironment synapseEnvironment = new Axis2SynapseEnvironment(synapseConfig);
+        ((POJOCommandMediator) pcm).init(synapseEnvironment);
+        for (int i = 0; i < 2; i++) {
+            POJOCommandTestHelper.reset();
+            MessageContext ctx = new TestMessageContext();
+            ctx.setProperty("testCtxProp", "test");
+            ctx.setEnvironment(synapseEnvironment);
+            pcm.mediate(ctx);
+            assertEquals("testcommand", ctx.getProperty("testCtxProp").toString());
+            assertTrue(POJOCommandTestHelper.getInstance().isExecuted());
+        }
+    }
 }
@@ -0,0 +1,305 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.synapse.message.processor.impl.forwarder;
+
+import org.apache.axiom.om.util.AXIOMUtil;
+import org.apache.axiom.soap.SOAPEnvelope;
+import org.apache.axiom.soap.impl.llom.soap11.SOAP11Factory;
+import org.apache.axis2.context.ConfigurationContext;
+import org.apache.synapse.FaultHandler;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.SynapseConstants;
+import org.apache.synapse.config.SynapseConfiguration;
+import org.apache.synapse.core.SynapseEnvironment;
+import org.apache.synapse.core.axis2.AsyncResponseHandler;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.apache.synapse.core.axis2.Axis2SynapseEnvironment;
+import org.apache.synapse.endpoints.AddressEndpoint;
+import org.apache.synapse.endpoints.EndpointDefinition;
+import org.apache.synapse.message.processor.MessageProcessorConstants;
+import org.apache.synapse.message.store.MessageStore;
+import org.apache.synapse.message.store.impl.jdbc.JDBCMessageStore;
+import org.apache.synapse.message.store.impl.jdbc.JDBCMessageStoreConstants;
+import org.apache.synapse.message.store.impl.memory.InMemoryStore;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests forwarding the messages of the in memory and JDBC message stores in parallel, to a local
+ * back end which takes a while to accept each message, or to respond to each message sent without
+ * blocking.
+ */
+public class ParallelForwardingServiceTest {
+
+    private static final int CONCURRENCY = 4;
+
+    private static final long BACKEND_LATENCY = 200;
+
+    private SynapseConfiguration synapseConfiguration;
+
+    private SynapseEnvironment synapseEnvironment;
+
+    private Backend backend;
+
+    @Before
+    public void setUp() throws Exception {
+        synapseConfiguration = new SynapseConfiguration();
+        ConfigurationContext cfgCtx = new ConfigurationContext(synapseConfiguration.getAxisConfiguration());
+        synapseEnvironment = new Axis2SynapseEnvironment(cfgCtx, synapseConfiguration);
+        backend = new Backend();
+        backend.setName("backend");
+        EndpointDefinition definition = new EndpointDefinition();
+        // the response of a JMS endpoint is not validated
+        definition.setAddress("jms:/backend");
+        backend.setDefinition(definition);
+        backend.init(synapseEnvironment);
+        synapseConfiguration.addEndpoint("backend", backend);
+    }
+
+    @Test
+    public void testForwardingFromInMemoryStore() throws Exception {
+        InMemoryStore store = new InMemoryStore();
+        store.setName("memoryStore");
+        store.init(synapseEnvironment);
+        synapseConfiguration.addMessageStore(store.getName(), store);
+
+        ParallelForwardingService service = createService(store, null, false);
+        int count = 3 * CONCURRENCY;
+        storeMessages(store, count, null);
+
+        long start = System.currentTimeMillis();
+        service.execute();
+        long duration = System.currentTimeMillis() - start;
+
+        Assert.assertEquals("Store is not drained", 0, store.size());
+        Assert.assertEquals("Messages not forwarded", count, backend.forwarded.get());
+        Assert.assertEquals("Messages not forwarded in parallel", CONCURRENCY, backend.maxInFlight.get());
+        Assert.assertTrue("Forwarding took " + duration + " ms", duration < count * BACKEND_LATENCY);
+    }
+
+    @Test
+    public void testOrderingByKey() throws Exception {
+        InMemoryStore store = new InMemoryStore();
+        store.setName("orderedStore");
+        store.init(synapseEnvironment);
+        synapseConfiguration.addMessageStore(store.getName(), store);
+
+        ParallelForwardingService service = createService(store, "customer", false);
+        storeMessages(store, 24, new String[]{"A", "B", "C"});
+        service.execute();
+
+        Assert.assertEquals("Store is not drained", 0, store.size());
+        Assert.assertEquals("Messages not forwarded", 24, backend.forwarded.get());
+        Assert.assertTrue("Messages not forwarded in parallel", backend.maxInFlight.get() > 1);
+        for (Map.Entry<String, List<Integer>> group : backend.sequences.entrySet()) {
+            List<Integer> sequence = group.getValue();
+            Assert.assertEquals(8, sequence.size());
+            for (int i = 1; i < sequence.size(); i++) {
+                Assert.assertTrue("Messages of " + group.getKey() + " forwarded out of order : " + sequence,
+                                  sequence.get(i - 1) < sequence.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testForwardingFromJDBCStore() throws Exception {
+        String baseDir = System.getProperty("basedir");
+        if (baseDir == null) {
+            baseDir = ".";
+        }
+        String url = "jdbc:derby:" + baseDir + "/target/derbyDB;create=true";
+        Class.forName("org.apache.derby.jdbc.EmbeddedDriver");
+        Connection con = DriverManager.getConnection(url, "user", "pass");
+        Statement s = con.createStatement();
+        try {
+            s.execute("drop table parallel_store");
+        } catch (SQLException ignore) {
+        }
+        s.execute("create table parallel_store(indexId bigint generated always as identity, "
+                  + "msg_id varchar(200) not null, message blob not null, primary key (indexId))");
+        s.close();
+        con.close();
+
+        JDBCMessageStore store = new JDBCMessageStore();
+        store.setName("jdbcStore");
+        Map<String, Object> parameters = new HashMap<String, Object>();
+        parameters.put(JDBCMessageStoreConstants.JDBC_CONNECTION_DRIVER, "org.apache.derby.jdbc.EmbeddedDriver");
+        parameters.put(JDBCMessageStoreConstants.JDBC_CONNECTION_URL, url);
+        parameters.put(JDBCMessageStoreConstants.JDBC_USERNAME, "user");
+        parameters.put(JDBCMessageStoreConstants.JDBC_PASSWORD, "pass");
+        parameters.put(JDBCMessageStoreConstants.JDBC_TABLE, "parallel_store");
+        store.setParameters(parameters);
+        store.init(synapseEnvironment);
+        synapseConfiguration.addMessageStore(store.getName(), store);
+
+        ParallelForwardingService service = createService(store, "customer", false);
+        storeMessages(store, 12, new String[]{"A", "B", "C", "D"});
+        service.execute();
+
+        Assert.assertEquals("Store is not drained", 0, store.size());
+        Assert.assertEquals("Messages not forwarded", 12, backend.forwarded.get());
+        Assert.assertTrue("Messages not forwarded in parallel", backend.maxInFlight.get() > 1);
+    }
+
+    @Test
+    public void testNonBlockingForwarding() throws Exception {
+        InMemoryStore store = new InMemoryStore();
+        store.setName("nonBlockingStore");
+        store.init(synapseEnvironment);
+        synapseConfiguration.addMessageStore(store.getName(), store);
+
+        ParallelForwardingService service = createService(store, null, true);
+        int count = 3 * CONCURRENCY;
+        storeMessages(store, count, null);
+        backend.failures.set(2);
+
+        long start = System.currentTimeMillis();
+        service.execute();
+        long duration = System.currentTimeMillis() - start;
+        service.destroy();
+
+        Assert.assertEquals("Store is not drained", 0, store.size());
+        Assert.assertEquals("Messages not forwarded", count, backend.forwarded.get());
+        Assert.assertEquals("Failed messages not retried", count + 2, backend.sent.get());
+        Assert.assertEquals("Outstanding messages not bounded", CONCURRENCY, backend.maxInFlight.get());
+        Assert.assertTrue("Forwarding took " + duration + " ms", duration < count * BACKEND_LATENCY);
+    }
+
+    private ParallelForwardingService createService(MessageStore store, String orderingKey, boolean nonBlocking) {
+        ScheduledMessageForwardingProcessor processor = new ScheduledMessageForwardingProcessor() {
+            @Override
+            public boolean isDeactivated() {
+                return false;
+            }
+
+            @Override
+            public boolean isActive() {
+                return true;
+            }
+        };
+        Map<String, Object> parameters = new HashMap<String, Object>();
+        parameters.put(MessageProcessorConstants.INTERVAL, "1000");
+        parameters.put(ForwardingProcessorConstants.TARGET_ENDPOINT, "backend");
+        parameters.put(ForwardingProcessorConstants.CONCURRENCY, String.valueOf(CONCURRENCY));
+        parameters.put(MessageProcessorConstants.RETRY_INTERVAL, "100");
+        if (orderingKey != null) {
+            parameters.put(ForwardingProcessorConstants.ORDERING_KEY, orderingKey);
+        }
+        processor.setName("parallelProcessor");
+        processor.setParameters(parameters);
+        processor.setMessageStoreName(store.getName());
+        return new ParallelForwardingService(processor, null, synapseEnvironment, 1000, CONCURRENCY, nonBlocking,
+                                             false);
+    }
+
+    private void storeMessages(MessageStore store, int count, String[] groups) throws Exception {
+        for (int i = 0; i < count; i++) {
+            org.apache.axis2.context.MessageContext axis2Ctx = new org.apache.axis2.context.MessageContext();
+            axis2Ctx.setMessageID(UUID.randomUUID().toString());
+            MessageContext messageContext =
+                    new Axis2MessageContext(axis2Ctx, synapseConfiguration, synapseEnvironment);
+            SOAPEnvelope envelope = new SOAP11Factory().getDefaultEnvelope();
+            envelope.getBody().addChild(AXIOMUtil.stringToOM("<order><id>" + i + "</id></order>"));
+            messageContext.setEnvelope(envelope);
+            messageContext.setProperty("sequence", String.valueOf(i));
+            if (groups != null) {
+                messageContext.setProperty("customer", groups[i % groups.length]);
+            }
+            Assert.assertTrue(store.getProducer().storeMessage(messageContext));
+        }
+    }
+
+    /**
+     * Back end which takes a while to accept each message, recording the order of the messages of
+     * each customer. The messages sent without blocking are accepted at once, and responded to, or
+     * failed while there are failures left, after a while.
+     */
+    private static class Backend extends AddressEndpoint {
+
+        private final ScheduledExecutorService responder = Executors.newScheduledThreadPool(2);
+
+        private final AtomicInteger sent = new AtomicInteger();
+
+        private final AtomicInteger failures = new AtomicInteger();
+
+        private final AtomicInteger forwarded = new AtomicInteger();
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+
+        private final Map<String, List<Integer>> sequences = new HashMap<String, List<Integer>>();
+
+        @Override
+        public void send(final MessageContext synCtx) {
+            sent.incrementAndGet();
+            int current = inFlight.incrementAndGet();
+            int max;
+            while (current > (max = maxInFlight.get()) && !maxInFlight.compareAndSet(max, current)) {
+                // retry
+            }
+            Object customer = synCtx.getProperty("customer");
+            if (customer != null) {
+                synchronized (sequences) {
+                    List<Integer> sequence = sequences.get(customer.toString());
+                    if (sequence == null) {
+                        sequence = new ArrayList<Integer>();
+                        sequences.put(customer.toString(), sequence);
+                    }
+                    sequence.add(Integer.valueOf((String) synCtx.getProperty("sequence")));
+                }
+            }
+            final Object handler = synCtx.getProperty(SynapseConstants.ASYNC_RESPONSE_HANDLER);
+            if (handler instanceof AsyncResponseHandler) {
+                responder.schedule(new Runnable() {
+                    public void run() {
+                        inFlight.decrementAndGet();
+                        if (failures.getAndDecrement() > 0) {
+                            ((FaultHandler) synCtx.getFaultStack().pop()).handleFault(synCtx);
+                        } else {
+                            forwarded.incrementAndGet();
+                            ((AsyncResponseHandler) handler).handleResponse(synCtx);
+                        }
+                    }
+                }, BACKEND_LATENCY, TimeUnit.MILLISECONDS);
+                return;
+            }
+            try {
+                Thread.sleep(BACKEND_LATENCY);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            inFlight.decrementAndGet();
+            forwarded.incrementAndGet();
+        }
+    }
+}
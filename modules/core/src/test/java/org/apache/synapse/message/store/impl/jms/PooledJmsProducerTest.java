@@ -0,0 +1,221 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.synapse.message.store.impl.jms;
+
+import junit.framework.Assert;
+import org.apache.activemq.broker.BrokerService;
+import org.apache.axiom.soap.SOAPEnvelope;
+import org.apache.axiom.soap.impl.llom.soap11.SOAP11Factory;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.MessageContext;
+import org.apache.synapse.config.SynapseConfiguration;
+import org.apache.synapse.core.SynapseEnvironment;
+import org.apache.synapse.core.axis2.Axis2MessageContext;
+import org.apache.synapse.core.axis2.Axis2SynapseEnvironment;
+import org.apache.synapse.message.MessageProducer;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.jms.Connection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Test class for storing messages concurrently with the pooled producers of the Jms Store, against an embedded broker
+ */
+public class PooledJmsProducerTest {
+
+    private static final Log log = LogFactory.getLog(PooledJmsProducerTest.class);
+
+    private static final String BROKER_URL = "vm://pooledProducerBroker?create=false";
+
+    private static final int THREADS = 8;
+
+    private static final int MESSAGES_PER_THREAD = 50;
+
+    private static BrokerService broker;
+
+    @BeforeClass
+    public static void startBroker() throws Exception {
+        broker = new BrokerService();
+        broker.setBrokerName("pooledProducerBroker");
+        broker.setPersistent(false);
+        broker.setUseJmx(false);
+        broker.start();
+        if (!broker.isStarted()) {
+            throw new Exception("Couldn't start the broker!");
+        }
+    }
+
+    /**
+     * Messages stored concurrently are all stored, without creating more producers than the pool size.
+     */
+    @Test
+    public void testConcurrentStore() throws Exception {
+        JmsStore jmsStore = newStore("PooledJmsStore", "4");
+        Assert.assertTrue("Producers should be pooled", jmsStore.isProducerPooled());
+
+        long time = storeConcurrently(jmsStore);
+
+        PooledJmsProducer pool = (PooledJmsProducer) jmsStore.getProducer();
+        Assert.assertEquals("Message not stored!", THREADS * MESSAGES_PER_THREAD, jmsStore.difference());
+        Assert.assertTrue("More producers created than the pool size", pool.getCreatedCount() <= 4);
+        Assert.assertEquals(pool.getCreatedCount(), pool.getIdleCount());
+        log.info("Stored " + THREADS * MESSAGES_PER_THREAD + " messages with pooled producers in " + time + " ms");
+
+        jmsStore.destroy();
+        Assert.assertEquals(0, pool.getIdleCount());
+    }
+
+    /**
+     * Pooled producers created on a replaced connection are not used any more.
+     */
+    @Test
+    public void testReplacedConnection() throws Exception {
+        JmsStore jmsStore = newStore("ReconnectedJmsStore", "2");
+        MessageProducer producer = jmsStore.getProducer();
+        Assert.assertTrue(producer.storeMessage(newMessageContext()));
+
+        jmsStore.newWriteConnection();
+        Assert.assertTrue("Message not stored on the new connection",
+                          producer.storeMessage(newMessageContext()));
+        Assert.assertEquals(2, ((PooledJmsProducer) producer).getCreatedCount());
+        Assert.assertEquals(1, ((PooledJmsProducer) producer).getIdleCount());
+        jmsStore.destroy();
+    }
+
+    /**
+     * A producer which fails closes the producer connection only if it is the connection it was created on.
+     */
+    @Test
+    public void testFailedProducerClosesOnlyItsConnection() throws Exception {
+        JmsStore jmsStore = newStore("CloseOwnConnectionJmsStore", "2");
+        Connection replaced = jmsStore.producerConnection();
+        jmsStore.newWriteConnection();
+        Connection current = jmsStore.producerConnection();
+
+        jmsStore.closeWriteConnection(replaced);
+        Assert.assertSame("A replaced connection should not close the current one",
+                          current, jmsStore.producerConnection());
+        jmsStore.closeWriteConnection(current);
+        Assert.assertNull(jmsStore.producerConnection());
+        jmsStore.destroy();
+    }
+
+    /**
+     * A new pooled producer replaces a producer connection which is closed but was not cleared.
+     */
+    @Test
+    public void testDeadConnectionReplaced() throws Exception {
+        JmsStore jmsStore = newStore("DeadConnectionJmsStore", "2");
+        MessageProducer producer = jmsStore.getProducer();
+        Connection dead = jmsStore.producerConnection();
+        dead.close();
+
+        Assert.assertTrue("Message not stored on a new connection", producer.storeMessage(newMessageContext()));
+        Assert.assertNotSame(dead, jmsStore.producerConnection());
+        Assert.assertEquals(1, jmsStore.difference());
+        jmsStore.destroy();
+    }
+
+    /**
+     * Stores the same load over the single producer of a store without pooling, which is shared by all the threads,
+     * for comparison.
+     */
+    @Test
+    public void testSharedProducer() throws Exception {
+        JmsStore jmsStore = newStore("SharedJmsStore", null);
+        Assert.assertFalse(jmsStore.isProducerPooled());
+
+        long time = storeConcurrently(jmsStore);
+
+        Assert.assertEquals("Message not stored!", THREADS * MESSAGES_PER_THREAD, jmsStore.difference());
+        log.info("Stored " + THREADS * MESSAGES_PER_THREAD + " messages with a shared producer in " + time + " ms");
+        jmsStore.destroy();
+    }
+
+    private long storeConcurrently(final JmsStore jmsStore) throws Exception {
+        final boolean pooled = jmsStore.isProducerPooled();
+        final Object lock = new Object();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            tasks.add(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    boolean stored = true;
+                    for (int j = 0; j < MESSAGES_PER_THREAD; j++) {
+                        MessageContext messageContext = newMessageContext();
+                        if (pooled) {
+                            stored &= jmsStore.getProducer().storeMessage(messageContext);
+                        } else {
+                            // the way the message store mediator shares a producer
+                            synchronized (lock) {
+                                stored &= jmsStore.getProducer().storeMessage(messageContext);
+                            }
+                        }
+                    }
+                    return stored;
+                }
+            });
+        }
+        long start = System.currentTimeMillis();
+        try {
+            for (Future<Boolean> result : executor.invokeAll(tasks)) {
+                Assert.assertTrue("Message not stored!", result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return System.currentTimeMillis() - start;
+    }
+
+    private static JmsStore newStore(String name, String poolSize) {
+        JmsStore jmsStore = new JmsStore();
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("java.naming.factory.initial", "org.apache.activemq.jndi.ActiveMQInitialContextFactory");
+        parameters.put("java.naming.provider.url", BROKER_URL);
+        parameters.put(JmsStore.DESTINATION, name + "_Queue");
+        if (poolSize != null) {
+            parameters.put(JmsStore.PRODUCER_POOL_SIZE, poolSize);
+        }
+        jmsStore.setParameters(parameters);
+        jmsStore.setName(name);
+        SynapseConfiguration synapseConfiguration = new SynapseConfiguration();
+        synapseConfiguration.addMessageStore(name, jmsStore);
+        jmsStore.init(new Axis2SynapseEnvironment(synapseConfiguration));
+        return jmsStore;
+    }
+
+    private static MessageContext newMessageContext() throws Exception {
+        SynapseConfiguration synapseConfiguration = new SynapseConfiguration();
+        SynapseEnvironment synapseEnvironment = new Axis2SynapseEnvironment(synapseConfiguration);
+        MessageContext messageContext = new Axis2MessageContext(new org.apache.axis2.context.MessageContext(),
+                                                                synapseConfiguration, synapseEnvironment);
+        SOAPEnvelope envelope = new SOAP11Factory().createSOAPEnvelope();
+        messageContext.setEnvelope(envelope);
+        return messageContext;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.synapse.startup.wheel;
+
+import org.apache.synapse.startup.quartz.QuartzTaskManager;
+import org.apache.synapse.task.Task;
+import org.apache.synapse.task.TaskDescription;
+import org.apache.synapse.task.TaskManager;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Compares the jitter of many frequent tasks, and the CPU time spent scheduling them, between the
+ * timing wheel and the Quartz task managers. The figures depend too much on the machine to be
+ * asserted, hence this is run by hand and is not part of the unit tests.
+ * <p>
+ * Usage : TimingWheelTaskManagerBenchmark [number of tasks, 200 by default] [interval in ms, 100 by default]
+ * [duration in ms, 5000 by default]
+ */
+public class TimingWheelTaskManagerBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int taskCount = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        long interval = args.length > 1 ? Long.parseLong(args[1]) : 100;
+        long duration = args.length > 2 ? Long.parseLong(args[2]) : 5000;
+
+        run("timing wheel", new TimingWheelTaskManager(), taskCount, interval, duration);
+        run("quartz", new QuartzTaskManager(), taskCount, interval, duration);
+    }
+
+    private static void run(String name, TaskManager taskManager, int taskCount, long interval,
+                            long duration) throws InterruptedException {
+        taskManager.setName("benchmark-" + name.replace(' ', '-'));
+        taskManager.init(new Properties());
+        taskManager.start();
+        List<TimedTask> tasks = new ArrayList<TimedTask>();
+        long cpuTime;
+        try {
+            for (int i = 0; i < taskCount; i++) {
+                TimedTask task = new TimedTask();
+                tasks.add(task);
+                TaskDescription taskDescription = new TaskDescription();
+                taskDescription.setName("frequent-" + i);
+                taskDescription.setInterval(interval);
+                taskDescription.setIntervalInMs(true);
+                taskDescription.setCount(-1);
+                taskDescription.addResource(TaskDescription.INSTANCE, task);
+                taskManager.schedule(taskDescription);
+            }
+            long start = getProcessCpuTime();
+            Thread.sleep(duration);
+            cpuTime = getProcessCpuTime() - start;
+        } finally {
+            taskManager.stop();
+        }
+
+        long deviation = 0;
+        long maxDeviation = 0;
+        int samples = 0;
+        for (TimedTask task : tasks) {
+            synchronized (task.times) {
+                for (int i = 1; i < task.times.size(); i++) {
+                    long drift = Math.abs(task.times.get(i) - task.times.get(i - 1) - interval);
+                    deviation += drift;
+                    maxDeviation = Math.max(maxDeviation, drift);
+                    samples++;
+                }
+            }
+        }
+        System.out.println(name + " - " + taskCount + " tasks every " + interval + " ms : " + samples
+                           + " executions, mean jitter " + (samples > 0 ? deviation / samples : 0)
+                           + " ms, max jitter " + maxDeviation + " ms, CPU time " + cpuTime / 1000000 + " ms");
+    }
+
+    private static long getProcessCpuTime() {
+        java.lang.management.OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+        }
+        return 0;
+    }
+
+    private static class TimedTask implements Task {
+
+        private final List<Long> times = new ArrayList<Long>();
+
+        public void execute() {
+            synchronized (times) {
+                times.add(System.currentTimeMillis());
+            }
+        }
+    }
+}
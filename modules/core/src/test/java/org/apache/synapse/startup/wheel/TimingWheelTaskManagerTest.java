@@ -0,0 +1,356 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.synapse.startup.wheel;
+
+import org.apache.synapse.task.Task;
+import org.apache.synapse.task.TaskDescription;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests the scheduling of tasks by the timing wheel task manager. The time of the task manager is
+ * advanced by the tests, so that the firings do not depend on the timer thread. The jitter of the
+ * firings is measured by {@link TimingWheelTaskManagerBenchmark}.
+ */
+public class TimingWheelTaskManagerTest {
+
+    private static final long START = 1000000;
+
+    private static final long WAIT = 5000;
+
+    private ManualTaskManager taskManager;
+
+    @After
+    public void tearDown() {
+        if (taskManager != null) {
+            taskManager.stop();
+        }
+    }
+
+    @Test
+    public void testCount() {
+        taskManager = createTaskManager(true);
+        CountingTask task = new CountingTask(null);
+        Assert.assertTrue(taskManager.schedule(createTaskDescription("counted", task, 20, 5)));
+        Assert.assertEquals("Task not executed at start", 1, task.executions.get());
+        for (int i = 0; i < 3; i++) {
+            taskManager.advanceBy(20);
+        }
+        Assert.assertEquals(4, task.executions.get());
+        Assert.assertTrue("Task removed before its count", taskManager.isTaskExist("counted"));
+        taskManager.advanceBy(20);
+        Assert.assertEquals("Task not executed as many times as its count", 5, task.executions.get());
+        Assert.assertFalse("Completed task not removed", taskManager.isTaskExist("counted"));
+        taskManager.advanceBy(100);
+        Assert.assertEquals("Completed task executed", 5, task.executions.get());
+    }
+
+    /**
+     * Tasks due within the same tick are all executed, and each task in the phase of its own
+     * interval.
+     */
+    @Test
+    public void testOrder() {
+        taskManager = createTaskManager(true);
+        List<String> executions = Collections.synchronizedList(new ArrayList<String>());
+        taskManager.schedule(createTaskDescription("slow", new CountingTask(executions, "slow"), 30, -1));
+        taskManager.schedule(createTaskDescription("fast", new CountingTask(executions, "fast"), 20, -1));
+        Assert.assertEquals(Arrays.asList("slow", "fast"), executions);
+
+        executions.clear();
+        taskManager.advanceBy(20);
+        Assert.assertEquals(Collections.singletonList("fast"), executions);
+        executions.clear();
+        taskManager.advanceBy(10);
+        Assert.assertEquals(Collections.singletonList("slow"), executions);
+        executions.clear();
+        taskManager.advanceBy(10);
+        Assert.assertEquals(Collections.singletonList("fast"), executions);
+        executions.clear();
+        taskManager.advanceBy(10);
+        Assert.assertTrue("Task executed early", executions.isEmpty());
+        taskManager.advanceBy(10);
+        Assert.assertEquals(2, executions.size());
+        Assert.assertTrue(executions.containsAll(Arrays.asList("slow", "fast")));
+    }
+
+    /**
+     * Firings missed while the time jumps are skipped, keeping the phase of the task.
+     */
+    @Test
+    public void testMissedFirings() {
+        taskManager = createTaskManager(true);
+        CountingTask task = new CountingTask(null);
+        taskManager.schedule(createTaskDescription("late", task, 20, -1));
+        taskManager.advanceBy(75);
+        Assert.assertEquals("Missed firings not skipped", 2, task.executions.get());
+        taskManager.advanceBy(4);
+        Assert.assertEquals(2, task.executions.get());
+        taskManager.advanceBy(1);
+        Assert.assertEquals("Task out of phase", 3, task.executions.get());
+    }
+
+    @Test
+    public void testPauseAndResume() {
+        taskManager = createTaskManager(true);
+        CountingTask task = new CountingTask(null);
+        taskManager.schedule(createTaskDescription("paused", task, 20, -1));
+        taskManager.advanceBy(20);
+        Assert.assertEquals(2, task.executions.get());
+
+        Assert.assertTrue(taskManager.pause("paused"));
+        Assert.assertTrue(taskManager.isTaskDeactivated("paused"));
+        Assert.assertFalse(taskManager.isTaskRunning("paused"));
+        taskManager.advanceBy(100);
+        Assert.assertEquals("Paused task executed", 2, task.executions.get());
+
+        Assert.assertTrue(taskManager.resume("paused"));
+        Assert.assertTrue(taskManager.isTaskRunning("paused"));
+        Assert.assertEquals("Resumed task executed out of phase", 2, task.executions.get());
+        taskManager.advanceBy(20);
+        Assert.assertEquals("Resumed task not executed", 3, task.executions.get());
+
+        taskManager.delete("paused::" + TaskDescription.DEFAULT_GROUP);
+        Assert.assertFalse(taskManager.isTaskExist("paused"));
+    }
+
+    @Test
+    public void testReschedule() {
+        taskManager = createTaskManager(true);
+        CountingTask task = new CountingTask(null);
+        taskManager.schedule(createTaskDescription("rescheduled", task, 10000, -1));
+        taskManager.advanceBy(100);
+        Assert.assertEquals("Task not executed at start", 1, task.executions.get());
+        Assert.assertTrue(taskManager.reschedule("rescheduled", createTaskDescription("rescheduled", null, 20, -1)));
+        Assert.assertEquals("Rescheduled task not executed", 2, task.executions.get());
+        for (int i = 0; i < 3; i++) {
+            taskManager.advanceBy(20);
+        }
+        Assert.assertEquals(5, task.executions.get());
+    }
+
+    /**
+     * A task rejected by the workers is executed again at its next firing, and the rejected
+     * firing is not counted.
+     */
+    @Test
+    public void testRejectedExecution() {
+        taskManager = createTaskManager(true);
+        taskManager.rejections.set(1);
+        CountingTask task = new CountingTask(null);
+        taskManager.schedule(createTaskDescription("rejected", task, 20, 2));
+        Assert.assertEquals(0, task.executions.get());
+        Assert.assertFalse("Rejected task left executing", taskManager.isTaskBlocked("rejected"));
+        taskManager.advanceBy(20);
+        Assert.assertEquals("Task not executed after a rejection", 1, task.executions.get());
+        Assert.assertTrue(taskManager.isTaskExist("rejected"));
+        taskManager.advanceBy(20);
+        Assert.assertEquals(2, task.executions.get());
+        Assert.assertFalse(taskManager.isTaskExist("rejected"));
+    }
+
+    @Test
+    public void testNoConcurrentExecution() throws Exception {
+        taskManager = createTaskManager(false);
+        BlockingTask task = new BlockingTask();
+        taskManager.schedule(createTaskDescription("slow", task, 10, -1));
+        Assert.assertTrue("Task not executed", task.started.tryAcquire(WAIT, TimeUnit.MILLISECONDS));
+        for (int i = 0; i < 5; i++) {
+            taskManager.advanceBy(10);
+        }
+        Assert.assertTrue(taskManager.isTaskBlocked("slow"));
+        Assert.assertEquals("Task executed concurrently", 0, task.started.availablePermits());
+
+        task.release.countDown();
+        awaitIdle("slow");
+        taskManager.advanceBy(10);
+        Assert.assertTrue("Task not executed again", task.started.tryAcquire(WAIT, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Tasks blocking their workers, as the message processors retrying a message do, do not hold
+     * back the other tasks.
+     */
+    @Test
+    public void testBlockedTasksDoNotStarveOthers() throws Exception {
+        taskManager = createTaskManager(false);
+        BlockingTask blocked = new BlockingTask();
+        for (int i = 0; i < 8; i++) {
+            taskManager.schedule(createTaskDescription("blocked-" + i, blocked, 10, -1));
+        }
+        Assert.assertTrue("Tasks not executed", blocked.started.tryAcquire(8, WAIT, TimeUnit.MILLISECONDS));
+        Semaphore executed = new Semaphore(0);
+        taskManager.schedule(createTaskDescription("frequent", new CountingTask(executed), 20, -1));
+        try {
+            for (int i = 0; i < 5; i++) {
+                Assert.assertTrue("Task starved by blocked tasks", executed.tryAcquire(WAIT, TimeUnit.MILLISECONDS));
+                awaitIdle("frequent");
+                taskManager.advanceBy(20);
+            }
+            Assert.assertTrue("Task starved by blocked tasks", executed.tryAcquire(WAIT, TimeUnit.MILLISECONDS));
+            Assert.assertEquals("Blocked tasks executed again", 0, blocked.started.availablePermits());
+        } finally {
+            blocked.release.countDown();
+        }
+    }
+
+    private ManualTaskManager createTaskManager(boolean inline) {
+        ManualTaskManager manager = new ManualTaskManager(inline);
+        manager.setName("test");
+        Properties properties = new Properties();
+        properties.setProperty(TimingWheelTaskManager.TICK, "5");
+        manager.init(properties);
+        manager.start();
+        return manager;
+    }
+
+    private TaskDescription createTaskDescription(String name, Task task, long interval, int count) {
+        TaskDescription taskDescription = new TaskDescription();
+        taskDescription.setName(name);
+        taskDescription.setInterval(interval);
+        taskDescription.setIntervalInMs(true);
+        taskDescription.setCount(count);
+        if (task != null) {
+            taskDescription.addResource(TaskDescription.INSTANCE, task);
+        }
+        return taskDescription;
+    }
+
+    /**
+     * Waits for the worker executing the task to complete it.
+     */
+    private void awaitIdle(String taskName) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT;
+        while (taskManager.isTaskBlocked(taskName)) {
+            Assert.assertTrue("Task still executing", System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * Task manager whose time is advanced by the tests, and which executes the tasks in the
+     * thread firing them unless they are executed by workers.
+     */
+    private static class ManualTaskManager extends TimingWheelTaskManager {
+
+        private final boolean inline;
+
+        /** Number of executions the workers reject */
+        private final AtomicInteger rejections = new AtomicInteger();
+
+        private volatile long time = START;
+
+        ManualTaskManager(boolean inline) {
+            this.inline = inline;
+        }
+
+        @Override
+        long currentTimeMillis() {
+            return time;
+        }
+
+        @Override
+        ThreadPoolExecutor createWorkers(String id) {
+            if (!inline) {
+                return super.createWorkers(id);
+            }
+            return new ThreadPoolExecutor(1, Integer.MAX_VALUE, 0, TimeUnit.SECONDS,
+                                          new LinkedBlockingQueue<Runnable>()) {
+                @Override
+                public void execute(Runnable command) {
+                    if (rejections.getAndDecrement() > 0) {
+                        throw new RejectedExecutionException("Rejected by the test");
+                    }
+                    command.run();
+                }
+            };
+        }
+
+        void advanceBy(long millis) {
+            time += millis;
+            advance();
+        }
+    }
+
+    private static class CountingTask implements Task {
+
+        private final AtomicInteger executions = new AtomicInteger();
+
+        private final List<String> names;
+
+        private final String name;
+
+        private final Semaphore executed;
+
+        CountingTask(Semaphore executed) {
+            this(null, null, executed);
+        }
+
+        CountingTask(List<String> names, String name) {
+            this(names, name, null);
+        }
+
+        private CountingTask(List<String> names, String name, Semaphore executed) {
+            this.names = names;
+            this.name = name;
+            this.executed = executed;
+        }
+
+        public void execute() {
+            executions.incrementAndGet();
+            if (names != null) {
+                names.add(name);
+            }
+            if (executed != null) {
+                executed.release();
+            }
+        }
+    }
+
+    /**
+     * Task which blocks its worker until it is released.
+     */
+    private static class BlockingTask implements Task {
+
+        private final Semaphore started = new Semaphore(0);
+
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        public void execute() {
+            started.release();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
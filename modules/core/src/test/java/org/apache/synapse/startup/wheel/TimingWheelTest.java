@@ -0,0 +1,91 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.synapse.startup.wheel;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests the expiry of the timeouts of a timing wheel, within and beyond the span of the finest wheel.
+ */
+public class TimingWheelTest {
+
+    private static final long TICK = 10;
+
+    private static final int SIZE = 8;
+
+    @Test
+    public void testExpiry() {
+        long start = 1000005;
+        TimingWheel wheel = new TimingWheel(TICK, SIZE, start);
+        List<TestTimeout> timeouts = new ArrayList<TestTimeout>();
+        // beyond the span of the finest and the first overflow wheels
+        for (long delay = TICK; delay <= 3 * TICK * SIZE * SIZE; delay += 7) {
+            TestTimeout timeout = new TestTimeout(start + delay);
+            Assert.assertTrue(wheel.add(timeout));
+            timeouts.add(timeout);
+        }
+        Assert.assertFalse("Expired timeout added", wheel.add(new TestTimeout(start - 1)));
+
+        List<TimingWheel.Timeout> expired = new ArrayList<TimingWheel.Timeout>();
+        for (long time = start; !wheel.isEmpty(); time += 3) {
+            wheel.advance(time, expired);
+            for (TimingWheel.Timeout timeout : expired) {
+                TestTimeout testTimeout = (TestTimeout) timeout;
+                Assert.assertEquals("Timeout expired twice", 0, testTimeout.expiry);
+                Assert.assertTrue("Timeout expired late", time < timeout.getDeadline() + TICK);
+                Assert.assertTrue("Timeout expired early", time > timeout.getDeadline() - TICK);
+                testTimeout.expiry = time;
+            }
+            expired.clear();
+        }
+        for (TestTimeout timeout : timeouts) {
+            Assert.assertTrue("Timeout not expired", timeout.expiry > 0);
+        }
+    }
+
+    @Test
+    public void testRemoveAndJump() {
+        long start = 0;
+        TimingWheel wheel = new TimingWheel(TICK, SIZE, start);
+        TestTimeout removed = new TestTimeout(50);
+        TestTimeout far = new TestTimeout(5000);
+        Assert.assertTrue(wheel.add(removed));
+        Assert.assertTrue(wheel.add(far));
+        wheel.remove(removed);
+        Assert.assertFalse(removed.isPending());
+
+        // a jump beyond the span of all the wheels expires the timeouts at once
+        List<TimingWheel.Timeout> expired = new ArrayList<TimingWheel.Timeout>();
+        wheel.advance(100000, expired);
+        Assert.assertEquals(1, expired.size());
+        Assert.assertSame(far, expired.get(0));
+        Assert.assertTrue(wheel.isEmpty());
+    }
+
+    private static class TestTimeout extends TimingWheel.Timeout {
+
+        private long expiry;
+
+        TestTimeout(long deadline) {
+            super(deadline);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.synapse.util.streaming_xpath;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the bound on the expressions recorded between two reports of the streaming XPath analyzer.
+ */
+public class StreamingXPATHAnalyzerTest extends TestCase {
+
+    protected void setUp() {
+        StreamingXPATHAnalyzer.clear();
+    }
+
+    protected void tearDown() {
+        StreamingXPATHAnalyzer.clear();
+    }
+
+    public void testRecordedExpressionsAreBounded() {
+        for (int i = 0; i < StreamingXPATHAnalyzer.MAX_EXPRESSIONS + 10; i++) {
+            StreamingXPATHAnalyzer.record("//item[" + i + "]", StreamingXPATHAnalyzer.Evaluation.SINGLE_PASS);
+        }
+        assertEquals(StreamingXPATHAnalyzer.MAX_EXPRESSIONS,
+                StreamingXPATHAnalyzer.getExpressions(StreamingXPATHAnalyzer.Evaluation.SINGLE_PASS).size());
+
+        // an expression already recorded is still updated
+        StreamingXPATHAnalyzer.record("//item[0]", StreamingXPATHAnalyzer.Evaluation.BUILD);
+        assertTrue(StreamingXPATHAnalyzer.getExpressions(StreamingXPATHAnalyzer.Evaluation.BUILD)
+                .contains("//item[0]"));
+    }
+
+    public void testReportDiscardsExpressions() {
+        StreamingXPATHAnalyzer.record("//order/id", StreamingXPATHAnalyzer.Evaluation.SINGLE_PASS);
+        StreamingXPATHAnalyzer.record("//order[last()]", StreamingXPATHAnalyzer.Evaluation.BUILD);
+        StreamingXPATHAnalyzer.report("test.xml");
+        assertTrue(StreamingXPATHAnalyzer.getExpressions(StreamingXPATHAnalyzer.Evaluation.SINGLE_PASS).isEmpty());
+        assertTrue(StreamingXPATHAnalyzer.getExpressions(StreamingXPATHAnalyzer.Evaluation.BUILD).isEmpty());
+    }
+}
@@ -96,6 +96,11 @@ public class NashornJavaScriptMessageContext implements ScriptMessageContext {
      */
     private ScriptObjectMirror jsonSerializer;
 
+    /**
+     * Whether the JSON payload of the message is yet to be parsed into a JavaScript object.
+     */
+    private boolean jsonPayloadPending;
+
     public NashornJavaScriptMessageContext(MessageContext mc, XMLHelper xmlHelper, ScriptObjectMirror
             emptyJsonObject, ScriptObjectMirror jsonSerializer) {
         this.mc = mc;
@@ -176,6 +181,9 @@ public class NashornJavaScriptMessageContext implements ScriptMessageContext {
      * @return true
      */
     public boolean setJsonObject(MessageContext messageContext, Object jsonObject) {
+        if (messageContext == mc) {
+            jsonPayloadPending = false;
+        }
         messageContext.setProperty(JSON_OBJECT, jsonObject);
         return true;
     }
@@ -205,6 +213,9 @@ public class NashornJavaScriptMessageContext implements ScriptMessageContext {
         if (messageContext == null) {
             return null;
         }
+        if (jsonPayloadPending && messageContext == mc) {
+            parseJsonPayload();
+        }
         Object jsonObject = messageContext.getProperty(JSON_OBJECT);
         if (jsonObject == null) {
             return emptyJsonObject;
@@ -212,6 +223,26 @@ public class NashornJavaScriptMessageContext implements ScriptMessageContext {
         return jsonObject;
     }
 
+    /**
+     * Defers parsing the JSON payload of the message until the script first reads it. Scripts that
+     * never touch the JSON payload do not pay for serializing and parsing it.
+     */
+    void deferJsonPayloadParsing() {
+        jsonPayloadPending = true;
+        // drop the object left by a previous mediator, it may not reflect the current payload
+        mc.getPropertyKeySet().remove(JSON_OBJECT);
+    }
+
+    private void parseJsonPayload() {
+        jsonPayloadPending = false;
+        org.apache.axis2.context.MessageContext axis2MessageContext =
+                ((Axis2MessageContext) mc).getAxis2MessageContext();
+        if (JsonUtil.hasAJsonPayload(axis2MessageContext)) {
+            mc.setProperty(JSON_OBJECT,
+                    jsonSerializer.callMember("parse", JsonUtil.jsonPayloadToString(axis2MessageContext)));
+        }
+    }
+
     /**
      * Set a script engine.
      *
@@ -875,6 +906,7 @@ public class NashornJavaScriptMessageContext implements ScriptMessageContext {
             org.apache.axis2.context.MessageContext messageContext;
             messageContext = ((Axis2MessageContext) mc).getAxis2MessageContext();
             JsonUtil.getNewJsonPayload(messageContext, stream, true, true);
+            jsonPayloadPending = false;
             messageContext.setProperty(JSON_OBJECT, jsonPayload);
         } catch (AxisFault axisFault) {
             throw new ScriptException(axisFault);
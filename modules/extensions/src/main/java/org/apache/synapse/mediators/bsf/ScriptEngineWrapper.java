@@ -19,12 +19,19 @@
 
 package org.apache.synapse.mediators.bsf;
 
+import jdk.nashorn.api.scripting.ScriptObjectMirror;
+
+import javax.script.CompiledScript;
 import javax.script.ScriptEngine;
 
 public class ScriptEngineWrapper {
 
     private boolean initialized = false;
     private ScriptEngine engine;
+    /** The inline script compiled against this engine, null for external scripts */
+    private CompiledScript compiledScript;
+    /** The JSON object of this engine, only set for the nashorn engine */
+    private ScriptObjectMirror jsonSerializer;
 
     public ScriptEngineWrapper(ScriptEngine engine) {
         this.engine = engine;
@@ -41,4 +48,20 @@ public class ScriptEngineWrapper {
     public ScriptEngine getEngine() {
         return engine;
     }
+
+    public CompiledScript getCompiledScript() {
+        return compiledScript;
+    }
+
+    public void setCompiledScript(CompiledScript compiledScript) {
+        this.compiledScript = compiledScript;
+    }
+
+    public ScriptObjectMirror getJsonSerializer() {
+        return jsonSerializer;
+    }
+
+    public void setJsonSerializer(ScriptObjectMirror jsonSerializer) {
+        this.jsonSerializer = jsonSerializer;
+    }
 }
@@ -52,11 +52,15 @@ import javax.script.ScriptException;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.TreeMap;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A Synapse mediator that calls a function in any scripting language supported by the BSF.
@@ -118,7 +122,7 @@ public class ScriptMediator extends AbstractMediator {
     /**
      * The source code of the script
      */
-    private String scriptSourceCode;
+    private volatile String scriptSourceCode;
     /**
      * The BSF engine created to process each message through the script
      */
@@ -132,16 +136,8 @@ public class ScriptMediator extends AbstractMediator {
      */
     private boolean multiThreadedEngine;
     /**
-     * Reference to an empty JSON object.
-     */
-    private ScriptObjectMirror emptyJsonObject;
-
-    /**
-     * Reference to JSON object which is used to serialize json.
-     */
-    private ScriptObjectMirror jsonSerializer;
-    /**
-     * The compiled script. Only used for inline scripts
+     * The compiled script. Only used for inline scripts on multi-threaded engines, single threaded
+     * engines carry their own compiled copy in the pooled {@link ScriptEngineWrapper}
      */
     private CompiledScript compiledScript;
     /**
@@ -161,14 +157,39 @@ public class ScriptMediator extends AbstractMediator {
      * Pool size
      */
     private int poolSize = DEFAULT_POOL_SIZE;
+    /**
+     * Maximum number of engines retained in the pool, engines created on demand beyond the
+     * pre-warmed pool size are kept up to this limit
+     */
+    private int maxPoolSize;
     /**
      * Pool size property name
      */
     private static String POOL_SIZE_PROPERTY = "synapse.script.mediator.pool.size";
+    /**
+     * Maximum pool size property name
+     */
+    private static String MAX_POOL_SIZE_PROPERTY = "synapse.script.mediator.pool.max.size";
     /**
      * Pool ScriptEngine Resources
      */
     private BlockingQueue<ScriptEngineWrapper> pool;
+    /**
+     * Total time spent by mediation threads acquiring an engine from the pool, in nanoseconds
+     */
+    private final AtomicLong poolWaitTime = new AtomicLong();
+    /**
+     * Number of engines acquired from the pool
+     */
+    private final AtomicLong poolAcquisitions = new AtomicLong();
+    /**
+     * Number of engines created because the pool was exhausted
+     */
+    private final AtomicLong enginesCreatedOnDemand = new AtomicLong();
+    /**
+     * Lock guarding the reload of the external script and its includes
+     */
+    private final Object scriptLock = new Object();
     /**
      * JSON parser used to parse JSON strings
      */
@@ -190,6 +211,7 @@ public class ScriptMediator extends AbstractMediator {
         this.scriptSourceCode = scriptSourceCode;
         this.setLoader(classLoader);
         this.includes = new TreeMap<Value, Object>();
+        loadPoolSize();
         initInlineScript();
     }
 
@@ -211,9 +233,7 @@ public class ScriptMediator extends AbstractMediator {
             this.function = function;
         }
 
-        Properties properties = MiscellaneousUtil.loadProperties("synapse.properties");
-        poolSize = Integer.parseInt(properties.getProperty(POOL_SIZE_PROPERTY, String.valueOf(DEFAULT_POOL_SIZE)));
-
+        loadPoolSize();
         initScriptEngine();
         if (!(scriptEngine instanceof Invocable)) {
             throw new SynapseException("Script engine is not an Invocable" +
@@ -253,15 +273,8 @@ public class ScriptMediator extends AbstractMediator {
                     (function != null ? " function : " + function : ""));
         }
 
-        boolean returnValue;
-        if (multiThreadedEngine) {
-            returnValue = invokeScript(synCtx);
-        } else {
-            // TODO: change to use a pool of script engines (requires an update to BSF)
-            synchronized (scriptEngine.getClass()) {
-                returnValue = invokeScript(synCtx);
-            }
-        }
+        // single threaded engines are never shared, each invocation borrows an engine from the pool
+        boolean returnValue = invokeScript(synCtx);
 
         if (synLog.isTraceTraceEnabled()) {
             synLog.traceTrace("Result message after execution of script : " + synCtx.getEnvelope());
@@ -337,14 +350,14 @@ public class ScriptMediator extends AbstractMediator {
                 helper = XMLHelper.getArgHelper(sew.getEngine());
             }
             ScriptMessageContext scriptMC;
-            scriptMC = getScriptMessageContext(synCtx, helper);
-            processJSONPayload(synCtx, scriptMC);
+            scriptMC = getScriptMessageContext(synCtx, helper, sew);
+            processJSONPayload(synCtx, scriptMC, sew);
             Invocable invocableScript = (Invocable) sew.getEngine();
 
             obj = invocableScript.invokeFunction(function, new Object[]{scriptMC});
         } finally {
           if(sew != null){
-              // return engine to front of queue or drop if queue is full (i.e. if getNewScriptEngine() spawns a new engine)
+              // return engine to the queue or drop if queue is full (i.e. if getNewScriptEngine() spawns a new engine)
               pool.offer(sew);
           }
         }
@@ -358,18 +371,21 @@ public class ScriptMediator extends AbstractMediator {
      *
      * @param synCtx message context
      * @param helper Object which help to convert xml into OMelemnt
+     * @param sew    the engine borrowed for this invocation
      * @return Nashorn or Common script message context according to language attribute
      */
-    private ScriptMessageContext getScriptMessageContext(MessageContext synCtx, XMLHelper helper) {
+    private ScriptMessageContext getScriptMessageContext(MessageContext synCtx, XMLHelper helper,
+                                                         ScriptEngineWrapper sew) {
         ScriptMessageContext scriptMC;
         if (language.equals(NASHORN_JAVA_SCRIPT)) {
+            ScriptObjectMirror emptyJsonObject;
             try {
-                emptyJsonObject = (ScriptObjectMirror) scriptEngine.eval("({})");
-                jsonSerializer = (ScriptObjectMirror) scriptEngine.eval("JSON");
+                emptyJsonObject = (ScriptObjectMirror) sew.getEngine().eval("({})");
             } catch (ScriptException e) {
                 throw new SynapseException("Error occurred while evaluating empty json object", e);
             }
-            scriptMC = new NashornJavaScriptMessageContext(synCtx, helper, emptyJsonObject, jsonSerializer);
+            scriptMC = new NashornJavaScriptMessageContext(synCtx, helper, emptyJsonObject,
+                    sew.getJsonSerializer());
         } else {
             scriptMC = new CommonScriptMessageContext(synCtx, helper);
         }
@@ -384,37 +400,54 @@ public class ScriptMediator extends AbstractMediator {
      * @throws ScriptException For any errors , when compile , run the script
      */
     private Object mediateForInlineScript(MessageContext synCtx) throws ScriptException {
+        if (multiThreadedEngine) {
+            return evaluateInlineScript(synCtx, scriptEngine, compiledScript, null);
+        }
+        ScriptEngineWrapper sew = getNewScriptEngine();
+        try {
+            return evaluateInlineScript(synCtx, sew.getEngine(), sew.getCompiledScript(), sew);
+        } finally {
+            pool.offer(sew);
+        }
+    }
+
+    private Object evaluateInlineScript(MessageContext synCtx, ScriptEngine engine, CompiledScript script,
+                                        ScriptEngineWrapper sew) throws ScriptException {
         ScriptMessageContext scriptMC;
-        scriptMC = getScriptMessageContext(synCtx, xmlHelper);
-        processJSONPayload(synCtx, scriptMC);
-        Bindings bindings = scriptEngine.createBindings();
+        scriptMC = getScriptMessageContext(synCtx, xmlHelper, sew);
+        processJSONPayload(synCtx, scriptMC, sew);
+        Bindings bindings = engine.createBindings();
         bindings.put(MC_VAR_NAME, scriptMC);
 
         Object response;
-        if (compiledScript != null) {
-            response = compiledScript.eval(bindings);
+        if (script != null) {
+            response = script.eval(bindings);
         } else {
-            response = scriptEngine.eval(scriptSourceCode, bindings);
+            response = engine.eval(scriptSourceCode, bindings);
         }
         return response;
     }
 
-    private void processJSONPayload(MessageContext synCtx, ScriptMessageContext scriptMC) throws ScriptException {
+    private void processJSONPayload(MessageContext synCtx, ScriptMessageContext scriptMC, ScriptEngineWrapper sew)
+            throws ScriptException {
         if (!(synCtx instanceof Axis2MessageContext)) {
             return;
         }
         org.apache.axis2.context.MessageContext messageContext = ((Axis2MessageContext) synCtx).getAxis2MessageContext();
         String jsonString = (String) messageContext.getProperty("JSON_STRING");
         Object jsonObject = null;
-        prepareForJSON(scriptMC);
+        // nashorn engines are not thread safe, so JSON is evaluated on the engine borrowed for this invocation
+        ScriptEngine jsonEngine = NASHORN_JAVA_SCRIPT.equals(language) ? sew.getEngine() : this.jsEngine;
+        prepareForJSON(scriptMC, jsonEngine);
         if (JsonUtil.hasAJsonPayload(messageContext)) {
             try {
-                String jsonPayload = JsonUtil.jsonPayloadToString(messageContext);
                 if (NASHORN_JAVA_SCRIPT.equals(language)) {
-                    jsonObject = jsonSerializer.callMember("parse", jsonPayload);
+                    // the payload is parsed only if the script reads it through getPayloadJSON()
+                    ((NashornJavaScriptMessageContext) scriptMC).deferJsonPayloadParsing();
                 } else {
+                    String jsonPayload = JsonUtil.jsonPayloadToString(messageContext);
                     String scriptWithJsonParser = "JSON.parse(JSON.stringify(" + jsonPayload + "))";
-                    jsonObject = this.jsEngine.eval('(' + scriptWithJsonParser + ')');
+                    jsonObject = jsonEngine.eval('(' + scriptWithJsonParser + ')');
                 }
             } catch (ScriptException e) {
                 throw new ScriptException("Invalid JSON payload", e.getFileName(), e.getLineNumber(),
@@ -422,18 +455,18 @@ public class ScriptMediator extends AbstractMediator {
             }
         } else if (jsonString != null) {
             String jsonPayload = EIPUtils.tryParseJsonString(jsonParser, jsonString).toString();
-            jsonObject = this.jsEngine.eval('(' + jsonPayload + ')');
+            jsonObject = jsonEngine.eval('(' + jsonPayload + ')');
         }
         if (jsonObject != null) {
             scriptMC.setJsonObject(synCtx, jsonObject);
         }
     }
 
-    private void prepareForJSON(ScriptMessageContext scriptMC) {
+    private void prepareForJSON(ScriptMessageContext scriptMC, ScriptEngine jsonEngine) {
         if (jsonParser == null) {
             jsonParser = new JsonParser();
         }
-        scriptMC.setScriptEngine(this.jsEngine);
+        scriptMC.setScriptEngine(jsonEngine);
     }
 
     /**
@@ -448,7 +481,10 @@ public class ScriptMediator extends AbstractMediator {
                     log.debug("Script engine supports Compilable interface, " +
                             "compiling script code..");
                 }
-                compiledScript = ((Compilable) scriptEngine).compile(scriptSourceCode);
+                // single threaded engines run the copy compiled into each pooled engine
+                if (multiThreadedEngine) {
+                    compiledScript = ((Compilable) scriptEngine).compile(scriptSourceCode);
+                }
             } else {
                 // do nothing. If the script engine doesn't support Compilable then
                 // the inline script will be evaluated on each invocation
@@ -482,105 +518,91 @@ public class ScriptMediator extends AbstractMediator {
         Bindings engineBinding = sew.getEngine().getBindings(ScriptContext.ENGINE_SCOPE);
         engineBinding.clear(); // if we don't do this, previous state can affect successive executions! ESBJAVA-4583
 
-        if (scriptSourceCode == null || needsReload || !sew.isInitialized()) {
-            Object o = synCtx.getEntry(generatedScriptKey);
-            if (o instanceof OMElement) {
-                scriptSourceCode = ((OMElement) (o)).getText();
-                sew.getEngine().eval(scriptSourceCode, engineBinding);
-            } else if (o instanceof String) {
-                scriptSourceCode = (String) o;
-                sew.getEngine().eval(scriptSourceCode, engineBinding);
-            } else if (o instanceof OMText) {
-                DataHandler dataHandler = (DataHandler) ((OMText) o).getDataHandler();
-                if (dataHandler != null) {
-                    BufferedReader reader = null;
-                    try {
-                        reader = new BufferedReader(
-                                new InputStreamReader(dataHandler.getInputStream()));
-                        StringBuilder scriptSB = new StringBuilder();
-                        String currentLine;
-                        while ((currentLine = reader.readLine()) != null) {
-                            scriptSB.append(currentLine).append('\n');
-                        }
-                        scriptSourceCode = scriptSB.toString();
-                        sew.getEngine().eval(scriptSourceCode, engineBinding);
-                    } catch (IOException e) {
-                        handleException("Error in reading script as a stream ", e, synCtx);
-                    } finally {
-
-                        if (reader != null) {
-                            try {
-                                reader.close();
-                            } catch (IOException e) {
-                                handleException("Error in closing input stream ", e, synCtx);
-                            }
-                        }
+        // the sources are shared by concurrent invocations, hence they are reloaded under the lock,
+        // and evaluated on the borrowed engine after it is released
+        List<String> scripts = new ArrayList<String>();
+        synchronized (scriptLock) {
+            if (scriptSourceCode == null || needsReload || !sew.isInitialized()) {
+                String source = readScript(synCtx.getEntry(generatedScriptKey), synCtx);
+                if (source != null) {
+                    scriptSourceCode = source;
+                    scripts.add(source);
+                }
+            } else {
+                scripts.add(scriptSourceCode); // Will drop TPS, but is required for ESBJAVA-4583
+            }
 
-                    }
+            // load <include /> scripts; reload each script if needed
+            for (Value includeKey : includes.keySet()) {
+
+                String includeSourceCode = (String) includes.get(includeKey);
+
+                String generatedKey = includeKey.evaluateValue(synCtx);
+
+                Entry includeEntry = synCtx.getConfiguration().getEntryDefinition(generatedKey);
+                boolean includeEntryNeedsReload = (includeEntry != null) && includeEntry.isDynamic()
+                        && (!includeEntry.isCached() || includeEntry.isExpired());
+                if (includeSourceCode == null || includeEntryNeedsReload || !sew.isInitialized()) {
+                    log.debug("Re-/Loading the include script with key " + includeKey);
+                    includeSourceCode = readScript(synCtx.getEntry(generatedKey), synCtx);
+                    includes.put(includeKey, includeSourceCode);
+                }
+                if (includeSourceCode != null) {
+                    scripts.add(includeSourceCode);
                 }
             }
+        }
 
-        } else {
-            sew.getEngine().eval(scriptSourceCode, engineBinding); // Will drop TPS, but is required for ESBJAVA-4583
+        for (String script : scripts) {
+            sew.getEngine().eval(script, engineBinding);
         }
 
-        // load <include /> scripts; reload each script if needed
-        for (Value includeKey : includes.keySet()) {
-
-            String includeSourceCode = (String) includes.get(includeKey);
-
-            String generatedKey = includeKey.evaluateValue(synCtx);
-
-            Entry includeEntry = synCtx.getConfiguration().getEntryDefinition(generatedKey);
-            boolean includeEntryNeedsReload = (includeEntry != null) && includeEntry.isDynamic()
-                    && (!includeEntry.isCached() || includeEntry.isExpired());
-            if (includeSourceCode == null || includeEntryNeedsReload || !sew.isInitialized()) {
-                log.debug("Re-/Loading the include script with key " + includeKey);
-                Object o = synCtx.getEntry(generatedKey);
-                if (o instanceof OMElement) {
-                    includeSourceCode = ((OMElement) (o)).getText();
-                    sew.getEngine().eval(includeSourceCode, engineBinding);
-                } else if (o instanceof String) {
-                    includeSourceCode = (String) o;
-                    sew.getEngine().eval(includeSourceCode, engineBinding);
-                } else if (o instanceof OMText) {
-                    DataHandler dataHandler = (DataHandler) ((OMText) o).getDataHandler();
-                    if (dataHandler != null) {
-                        BufferedReader reader = null;
+        sew.setInitialized(true);
+
+        return sew;
+    }
+
+    /**
+     * Reads the source of a script from a registry entry
+     *
+     * @param o      the value of the registry entry
+     * @param synCtx message context
+     * @return the source of the script, or null if the entry does not hold a script
+     */
+    private String readScript(Object o, MessageContext synCtx) {
+        if (o instanceof OMElement) {
+            return ((OMElement) (o)).getText();
+        } else if (o instanceof String) {
+            return (String) o;
+        } else if (o instanceof OMText) {
+            DataHandler dataHandler = (DataHandler) ((OMText) o).getDataHandler();
+            if (dataHandler != null) {
+                BufferedReader reader = null;
+                try {
+                    reader = new BufferedReader(
+                            new InputStreamReader(dataHandler.getInputStream()));
+                    StringBuilder scriptSB = new StringBuilder();
+                    String currentLine;
+                    while ((currentLine = reader.readLine()) != null) {
+                        scriptSB.append(currentLine).append('\n');
+                    }
+                    return scriptSB.toString();
+                } catch (IOException e) {
+                    handleException("Error in reading script as a stream ", e, synCtx);
+                } finally {
+
+                    if (reader != null) {
                         try {
-                            reader = new BufferedReader(
-                                    new InputStreamReader(dataHandler.getInputStream()));
-                            StringBuilder scriptSB = new StringBuilder();
-                            String currentLine;
-                            while ((currentLine = reader.readLine()) != null) {
-                                scriptSB.append(currentLine).append('\n');
-                            }
-                            includeSourceCode = scriptSB.toString();
-                            sew.getEngine().eval(includeSourceCode, engineBinding);
+                            reader.close();
                         } catch (IOException e) {
-                            handleException("Error in reading script as a stream ", e, synCtx);
-                        } finally {
-
-                            if (reader != null) {
-                                try {
-                                    reader.close();
-                                } catch (IOException e) {
-                                    handleException("Error in closing input" +
-                                            " stream ", e, synCtx);
-                                }
-                            }
+                            handleException("Error in closing input stream ", e, synCtx);
                         }
                     }
+
                 }
-                includes.put(includeKey, includeSourceCode);
-            } else {
-                sew.getEngine().eval(includeSourceCode, engineBinding); // Will drop TPS, but required for ESBJAVA-4583
             }
         }
-
-        sew.setInitialized(true);
-
-        return sew;
+        return null;
     }
 
     protected void initScriptEngine() {
@@ -597,23 +619,7 @@ public class ScriptMediator extends AbstractMediator {
         engineManager.registerEngineExtension("groovy", new GroovyScriptEngineFactory());
         engineManager.registerEngineExtension("rb", new JRubyScriptEngineFactory());
         engineManager.registerEngineExtension("py", new JythonScriptEngineFactory());
-        if (language.equals(NASHORN_JAVA_SCRIPT)) {
-            this.scriptEngine = engineManager.getEngineByName(NASHORN);
-        } else {
-            this.scriptEngine = engineManager.getEngineByExtension(language);
-        }
-
-        pool = new LinkedBlockingQueue<ScriptEngineWrapper>(poolSize);
-
-        for (int i = 0; i< poolSize; i++) {
-            ScriptEngineWrapper sew;
-            if (language.equals(NASHORN_JAVA_SCRIPT)) {
-                sew = new ScriptEngineWrapper(engineManager.getEngineByName(NASHORN));
-            } else {
-                sew = new ScriptEngineWrapper(engineManager.getEngineByExtension(language));
-            }
-            pool.add(sew);
-        }
+        this.scriptEngine = createEngine();
         if (language.equals(NASHORN_JAVA_SCRIPT)) {
             this.jsEngine = engineManager.getEngineByName(NASHORN);
         } else {
@@ -635,6 +641,55 @@ public class ScriptMediator extends AbstractMediator {
         this.multiThreadedEngine = scriptEngine.getFactory().getParameter("THREADING") != null;
         log.debug("Script mediator for language : " + language +
                 " supports multithreading? : " + multiThreadedEngine);
+
+        pool = new LinkedBlockingQueue<ScriptEngineWrapper>(maxPoolSize);
+        // inline scripts on multi-threaded engines share the mediator level engine and never use the pool
+        if (key != null || !multiThreadedEngine) {
+            try {
+                for (int i = 0; i < poolSize; i++) {
+                    pool.add(createEngineWrapper());
+                }
+            } catch (ScriptException e) {
+                throw new SynapseException("Exception initializing the script engine pool for language : "
+                        + language, e);
+            }
+        }
+    }
+
+    /**
+     * Reads the initial and maximum sizes of the script engine pool from synapse.properties
+     */
+    private void loadPoolSize() {
+        Properties properties = MiscellaneousUtil.loadProperties("synapse.properties");
+        poolSize = Integer.parseInt(properties.getProperty(POOL_SIZE_PROPERTY, String.valueOf(DEFAULT_POOL_SIZE)));
+        maxPoolSize = Math.max(poolSize, Integer.parseInt(
+                properties.getProperty(MAX_POOL_SIZE_PROPERTY, String.valueOf(poolSize))));
+    }
+
+    private ScriptEngine createEngine() {
+        if (language.equals(NASHORN_JAVA_SCRIPT)) {
+            return engineManager.getEngineByName(NASHORN);
+        } else {
+            return engineManager.getEngineByExtension(language);
+        }
+    }
+
+    /**
+     * Creates an engine for the pool. For inline scripts the script is compiled against the new
+     * engine up front so that a borrowed engine is ready to evaluate without further work.
+     *
+     * @return a new engine wrapper
+     * @throws ScriptException if the inline script cannot be compiled
+     */
+    private ScriptEngineWrapper createEngineWrapper() throws ScriptException {
+        ScriptEngineWrapper sew = new ScriptEngineWrapper(createEngine());
+        if (key == null && scriptSourceCode != null && sew.getEngine() instanceof Compilable) {
+            sew.setCompiledScript(((Compilable) sew.getEngine()).compile(scriptSourceCode));
+        }
+        if (language.equals(NASHORN_JAVA_SCRIPT)) {
+            sew.setJsonSerializer((ScriptObjectMirror) sew.getEngine().eval("JSON"));
+        }
+        return sew;
     }
 
     public String getLanguage() {
@@ -672,18 +727,50 @@ public class ScriptMediator extends AbstractMediator {
 
     public ScriptEngineWrapper getNewScriptEngine() {
 
+        long start = System.nanoTime();
         ScriptEngineWrapper scriptEngineWrapper = pool.poll();
         if (scriptEngineWrapper == null) {
-            if (language.equals(NASHORN_JAVA_SCRIPT)) {
-                scriptEngineWrapper = new ScriptEngineWrapper(engineManager.getEngineByName(NASHORN));
-            } else {
-                scriptEngineWrapper = new ScriptEngineWrapper(engineManager.getEngineByExtension(language));
+            // fall back, the new engine is retained on return if the pool has not reached its maximum size
+            try {
+                scriptEngineWrapper = createEngineWrapper();
+            } catch (ScriptException e) {
+                throw new SynapseException("Error creating a script engine for language : " + language, e);
             }
+            enginesCreatedOnDemand.incrementAndGet();
         }
-        // fall back
+        poolWaitTime.addAndGet(System.nanoTime() - start);
+        poolAcquisitions.incrementAndGet();
         return scriptEngineWrapper;
     }
 
+    /**
+     * @return the total time in milliseconds mediation threads have spent acquiring script engines
+     */
+    public long getPoolWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(poolWaitTime.get());
+    }
+
+    /**
+     * @return the number of script engines acquired from the pool
+     */
+    public long getPoolAcquisitionCount() {
+        return poolAcquisitions.get();
+    }
+
+    /**
+     * @return the number of script engines created because the pool was exhausted
+     */
+    public long getEnginesCreatedOnDemand() {
+        return enginesCreatedOnDemand.get();
+    }
+
+    /**
+     * @return the number of idle script engines currently in the pool
+     */
+    public int getIdleEngineCount() {
+        return pool.size();
+    }
+
     public boolean isContentAltering() {
         return true;
     }
@@ -36,8 +36,14 @@ import org.apache.synapse.mediators.Value;
 
 import javax.activation.DataHandler;
 import javax.activation.DataSource;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class ScriptMediatorTest extends TestCase {
 
@@ -199,11 +205,115 @@ public class ScriptMediatorTest extends TestCase {
         assertEquals(true, result);
     }
 
+    /**
+     * Test that concurrent invocations of an inline nashornJS script run on separate pooled engines.
+     *
+     * @throws Exception
+     */
+    public void testConcurrentMediationOnNashornEngine() throws Exception {
+        final ScriptMediator mediator = new ScriptMediator("nashornJs", threadSafetyScriptForNashorn, null);
+        int threads = 8;
+        int messagesPerThread = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+            for (int i = 0; i < threads * messagesPerThread; i++) {
+                final int number = i;
+                results.add(executor.submit(new Callable<Boolean>() {
+                    public Boolean call() throws Exception {
+                        MessageContext mc = TestUtils.getTestContext("<randomNo>" + number + "</randomNo>", null);
+                        mediator.mediate(mc);
+                        return Integer.parseInt(mc.getEnvelope().getBody().getFirstElement().getText())
+                                == number * 2;
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(threads * messagesPerThread, mediator.getPoolAcquisitionCount());
+        assertTrue(mediator.getIdleEngineCount() > 0);
+    }
+
+    /**
+     * Test that concurrent invocations of an external nashornJS script, which load the script and its
+     * include on their own pooled engines, all see the complete sources.
+     *
+     * @throws Exception
+     */
+    public void testConcurrentExternalScriptOnNashornEngine() throws Exception {
+        final String scriptKey = "conf:/repository/esb/double.js";
+        final String includeKey = "conf:/repository/esb/util.js";
+        Value include = new Value(includeKey);
+        LinkedHashMap<Value, Object> includes = new LinkedHashMap<Value, Object>();
+        includes.put(include, null);
+        final ScriptMediator mediator = new ScriptMediator("nashornJs", includes, new Value(scriptKey),
+                "transform", null);
+        int threads = 8;
+        int messagesPerThread = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+            for (int i = 0; i < threads * messagesPerThread; i++) {
+                final int number = i;
+                results.add(executor.submit(new Callable<Boolean>() {
+                    public Boolean call() throws Exception {
+                        MessageContext mc = TestUtils.getTestContext("<randomNo>" + number + "</randomNo>", null);
+                        addEntry(mc, scriptKey, "function transform(mc) { var element = "
+                                + "mc.getEnvelope().getBody().getFirstElement(); "
+                                + "element.setText(twice(element.getText())); }");
+                        addEntry(mc, includeKey, "function twice(n) { return n * 2; }");
+                        mediator.mediate(mc);
+                        return Integer.parseInt(mc.getEnvelope().getBody().getFirstElement().getText())
+                                == number * 2;
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertNotNull(mediator.getIncludeMap().get(include));
+    }
+
+    private static void addEntry(MessageContext mc, String key, String value) {
+        Entry entry = new Entry();
+        entry.setKey(key);
+        entry.setValue(value);
+        mc.getConfiguration().addEntry(key, entry);
+    }
+
+    /**
+     * Test that a JSON payload is parsed only when the nashornJS script reads it.
+     *
+     * @throws Exception
+     */
+    public void testLazyJsonPayloadOnNashornEngine() throws Exception {
+        MessageContext mc = TestUtils.getTestContextJson("{\"id\":7}", null);
+        ScriptMediator mediator = new ScriptMediator("nashornJs", inlinescript, null);
+        assertTrue(mediator.mediate(mc));
+        assertNull(mc.getProperty("JSON_OBJECT"));
+
+        mediator = new ScriptMediator("nashornJs",
+                "mc.setProperty('ID', mc.getPayloadJSON().id.toString());", null);
+        assertTrue(mediator.mediate(mc));
+        assertEquals("7", mc.getProperty("ID"));
+        assertNotNull(mc.getProperty("JSON_OBJECT"));
+    }
+
     public static Test suite() {
         TestSuite suite = new TestSuite();
         for (int i = 0; i < 10; i++) {
             suite.addTest(new RepeatedTest(new ScriptMediatorTest("testThreadSafety"), 10));
         }
+        suite.addTest(new ScriptMediatorTest("testConcurrentMediationOnNashornEngine"));
+        suite.addTest(new ScriptMediatorTest("testConcurrentExternalScriptOnNashornEngine"));
+        suite.addTest(new ScriptMediatorTest("testLazyJsonPayloadOnNashornEngine"));
         return suite;
     }
 
@@ -32,13 +32,24 @@ import java.security.cert.X509Certificate;
 /**
  * Manager class responsible for verifying certificates. This class will use the available verifiers according to
  * a predefined policy.
+ * <p/>
+ * With the hard-fail policy (the default) a certificate whose revocation status cannot be determined is rejected,
+ * and OCSP responses and CRLs which are not cached are fetched during the handshake. With the soft-fail policy the
+ * handshake never waits for an OCSP responder or a CRL distribution point: missing responses are fetched in the
+ * background and the certificate is accepted unless a cached response says it is revoked.
  */
 public class RevocationVerificationManager {
 
     private int cacheSize = Constants.CACHE_DEFAULT_ALLOCATED_SIZE;
     private int cacheDelayMins = Constants.CACHE_DEFAULT_DELAY_MINS;
+    private boolean softFail = false;
     private static final Log log = LogFactory.getLog(RevocationVerificationManager.class);
 
+    public RevocationVerificationManager(Integer cacheAllocatedSize, Integer cacheDelayMins, boolean softFail) {
+        this(cacheAllocatedSize, cacheDelayMins);
+        this.softFail = softFail;
+    }
+
     public RevocationVerificationManager(Integer cacheAllocatedSize, Integer cacheDelayMins) {
 
         if (cacheAllocatedSize != null && cacheAllocatedSize > Constants.CACHE_MIN_ALLOCATED_SIZE
@@ -69,8 +80,9 @@ public class RevocationVerificationManager {
         CRLCache crlCache = CRLCache.getCache();
         crlCache.init(cacheSize, cacheDelayMins);
 
-        RevocationVerifier[] verifiers = {new OCSPVerifier(ocspCache), new CRLVerifier(crlCache)};
+        RevocationVerifier[] verifiers = {new OCSPVerifier(ocspCache, softFail), new CRLVerifier(crlCache, softFail)};
 
+        boolean statusUnavailable = true;
         for (RevocationVerifier verifier : verifiers) {
             try {
                 CertificatePathValidator pathValidator = new CertificatePathValidator(convertedCertificates, verifier);
@@ -78,13 +90,36 @@ public class RevocationVerificationManager {
                 log.info("Path verification Successful. Took " + (System.currentTimeMillis() - start) + " ms.");
                 return;
             } catch (Exception e) {
+                statusUnavailable &= isStatusUnavailable(e);
                 log.info(verifier.getClass().getSimpleName() + " failed.");
                 log.debug("Certificate verification with " + verifier.getClass().getSimpleName() + " failed. ", e);
             }
         }
+        if (softFail && statusUnavailable) {
+            log.warn("Revocation status of the peer certificate chain is not available yet. Accepting the chain " +
+                    "since the soft-fail policy is used.");
+            return;
+        }
         throw new CertificateVerificationException("Path Verification Failed for both OCSP and CRL");
     }
 
+    /**
+     * @param e exception thrown by the path validation
+     * @return true if the validation failed only because a revocation status could not be determined
+     */
+    private boolean isStatusUnavailable(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RevocationStatusUnavailableException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isSoftFail() {
+        return softFail;
+    }
+
     /**
      * @param certs array of javax.security.cert.X509Certificate[] s.
      * @return the converted array of java.security.cert.X509Certificate[] s.
@@ -51,4 +51,28 @@ public class CacheController implements CacheControllerMBean{
     public int getCacheManagerDelayMins(){
         return cacheManager.getDelay();
     }
+
+    public long getCacheHitCount() {
+        return cache.getStatistics().getHitCount();
+    }
+
+    public long getCacheMissCount() {
+        return cache.getStatistics().getMissCount();
+    }
+
+    public double getCacheHitRatio() {
+        return cache.getStatistics().getHitRatio();
+    }
+
+    public long getRefreshCount() {
+        return cache.getStatistics().getRefreshCount();
+    }
+
+    public long getRefreshFailureCount() {
+        return cache.getStatistics().getRefreshFailureCount();
+    }
+
+    public double getAverageResponderLatencyMillis() {
+        return cache.getStatistics().getAverageResponderLatency();
+    }
 }
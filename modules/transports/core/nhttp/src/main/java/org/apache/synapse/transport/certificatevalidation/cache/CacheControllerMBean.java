@@ -31,4 +31,16 @@ public interface CacheControllerMBean {
     public int getCacheSize();
 
     public int getCacheManagerDelayMins();
+
+    public long getCacheHitCount();
+
+    public long getCacheMissCount();
+
+    public double getCacheHitRatio();
+
+    public long getRefreshCount();
+
+    public long getRefreshFailureCount();
+
+    public double getAverageResponderLatencyMillis();
 }
@@ -155,8 +155,8 @@ public class CacheManager {
                     break;
                 }
 
-                //Updating invalid cache values
-                if (!nextCacheValue.isValid()) {
+                //Updating invalid cache values and the ones which would expire before the next run
+                if (nextCacheValue.isRefreshDue()) {
                     log.info("Updating Invalid Cache Value by Manager");
                     nextCacheValue.updateCacheWithNewValue();
                 }
@@ -0,0 +1,89 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.transport.certificatevalidation.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hit, miss and responder call counters of a revocation cache. All counters are updated without locking so that
+ * they can be recorded from the IO reactor threads.
+ */
+public class CacheStatistics {
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong refreshCount = new AtomicLong();
+    private final AtomicLong refreshFailureCount = new AtomicLong();
+    private final AtomicLong responderCallCount = new AtomicLong();
+    private final AtomicLong responderLatencyTotal = new AtomicLong();
+
+    public void recordHit() {
+        hitCount.incrementAndGet();
+    }
+
+    public void recordMiss() {
+        missCount.incrementAndGet();
+    }
+
+    public void recordRefresh(boolean success) {
+        refreshCount.incrementAndGet();
+        if (!success) {
+            refreshFailureCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * @param latency time taken by a single OCSP responder or CRL distribution point call in milliseconds
+     */
+    public void recordResponderCall(long latency) {
+        responderCallCount.incrementAndGet();
+        responderLatencyTotal.addAndGet(latency);
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public double getHitRatio() {
+        long hits = hitCount.get();
+        long total = hits + missCount.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public long getRefreshCount() {
+        return refreshCount.get();
+    }
+
+    public long getRefreshFailureCount() {
+        return refreshFailureCount.get();
+    }
+
+    public long getResponderCallCount() {
+        return responderCallCount.get();
+    }
+
+    public double getAverageResponderLatency() {
+        long calls = responderCallCount.get();
+        return calls == 0 ? 0 : (double) responderLatencyTotal.get() / calls;
+    }
+}
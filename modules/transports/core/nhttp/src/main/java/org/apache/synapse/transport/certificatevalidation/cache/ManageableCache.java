@@ -28,4 +28,6 @@ public interface ManageableCache {
     public int getCacheSize();
 
     public void resetIterator();
+
+    public CacheStatistics getStatistics();
 }
@@ -26,6 +26,9 @@ public interface ManageableCacheValue {
     //To remove invalid entries from the cache.
     public boolean isValid();
 
+    //To refresh entries in the background before they become invalid.
+    public boolean isRefreshDue();
+
     //To decide LRU value to replace.
     public long getTimeStamp();
 
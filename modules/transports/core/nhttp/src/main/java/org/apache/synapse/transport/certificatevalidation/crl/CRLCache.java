@@ -22,21 +22,33 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import org.apache.synapse.commons.jmx.MBeanRegistrar;
+import org.apache.synapse.transport.certificatevalidation.Constants;
 import org.apache.synapse.transport.certificatevalidation.cache.CacheController;
 import org.apache.synapse.transport.certificatevalidation.cache.CacheManager;
+import org.apache.synapse.transport.certificatevalidation.cache.CacheRefreshThreadFactory;
+import org.apache.synapse.transport.certificatevalidation.cache.CacheStatistics;
 import org.apache.synapse.transport.certificatevalidation.cache.ManageableCache;
 import org.apache.synapse.transport.certificatevalidation.cache.ManageableCacheValue;
 
 import java.security.cert.X509CRL;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Since a CRL maps to a CRL URL, the CRLCache should have x509CRL entries against CRL URLs.
  * This cache is a Singleton since it is shared by any transport which needs SSL certificate validation
  * and more than one CRLCache should not be allowed per system.
+ * <p/>
+ * Lookups do not take any lock and never download a CRL, since they are done during the SSL handshake on the IO
+ * reactor threads. CRLs are downloaded again by a background executor before their nextUpdate time.
  */
 public class CRLCache implements ManageableCache {
 
@@ -45,8 +57,14 @@ public class CRLCache implements ManageableCache {
     private static volatile Iterator<Map.Entry<String, CRLCacheValue>> iterator = hashMap.entrySet().iterator();
     private static volatile CacheManager cacheManager;
     private static CRLVerifier crlVerifier = new CRLVerifier(null);
+    //CRL urls which are being downloaded in the background, so that each CRL is downloaded once at a time.
+    private static final Map<String, Boolean> pendingFetches = new ConcurrentHashMap<String, Boolean>();
+    private static final ExecutorService refreshExecutor = Executors.newFixedThreadPool(
+            Constants.CACHE_REFRESH_THREADS, new CacheRefreshThreadFactory("crl-cache-refresh"));
     private static final Log log = LogFactory.getLog(CRLCache.class);
 
+    private final CacheStatistics statistics = new CacheStatistics();
+
     private CRLCache() {
     }
 
@@ -87,7 +105,7 @@ public class CRLCache implements ManageableCache {
      *
      * @return next cache value of the cache.
      */
-    public synchronized ManageableCacheValue getNextCacheValue() {
+    public ManageableCacheValue getNextCacheValue() {
         //changes to the map are reflected on the keySet. And its iterator is weakly consistent. so will never
         //throw concurrent modification exception.
         if (iterator.hasNext()) {
@@ -101,7 +119,7 @@ public class CRLCache implements ManageableCache {
     /**
      * To get the current cache size (size of the hash map).
      */
-    public synchronized int getCacheSize() {
+    public int getCacheSize() {
         return hashMap.size();
     }
 
@@ -109,50 +127,134 @@ public class CRLCache implements ManageableCache {
         iterator = hashMap.entrySet().iterator();
     }
 
-    private synchronized void replaceNewCacheValue(CRLCacheValue cacheValue) {
-        //If someone has updated with the new value before current Thread.
-        if (cacheValue.isValid())
-            return;
+    public CacheStatistics getStatistics() {
+        return statistics;
+    }
 
+    //Only the thread which owns the refreshing flag of the cache value downloads the CRL again. The flag is released
+    //here, whether it is taken here or it was taken by the caller (flagHeld) when the refresh was scheduled.
+    private void replaceNewCacheValue(CRLCacheValue cacheValue, boolean flagHeld) {
+        if (!flagHeld && !cacheValue.refreshing.compareAndSet(false, true)) {
+            return;
+        }
         try {
+            //If someone has updated with the new value before current Thread.
+            if (hashMap.get(cacheValue.crlUrl) != cacheValue || !cacheValue.isRefreshDue()) {
+                return;
+            }
             String crlUrl = cacheValue.crlUrl;
-            X509CRL x509CRL = crlVerifier.downloadCRLFromWeb(crlUrl);
+            X509CRL x509CRL = downloadCRL(crlUrl);
             this.setCacheValue(crlUrl, x509CRL);
+            statistics.recordRefresh(true);
         } catch (Exception e) {
-            log.info("Cant replace old CacheValue with new CacheValue. So remove", e);
-            //If cant be replaced remove.
-            cacheValue.removeThisCacheValue();
+            statistics.recordRefresh(false);
+            //A CRL which is still valid is kept until it expires, the next attempt may succeed.
+            if (!cacheValue.isValid()) {
+                log.info("Cant replace old CacheValue with new CacheValue. So remove", e);
+                cacheValue.removeThisCacheValue();
+            } else {
+                log.warn("Cant refresh CRL " + cacheValue.crlUrl + " before its expiry", e);
+            }
+        } finally {
+            cacheValue.refreshing.set(false);
+        }
+    }
+
+    private X509CRL downloadCRL(String crlUrl) throws Exception {
+        long start = System.currentTimeMillis();
+        try {
+            return crlVerifier.downloadCRLFromWeb(crlUrl);
+        } finally {
+            statistics.recordResponderCall(System.currentTimeMillis() - start);
         }
     }
 
-    public synchronized X509CRL getCacheValue(String crlUrl) {
+    /**
+     * Returns the cached CRL of the given url. This never downloads the CRL. A CRL which has expired is treated as
+     * a miss, and a CRL which is about to expire is downloaded again in the background.
+     *
+     * @param crlUrl CRL distribution point url
+     * @return the cached CRL or null if there is no valid CRL in the cache
+     */
+    public X509CRL getCacheValue(String crlUrl) {
         CRLCacheValue cacheValue = hashMap.get(crlUrl);
-        if (cacheValue != null) {
-            //If who ever gets this cache value before Cache manager task found its invalid, update it and get the
-            // new value.
-            if (!cacheValue.isValid()) {
-                cacheValue.updateCacheWithNewValue();
-                CRLCacheValue crlCacheValue = hashMap.get(crlUrl);
-                return (crlCacheValue != null ? crlCacheValue.getValue() : null);
+        if (cacheValue != null && cacheValue.isValid()) {
+            statistics.recordHit();
+            if (cacheValue.isRefreshDue()) {
+                cacheValue.refreshInBackground();
             }
-
             return cacheValue.getValue();
-        } else
-            return null;
+        }
+        statistics.recordMiss();
+        return null;
+    }
+
+    /**
+     * Downloads a CRL in the background and adds it to the cache, so that a later handshake finds it without
+     * downloading it. Only one download is done at a time per distribution point.
+     *
+     * @param crlUrls CRL distribution point urls to try in order
+     */
+    public void prefetch(final List<String> crlUrls) {
+        if (crlUrls.isEmpty()) {
+            return;
+        }
+        final String key = crlUrls.get(0);
+        if (pendingFetches.put(key, Boolean.TRUE) != null) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        for (String crlUrl : crlUrls) {
+                            try {
+                                X509CRL x509CRL = downloadCRL(crlUrl);
+                                if (x509CRL != null) {
+                                    setCacheValue(crlUrl, x509CRL);
+                                    return;
+                                }
+                            } catch (Exception e) {
+                                log.debug("Cant prefetch CRL from " + crlUrl, e);
+                            }
+                        }
+                        log.warn("Cant prefetch CRL from any of the distribution points " + crlUrls);
+                    } finally {
+                        pendingFetches.remove(key);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pendingFetches.remove(key);
+            log.warn("Cant schedule CRL prefetch from " + key, e);
+        }
     }
 
-    public synchronized void setCacheValue(String crlUrl, X509CRL crl) {
+    public void setCacheValue(String crlUrl, X509CRL crl) {
         CRLCacheValue cacheValue = new CRLCacheValue(crlUrl, crl);
-        log.info("Before set- HashMap size " + hashMap.size());
         hashMap.put(crlUrl, cacheValue);
-        log.info("After set - HashMap size " + hashMap.size());
+        if (log.isDebugEnabled()) {
+            log.debug("CRL " + crlUrl + " cached. HashMap size " + hashMap.size());
+        }
     }
 
-    public synchronized void removeCacheValue(String crlUrl) {
-        log.info("Before remove - HashMap size " + hashMap.size());
+    public void removeCacheValue(String crlUrl) {
         hashMap.remove(crlUrl);
-        log.info("After remove - HashMap size " + hashMap.size());
+        if (log.isDebugEnabled()) {
+            log.debug("CRL " + crlUrl + " removed. HashMap size " + hashMap.size());
+        }
+    }
 
+    /**
+     * Time before the nextUpdate of a CRL at which it should be downloaded again. This is the CacheManager delay,
+     * but never more than half of the validity period of the CRL.
+     */
+    private static long getRefreshAheadMillis(Date thisUpdate, Date nextUpdate) {
+        long refreshAhead = cacheManager != null ? TimeUnit.MINUTES.toMillis(cacheManager.getDelay()) : 0;
+        if (thisUpdate != null && nextUpdate != null) {
+            refreshAhead = Math.min(refreshAhead, (nextUpdate.getTime() - thisUpdate.getTime()) / 2);
+        }
+        return refreshAhead;
     }
 
     /**
@@ -162,7 +264,8 @@ public class CRLCache implements ManageableCache {
 
         private String crlUrl;
         private X509CRL crl;
-        private long timeStamp = System.currentTimeMillis();
+        private volatile long timeStamp = System.currentTimeMillis();
+        private final AtomicBoolean refreshing = new AtomicBoolean(false);
 
         public CRLCacheValue(String crlUrl, X509CRL crl) {
             this.crlUrl = crlUrl;
@@ -187,6 +290,15 @@ public class CRLCache implements ManageableCache {
             return nextUpdate != null && nextUpdate.after(today);
         }
 
+        /**
+         * A CRL is downloaded again when its nextUpdate is closer than the refresh ahead time.
+         */
+        public boolean isRefreshDue() {
+            Date nextUpdate = crl.getNextUpdate();
+            return nextUpdate == null || nextUpdate.getTime() - getRefreshAheadMillis(crl.getThisUpdate(),
+                    nextUpdate) <= System.currentTimeMillis();
+        }
+
         public long getTimeStamp() {
             return timeStamp;
         }
@@ -199,7 +311,25 @@ public class CRLCache implements ManageableCache {
         }
 
         public void updateCacheWithNewValue() {
-            replaceNewCacheValue(this);
+            replaceNewCacheValue(this, false);
+        }
+
+        private void refreshInBackground() {
+            //The flag is taken before the refresh is scheduled, so that lookups do not queue more downloads while the
+            //CRL server is slow.
+            if (!refreshing.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                refreshExecutor.execute(new Runnable() {
+                    public void run() {
+                        replaceNewCacheValue(CRLCacheValue.this, true);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                refreshing.set(false);
+                log.warn("Cant schedule CRL refresh of " + crlUrl, e);
+            }
         }
     }
 }
@@ -40,10 +40,21 @@ import java.util.List;
 public class CRLVerifier implements RevocationVerifier {
 
     private CRLCache cache;
+    private boolean nonBlocking;
     private static final Log log = LogFactory.getLog(CRLVerifier.class);
 
     public CRLVerifier(CRLCache cache) {
+        this(cache, false);
+    }
+
+    /**
+     * @param cache       cache of downloaded CRLs
+     * @param nonBlocking if true, CRLs are never downloaded by checkRevocationStatus. A cache miss starts a
+     *                    background download and the status is reported as unavailable.
+     */
+    public CRLVerifier(CRLCache cache, boolean nonBlocking) {
         this.cache = cache;
+        this.nonBlocking = nonBlocking && cache != null;
     }
 
     /**
@@ -74,10 +85,22 @@ public class CRLVerifier implements RevocationVerifier {
                 }
             }
 
+            if (nonBlocking) {
+                continue;
+            }
+
             //todo: Do we need to check if URL has the same domain name as issuerCert?
             //todo: What if this certificate is Unknown?????
             try {
-                X509CRL x509CRL = downloadCRLFromWeb(crlUrl);
+                long start = System.currentTimeMillis();
+                X509CRL x509CRL;
+                try {
+                    x509CRL = downloadCRLFromWeb(crlUrl);
+                } finally {
+                    if (cache != null) {
+                        cache.getStatistics().recordResponderCall(System.currentTimeMillis() - start);
+                    }
+                }
                 if (x509CRL != null) {
                     if (cache != null)
                         cache.setCacheValue(crlUrl, x509CRL);
@@ -87,6 +110,11 @@ public class CRLVerifier implements RevocationVerifier {
                 log.info("Either url is bad or cant build X509CRL. So check with the next url in the list.", e);
             }
         }
+        if (nonBlocking) {
+            cache.prefetch(list);
+            throw new RevocationStatusUnavailableException("CRL of certificate " + peerCert.getSerialNumber() +
+                    " is not cached yet. It is being downloaded in the background.");
+        }
         throw new CertificateVerificationException("Cannot check revocation status with the certificate");
     }
 
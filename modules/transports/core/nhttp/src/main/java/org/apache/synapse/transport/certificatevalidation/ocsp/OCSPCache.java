@@ -22,8 +22,11 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.synapse.commons.jmx.MBeanRegistrar;
 import org.apache.synapse.transport.certificatevalidation.CertificateVerificationException;
+import org.apache.synapse.transport.certificatevalidation.Constants;
 import org.apache.synapse.transport.certificatevalidation.cache.CacheController;
 import org.apache.synapse.transport.certificatevalidation.cache.CacheManager;
+import org.apache.synapse.transport.certificatevalidation.cache.CacheRefreshThreadFactory;
+import org.apache.synapse.transport.certificatevalidation.cache.CacheStatistics;
 import org.apache.synapse.transport.certificatevalidation.cache.ManageableCache;
 import org.apache.synapse.transport.certificatevalidation.cache.ManageableCacheValue;
 import org.bouncycastle.asn1.ocsp.OCSPResponseStatus;
@@ -32,13 +35,23 @@ import org.bouncycastle.cert.ocsp.*;
 import java.math.BigInteger;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * This is a cache to store OSCP responses against Certificate Serial Number since an OCSP response depends on
  * the certificate. This is a singleton since more than one cache of this kind should not be allowed. This cache
  * can be shared by many transports which need SSL validation through OCSP.
+ * <p/>
+ * Lookups do not take any lock and never call the OCSP responder, since they are done during the SSL handshake on
+ * the IO reactor threads. Responses are refreshed by a background executor before their nextUpdate time, either
+ * by the CacheManager task or when a lookup finds a response which is close to its expiry.
  */
 public class OCSPCache implements ManageableCache {
 
@@ -47,8 +60,14 @@ public class OCSPCache implements ManageableCache {
     private static volatile Iterator<Map.Entry<BigInteger,OCSPCacheValue>> iterator = hashMap.entrySet().iterator();
     private static volatile CacheManager cacheManager;
     private static OCSPVerifier ocspVerifier = new OCSPVerifier(null);
+    //Serial numbers which are being fetched in the background, so that the responder is called once per certificate.
+    private static final Map<BigInteger, Boolean> pendingFetches = new ConcurrentHashMap<BigInteger, Boolean>();
+    private static final ExecutorService refreshExecutor = Executors.newFixedThreadPool(
+            Constants.CACHE_REFRESH_THREADS, new CacheRefreshThreadFactory("ocsp-cache-refresh"));
     private static final Log log = LogFactory.getLog(OCSPCache.class);
 
+    private final CacheStatistics statistics = new CacheStatistics();
+
     private OCSPCache() {}
 
     public static OCSPCache getCache() {
@@ -107,64 +126,145 @@ public class OCSPCache implements ManageableCache {
         iterator = hashMap.entrySet().iterator();
     }
 
-    //This has to be synchronized coz several threads will try to replace cache value (cacheManager and Reactor thread)
-    private synchronized void replaceNewCacheValue(OCSPCacheValue cacheValue){
-        //If someone has updated with the new value before current Thread.
-        if(cacheValue.isValid())
-            return;
+    public CacheStatistics getStatistics() {
+        return statistics;
+    }
 
+    //Several threads may try to replace a cache value (cacheManager and the refresh executor), but only the one
+    //which owns the refreshing flag of the cache value calls the responder. The flag is released here, whether it
+    //is taken here or it was taken by the caller (flagHeld) when the refresh was scheduled.
+    private void replaceNewCacheValue(OCSPCacheValue cacheValue, boolean flagHeld){
+        if (!flagHeld && !cacheValue.refreshing.compareAndSet(false, true)) {
+            return;
+        }
         try {
-            String serviceUrl = cacheValue.serviceUrl;
-            OCSPReq request = cacheValue.request;
-            OCSPResp response= ocspVerifier.getOCSPResponce(serviceUrl, request);
+            //If someone has updated with the new value before current Thread.
+            if (hashMap.get(cacheValue.serialNumber) != cacheValue || !cacheValue.isRefreshDue()) {
+                return;
+            }
+            SingleResp resp = fetchSingleResp(cacheValue.serviceUrl, cacheValue.request);
+            this.setCacheValue(cacheValue.serialNumber, resp, cacheValue.request, cacheValue.serviceUrl);
+            statistics.recordRefresh(true);
+        } catch (Exception e) {
+            statistics.recordRefresh(false);
+            //A response which is still valid is kept until it expires, the next attempt may succeed.
+            if (!cacheValue.isValid()) {
+                log.info("Cant replace old CacheValue with new CacheValue. So remove", e);
+                cacheValue.removeThisCacheValue();
+            } else {
+                log.warn("Cant refresh OCSP response of certificate " + cacheValue.serialNumber +
+                        " before its expiry", e);
+            }
+        } finally {
+            cacheValue.refreshing.set(false);
+        }
+    }
 
-            if (OCSPResponseStatus.SUCCESSFUL != response.getStatus())
-                throw new CertificateVerificationException("OCSP response status not SUCCESSFUL");
+    private SingleResp fetchSingleResp(String serviceUrl, OCSPReq request) throws CertificateVerificationException,
+            OCSPException {
+        long start = System.currentTimeMillis();
+        OCSPResp response;
+        try {
+            response = ocspVerifier.getOCSPResponce(serviceUrl, request);
+        } finally {
+            statistics.recordResponderCall(System.currentTimeMillis() - start);
+        }
 
-            BasicOCSPResp basicResponse = (BasicOCSPResp) response.getResponseObject();
-            SingleResp[] responses = (basicResponse == null) ? null : basicResponse.getResponses();
+        if (OCSPResponseStatus.SUCCESSFUL != response.getStatus())
+            throw new CertificateVerificationException("OCSP response status not SUCCESSFUL");
 
-            if (responses == null)
-                throw new CertificateVerificationException("Cant get OCSP response");
+        BasicOCSPResp basicResponse = (BasicOCSPResp) response.getResponseObject();
+        SingleResp[] responses = (basicResponse == null) ? null : basicResponse.getResponses();
 
-            SingleResp resp = responses[0];
-            this.setCacheValue(cacheValue.serialNumber, resp, request, serviceUrl);
+        if (responses == null || responses.length == 0)
+            throw new CertificateVerificationException("Cant get OCSP response");
 
-        } catch (Exception e){
-            log.info("Cant replace old CacheValue with new CacheValue. So remove", e);
-            //If cant be replaced remove.
-            cacheValue.removeThisCacheValue();
-        }
+        return responses[0];
     }
 
-    public synchronized SingleResp getCacheValue(BigInteger serialNumber) {
+    /**
+     * Returns the cached response of the given certificate. This never calls the OCSP responder. A response which
+     * has expired is treated as a miss, and a response which is about to expire is refreshed in the background.
+     *
+     * @param serialNumber serial number of the certificate
+     * @return the cached response or null if there is no valid response in the cache
+     */
+    public SingleResp getCacheValue(BigInteger serialNumber) {
         OCSPCacheValue cacheValue = hashMap.get(serialNumber);
-        if(cacheValue != null) {
-            //If who ever gets this cache value before Cache manager task found its invalid, update it and get the
-            // new value.
-            if (!cacheValue.isValid()) {
-                cacheValue.updateCacheWithNewValue();
-                OCSPCacheValue ocspCacheValue = hashMap.get(serialNumber);
-                return (ocspCacheValue!=null? ocspCacheValue.getValue(): null);
+        if (cacheValue != null && cacheValue.isValid()) {
+            statistics.recordHit();
+            if (cacheValue.isRefreshDue()) {
+                cacheValue.refreshInBackground();
             }
-
             return cacheValue.getValue();
         }
-        else
-            return null;
+        statistics.recordMiss();
+        return null;
     }
 
-    public synchronized void setCacheValue(BigInteger serialNumber, SingleResp singleResp, OCSPReq request, String serviceUrl) {
+    /**
+     * Fetches the response of the given certificate in the background and adds it to the cache, so that a later
+     * handshake finds it without calling the responder. Only one fetch is done at a time per certificate.
+     *
+     * @param serialNumber serial number of the certificate
+     * @param request      the OCSP request to send
+     * @param serviceUrls  OCSP responder urls to try in order
+     */
+    public void prefetch(final BigInteger serialNumber, final OCSPReq request, final List<String> serviceUrls) {
+        if (pendingFetches.put(serialNumber, Boolean.TRUE) != null) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        for (String serviceUrl : serviceUrls) {
+                            try {
+                                SingleResp resp = fetchSingleResp(serviceUrl, request);
+                                setCacheValue(serialNumber, resp, request, serviceUrl);
+                                return;
+                            } catch (Exception e) {
+                                log.debug("Cant prefetch OCSP response from " + serviceUrl, e);
+                            }
+                        }
+                        log.warn("Cant prefetch OCSP response of certificate " + serialNumber);
+                    } finally {
+                        pendingFetches.remove(serialNumber);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pendingFetches.remove(serialNumber);
+            log.warn("Cant schedule OCSP response prefetch of certificate " + serialNumber, e);
+        }
+    }
+
+    public void setCacheValue(BigInteger serialNumber, SingleResp singleResp, OCSPReq request, String serviceUrl) {
         OCSPCacheValue cacheValue = new OCSPCacheValue(serialNumber, singleResp, request, serviceUrl);
-        log.info("Before set - HashMap size " + hashMap.size());
         hashMap.put(serialNumber, cacheValue);
-        log.info("After set - HashMap size " + hashMap.size());
+        if (log.isDebugEnabled()) {
+            log.debug("OCSP response of certificate " + serialNumber + " cached. HashMap size " + hashMap.size());
+        }
     }
 
-    public synchronized void removeCacheValue(BigInteger serialNumber) {
-        log.info("Before remove - HashMap size " + hashMap.size());
+    public void removeCacheValue(BigInteger serialNumber) {
         hashMap.remove(serialNumber);
-        log.info("After remove - HashMap size " + hashMap.size());
+        if (log.isDebugEnabled()) {
+            log.debug("OCSP response of certificate " + serialNumber + " removed. HashMap size " + hashMap.size());
+        }
+    }
+
+    /**
+     * Time before the nextUpdate of a response at which it should be refreshed. This is the CacheManager delay, so
+     * that a response does not expire between two CacheManager runs, but never more than half of the validity
+     * period of the response.
+     */
+    private static long getRefreshAheadMillis(Date thisUpdate, Date nextUpdate) {
+        long refreshAhead = cacheManager != null ? TimeUnit.MINUTES.toMillis(cacheManager.getDelay()) : 0;
+        if (thisUpdate != null && nextUpdate != null) {
+            refreshAhead = Math.min(refreshAhead, (nextUpdate.getTime() - thisUpdate.getTime()) / 2);
+        }
+        return refreshAhead;
     }
 
     /**
@@ -176,7 +276,8 @@ public class OCSPCache implements ManageableCache {
         private SingleResp singleResp;
         private OCSPReq request;
         private String serviceUrl;
-        private long timeStamp = System.currentTimeMillis();
+        private volatile long timeStamp = System.currentTimeMillis();
+        private final AtomicBoolean refreshing = new AtomicBoolean(false);
 
         public OCSPCacheValue(BigInteger serialNumber, SingleResp singleResp, OCSPReq request, String serviceUrl) {
             this.serialNumber = serialNumber;
@@ -199,10 +300,17 @@ public class OCSPCache implements ManageableCache {
          * An OCSP response is valid during its validity period.
          */
         public boolean isValid() {
-            //todo: elapse
-            Date now = new Date();
             Date nextUpdate = singleResp.getNextUpdate();
-            return nextUpdate != null && nextUpdate.after(now);
+            return nextUpdate != null && nextUpdate.after(new Date());
+        }
+
+        /**
+         * A response is refreshed when its nextUpdate is closer than the refresh ahead time.
+         */
+        public boolean isRefreshDue() {
+            Date nextUpdate = singleResp.getNextUpdate();
+            return nextUpdate == null || nextUpdate.getTime() - getRefreshAheadMillis(singleResp.getThisUpdate(),
+                    nextUpdate) <= System.currentTimeMillis();
         }
 
         public long getTimeStamp() {
@@ -217,7 +325,25 @@ public class OCSPCache implements ManageableCache {
         }
 
         public void updateCacheWithNewValue() {
-            replaceNewCacheValue(this);
+            replaceNewCacheValue(this, false);
+        }
+
+        private void refreshInBackground() {
+            //serviceUrl is null for values which were not fetched from a responder. The flag is taken before the
+            //refresh is scheduled, so that lookups do not queue more refreshes while the responder is slow.
+            if (serviceUrl == null || !refreshing.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                refreshExecutor.execute(new Runnable() {
+                    public void run() {
+                        replaceNewCacheValue(OCSPCacheValue.this, true);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                refreshing.set(false);
+                log.warn("Cant schedule OCSP response refresh of certificate " + serialNumber, e);
+            }
         }
     }
 }
@@ -45,11 +45,22 @@ import java.util.List;
 public class OCSPVerifier implements RevocationVerifier {
 
     private OCSPCache cache;
+    private boolean nonBlocking;
     private static final Log log = LogFactory.getLog(OCSPVerifier.class);
     private static final String BC = "BC";
 
     public OCSPVerifier(OCSPCache cache) {
+        this(cache, false);
+    }
+
+    /**
+     * @param cache       cache of OCSP responses
+     * @param nonBlocking if true, the OCSP responder is never called by checkRevocationStatus. A cache miss starts
+     *                    a background fetch of the response and the status is reported as unavailable.
+     */
+    public OCSPVerifier(OCSPCache cache, boolean nonBlocking) {
         this.cache = cache;
+        this.nonBlocking = nonBlocking && cache != null;
     }
 
     /**
@@ -79,11 +90,25 @@ public class OCSPVerifier implements RevocationVerifier {
         //This list will sometimes have non ocsp urls as well.
         List<String> locations = getAIALocations(peerCert);
 
+        if (nonBlocking) {
+            cache.prefetch(peerCert.getSerialNumber(), request, locations);
+            throw new RevocationStatusUnavailableException("OCSP response of certificate " +
+                    peerCert.getSerialNumber() + " is not cached yet. It is being fetched in the background.");
+        }
+
         for (String serviceUrl : locations) {
 
             SingleResp[] responses;
             try {
-                OCSPResp ocspResponse = getOCSPResponce(serviceUrl, request);
+                long start = System.currentTimeMillis();
+                OCSPResp ocspResponse;
+                try {
+                    ocspResponse = getOCSPResponce(serviceUrl, request);
+                } finally {
+                    if (cache != null) {
+                        cache.getStatistics().recordResponderCall(System.currentTimeMillis() - start);
+                    }
+                }
                 if (OCSPResponseStatus.SUCCESSFUL != ocspResponse.getStatus()) {
                     continue; // Server didn't give the response right.
                 }
@@ -145,7 +145,9 @@ public class ClientConnFactoryBuilder {
                 cacheDelay = new Integer(cacheDelayString);
             } catch (NumberFormatException e) {
             }
-            revocationVerifier = new RevocationVerificationManager(cacheSize, cacheDelay);
+            OMElement softFailEl = cvp.getParameterElement().getFirstChildWithName(new QName("SoftFail"));
+            boolean softFail = softFailEl != null && Boolean.parseBoolean(softFailEl.getText().trim());
+            revocationVerifier = new RevocationVerificationManager(cacheSize, cacheDelay, softFail);
         }
 
         // Process HttpProtocols
@@ -187,6 +187,10 @@ public class PassThroughConstants {
 
     //if this property is true in response path, it mean that client sent Accept-Encoding=gzip header
     public static final String REQUEST_ACCEPTS_GZIP ="REQUEST_ACCEPTS_GZIP" ;
+
+    public static final String ACCEPT_ENCODING_HEADER = "Accept-Encoding";
+
+    public static final String VARY_HEADER = "Vary";
     
     public static final String HTTP_SC_DESC = "HTTP_SC_DESC";
     
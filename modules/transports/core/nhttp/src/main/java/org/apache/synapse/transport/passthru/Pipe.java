@@ -98,6 +98,9 @@ public class Pipe {
 
     private boolean hasHttpProducer = true;
 
+    /** Bytes read from the buffer and handed back by {@link #unread}, delivered ahead of the buffer content */
+    private ByteBuffer unreadBuffer;
+
     private ByteBufferInputStream inputStream;
     private ByteBufferOutputStream outputStream;
 
@@ -154,6 +157,9 @@ public class Pipe {
                 encoder.complete();
                 return -1;
             }
+            if (hasUnreadData(consumerBuffer)) {
+                return consumeUnread(encoder).remaining();
+            }
             setOutputMode(consumerBuffer);
             int bytesWritten = encoder.write(consumerBuffer.getByteBuffer());
             consumePostActions(consumerBuffer, encoder, bytesWritten);
@@ -187,6 +193,9 @@ public class Pipe {
                 encoder.complete();
                 return null;
             }
+            if (hasUnreadData(consumerBuffer)) {
+                return consumeUnread(encoder);
+            }
             setOutputMode(consumerBuffer);
             // clone original buffer
             ByteBuffer originalBuffer = consumerBuffer.getByteBuffer();
@@ -205,6 +214,29 @@ public class Pipe {
         }
     }
 
+    private boolean hasUnreadData(ControlledByteBuffer consumerBuffer) {
+        return unreadBuffer != null && consumerBuffer == buffer;
+    }
+
+    /**
+     * Writes the bytes handed back through {@link #unread} before anything else is consumed from
+     * the buffer. The consumer output stays active until the buffer content follows.
+     *
+     * @param encoder encoder used to write
+     * @return a buffer with the data written
+     * @throws IOException if an error occurred while writing
+     */
+    private ByteBuffer consumeUnread(ContentEncoder encoder) throws IOException {
+        ByteBuffer duplicate = unreadBuffer.duplicate();
+        int bytesWritten = encoder.write(unreadBuffer);
+        duplicate.limit(duplicate.position() + bytesWritten);
+        if (!unreadBuffer.hasRemaining()) {
+            unreadBuffer = null;
+        }
+        writeCondition.signalAll();
+        return duplicate;
+    }
+
     private void consumePostActions(ControlledByteBuffer consumerBuffer, ContentEncoder encoder, int bytesWritten)
             throws IOException {
 
@@ -418,6 +450,40 @@ public class Pipe {
         return outputStream;
     }
 
+    /**
+     * Hands back bytes read through the {@link #getInputStream()} of this pipe. They are read again
+     * by the input stream, or relayed by the consumer, ahead of the data still in the buffer, so
+     * that the content can be inspected from the start without being copied out of the buffer.
+     * The bytes are not copied either, the array must not be modified once handed back.
+     *
+     * @param b   the bytes read
+     * @param off offset of the first byte
+     * @param len number of bytes
+     */
+    public void unread(byte[] b, int off, int len) {
+        if (len <= 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (unreadBuffer == null) {
+                unreadBuffer = ByteBuffer.wrap(b, off, len);
+            } else {
+                ByteBuffer unread = ByteBuffer.allocate(len + unreadBuffer.remaining());
+                unread.put(b, off, len);
+                unread.put(unreadBuffer);
+                unread.flip();
+                unreadBuffer = unread;
+            }
+            readCondition.signalAll();
+            if (consumerIoControl != null) {
+                consumerIoControl.requestOutput();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
     public synchronized void setSerializationComplete(boolean serializationComplete) {
         if (!this.serializationComplete) {
             this.serializationComplete = serializationComplete;
@@ -481,7 +547,8 @@ public class Pipe {
     }
 
     /**
-     * This method returns whether buffer consumption is required or not.
+     * This method returns whether buffer consumption is required or not, which is always the case
+     * while bytes handed back through {@link #unread} are pending.
      *
      * @return boolean
      * @throws IOException
@@ -490,6 +557,10 @@ public class Pipe {
         lock.lock();
         boolean isInputMode = buffer.isInputMode();
         try {
+            if (unreadBuffer != null) {
+                // bytes handed back through unread() are still to be read
+                return true;
+            }
             if (isInputMode) {
                 setOutputMode(buffer);
             }
@@ -523,6 +594,9 @@ public class Pipe {
         public int read() throws IOException {
             lock.lock();
             try {
+                if (unreadBuffer != null) {
+                    return readUnread() & 0xff;
+                }
                 if (!hasData(buffer)) {
                     waitForData();
                     if(producerError){
@@ -545,6 +619,14 @@ public class Pipe {
 
             lock.lock();
             try {
+                if (unreadBuffer != null) {
+                    int chunk = Math.min(len, unreadBuffer.remaining());
+                    unreadBuffer.get(b, off, chunk);
+                    if (!unreadBuffer.hasRemaining()) {
+                        unreadBuffer = null;
+                    }
+                    return chunk;
+                }
                 if (!hasData(buffer)) {
                     waitForData();
                     if(producerError){
@@ -566,6 +648,14 @@ public class Pipe {
             }
         }
 
+        private byte readUnread() {
+            byte b = unreadBuffer.get();
+            if (!unreadBuffer.hasRemaining()) {
+                unreadBuffer = null;
+            }
+            return b;
+        }
+
         private void waitForData() throws IOException {
             lock.lock();
             try {
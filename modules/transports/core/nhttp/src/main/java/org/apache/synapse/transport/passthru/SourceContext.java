@@ -107,6 +107,10 @@ public class SourceContext {
      *                buffer factories
      */
     public void reset(boolean isError) {
+		if (response != null) {
+			// a response given up on a closed or failed connection still holds its compressor
+			response.release();
+		}
 		this.request = null;
 		this.response = null;
 		this.state = ProtocolState.REQUEST_READY;
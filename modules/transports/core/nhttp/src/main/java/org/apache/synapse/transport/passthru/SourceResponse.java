@@ -24,6 +24,7 @@ import org.apache.axis2.context.MessageContext;
 import org.apache.axis2.transport.MessageFormatter;
 import org.apache.axis2.util.MessageProcessorSelector;
 import org.apache.http.ConnectionReuseStrategy;
+import org.apache.http.Header;
 import org.apache.http.HttpException;
 import org.apache.http.HttpRequest;
 import org.apache.http.HttpResponse;
@@ -38,6 +39,8 @@ import org.apache.http.params.DefaultedHttpParams;
 import org.apache.http.protocol.ExecutionContext;
 import org.apache.http.protocol.HTTP;
 import org.apache.synapse.transport.passthru.config.SourceConfiguration;
+import org.apache.synapse.transport.passthru.util.CompressingContentEncoder;
+import org.apache.synapse.transport.passthru.util.ContentCodecPool;
 import org.apache.synapse.transport.passthru.util.PassThroughTransportUtils;
 import org.apache.synapse.transport.passthru.util.RelayUtils;
 
@@ -77,6 +80,10 @@ public class SourceResponse {
     
     /** If version change required default HTTP 1.1 will be overridden*/
     private boolean versionChangeRequired =false;
+    /** Content length is calculated as chunking is disabled */
+    private boolean contentLengthRequired = false;
+    /** Compresses the content while it is written, if the response is compressed */
+    private CompressingContentEncoder compressor = null;
 
     public SourceResponse(SourceConfiguration config, int status, SourceRequest request) {
         this(config, status, null, request);
@@ -141,6 +148,15 @@ public class SourceResponse {
                 }
             }
 
+            String encoding = selectContentEncoding(contentLength);
+            if (encoding != null) {
+                // the compressed length is not known until the content is written
+                contentLength = -1;
+                addHeader(HTTP.CONTENT_ENCODING, encoding);
+                addHeader(PassThroughConstants.VARY_HEADER, PassThroughConstants.ACCEPT_ENCODING_HEADER);
+                compressor = new CompressingContentEncoder(ContentCodecPool.getInstance(), encoding);
+            }
+
             if (contentLength != -1) {
                 entity.setChunked(false);
                 entity.setContentLength(contentLength);
@@ -264,6 +280,7 @@ public class SourceResponse {
             TreeSet<String> header = new TreeSet<String>();
             header.add(String.valueOf(out.toByteArray().length));
             headers.put(HTTP.CONTENT_LEN, header);
+            contentLengthRequired = true;
         }
     }
 
@@ -278,7 +295,7 @@ public class SourceResponse {
     public int write(NHttpServerConnection conn, ContentEncoder encoder) throws IOException {
         int bytes = 0;
         if (pipe != null) {
-            bytes = pipe.consume(encoder);
+            bytes = pipe.consume(compressor != null ? compressor.setEncoder(encoder) : encoder);
         } else {
             encoder.complete();
         }
@@ -301,7 +318,7 @@ public class SourceResponse {
 
         ByteBuffer bytes = null;
         if (pipe != null) {
-            bytes = pipe.copyAndConsume(encoder);
+            bytes = pipe.copyAndConsume(compressor != null ? compressor.setEncoder(encoder) : encoder);
         } else {
             encoder.complete();
         }
@@ -309,6 +326,16 @@ public class SourceResponse {
         return bytes;
     }
 
+    /**
+     * Releases the resources held for writing the content, if the response is given up before
+     * it is completed
+     */
+    public void release() {
+        if (compressor != null) {
+            compressor.release();
+        }
+    }
+
     private void writePostActions(NHttpServerConnection conn, ContentEncoder encoder) {
 
         if (encoder.isCompleted()) {
@@ -360,6 +387,52 @@ public class SourceResponse {
         return null;
     }
 
+    /**
+     * Selects the content coding to compress the response with while it is streamed to the client.
+     * Responses are compressed when compression is enabled, the client accepts gzip or deflate,
+     * the content is textual and not encoded already, and is not known to be smaller than the
+     * minimum size.
+     *
+     * @param contentLength content length of the response, -1 if not known
+     * @return the content coding, or null if the response is not compressed
+     */
+    private String selectContentEncoding(long contentLength) {
+        if (!sourceConfiguration.isResponseCompressionEnabled() || request == null || pipe == null
+                || contentLengthRequired || HttpVersion.HTTP_1_0.greaterEquals(version)) {
+            return null;
+        }
+        Header acceptEncoding = request.getRequest().getFirstHeader(PassThroughConstants.ACCEPT_ENCODING_HEADER);
+        String encoding = ContentCodecPool.selectEncoding(acceptEncoding != null ? acceptEncoding.getValue() : null);
+        if (encoding == null) {
+            return null;
+        }
+        String contentType = null;
+        for (String header : headers.keySet()) {
+            if (HTTP.CONTENT_ENCODING.equalsIgnoreCase(header)) {
+                return null;
+            } else if (HTTP.CONTENT_TYPE.equalsIgnoreCase(header)) {
+                contentType = headers.get(header).first();
+            }
+        }
+        if (!isCompressibleContentType(contentType)) {
+            return null;
+        }
+        if (contentLength != -1 && contentLength < sourceConfiguration.getResponseCompressionMinSize()) {
+            ContentCodecPool.getInstance().skipped();
+            return null;
+        }
+        return encoding;
+    }
+
+    private boolean isCompressibleContentType(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.toLowerCase();
+        return type.startsWith("text/") || type.contains("json") || type.contains("xml")
+               || type.contains("javascript") || type.startsWith("application/x-www-form-urlencoded");
+    }
+
     private boolean canResponseHaveBody(final HttpRequest request, final HttpResponse response) {
         if (request != null && "HEAD".equalsIgnoreCase(request.getRequestLine().getMethod())) {
             return false;
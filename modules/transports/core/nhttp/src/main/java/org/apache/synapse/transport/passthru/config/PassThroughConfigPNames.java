@@ -123,4 +123,25 @@ public interface PassThroughConfigPNames {
      * Defines the header name set for correlation logs
      */
     public String CORRELATION_HEADER_NAME_PROPERTY = "correlation_header_name";
+
+    /**
+     * Defines whether responses are compressed while they are streamed to clients which accept
+     * a gzip or deflate content encoding.
+     */
+    public String RESPONSE_COMPRESSION_ENABLED = "http.response.compression.enabled";
+
+    /**
+     * Defines the content length in bytes below which responses are sent uncompressed.
+     */
+    public String RESPONSE_COMPRESSION_MIN_SIZE = "http.response.compression.min_size";
+
+    /**
+     * Defines the deflate compression level (0-9) of compressed responses.
+     */
+    public String RESPONSE_COMPRESSION_LEVEL = "http.response.compression.level";
+
+    /**
+     * Defines the maximum number of idle deflaters and inflaters kept for reuse.
+     */
+    public String COMPRESSION_CODEC_POOL_SIZE = "http.compression.codec.pool.size";
 }
@@ -29,6 +29,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Properties;
+import java.util.zip.Deflater;
 
 /**
  * This class encapsulates pass-through http transport tuning configurations specified via a
@@ -49,6 +50,8 @@ public class PassThroughConfiguration {
     private static final int DEFAULT_MAX_ACTIVE_CON = -1;
     private static final int DEFAULT_LISTENER_SHUTDOWN_WAIT_TIME = 0;
     private static final int DEFAULT_CONNECTION_GRACE_TIME = 10000;
+    private static final int DEFAULT_RESPONSE_COMPRESSION_MIN_SIZE = 1024;
+    private static final int DEFAULT_COMPRESSION_CODEC_POOL_SIZE = 64;
     private Boolean isKeepAliveDisabled = null;
 
     //additional rest dispatch handlers
@@ -184,6 +187,24 @@ public class PassThroughConfiguration {
                 PassThroughConstants.CORRELATION_DEFAULT_HEADER);
     }
 
+    public boolean isResponseCompressionEnabled() {
+        return getBooleanProperty(PassThroughConfigPNames.RESPONSE_COMPRESSION_ENABLED, false);
+    }
+
+    public int getResponseCompressionMinSize() {
+        return getIntProperty(PassThroughConfigPNames.RESPONSE_COMPRESSION_MIN_SIZE,
+                DEFAULT_RESPONSE_COMPRESSION_MIN_SIZE);
+    }
+
+    public int getResponseCompressionLevel() {
+        return getIntProperty(PassThroughConfigPNames.RESPONSE_COMPRESSION_LEVEL, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    public int getCompressionCodecPoolSize() {
+        return getIntProperty(PassThroughConfigPNames.COMPRESSION_CODEC_POOL_SIZE,
+                DEFAULT_COMPRESSION_CODEC_POOL_SIZE);
+    }
+
     /**
      * Loads the properties from a given property file path
      *
@@ -77,6 +77,12 @@ public class SourceConfiguration extends BaseConfiguration {
     /** WSDL processor for Get requests*/
     private HttpGetRequestProcessor httpGetRequestProcessor = null;
 
+    /** Whether responses are compressed for the clients accepting it */
+    private boolean responseCompressionEnabled = false;
+
+    /** Content length below which responses are not compressed */
+    private int responseCompressionMinSize;
+
 
     public SourceConfiguration(ConfigurationContext configurationContext,
                                TransportInDescription description,
@@ -138,6 +144,9 @@ public class SourceConfiguration extends BaseConfiguration {
             }
         }
         populatePreserveHttpHeaders(conf.getResponsePreseveHttpHeaders());
+
+        responseCompressionEnabled = conf.isResponseCompressionEnabled();
+        responseCompressionMinSize = conf.getResponseCompressionMinSize();
     }
 
     public HttpParams getHttpParams() {
@@ -188,6 +197,14 @@ public class SourceConfiguration extends BaseConfiguration {
 		return httpGetRequestProcessor;
 	}
 
+    public boolean isResponseCompressionEnabled() {
+        return responseCompressionEnabled;
+    }
+
+    public int getResponseCompressionMinSize() {
+        return responseCompressionMinSize;
+    }
+
 	/**
      * Return the EPR prefix for services made available over this transport
      * @param cfgCtx configuration context to retrieve the service context path
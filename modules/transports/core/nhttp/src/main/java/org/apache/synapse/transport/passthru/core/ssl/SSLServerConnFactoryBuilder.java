@@ -52,12 +52,15 @@ public class SSLServerConnFactoryBuilder extends ServerConnFactoryBuilder {
             Iterator iterator = cvp.getChildElements();
             String cacheDelayString = null;
             String cacheSizeString = null;
+            boolean softFail = false;
             while(iterator.hasNext()) {
                 Object obj = iterator.next();
                 if (obj instanceof OMElement && ((OMElement) obj).getLocalName().equals("CacheSize")) {
                     cacheSizeString = ((OMElement)obj).getText();
                 } else if (obj instanceof OMElement && ((OMElement) obj).getLocalName().equals("CacheDelay")) {
                     cacheDelayString = ((OMElement)obj).getText();
+                } else if (obj instanceof OMElement && ((OMElement) obj).getLocalName().equals("SoftFail")) {
+                    softFail = Boolean.parseBoolean(((OMElement) obj).getText().trim());
                 }
             }
             Integer cacheSize = null;
@@ -70,7 +73,7 @@ public class SSLServerConnFactoryBuilder extends ServerConnFactoryBuilder {
             } catch (NumberFormatException e) {
                 log.error("Please specify correct Integer numbers for CacheDelay and CacheSize");
             }
-            revocationVerifier = new RevocationVerificationManager(cacheSize, cacheDelay);
+            revocationVerifier = new RevocationVerificationManager(cacheSize, cacheDelay, softFail);
         }
         ssl = createSSLContext(keyStoreEl, trustStoreEl, clientAuthEl, httpsProtocolsEl, preferredCiphers,
                 revocationVerifier,
@@ -0,0 +1,102 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.synapse.transport.passthru.jmx;
+
+import org.apache.axis2.AxisFault;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.transport.passthru.util.ContentCodecPool;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CompressionView MBean publishes the statistics collected by the {@link ContentCodecPool}: the
+ * bytes saved by compressing responses, and the time spent compressing and decompressing
+ * message content, which is mostly CPU time of the IO and worker threads.
+ */
+public class CompressionView implements CompressionViewMBean {
+
+    private static final Log log = LogFactory.getLog(CompressionView.class);
+
+    private static final String PASS_THROUGH_COMPRESSION = "PassThroughCompression";
+
+    private static final String NAME = "passthru-http";
+
+    private final ContentCodecPool pool;
+
+    public CompressionView(ContentCodecPool pool) {
+        this.pool = pool;
+        try {
+            MBeanRegistrar.getInstance().registerMBean(this, PASS_THROUGH_COMPRESSION, NAME);
+        } catch (AxisFault e) {
+            log.warn("Error registering the compression MBean", e);
+        }
+    }
+
+    public long getCompressedMessages() {
+        return pool.getCompressedMessages();
+    }
+
+    public long getSkippedMessages() {
+        return pool.getSkippedMessages();
+    }
+
+    public long getCompressionBytesIn() {
+        return pool.getCompressionBytesIn();
+    }
+
+    public long getCompressionBytesOut() {
+        return pool.getCompressionBytesOut();
+    }
+
+    public long getCompressionBytesSaved() {
+        return pool.getCompressionBytesIn() - pool.getCompressionBytesOut();
+    }
+
+    public double getCompressionRatio() {
+        long bytesIn = pool.getCompressionBytesIn();
+        return bytesIn == 0 ? 0 : (double) pool.getCompressionBytesOut() / bytesIn;
+    }
+
+    public long getCompressionTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(pool.getCompressionNanos());
+    }
+
+    public long getDecompressedMessages() {
+        return pool.getDecompressedMessages();
+    }
+
+    public long getDecompressionBytesIn() {
+        return pool.getDecompressionBytesIn();
+    }
+
+    public long getDecompressionBytesOut() {
+        return pool.getDecompressionBytesOut();
+    }
+
+    public long getDecompressionTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(pool.getDecompressionNanos());
+    }
+
+    public int getIdleCodecs() {
+        return pool.getIdleCodecs();
+    }
+
+    public void reset() {
+        pool.resetStatistics();
+    }
+}
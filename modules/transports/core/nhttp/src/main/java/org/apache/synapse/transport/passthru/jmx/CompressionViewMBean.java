@@ -0,0 +1,41 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.synapse.transport.passthru.jmx;
+
+/**
+ * Provides metrics on the message content compressed and decompressed by the pass-through
+ * transport, and on the time spent doing it.
+ */
+public interface CompressionViewMBean {
+
+    public long getCompressedMessages();
+    public long getSkippedMessages();
+    public long getCompressionBytesIn();
+    public long getCompressionBytesOut();
+    public long getCompressionBytesSaved();
+    public double getCompressionRatio();
+    public long getCompressionTimeMillis();
+
+    public long getDecompressedMessages();
+    public long getDecompressionBytesIn();
+    public long getDecompressionBytesOut();
+    public long getDecompressionTimeMillis();
+
+    public int getIdleCodecs();
+
+    public void reset();
+}
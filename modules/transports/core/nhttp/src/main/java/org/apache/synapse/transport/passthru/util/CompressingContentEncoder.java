@@ -0,0 +1,239 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.synapse.transport.passthru.util;
+
+import org.apache.http.nio.ContentEncoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Content encoder which compresses the content written to it with gzip or deflate, and writes the
+ * compressed bytes to the content encoder of the connection, so that a relayed message is
+ * compressed while it is streamed out of the pipe, without being built.
+ * <p>
+ * The content is compressed one chunk at a time. Compressed bytes the connection cannot take yet
+ * are kept, and no more content is taken until they are written, so that the pipe is drained at
+ * the pace of the connection. The message is completed once all the compressed bytes, and the
+ * gzip trailer, are written.
+ */
+public class CompressingContentEncoder implements ContentEncoder {
+
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    private static final byte[] GZIP_HEADER = {
+            0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+
+    private final ContentCodecPool pool;
+
+    private final boolean gzip;
+
+    private final byte[] input = new byte[CHUNK_SIZE];
+
+    private final CRC32 crc = new CRC32();
+
+    private Deflater deflater;
+
+    private ContentEncoder encoder;
+
+    /** Compressed bytes not written to the connection yet, in read mode */
+    private ByteBuffer pending = ByteBuffer.allocate(CHUNK_SIZE);
+
+    private boolean finishing = false;
+
+    private boolean completed = false;
+
+    private long bytesIn = 0;
+
+    private long bytesOut = 0;
+
+    private long nanos = 0;
+
+    /**
+     * @param pool     pool to take the deflater from
+     * @param encoding {@link ContentCodecPool#GZIP} or {@link ContentCodecPool#DEFLATE}
+     */
+    public CompressingContentEncoder(ContentCodecPool pool, String encoding) {
+        this.pool = pool;
+        this.gzip = ContentCodecPool.GZIP.equals(encoding);
+        this.deflater = pool.borrowDeflater(gzip);
+        if (gzip) {
+            pending.put(GZIP_HEADER);
+        }
+        pending.flip();
+    }
+
+    /**
+     * Sets the content encoder of the connection the compressed bytes are written to.
+     *
+     * @param encoder content encoder of the connection
+     * @return this encoder
+     */
+    public CompressingContentEncoder setEncoder(ContentEncoder encoder) {
+        this.encoder = encoder;
+        return this;
+    }
+
+    /**
+     * Compresses the content of the given buffer.
+     *
+     * @param src content to be compressed
+     * @return the number of content bytes taken from the buffer, which is zero while compressed
+     * bytes are waiting to be written to the connection
+     * @throws IOException if the connection cannot be written
+     */
+    public int write(ByteBuffer src) throws IOException {
+        checkReleased();
+        if (finishing) {
+            // the rest of the compressed bytes are written by complete()
+            if (src.hasRemaining()) {
+                throw new IllegalStateException("Content is already completed");
+            }
+            return 0;
+        }
+        int consumed = 0;
+        while (src.hasRemaining() && writePending()) {
+            int chunk = Math.min(src.remaining(), input.length);
+            src.get(input, 0, chunk);
+            if (gzip) {
+                crc.update(input, 0, chunk);
+            }
+            long start = System.nanoTime();
+            deflater.setInput(input, 0, chunk);
+            while (!deflater.needsInput()) {
+                deflate();
+            }
+            nanos += System.nanoTime() - start;
+            bytesIn += chunk;
+            consumed += chunk;
+        }
+        return consumed;
+    }
+
+    /**
+     * Writes the rest of the compressed content and completes the content encoder of the
+     * connection. Has to be called again until {@link #isCompleted()}, when the connection cannot
+     * take all of the remaining bytes at once.
+     *
+     * @throws IOException if the connection cannot be written
+     */
+    public void complete() throws IOException {
+        if (completed) {
+            return;
+        }
+        checkReleased();
+        if (!finishing) {
+            finishing = true;
+            deflater.finish();
+        }
+        while (writePending() && !deflater.finished()) {
+            long start = System.nanoTime();
+            deflate();
+            nanos += System.nanoTime() - start;
+            if (deflater.finished() && gzip) {
+                writeTrailer();
+            }
+        }
+        if (!writePending() || !deflater.finished()) {
+            return;
+        }
+        encoder.complete();
+        completed = true;
+        pool.returnDeflater(deflater, gzip);
+        deflater = null;
+        pool.compressed(bytesIn, bytesOut, nanos);
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    /**
+     * Returns the deflater to the pool, if the content is not completed. Has to be called when the
+     * response is given up before it is completed, e.g. when the connection is closed or fails, so
+     * that the deflater is not lost to the pool. Calling it again, or after the content is
+     * completed, has no effect.
+     */
+    public void release() {
+        if (deflater != null) {
+            pool.returnDeflater(deflater, gzip);
+            deflater = null;
+        }
+    }
+
+    private void checkReleased() throws IOException {
+        if (deflater == null) {
+            throw new IOException("Content encoder is already released");
+        }
+    }
+
+    /**
+     * Compresses the input set on the deflater into the pending bytes.
+     */
+    private void deflate() {
+        pending.compact();
+        if (!pending.hasRemaining()) {
+            ByteBuffer larger = ByteBuffer.allocate(pending.capacity() * 2);
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+        int n = deflater.deflate(pending.array(), pending.arrayOffset() + pending.position(), pending.remaining());
+        pending.position(pending.position() + n);
+        pending.flip();
+    }
+
+    private void writeTrailer() {
+        pending.compact();
+        if (pending.remaining() < 8) {
+            ByteBuffer larger = ByteBuffer.allocate(pending.capacity() + 8);
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+        writeInt((int) crc.getValue());
+        writeInt((int) deflater.getBytesRead());
+        pending.flip();
+    }
+
+    private void writeInt(int value) {
+        // gzip integers are little endian
+        pending.put((byte) value);
+        pending.put((byte) (value >> 8));
+        pending.put((byte) (value >> 16));
+        pending.put((byte) (value >> 24));
+    }
+
+    /**
+     * Writes the pending compressed bytes to the connection.
+     *
+     * @return true if all of them are written
+     * @throws IOException if the connection cannot be written
+     */
+    private boolean writePending() throws IOException {
+        while (pending.hasRemaining()) {
+            int n = encoder.write(pending);
+            if (n <= 0) {
+                return false;
+            }
+            bytesOut += n;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.synapse.transport.passthru.util;
+
+import org.apache.axis2.context.MessageContext;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.synapse.transport.passthru.config.PassThroughConfiguration;
+import org.apache.synapse.transport.passthru.jmx.CompressionView;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Keeps the deflaters and inflaters used to compress and decompress message content, so that
+ * their native buffers are reused from message to message instead of being allocated and freed
+ * for each message, and collects the compression statistics published by {@link CompressionView}.
+ */
+public class ContentCodecPool {
+
+    private static final Log log = LogFactory.getLog(ContentCodecPool.class);
+
+    public static final String GZIP = "gzip";
+
+    public static final String DEFLATE = "deflate";
+
+    private static final String CONTENT_ENCODING = "Content-Encoding";
+
+    private static volatile ContentCodecPool instance;
+
+    private final int level;
+
+    private final int maxIdle;
+
+    /** Idle deflaters producing raw deflate data, for gzip */
+    private final Queue<Deflater> rawDeflaters = new ConcurrentLinkedQueue<Deflater>();
+
+    /** Idle deflaters producing zlib data, for deflate */
+    private final Queue<Deflater> zlibDeflaters = new ConcurrentLinkedQueue<Deflater>();
+
+    private final Queue<Inflater> rawInflaters = new ConcurrentLinkedQueue<Inflater>();
+
+    private final Queue<Inflater> zlibInflaters = new ConcurrentLinkedQueue<Inflater>();
+
+    private final AtomicInteger idle = new AtomicInteger();
+
+    private final AtomicLong compressedMessages = new AtomicLong();
+    private final AtomicLong compressionBytesIn = new AtomicLong();
+    private final AtomicLong compressionBytesOut = new AtomicLong();
+    private final AtomicLong compressionNanos = new AtomicLong();
+    private final AtomicLong skippedMessages = new AtomicLong();
+
+    private final AtomicLong decompressedMessages = new AtomicLong();
+    private final AtomicLong decompressionBytesIn = new AtomicLong();
+    private final AtomicLong decompressionBytesOut = new AtomicLong();
+    private final AtomicLong decompressionNanos = new AtomicLong();
+
+    ContentCodecPool(int level, int maxIdle) {
+        this.level = level;
+        this.maxIdle = maxIdle;
+    }
+
+    public static ContentCodecPool getInstance() {
+        if (instance == null) {
+            synchronized (ContentCodecPool.class) {
+                if (instance == null) {
+                    PassThroughConfiguration conf = PassThroughConfiguration.getInstance();
+                    ContentCodecPool pool = new ContentCodecPool(conf.getResponseCompressionLevel(),
+                            conf.getCompressionCodecPoolSize());
+                    new CompressionView(pool);
+                    instance = pool;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the content coding to compress a response with, out of the codings accepted by
+     * the client. gzip is preferred over deflate.
+     *
+     * @param acceptEncoding value of the Accept-Encoding header of the request
+     * @return {@link #GZIP}, {@link #DEFLATE} or null if neither is accepted
+     */
+    public static String selectEncoding(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        boolean deflate = false;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] params = coding.split(";");
+            String name = params[0].trim();
+            if (isRejected(params)) {
+                continue;
+            }
+            if (GZIP.equalsIgnoreCase(name) || "x-gzip".equalsIgnoreCase(name) || "*".equals(name)) {
+                return GZIP;
+            } else if (DEFLATE.equalsIgnoreCase(name)) {
+                deflate = true;
+            }
+        }
+        return deflate ? DEFLATE : null;
+    }
+
+    private static boolean isRejected(String[] params) {
+        for (int i = 1; i < params.length; i++) {
+            String param = params[i].trim();
+            if (param.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(param.substring(2).trim()) <= 0;
+                } catch (NumberFormatException e) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Wraps the given stream to decompress it, if the message content is gzip or deflate encoded.
+     * Same as the Axis2 gzip handling, but with a pooled inflater.
+     *
+     * @param msgCtx message context holding the transport headers
+     * @param in     the message content
+     * @return the decompressed content, or the given stream if the content is not compressed
+     * @throws IOException if the gzip header cannot be read
+     */
+    public InputStream decompress(MessageContext msgCtx, InputStream in) throws IOException {
+        Object headers = msgCtx.getProperty(MessageContext.TRANSPORT_HEADERS);
+        if (!(headers instanceof Map)) {
+            return in;
+        }
+        Object encoding = ((Map) headers).get(CONTENT_ENCODING);
+        if (encoding == null) {
+            encoding = ((Map) headers).get(CONTENT_ENCODING.toLowerCase());
+        }
+        if (GZIP.equals(encoding)) {
+            return new InflatingInputStream(in, this, true);
+        } else if (DEFLATE.equals(encoding)) {
+            return new InflatingInputStream(in, this, false);
+        }
+        return in;
+    }
+
+    /**
+     * @param gzip true for raw deflate data wrapped by gzip, false for zlib data
+     * @return a deflater, reset to compress new content
+     */
+    Deflater borrowDeflater(boolean gzip) {
+        Deflater deflater = (gzip ? rawDeflaters : zlibDeflaters).poll();
+        if (deflater == null) {
+            return new Deflater(level, gzip);
+        }
+        idle.decrementAndGet();
+        return deflater;
+    }
+
+    void returnDeflater(Deflater deflater, boolean gzip) {
+        deflater.reset();
+        if (idle.incrementAndGet() <= maxIdle) {
+            (gzip ? rawDeflaters : zlibDeflaters).offer(deflater);
+        } else {
+            idle.decrementAndGet();
+            deflater.end();
+        }
+    }
+
+    Inflater borrowInflater(boolean gzip) {
+        Inflater inflater = (gzip ? rawInflaters : zlibInflaters).poll();
+        if (inflater == null) {
+            return new Inflater(gzip);
+        }
+        idle.decrementAndGet();
+        return inflater;
+    }
+
+    void returnInflater(Inflater inflater, boolean gzip) {
+        inflater.reset();
+        if (idle.incrementAndGet() <= maxIdle) {
+            (gzip ? rawInflaters : zlibInflaters).offer(inflater);
+        } else {
+            idle.decrementAndGet();
+            inflater.end();
+        }
+    }
+
+    void compressed(long bytesIn, long bytesOut, long nanos) {
+        compressedMessages.incrementAndGet();
+        compressionBytesIn.addAndGet(bytesIn);
+        compressionBytesOut.addAndGet(bytesOut);
+        compressionNanos.addAndGet(nanos);
+        if (log.isDebugEnabled()) {
+            log.debug("Compressed " + bytesIn + " bytes to " + bytesOut + " bytes in " + nanos / 1000 + " us");
+        }
+    }
+
+    /**
+     * Records a response which was not compressed, because it was smaller than the minimum size.
+     */
+    public void skipped() {
+        skippedMessages.incrementAndGet();
+    }
+
+    void decompressed(long bytesIn, long bytesOut, long nanos) {
+        decompressedMessages.incrementAndGet();
+        decompressionBytesIn.addAndGet(bytesIn);
+        decompressionBytesOut.addAndGet(bytesOut);
+        decompressionNanos.addAndGet(nanos);
+    }
+
+    public long getCompressedMessages() {
+        return compressedMessages.get();
+    }
+
+    public long getCompressionBytesIn() {
+        return compressionBytesIn.get();
+    }
+
+    public long getCompressionBytesOut() {
+        return compressionBytesOut.get();
+    }
+
+    public long getCompressionNanos() {
+        return compressionNanos.get();
+    }
+
+    public long getSkippedMessages() {
+        return skippedMessages.get();
+    }
+
+    public long getDecompressedMessages() {
+        return decompressedMessages.get();
+    }
+
+    public long getDecompressionBytesIn() {
+        return decompressionBytesIn.get();
+    }
+
+    public long getDecompressionBytesOut() {
+        return decompressionBytesOut.get();
+    }
+
+    public long getDecompressionNanos() {
+        return decompressionNanos.get();
+    }
+
+    public int getIdleCodecs() {
+        return idle.get();
+    }
+
+    public void resetStatistics() {
+        compressedMessages.set(0);
+        compressionBytesIn.set(0);
+        compressionBytesOut.set(0);
+        compressionNanos.set(0);
+        skippedMessages.set(0);
+        decompressedMessages.set(0);
+        decompressionBytesIn.set(0);
+        decompressionBytesOut.set(0);
+        decompressionNanos.set(0);
+    }
+}
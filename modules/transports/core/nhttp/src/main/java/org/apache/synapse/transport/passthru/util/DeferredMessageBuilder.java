@@ -102,7 +102,7 @@ public class DeferredMessageBuilder {
     	
 		String contentType = (String) msgCtx.getProperty(Constants.Configuration.CONTENT_TYPE);
 		String _contentType = getContentType(contentType, msgCtx);
-		in = HTTPTransportUtils.handleGZip(msgCtx, in);
+		in = ContentCodecPool.getInstance().decompress(msgCtx, in);
 
 		AxisConfiguration configuration = msgCtx.getConfigurationContext().getAxisConfiguration();
 		Parameter useFallbackParameter =
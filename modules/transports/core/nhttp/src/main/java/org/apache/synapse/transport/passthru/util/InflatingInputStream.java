@@ -0,0 +1,224 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.synapse.transport.passthru.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Input stream which decompresses gzip or deflate encoded content with an inflater taken from the
+ * {@link ContentCodecPool}. The inflater goes back to the pool once the end of the content is
+ * read, or the stream is closed.
+ * <p>
+ * The gzip format is read the same as by {@link java.util.zip.GZIPInputStream}, including
+ * content made of several gzip members.
+ */
+class InflatingInputStream extends InflaterInputStream {
+
+    private static final int GZIP_MAGIC = 0x8b1f;
+
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    private final ContentCodecPool pool;
+
+    private final boolean gzip;
+
+    private final CRC32 crc = new CRC32();
+
+    private boolean eos = false;
+
+    private boolean released = false;
+
+    private long bytesIn = 0;
+
+    private long bytesOut = 0;
+
+    private long nanos = 0;
+
+    InflatingInputStream(InputStream in, ContentCodecPool pool, boolean gzip) throws IOException {
+        super(in, pool.borrowInflater(gzip), 8 * 1024);
+        this.pool = pool;
+        this.gzip = gzip;
+        if (gzip) {
+            try {
+                bytesIn += readHeader(in);
+            } catch (IOException e) {
+                release();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (eos) {
+            return -1;
+        }
+        long start = System.nanoTime();
+        int n = super.read(b, off, len);
+        nanos += System.nanoTime() - start;
+        if (n == -1) {
+            if (!gzip || readTrailer()) {
+                if (!gzip) {
+                    bytesIn += inf.getBytesRead();
+                }
+                eos = true;
+                release();
+                return -1;
+            }
+            return this.read(b, off, len);
+        }
+        if (gzip) {
+            crc.update(b, off, n);
+        }
+        bytesOut += n;
+        return n;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return eos ? 0 : super.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+        release();
+        eos = true;
+        super.close();
+    }
+
+    private void release() {
+        if (!released) {
+            released = true;
+            pool.returnInflater(inf, gzip);
+            if (bytesOut > 0) {
+                pool.decompressed(bytesIn, bytesOut, nanos);
+            }
+        }
+    }
+
+    /**
+     * Reads a gzip member header.
+     *
+     * @return the number of bytes read
+     */
+    private int readHeader(InputStream input) throws IOException {
+        CheckedInputStream in = new CheckedInputStream(input, crc);
+        crc.reset();
+        if (readUShort(in) != GZIP_MAGIC) {
+            throw new ZipException("Not in GZIP format");
+        }
+        if (readUByte(in) != 8) {
+            throw new ZipException("Unsupported compression method");
+        }
+        int flg = readUByte(in);
+        skipBytes(in, 6);
+        int n = 2 + 2 + 6;
+        if ((flg & FEXTRA) == FEXTRA) {
+            int m = readUShort(in);
+            skipBytes(in, m);
+            n += m + 2;
+        }
+        if ((flg & FNAME) == FNAME) {
+            do {
+                n++;
+            } while (readUByte(in) != 0);
+        }
+        if ((flg & FCOMMENT) == FCOMMENT) {
+            do {
+                n++;
+            } while (readUByte(in) != 0);
+        }
+        if ((flg & FHCRC) == FHCRC) {
+            int v = (int) crc.getValue() & 0xffff;
+            if (readUShort(in) != v) {
+                throw new ZipException("Corrupt GZIP header");
+            }
+            n += 2;
+        }
+        crc.reset();
+        return n;
+    }
+
+    /**
+     * Reads a gzip member trailer, and the header of the next member if there is one.
+     *
+     * @return true if the end of the content is reached
+     */
+    private boolean readTrailer() throws IOException {
+        InputStream in = this.in;
+        int n = inf.getRemaining();
+        if (n > 0) {
+            in = new SequenceInputStream(new ByteArrayInputStream(buf, len - n, n), in);
+        }
+        if ((readUInt(in) != crc.getValue()) || (readUInt(in) != (inf.getBytesWritten() & 0xffffffffL))) {
+            throw new ZipException("Corrupt GZIP trailer");
+        }
+        bytesIn += inf.getBytesRead() + 8;
+        // more members follow if there are more bytes than the trailer
+        if (this.in.available() > 0 || n > 26) {
+            int m = 8;
+            try {
+                m += readHeader(in);
+                bytesIn += m - 8;
+            } catch (IOException ze) {
+                // ignore trailing garbage, the same as GZIPInputStream
+                return true;
+            }
+            inf.reset();
+            if (n > m) {
+                inf.setInput(buf, len - n + m, n - m);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private long readUInt(InputStream in) throws IOException {
+        long s = readUShort(in);
+        return ((long) readUShort(in) << 16) | s;
+    }
+
+    private int readUShort(InputStream in) throws IOException {
+        int b = readUByte(in);
+        return (readUByte(in) << 8) | b;
+    }
+
+    private int readUByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b == -1) {
+            throw new EOFException();
+        }
+        return b;
+    }
+
+    private void skipBytes(InputStream in, int n) throws IOException {
+        while (n-- > 0) {
+            readUByte(in);
+        }
+    }
+}
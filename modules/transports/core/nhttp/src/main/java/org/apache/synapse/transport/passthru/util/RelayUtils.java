@@ -486,7 +486,8 @@ public class RelayUtils {
     }
 
     /**
-     * Consumes the data in pipe completely in the given message context and discard it
+     * Consumes the data in pipe completely in the given message context and discard it, including
+     * the bytes handed back to the pipe once the content was inspected
      *
      * @param msgContext Axis2 Message context which contains the data
      * @throws AxisFault AxisFault
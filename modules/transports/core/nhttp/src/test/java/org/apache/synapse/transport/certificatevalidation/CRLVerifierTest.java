@@ -18,6 +18,9 @@
  */
 package org.apache.synapse.transport.certificatevalidation;
 
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
 import junit.framework.TestCase;
 import org.apache.synapse.commons.crypto.CryptoConstants;
 import org.apache.synapse.transport.certificatevalidation.crl.CRLCache;
@@ -42,8 +45,11 @@ import org.bouncycastle.operator.DefaultSignatureAlgorithmIdentifierFinder;
 import org.bouncycastle.operator.bc.BcRSAContentSignerBuilder;
 import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.reflect.Method;
 import java.math.BigInteger;
+import java.net.InetSocketAddress;
 import java.security.KeyPair;
 import java.security.PrivateKey;
 import java.security.PublicKey;
@@ -52,6 +58,9 @@ import java.security.cert.X509CRL;
 import java.security.cert.X509Certificate;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class CRLVerifierTest extends TestCase {
 
@@ -99,6 +108,118 @@ public class CRLVerifierTest extends TestCase {
         assertTrue(status == RevocationStatus.REVOKED);
     }
 
+    /**
+     * A CRL which is about to expire is downloaded again in the background, from a local stub CRL server, while the
+     * lookups keep returning the cached CRL. The CRL must be downloaded only once although it is looked up several
+     * times while the server is slow to answer.
+     *
+     * @throws Exception
+     */
+    public void testCRLRefreshedInBackground() throws Exception {
+
+        Security.addProvider(new org.bouncycastle.jce.provider.BouncyCastleProvider());
+
+        Utils utils = new Utils();
+        KeyPair caKeyPair = utils.generateRSAKeyPair();
+        X509Certificate caCert = utils.generateFakeRootCert(caKeyPair);
+        BigInteger revokedSerialNumber = BigInteger.valueOf(111);
+        long now = System.currentTimeMillis();
+        X509CRL expiringCRL = createCRL(caCert, caKeyPair.getPrivate(), revokedSerialNumber,
+                new Date(now - 60 * 60 * 1000), new Date(now + 60 * 1000));
+        final byte[] newCRL = createCRL(caCert, caKeyPair.getPrivate(), revokedSerialNumber).getEncoded();
+
+        final AtomicInteger downloads = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/refreshed.crl", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    downloads.incrementAndGet();
+                    //The server is slow, lookups done meanwhile must not download the CRL again.
+                    release.await(10, TimeUnit.SECONDS);
+                    exchange.sendResponseHeaders(200, newCRL.length);
+                    OutputStream out = exchange.getResponseBody();
+                    out.write(newCRL);
+                    out.close();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        server.start();
+
+        try {
+            String crlUrl = "http://localhost:" + server.getAddress().getPort() + "/refreshed.crl";
+            CRLCache cache = CRLCache.getCache();
+            cache.init(5, 5);
+            cache.setCacheValue(crlUrl, expiringCRL);
+
+            for (int i = 0; i < 10; i++) {
+                assertSame(expiringCRL, cache.getCacheValue(crlUrl));
+            }
+            release.countDown();
+
+            long deadline = System.currentTimeMillis() + 10000;
+            while (cache.getCacheValue(crlUrl) == expiringCRL && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            X509CRL refreshedCRL = cache.getCacheValue(crlUrl);
+            assertNotSame(expiringCRL, refreshedCRL);
+            assertTrue(refreshedCRL.getNextUpdate().after(expiringCRL.getNextUpdate()));
+            assertEquals(1, downloads.get());
+        } finally {
+            release.countDown();
+            server.stop(0);
+        }
+    }
+
+    /**
+     * A CRL which is still valid is kept in the cache when it cannot be downloaded again, until it expires.
+     *
+     * @throws Exception
+     */
+    public void testValidCRLKeptWhenRefreshFails() throws Exception {
+
+        Security.addProvider(new org.bouncycastle.jce.provider.BouncyCastleProvider());
+
+        Utils utils = new Utils();
+        KeyPair caKeyPair = utils.generateRSAKeyPair();
+        X509Certificate caCert = utils.generateFakeRootCert(caKeyPair);
+        long now = System.currentTimeMillis();
+        X509CRL expiringCRL = createCRL(caCert, caKeyPair.getPrivate(), BigInteger.valueOf(111),
+                new Date(now - 60 * 60 * 1000), new Date(now + 60 * 1000));
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/unavailable.crl", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                exchange.sendResponseHeaders(503, -1);
+                exchange.close();
+            }
+        });
+        server.start();
+
+        try {
+            String crlUrl = "http://localhost:" + server.getAddress().getPort() + "/unavailable.crl";
+            CRLCache cache = CRLCache.getCache();
+            cache.init(5, 5);
+            cache.setCacheValue(crlUrl, expiringCRL);
+            long failures = cache.getStatistics().getRefreshFailureCount();
+
+            assertSame(expiringCRL, cache.getCacheValue(crlUrl));
+            long deadline = System.currentTimeMillis() + 10000;
+            while (cache.getStatistics().getRefreshFailureCount() == failures
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertTrue(cache.getStatistics().getRefreshFailureCount() > failures);
+            assertSame(expiringCRL, cache.getCacheValue(crlUrl));
+        } finally {
+            server.stop(0);
+        }
+    }
+
     /**
      * This will use Reflection to call getCrlDistributionPoints() private method in CRLVerifier.
      * @param certificate is a certificate with a proper CRLDistributionPoints extension.
@@ -129,13 +250,22 @@ public class CRLVerifierTest extends TestCase {
      */
     public static X509CRL createCRL(X509Certificate caCert, PrivateKey caPrivateKey, BigInteger revokedSerialNumber)
             throws Exception {
+        Date now = new Date();
+        return createCRL(caCert, caPrivateKey, revokedSerialNumber, now,
+                new Date(now.getTime() + TestConstants.NEXT_UPDATE_PERIOD));
+    }
+
+    /**
+     * Creates a fake CRL for the fake CA with the given validity period.
+     */
+    public static X509CRL createCRL(X509Certificate caCert, PrivateKey caPrivateKey, BigInteger revokedSerialNumber,
+                                    Date thisUpdate, Date nextUpdate) throws Exception {
 
         JcaX509ExtensionUtils extUtils = new JcaX509ExtensionUtils();
-        Date now = new Date();
         X500Name issuer = X500Name.getInstance(PrincipalUtil.getIssuerX509Principal(caCert).getEncoded());
-        X509v2CRLBuilder builder = new X509v2CRLBuilder(issuer, new Date());
-        builder.addCRLEntry(revokedSerialNumber, new Date(), 0);
-        builder.setNextUpdate(new Date(now.getTime() + TestConstants.NEXT_UPDATE_PERIOD));
+        X509v2CRLBuilder builder = new X509v2CRLBuilder(issuer, thisUpdate);
+        builder.addCRLEntry(revokedSerialNumber, thisUpdate, 0);
+        builder.setNextUpdate(nextUpdate);
         builder.addExtension(Extension.cRLDistributionPoints, false,
                 extUtils.createAuthorityKeyIdentifier(caCert));
         builder.addExtension(Extension.cRLNumber, false, new CRLNumber(BigInteger.valueOf(1)));
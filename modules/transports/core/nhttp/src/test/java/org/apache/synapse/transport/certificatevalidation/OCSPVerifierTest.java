@@ -18,16 +18,23 @@
  */
 package org.apache.synapse.transport.certificatevalidation;
 
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
 import junit.framework.TestCase;
+import org.apache.commons.io.IOUtils;
 import org.apache.synapse.commons.crypto.CryptoConstants;
 import org.apache.synapse.transport.certificatevalidation.ocsp.OCSPCache;
 import org.apache.synapse.transport.certificatevalidation.ocsp.OCSPVerifier;
 import org.bouncycastle.asn1.ASN1ObjectIdentifier;
 import org.bouncycastle.asn1.ocsp.OCSPObjectIdentifiers;
+import org.bouncycastle.asn1.x509.AccessDescription;
 import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.asn1.x509.AuthorityInformationAccess;
 import org.bouncycastle.asn1.x509.CRLReason;
 import org.bouncycastle.asn1.x509.Extension;
 import org.bouncycastle.asn1.x509.Extensions;
+import org.bouncycastle.asn1.x509.GeneralName;
 import org.bouncycastle.cert.X509CertificateHolder;
 import org.bouncycastle.cert.X509v3CertificateBuilder;
 import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
@@ -53,7 +60,10 @@ import org.bouncycastle.operator.bc.BcRSAContentSignerBuilder;
 import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
 import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
 import java.math.BigInteger;
 import java.security.KeyPair;
 import java.security.NoSuchProviderException;
@@ -62,6 +72,7 @@ import java.security.PublicKey;
 import java.security.Security;
 import java.security.cert.X509Certificate;
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class OCSPVerifierTest extends TestCase {
 
@@ -119,6 +130,143 @@ public class OCSPVerifierTest extends TestCase {
         assertTrue(status == RevocationStatus.REVOKED);
     }
 
+    /**
+     * A non blocking verifier must not call the OCSP responder during the check. The first check reports the status
+     * as unavailable and fetches the response from a local stub OCSP responder in the background. Once the response
+     * is cached, the check says that the certificate is revoked. The stub responder must be called only once even
+     * though the certificate is checked several times before the response arrives.
+     *
+     * @throws Exception
+     */
+    public void testNonBlockingOCSPVerifierWithStubResponder() throws Exception {
+
+        Security.addProvider(new org.bouncycastle.jce.provider.BouncyCastleProvider());
+
+        Utils utils = new Utils();
+        KeyPair caKeyPair = utils.generateRSAKeyPair();
+        final X509Certificate caCert = utils.generateFakeRootCert(caKeyPair);
+        final X509CertificateHolder certificateHolder = new X509CertificateHolder(caCert.getEncoded());
+        final PrivateKey caPrivateKey = caKeyPair.getPrivate();
+        final PublicKey caPublicKey = caKeyPair.getPublic();
+
+        BigInteger revokedSerialNumber = BigInteger.valueOf(222);
+        DigestCalculatorProvider digCalcProv = new JcaDigestCalculatorProviderBuilder().setProvider(BC).build();
+        final CertificateID revokedID = new CertificateID(digCalcProv.get(CertificateID.HASH_SHA1), certificateHolder,
+                revokedSerialNumber);
+
+        final AtomicInteger responderCalls = new AtomicInteger();
+        HttpServer responder = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        responder.createContext("/ocsp", new HttpHandler() {
+            public void handle(HttpExchange exchange) {
+                try {
+                    responderCalls.incrementAndGet();
+                    OCSPReq request = new OCSPReq(IOUtils.toByteArray(exchange.getRequestBody()));
+                    byte[] response = generateOCSPResponse(request, certificateHolder, caPrivateKey, caPublicKey,
+                            revokedID).getEncoded();
+                    exchange.getResponseHeaders().add("Content-Type", "application/ocsp-response");
+                    exchange.sendResponseHeaders(200, response.length);
+                    OutputStream out = exchange.getResponseBody();
+                    out.write(response);
+                    out.close();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        responder.start();
+
+        try {
+            String serviceUrl = "http://localhost:" + responder.getAddress().getPort() + "/ocsp";
+            KeyPair peerKeyPair = utils.generateRSAKeyPair();
+            X509Certificate revokedCertificate = generateFakePeerCert(revokedSerialNumber, peerKeyPair.getPublic(),
+                    caKeyPair.getPrivate(), caCert, serviceUrl);
+
+            OCSPCache cache = OCSPCache.getCache();
+            cache.init(5, 5);
+            OCSPVerifier ocspVerifier = new OCSPVerifier(cache, true);
+
+            for (int i = 0; i < 3; i++) {
+                try {
+                    ocspVerifier.checkRevocationStatus(revokedCertificate, caCert);
+                } catch (RevocationStatusUnavailableException e) {
+                    //Expected until the background fetch completes.
+                }
+            }
+
+            long deadline = System.currentTimeMillis() + 10000;
+            while (cache.getCacheValue(revokedSerialNumber) == null && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+
+            RevocationStatus status = ocspVerifier.checkRevocationStatus(revokedCertificate, caCert);
+            assertTrue(status == RevocationStatus.REVOKED);
+            assertEquals(1, responderCalls.get());
+            assertTrue(cache.getStatistics().getResponderCallCount() >= 1);
+        } finally {
+            responder.stop(0);
+        }
+    }
+
+    /**
+     * A response which is still valid is kept in the cache when the OCSP responder fails to refresh it, until it
+     * expires.
+     *
+     * @throws Exception
+     */
+    public void testValidResponseKeptWhenRefreshFails() throws Exception {
+
+        Security.addProvider(new org.bouncycastle.jce.provider.BouncyCastleProvider());
+
+        Utils utils = new Utils();
+        KeyPair caKeyPair = utils.generateRSAKeyPair();
+        X509Certificate caCert = utils.generateFakeRootCert(caKeyPair);
+        X509CertificateHolder certificateHolder = new X509CertificateHolder(caCert.getEncoded());
+        BigInteger revokedSerialNumber = BigInteger.valueOf(333);
+        DigestCalculatorProvider digCalcProv = new JcaDigestCalculatorProviderBuilder().setProvider(BC).build();
+        CertificateID revokedID = new CertificateID(digCalcProv.get(CertificateID.HASH_SHA1), certificateHolder,
+                revokedSerialNumber);
+
+        //A response which is about to expire, hence due for a refresh.
+        OCSPReq request = getOCSPRequest(caCert, revokedSerialNumber);
+        long now = System.currentTimeMillis();
+        OCSPResp response = generateOCSPResponse(request, certificateHolder, caKeyPair.getPrivate(),
+                caKeyPair.getPublic(), revokedID, new Date(now - 60 * 60 * 1000), new Date(now + 60 * 1000));
+        SingleResp singleResp = ((BasicOCSPResp) response.getResponseObject()).getResponses()[0];
+
+        final AtomicInteger responderCalls = new AtomicInteger();
+        HttpServer responder = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        responder.createContext("/ocsp", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                responderCalls.incrementAndGet();
+                exchange.sendResponseHeaders(503, -1);
+                exchange.close();
+            }
+        });
+        responder.start();
+
+        try {
+            String serviceUrl = "http://localhost:" + responder.getAddress().getPort() + "/ocsp";
+            OCSPCache cache = OCSPCache.getCache();
+            cache.init(5, 5);
+            cache.setCacheValue(revokedSerialNumber, singleResp, request, serviceUrl);
+            long failures = cache.getStatistics().getRefreshFailureCount();
+
+            assertSame(singleResp, cache.getCacheValue(revokedSerialNumber));
+            long deadline = System.currentTimeMillis() + 10000;
+            while (cache.getStatistics().getRefreshFailureCount() == failures
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertTrue(cache.getStatistics().getRefreshFailureCount() > failures);
+            assertTrue(responderCalls.get() >= 1);
+            assertSame(singleResp, cache.getCacheValue(revokedSerialNumber));
+        } finally {
+            responder.stop(0);
+        }
+    }
+
     /**
      * An OCSP request is made to be given to the fake CA. Reflection is used to call generateOCSPRequest(..) private
      * method in OCSPVerifier.
@@ -155,6 +303,18 @@ public class OCSPVerifierTest extends TestCase {
      */
     private OCSPResp generateOCSPResponse(OCSPReq request, X509CertificateHolder certificateHolder, PrivateKey caPrivateKey, PublicKey caPublicKey,
                                           CertificateID revokedID) throws NoSuchProviderException, OCSPException, OperatorCreationException {
+        Date now = new Date();
+        return generateOCSPResponse(request, certificateHolder, caPrivateKey, caPublicKey, revokedID, now,
+                new Date(now.getTime() + TestConstants.NEXT_UPDATE_PERIOD));
+    }
+
+    /**
+     * Same as the above, with the given validity period for the response of the revoked certificate.
+     */
+    private OCSPResp generateOCSPResponse(OCSPReq request, X509CertificateHolder certificateHolder,
+                                          PrivateKey caPrivateKey, PublicKey caPublicKey, CertificateID revokedID,
+                                          Date thisUpdate, Date nextUpdate)
+            throws NoSuchProviderException, OCSPException, OperatorCreationException {
 
         BasicOCSPRespBuilder basicOCSPRespBuilder = new BasicOCSPRespBuilder(new RespID(certificateHolder.getSubject()));
         Extension extension = request.getExtension(new ASN1ObjectIdentifier(OCSPObjectIdentifiers.id_pkix_ocsp.getId()));
@@ -171,9 +331,8 @@ public class OCSPVerifierTest extends TestCase {
 
             if (certID.equals(revokedID)) {
 
-                RevokedStatus revokedStatus = new RevokedStatus(new Date(), CRLReason.privilegeWithdrawn);
-                Date nextUpdate = new Date(new Date().getTime() + TestConstants.NEXT_UPDATE_PERIOD);
-                basicOCSPRespBuilder.addResponse(certID, revokedStatus, nextUpdate, (Extensions) null);
+                RevokedStatus revokedStatus = new RevokedStatus(thisUpdate, CRLReason.privilegeWithdrawn);
+                basicOCSPRespBuilder.addResponse(certID, revokedStatus, thisUpdate, nextUpdate, (Extensions) null);
             } else {
                 basicOCSPRespBuilder.addResponse(certID, CertificateStatus.GOOD);
             }
@@ -190,8 +349,20 @@ public class OCSPVerifierTest extends TestCase {
     private X509Certificate generateFakePeerCert(BigInteger serialNumber, PublicKey entityKey,
                                                 PrivateKey caKey, X509Certificate caCert)
             throws Exception {
+        return generateFakePeerCert(serialNumber, entityKey, caKey, caCert, null);
+    }
+
+    private X509Certificate generateFakePeerCert(BigInteger serialNumber, PublicKey entityKey,
+                                                PrivateKey caKey, X509Certificate caCert, String ocspUrl)
+            throws Exception {
         Utils utils = new Utils();
         X509v3CertificateBuilder certBuilder = utils.getUsableCertificateBuilder(entityKey, serialNumber);
+        if (ocspUrl != null) {
+            AccessDescription ocspLocation = new AccessDescription(AccessDescription.id_ad_ocsp,
+                    new GeneralName(GeneralName.uniformResourceIdentifier, ocspUrl));
+            certBuilder.addExtension(Extension.authorityInfoAccess, false,
+                    new AuthorityInformationAccess(ocspLocation));
+        }
         AlgorithmIdentifier sigAlgId = new DefaultSignatureAlgorithmIdentifierFinder()
                 .find("SHA1WithRSAEncryption");
         AlgorithmIdentifier digAlgId = new DefaultDigestAlgorithmIdentifierFinder().find(sigAlgId);
@@ -0,0 +1,201 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.synapse.transport.passthru.util;
+
+import org.apache.http.nio.ContentEncoder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Tests the streaming compression of relayed content, and the decompression with pooled inflaters.
+ */
+public class CompressingContentEncoderTest {
+
+    private static final byte[] CONTENT = content();
+
+    /**
+     * Content written through a connection which takes a few bytes at a time is compressed as a whole.
+     */
+    @Test
+    public void testGzipWithSlowConnection() throws IOException {
+        ContentCodecPool pool = new ContentCodecPool(6, 4);
+        byte[] compressed = compress(pool, ContentCodecPool.GZIP, 100);
+        Assert.assertArrayEquals(CONTENT, toByteArray(new GZIPInputStream(new ByteArrayInputStream(compressed))));
+        Assert.assertTrue("Content should be compressed", compressed.length < CONTENT.length / 4);
+        Assert.assertEquals(1, pool.getCompressedMessages());
+        Assert.assertEquals(CONTENT.length, pool.getCompressionBytesIn());
+        Assert.assertEquals(compressed.length, pool.getCompressionBytesOut());
+        Assert.assertEquals("Deflater should be returned to the pool", 1, pool.getIdleCodecs());
+    }
+
+    /**
+     * A response given up before it is completed returns its deflater to the pool once released.
+     */
+    @Test
+    public void testReleaseAborted() throws IOException {
+        ContentCodecPool pool = new ContentCodecPool(6, 4);
+        CompressingContentEncoder compressor = new CompressingContentEncoder(pool, ContentCodecPool.GZIP);
+        compressor.setEncoder(new SlowContentEncoder(100)).write(ByteBuffer.wrap(CONTENT, 0, 4096));
+        Assert.assertEquals(0, pool.getIdleCodecs());
+        compressor.release();
+        Assert.assertEquals("Deflater should be returned to the pool", 1, pool.getIdleCodecs());
+        compressor.release();
+        Assert.assertEquals(1, pool.getIdleCodecs());
+        try {
+            compressor.write(ByteBuffer.wrap(CONTENT));
+            Assert.fail("A released encoder should not be written");
+        } catch (IOException expected) {
+            // expected
+        }
+        Assert.assertEquals(0, pool.getCompressedMessages());
+    }
+
+    @Test
+    public void testDeflate() throws IOException {
+        ContentCodecPool pool = new ContentCodecPool(6, 4);
+        byte[] compressed = compress(pool, ContentCodecPool.DEFLATE, Integer.MAX_VALUE);
+        Assert.assertArrayEquals(CONTENT, toByteArray(new InflaterInputStream(new ByteArrayInputStream(compressed))));
+    }
+
+    @Test
+    public void testDecompressGzip() throws IOException {
+        ContentCodecPool pool = new ContentCodecPool(6, 4);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // two gzip members
+        for (int i = 0; i < 2; i++) {
+            GZIPOutputStream gzip = new GZIPOutputStream(out);
+            gzip.write(CONTENT);
+            gzip.finish();
+        }
+        InputStream in = new InflatingInputStream(new ByteArrayInputStream(out.toByteArray()), pool, true);
+        byte[] decompressed = toByteArray(in);
+        Assert.assertEquals(2 * CONTENT.length, decompressed.length);
+        Assert.assertEquals(1, pool.getDecompressedMessages());
+        Assert.assertEquals(out.size(), pool.getDecompressionBytesIn());
+        Assert.assertEquals("Inflater should be returned to the pool", 1, pool.getIdleCodecs());
+        in.close();
+        Assert.assertEquals(1, pool.getIdleCodecs());
+    }
+
+    @Test
+    public void testDecompressOwnCompression() throws IOException {
+        ContentCodecPool pool = new ContentCodecPool(6, 4);
+        for (String encoding : new String[]{ContentCodecPool.GZIP, ContentCodecPool.DEFLATE}) {
+            byte[] compressed = compress(pool, encoding, 1000);
+            InputStream in = new InflatingInputStream(new ByteArrayInputStream(compressed), pool,
+                                                      ContentCodecPool.GZIP.equals(encoding));
+            Assert.assertArrayEquals(CONTENT, toByteArray(in));
+        }
+    }
+
+    @Test
+    public void testSelectEncoding() {
+        Assert.assertEquals("gzip", ContentCodecPool.selectEncoding("gzip"));
+        Assert.assertEquals("gzip", ContentCodecPool.selectEncoding("deflate, gzip;q=0.8"));
+        Assert.assertEquals("deflate", ContentCodecPool.selectEncoding("gzip;q=0, deflate"));
+        Assert.assertEquals("gzip", ContentCodecPool.selectEncoding("*"));
+        Assert.assertNull(ContentCodecPool.selectEncoding("identity"));
+        Assert.assertNull(ContentCodecPool.selectEncoding("br"));
+        Assert.assertNull(ContentCodecPool.selectEncoding(null));
+    }
+
+    private static byte[] compress(ContentCodecPool pool, String encoding, int connectionLimit) throws IOException {
+        SlowContentEncoder connection = new SlowContentEncoder(connectionLimit);
+        CompressingContentEncoder compressor = new CompressingContentEncoder(pool, encoding);
+        ByteBuffer src = ByteBuffer.wrap(CONTENT);
+        while (src.hasRemaining()) {
+            // the pipe hands over the content in buffers of its own size
+            ByteBuffer chunk = src.duplicate();
+            chunk.limit(Math.min(src.position() + 4096, src.limit()));
+            int n = compressor.setEncoder(connection).write(chunk);
+            src.position(src.position() + n);
+        }
+        int calls = 0;
+        while (!compressor.isCompleted()) {
+            compressor.complete();
+            Assert.assertTrue("Compression should complete", ++calls < 10000);
+        }
+        Assert.assertTrue(connection.isCompleted());
+        return connection.out.toByteArray();
+    }
+
+    private static byte[] content() {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            content.append("{\"id\":").append(i).append(",\"name\":\"item-").append(i % 17).append("\"}\n");
+        }
+        return content.toString().getBytes();
+    }
+
+    private static byte[] toByteArray(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Connection which takes at most the given number of bytes per write.
+     */
+    private static class SlowContentEncoder implements ContentEncoder {
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        private final int limit;
+
+        private boolean completed = false;
+
+        private boolean full = false;
+
+        SlowContentEncoder(int limit) {
+            this.limit = limit;
+        }
+
+        public int write(ByteBuffer src) {
+            // every other write finds the connection busy
+            full = !full;
+            if (full && limit != Integer.MAX_VALUE) {
+                return 0;
+            }
+            int n = Math.min(limit, src.remaining());
+            for (int i = 0; i < n; i++) {
+                out.write(src.get());
+            }
+            return n;
+        }
+
+        public void complete() {
+            completed = true;
+        }
+
+        public boolean isCompleted() {
+            return completed;
+        }
+    }
+}
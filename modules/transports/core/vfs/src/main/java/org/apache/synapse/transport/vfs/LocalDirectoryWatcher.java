@@ -0,0 +1,205 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.transport.vfs;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps an index of the files of a local directory which are waiting to be processed, using a
+ * {@link WatchService} instead of listing the directory on every poll. The directory is listed once when the
+ * watcher starts and again only if the watch service reports that events were lost. Files are returned in the
+ * order they were reported and each file is in the index at most once.
+ */
+public class LocalDirectoryWatcher {
+
+    private static final Log log = LogFactory.getLog(LocalDirectoryWatcher.class);
+
+    private final Path directory;
+    private final Pattern fileNamePattern;
+    private final Queue<String> pendingFiles = new ConcurrentLinkedQueue<String>();
+    private final Set<String> pendingFileIndex = ConcurrentHashMap.newKeySet();
+    private WatchService watchService;
+    private Thread watcherThread;
+    private volatile boolean running;
+
+    /**
+     * @param directory       the local directory to watch
+     * @param fileNamePattern regex the file names should match, or null to accept every file
+     */
+    public LocalDirectoryWatcher(Path directory, String fileNamePattern) {
+        this.directory = directory;
+        this.fileNamePattern = fileNamePattern != null ? Pattern.compile(fileNamePattern) : null;
+    }
+
+    /**
+     * Registers the directory with the watch service, indexes the files which are already in the directory and
+     * starts the thread which keeps the index up to date.
+     *
+     * @throws IOException if the directory cannot be watched
+     */
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        watchService = FileSystems.getDefault().newWatchService();
+        // register before the initial scan, so that a file created during the scan is not missed
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.OVERFLOW);
+        running = true;
+        scanDirectory();
+
+        watcherThread = new Thread(new Runnable() {
+            public void run() {
+                watch();
+            }
+        }, "vfs-directory-watcher-" + directory.getFileName());
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+        if (log.isDebugEnabled()) {
+            log.debug("Started watching directory : " + directory);
+        }
+    }
+
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            log.warn("Error while closing the watch service of directory : " + directory, e);
+        }
+        watcherThread.interrupt();
+        pendingFiles.clear();
+        pendingFileIndex.clear();
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Removes files from the index.
+     *
+     * @param maxFiles maximum number of files to return, or a negative value to return all the indexed files
+     * @return names of the files relative to the watched directory
+     */
+    public List<String> drain(int maxFiles) {
+        List<String> files = new ArrayList<String>();
+        String fileName;
+        while ((maxFiles < 0 || files.size() < maxFiles) && (fileName = pendingFiles.poll()) != null) {
+            pendingFileIndex.remove(fileName);
+            files.add(fileName);
+        }
+        return files;
+    }
+
+    /**
+     * Adds a file back to the index, e.g. when it could not be locked in this round.
+     *
+     * @param fileName name of the file relative to the watched directory
+     */
+    public void offer(String fileName) {
+        if (running && pendingFileIndex.add(fileName)) {
+            pendingFiles.add(fileName);
+        }
+    }
+
+    public int getPendingFileCount() {
+        return pendingFileIndex.size();
+    }
+
+    private void watch() {
+        while (running) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ClosedWatchServiceException e) {
+                return;
+            }
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    log.warn("Events were lost while watching directory : " + directory + ". Scanning it again.");
+                    scanDirectory();
+                } else {
+                    addIfAccepted((Path) event.context());
+                }
+            }
+            if (!key.reset()) {
+                log.warn("Directory : " + directory + " can no longer be watched.");
+                stop();
+                return;
+            }
+        }
+    }
+
+    private void scanDirectory() {
+        DirectoryStream<Path> stream = null;
+        try {
+            // the directory is streamed, not loaded and sorted as a whole
+            stream = Files.newDirectoryStream(directory);
+            for (Path path : stream) {
+                addIfAccepted(path.getFileName());
+            }
+        } catch (IOException e) {
+            log.error("Error while scanning directory : " + directory, e);
+        } finally {
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (IOException ignore) {
+                }
+            }
+        }
+    }
+
+    private void addIfAccepted(Path fileName) {
+        String name = fileName.toString();
+        if (name.endsWith(".lock") || !Files.isRegularFile(directory.resolve(fileName))) {
+            return;
+        }
+        if (fileNamePattern != null && !fileNamePattern.matcher(name).matches()) {
+            return;
+        }
+        offer(name);
+    }
+}
@@ -37,8 +37,10 @@ import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 /**
  * Holds information about an entry in the VFS transport poll table used by the
@@ -78,6 +80,8 @@ public class PollTableEntry extends AbstractPollTableEntry {
 
     private boolean streaming;
 
+    private boolean memoryMappedRead;
+
     private int maxRetryCount;
     private long reconnectTimeout;
     private boolean fileLocking;
@@ -129,6 +133,29 @@ public class PollTableEntry extends AbstractPollTableEntry {
 
     private boolean clusterAware;
 
+    /** watch local directories for new files instead of listing them on every poll */
+    private boolean fileWatch;
+
+    /** number of files of a poll which are processed in parallel */
+    private int fileProcessingConcurrency = VFSConstants.DEFAULT_TRANSPORT_FILE_CONCURRENCY;
+
+    /** maximum number of files or ordering groups handed over to the workers at a time */
+    private int fileProcessingMaxInFlight;
+
+    /** regex to find the key of the files which should be processed in order */
+    private Pattern fileOrderingKeyPattern;
+
+    /** local file recording the processed files which are not moved or deleted yet */
+    private String progressJournalPath;
+
+    private volatile ProcessedFileJournal progressJournal;
+
+    /** index of the files waiting to be processed, when the FileURI is a watched local directory */
+    private volatile LocalDirectoryWatcher directoryWatcher;
+
+    /** executor which processes the files of a poll in parallel */
+    private volatile ExecutorService fileProcessingExecutor;
+
     /**
      * This parameter is used decide whether the resolving hostname IP of URIs are done at deployment or dynamically.
      * At usage default id 'false' which lead hostname resolution at deployment
@@ -299,6 +326,10 @@ public class PollTableEntry extends AbstractPollTableEntry {
         return streaming;
     }
 
+    public boolean isMemoryMappedRead() {
+        return memoryMappedRead;
+    }
+
     public int getMaxRetryCount() {
         return maxRetryCount;
     }
@@ -427,6 +458,50 @@ public class PollTableEntry extends AbstractPollTableEntry {
         this.clusterAware = clusterAware;
     }
 
+    public boolean isFileWatch() {
+        return fileWatch;
+    }
+
+    public int getFileProcessingConcurrency() {
+        return fileProcessingConcurrency;
+    }
+
+    public int getFileProcessingMaxInFlight() {
+        return fileProcessingMaxInFlight;
+    }
+
+    public Pattern getFileOrderingKeyPattern() {
+        return fileOrderingKeyPattern;
+    }
+
+    public String getProgressJournalPath() {
+        return progressJournalPath;
+    }
+
+    public ProcessedFileJournal getProgressJournal() {
+        return progressJournal;
+    }
+
+    public void setProgressJournal(ProcessedFileJournal progressJournal) {
+        this.progressJournal = progressJournal;
+    }
+
+    public LocalDirectoryWatcher getDirectoryWatcher() {
+        return directoryWatcher;
+    }
+
+    public void setDirectoryWatcher(LocalDirectoryWatcher directoryWatcher) {
+        this.directoryWatcher = directoryWatcher;
+    }
+
+    public ExecutorService getFileProcessingExecutor() {
+        return fileProcessingExecutor;
+    }
+
+    public void setFileProcessingExecutor(ExecutorService fileProcessingExecutor) {
+        this.fileProcessingExecutor = fileProcessingExecutor;
+    }
+
     public boolean isResolveHostsDynamically() {
         return resolveHostsDynamically;
     }
@@ -575,6 +650,9 @@ public class PollTableEntry extends AbstractPollTableEntry {
                 streaming = Boolean.parseBoolean(strStreaming);
             }
 
+            memoryMappedRead = ParamUtils.getOptionalParamBoolean(params,
+                    VFSConstants.TRANSPORT_FILE_MEMORY_MAPPED_READ, false);
+
             String strMaxRetryCount = ParamUtils.getOptionalParam(
                     params, VFSConstants.MAX_RETRY_COUNT);
             maxRetryCount = strMaxRetryCount != null ? Integer.parseInt(strMaxRetryCount) :
@@ -756,6 +834,43 @@ public class PollTableEntry extends AbstractPollTableEntry {
 
             subfolderTimestamp = ParamUtils.getOptionalParam(params, VFSConstants.SUBFOLDER_TIMESTAMP);
             this.clusterAware = ParamUtils.getOptionalParamBoolean(params, VFSConstants.CLUSTER_AWARE, false);
+            this.fileWatch = ParamUtils.getOptionalParamBoolean(params, VFSConstants.TRANSPORT_FILE_WATCH, false);
+
+            String strFileProcessingConcurrency = ParamUtils.getOptionalParam(params,
+                                                                              VFSConstants.TRANSPORT_FILE_CONCURRENCY);
+            fileProcessingConcurrency = VFSConstants.DEFAULT_TRANSPORT_FILE_CONCURRENCY;
+            if (strFileProcessingConcurrency != null) {
+                try {
+                    fileProcessingConcurrency = Math.max(1, Integer.parseInt(strFileProcessingConcurrency));
+                } catch (NumberFormatException nfe) {
+                    log.warn("VFS File Processing Concurrency not set correctly. Current value is : "
+                             + strFileProcessingConcurrency, nfe);
+                }
+            }
+
+            String strMaxInFlight = ParamUtils.getOptionalParam(params, VFSConstants.TRANSPORT_FILE_MAX_IN_FLIGHT);
+            fileProcessingMaxInFlight = fileProcessingConcurrency;
+            if (strMaxInFlight != null) {
+                try {
+                    fileProcessingMaxInFlight = Math.max(fileProcessingConcurrency, Integer.parseInt(strMaxInFlight));
+                } catch (NumberFormatException nfe) {
+                    log.warn("VFS File Processing Max In Flight not set correctly. Current value is : "
+                             + strMaxInFlight, nfe);
+                }
+            }
+
+            String strOrderingKeyPattern = ParamUtils.getOptionalParam(params,
+                                                                       VFSConstants.TRANSPORT_FILE_ORDERING_KEY_PATTERN);
+            fileOrderingKeyPattern = null;
+            if (strOrderingKeyPattern != null) {
+                try {
+                    fileOrderingKeyPattern = Pattern.compile(strOrderingKeyPattern);
+                } catch (PatternSyntaxException e) {
+                    throw new AxisFault("Invalid VFS File Ordering Key Pattern : " + strOrderingKeyPattern, e);
+                }
+            }
+
+            progressJournalPath = ParamUtils.getOptionalParam(params, VFSConstants.TRANSPORT_FILE_PROGRESS_JOURNAL);
             return super.loadConfiguration(params);
         }
     }
@@ -0,0 +1,139 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one
+ *  or more contributor license agreements.  See the NOTICE file
+ *  distributed with this work for additional information
+ *  regarding copyright ownership.  The ASF licenses this file
+ *  to you under the Apache License, Version 2.0 (the
+ *  "License"); you may not use this file except in compliance
+ *  with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *   * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+package org.apache.synapse.transport.vfs;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records the files which have been handed over to the engine but not yet moved or deleted, so that a restart in
+ * the middle of a batch does not inject them again. A file is identified by its URI, size and last modified time.
+ * <p/>
+ * Each processed file is appended to the journal file before the file is moved or deleted. Files which were moved
+ * or deleted are dropped from the journal when it is compacted at the end of a poll.
+ */
+public class ProcessedFileJournal {
+
+    private static final Log log = LogFactory.getLog(ProcessedFileJournal.class);
+
+    private final File journalFile;
+    private final Set<String> processedFiles = ConcurrentHashMap.newKeySet();
+    private Writer writer;
+    private boolean dirty;
+
+    public ProcessedFileJournal(File journalFile) throws IOException {
+        this.journalFile = journalFile;
+        if (journalFile.exists()) {
+            for (String line : FileUtils.readLines(journalFile, StandardCharsets.UTF_8.name())) {
+                if (!line.isEmpty()) {
+                    processedFiles.add(line);
+                }
+            }
+            if (!processedFiles.isEmpty()) {
+                log.info(processedFiles.size() + " file(s) of an interrupted poll are recorded in : " + journalFile
+                         + ". They will be moved or deleted without being processed again.");
+            }
+        } else if (journalFile.getParentFile() != null) {
+            FileUtils.forceMkdir(journalFile.getParentFile());
+        }
+        openWriter();
+    }
+
+    /**
+     * @param fileKey key of the file, see {@link #getFileKey(String, long, long)}
+     * @return true if the file has been processed but not yet moved or deleted
+     */
+    public boolean isProcessed(String fileKey) {
+        return processedFiles.contains(fileKey);
+    }
+
+    /**
+     * Records that the file has been handed over to the engine. The record is flushed before returning.
+     * @param fileKey key of the file
+     */
+    public synchronized void markProcessed(String fileKey) {
+        if (!processedFiles.add(fileKey)) {
+            return;
+        }
+        try {
+            writer.write(fileKey);
+            writer.write('\n');
+            writer.flush();
+        } catch (IOException e) {
+            log.error("Unable to record processed file in : " + journalFile, e);
+        }
+    }
+
+    /**
+     * Records that the file has been moved or deleted after processing.
+     * @param fileKey key of the file
+     */
+    public synchronized void markCompleted(String fileKey) {
+        if (processedFiles.remove(fileKey)) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Rewrites the journal with the files which are still processed but not moved or deleted.
+     */
+    public synchronized void compact() {
+        if (!dirty) {
+            return;
+        }
+        try {
+            writer.close();
+            List<String> remaining = new ArrayList<String>(processedFiles);
+            FileUtils.writeLines(journalFile, StandardCharsets.UTF_8.name(), remaining);
+            dirty = false;
+            openWriter();
+        } catch (IOException e) {
+            log.error("Unable to compact processed file journal : " + journalFile, e);
+        }
+    }
+
+    public synchronized void close() {
+        compact();
+        try {
+            writer.close();
+        } catch (IOException e) {
+            log.warn("Unable to close processed file journal : " + journalFile, e);
+        }
+    }
+
+    public static String getFileKey(String fileUri, long size, long lastModified) {
+        return fileUri + "|" + size + "|" + lastModified;
+    }
+
+    private void openWriter() throws IOException {
+        writer = new OutputStreamWriter(new FileOutputStream(journalFile, true), StandardCharsets.UTF_8);
+    }
+}
@@ -19,7 +19,9 @@
 package org.apache.synapse.transport.vfs;
 
 import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.OMNode;
 import org.apache.axiom.om.OMOutputFormat;
+import org.apache.axiom.om.OMText;
 import org.apache.axis2.AxisFault;
 import org.apache.axis2.context.ConfigurationContext;
 import org.apache.axis2.context.MessageContext;
@@ -36,10 +38,12 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.commons.vfs2.*;
 import org.apache.commons.vfs2.impl.StandardFileSystemManager;
 import org.apache.synapse.commons.vfs.VFSConstants;
+import org.apache.synapse.commons.vfs.VFSDataSource;
 import org.apache.synapse.commons.vfs.VFSParamDTO;
 import org.apache.synapse.commons.vfs.VFSUtils;
 import org.apache.synapse.commons.vfs.VFSOutTransportInfo ;
 
+import javax.activation.DataHandler;
 import java.io.IOException;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -66,6 +70,9 @@ public class VFSTransportSender extends AbstractTransportSender implements Manag
 
     private VFSParamDTO vfsParamDTO = null;
 
+    /** size of the buffer used when a binary file is streamed to or from a remote file system */
+    private int transferChunkSize = VFSConstants.DEFAULT_TRANSFER_CHUNK_SIZE;
+
     /**
      * Map to hold lock object for each host per service when operating in synchronous write mode
      */
@@ -145,6 +152,15 @@ public class VFSTransportSender extends AbstractTransportSender implements Manag
                 }
 
             }
+            Parameter chunkSizeParam = transportOut.getParameter(VFSConstants.TRANSPORT_FILE_TRANSFER_CHUNK_SIZE);
+            if (chunkSizeParam != null && chunkSizeParam.getValue() != null) {
+                try {
+                    transferChunkSize = Integer.parseInt(chunkSizeParam.getValue().toString().trim());
+                } catch (NumberFormatException e) {
+                    log.warn("VFS transfer chunk size is not set properly. Given value is : "
+                             + chunkSizeParam.getValue() + ", defaults to - " + transferChunkSize, e);
+                }
+            }
             vfsParamDTO = new VFSParamDTO();
             vfsParamDTO.setAutoLockRelease(autoLockRelease);
             vfsParamDTO.setAutoLockReleaseInterval(autoLockReleaseInterval);
@@ -348,12 +364,20 @@ public class VFSTransportSender extends AbstractTransportSender implements Manag
         OMOutputFormat format = BaseUtils.getOMOutputFormat(msgContext);
         
         try {
-            CountingOutputStream os = new CountingOutputStream(
-                    responseFile.getContent().getOutputStream(append));
-            try {
-                messageFormatter.writeTo(msgContext, format, os, false);
-            } finally {
-                os.close();
+            long byteCount;
+            FileObject sourceFile = getBinarySourceFile(msgContext, messageFormatter);
+            if (sourceFile != null) {
+                // binary file relayed as it is, copy it without going through the formatter
+                byteCount = VFSUtils.copy(sourceFile, responseFile, append, transferChunkSize);
+            } else {
+                CountingOutputStream os = new CountingOutputStream(
+                        responseFile.getContent().getOutputStream(append));
+                try {
+                    messageFormatter.writeTo(msgContext, format, os, false);
+                } finally {
+                    os.close();
+                }
+                byteCount = os.getByteCount();
             }
 
             //setting last modified
@@ -371,7 +395,7 @@ public class VFSTransportSender extends AbstractTransportSender implements Manag
             
             // update metrics
             metrics.incrementMessagesSent(msgContext);
-            metrics.incrementBytesSent(msgContext, os.getByteCount());
+            metrics.incrementBytesSent(msgContext, byteCount);
             
         } catch (FileSystemException e) {
             if (lockingEnabled) {
@@ -388,6 +412,33 @@ public class VFSTransportSender extends AbstractTransportSender implements Manag
         }
     }
 
+    /**
+     * Find the file behind a binary payload, which is the case when a file read by the VFS listener in streaming
+     * mode is sent out as it is.
+     * @param msgContext the message being sent
+     * @param messageFormatter the formatter selected for the message
+     * @return the source file, or null if the payload has to be written by the formatter
+     */
+    private FileObject getBinarySourceFile(MessageContext msgContext, MessageFormatter messageFormatter) {
+        if (!(messageFormatter instanceof BinaryFormatter) || msgContext.getEnvelope() == null) {
+            return null;
+        }
+        OMElement wrapper = msgContext.getEnvelope().getBody().getFirstElement();
+        if (wrapper == null || !BaseConstants.DEFAULT_BINARY_WRAPPER.equals(wrapper.getQName())) {
+            return null;
+        }
+        OMNode node = wrapper.getFirstOMChild();
+        if (!(node instanceof OMText) || !((OMText) node).isBinary()) {
+            return null;
+        }
+        Object dataHandler = ((OMText) node).getDataHandler();
+        if (dataHandler instanceof DataHandler
+                && ((DataHandler) dataHandler).getDataSource() instanceof VFSDataSource) {
+            return ((VFSDataSource) ((DataHandler) dataHandler).getDataSource()).getFileObject();
+        }
+        return null;
+    }
+
     private void acquireLockForSending(FileObject responseFile, VFSOutTransportInfo vfsOutInfo, FileSystemOptions fso)
             throws AxisFault {
         
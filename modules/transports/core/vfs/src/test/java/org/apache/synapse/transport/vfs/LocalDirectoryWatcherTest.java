@@ -0,0 +1,101 @@
+/*
+ *     Copyright (c) 2017, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *     WSO2 Inc. licenses this file to you under the Apache License,
+ *     Version 2.0 (the "License"); you may not use this file except
+ *     in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing,
+ *    software distributed under the License is distributed on an
+ *    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *    KIND, either express or implied.  See the License for the
+ *    specific language governing permissions and limitations
+ *    under the License.
+ */
+package org.apache.synapse.transport.vfs;
+
+import junit.framework.TestCase;
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+
+/**
+ * Unit testcase to test functionality of {@link LocalDirectoryWatcher}
+ */
+public class LocalDirectoryWatcherTest extends TestCase {
+
+    private File directory;
+
+    @Override
+    protected void setUp() throws Exception {
+        directory = Files.createTempDirectory("vfs-watch").toFile();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        FileUtils.deleteQuietly(directory);
+    }
+
+    /**
+     * Files which are in the directory before the watcher starts and files created afterwards should be indexed
+     * once, skipping lock files and files which do not match the pattern.
+     * @throws Exception
+     */
+    public void testPendingFileIndex() throws Exception {
+        FileUtils.writeStringToFile(new File(directory, "a.txt"), "a");
+        FileUtils.writeStringToFile(new File(directory, "b.txt"), "b");
+        FileUtils.writeStringToFile(new File(directory, "b.txt.lock"), "lock");
+        FileUtils.writeStringToFile(new File(directory, "c.xml"), "c");
+
+        LocalDirectoryWatcher watcher = new LocalDirectoryWatcher(directory.toPath(), ".*\\.txt");
+        watcher.start();
+        try {
+            List<String> files = watcher.drain(-1);
+            Assert.assertEquals("Existing files should be indexed on start", 2, files.size());
+            Assert.assertTrue(files.contains("a.txt"));
+            Assert.assertTrue(files.contains("b.txt"));
+
+            FileUtils.writeStringToFile(new File(directory, "d.txt"), "d");
+            long deadline = System.currentTimeMillis() + 30000;
+            while (watcher.getPendingFileCount() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+            }
+            files = watcher.drain(-1);
+            Assert.assertEquals("New file should be indexed", 1, files.size());
+            Assert.assertEquals("d.txt", files.get(0));
+
+            watcher.offer("d.txt");
+            watcher.offer("d.txt");
+            Assert.assertEquals("A file should be indexed only once", 1, watcher.getPendingFileCount());
+            Assert.assertEquals(1, watcher.drain(5).size());
+        } finally {
+            watcher.stop();
+        }
+        Assert.assertFalse(watcher.isRunning());
+    }
+
+    /**
+     * The watcher should stop, and release its watch service, once the directory can no longer be watched.
+     * @throws Exception
+     */
+    public void testDirectoryRemoved() throws Exception {
+        LocalDirectoryWatcher watcher = new LocalDirectoryWatcher(directory.toPath(), null);
+        watcher.start();
+        try {
+            FileUtils.deleteDirectory(directory);
+            long deadline = System.currentTimeMillis() + 30000;
+            while (watcher.isRunning() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+            }
+            Assert.assertFalse("Watcher should stop when the directory is removed", watcher.isRunning());
+        } finally {
+            watcher.stop();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ *  Copyright (c) 2019, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.synapse.transport.vfs;
+
+import junit.framework.TestCase;
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.regex.Pattern;
+
+/**
+ * Unit testcase to test functionality of {@link ProcessedFileJournal} and the ordering keys of the parallel
+ * file processing
+ */
+public class ProcessedFileJournalTest extends TestCase {
+
+    private File directory;
+
+    @Override
+    protected void setUp() throws Exception {
+        directory = Files.createTempDirectory("vfs-journal").toFile();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        FileUtils.deleteQuietly(directory);
+    }
+
+    /**
+     * Files processed but not completed before a restart should be known as processed after the restart, while
+     * completed files should be dropped from the journal.
+     * @throws Exception
+     */
+    public void testJournalSurvivesRestart() throws Exception {
+        File journalFile = new File(directory, "progress/journal.log");
+        String first = ProcessedFileJournal.getFileKey("file:///in/a.txt", 10, 1000);
+        String second = ProcessedFileJournal.getFileKey("file:///in/b.txt", 20, 2000);
+
+        ProcessedFileJournal journal = new ProcessedFileJournal(journalFile);
+        journal.markProcessed(first);
+        journal.markProcessed(second);
+        journal.markCompleted(first);
+        Assert.assertFalse(journal.isProcessed(first));
+        Assert.assertTrue(journal.isProcessed(second));
+        // simulate a crash, the journal is not closed
+
+        ProcessedFileJournal recovered = new ProcessedFileJournal(journalFile);
+        Assert.assertTrue("Processed file should be recovered", recovered.isProcessed(second));
+        recovered.markCompleted(second);
+        recovered.close();
+
+        ProcessedFileJournal compacted = new ProcessedFileJournal(journalFile);
+        Assert.assertFalse("Completed file should be dropped", compacted.isProcessed(second));
+        compacted.close();
+    }
+
+    /**
+     * The first group of the ordering key pattern should be used as the key, falling back to the file name.
+     */
+    public void testOrderingKey() {
+        Pattern pattern = Pattern.compile("^([^_]+)_");
+        Assert.assertEquals("customer1", VFSTransportListener.getOrderingKey(pattern, "customer1_001.xml"));
+        Assert.assertEquals("customer1", VFSTransportListener.getOrderingKey(pattern, "customer1_002.xml"));
+        Assert.assertEquals("other.xml", VFSTransportListener.getOrderingKey(pattern, "other.xml"));
+        Assert.assertEquals("a.xml", VFSTransportListener.getOrderingKey(null, "a.xml"));
+        Assert.assertEquals("order", VFSTransportListener.getOrderingKey(Pattern.compile("order"), "order-1.xml"));
+    }
+}